@@ -51,6 +51,10 @@ public class Metrics2dRunnable implements Runnable {
 	 * The type in rmse,mae,auc,log,cat,pre,rec,f,cor
 	 */
 	String type="";
+	/**
+	 * distance between the columns this runnable computes (0 for one column)
+	 */
+	int step=0;
   /**
    * 
    * @param actual : the actual values
@@ -68,8 +72,67 @@ public class Metrics2dRunnable implements Runnable {
 		
 	}
 	
+	/**
+	 * 
+	 * @param actual : the actual values
+	 * @param pred : the predicted values
+	 * @param results  : where to put the metric
+	 * @param column  : first column to use for the array
+	 * @param step  : distance between the columns this runnable computes (e.g. the number of threads). 0 for one column
+	 * @param type  : the type in  rmse,mae,auc,log,cat,pre,rec,f,cor
+	 */
+	public Metrics2dRunnable(double actual [][],  double pred [][],double results [] , int column, int step, String type) {
+		this(actual, pred, results, column, type);
+		this.step=step;
+	}
+	
+	/**
+	 * Computes the metric of every column with at most the given number of threads , each of which takes every threads-th column
+	 * @param actual : the actual values
+	 * @param pred : the predicted values
+	 * @param type  : the type in  rmse,mae,auc,log,cat,pre,rec,f,cor
+	 * @param threads : number of threads
+	 * @return the metric of every column
+	 */
+	public static double [] compute(double actual [][],  double pred [][], String type, int threads){
+		if (actual==null || actual.length==0){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		double results []= new double [actual[0].length];
+		if (threads<=0) {
+			threads=1;
+		}
+		if (threads>results.length) {
+			threads=results.length;
+		}
+		Thread[] thread_array= new Thread[threads];
+		for (int n=0; n <threads; n++ ){
+			thread_array[n]= new Thread(new Metrics2dRunnable(actual,pred, results, n, threads, type));
+			thread_array[n].start();
+		}
+		for (int n=0; n <threads; n++ ){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+		return results;
+	}
+	
 	@Override
 	public void run() {
+		int c=column;
+		do {
+			compute(c);
+			c+=step;
+		} while (step>0 && c<results.length);
+	}
+	/**
+	 * @param column : the column to compute the metric for
+	 */
+	private void compute(int column) {
 		//sensible checks
 		if (actual==null || pred==null ||
 				actual.length==0 || pred.length==0 || 
@@ -97,71 +160,9 @@ public class Metrics2dRunnable implements Runnable {
     		}
     		results[column]=errormae/actual.length;
          } else if (type.equals("auc")){      	 
-			 // find distinct values
-		    double [] distinct_values =manipulate.distinct.distinct.getdoubleDistinctset(actual,column);
-		    int Targetsize=  distinct_values.length;
-		    // Throw exception if the size is not 2
-		    if (Targetsize!=2) {
-					throw new IllegalStateException("Your array needs to be binary (e.g to have 2 disticnt values like 0 and 1).");
-				}	 
-
-		    //find smallest and highest values
-		    Arrays.sort(distinct_values);
-		    double low=distinct_values[0];
-		    double high=distinct_values[1];	
-		    //make compies
-		    double predictedvalues []=manipulate.select.columnselect.ColumnSelect(pred,column);
-		    double target []=manipulate.select.columnselect.ColumnSelect(actual,column);
-		    // Sort based on predictive value
-		    manipulate.sort.mergesorts.mergesort(predictedvalues,target,0,predictedvalues.length-1 );
-		    double Sum_bad=0;
-		    double Sum_good=0;	
-		    double firstc=0;
-		    double secon=0;
-		    for (int i=0; i< predictedvalues.length; i++) {
-       	         if(low==target[i]) 
-       	         { firstc++;} 
-       	         else 
-       	         {secon++;}
-       	         }
-		    //Calculate total combinations for the AUC
-		    double combination= firstc*secon;
-		    double good= (int)secon;
-		    //counters
-		    int counter=0;
-		    int counter2=0;
-		    //sum-ers
-		    double goodss= good;
-		    double big_sum=0;		
-		    // here starts the big while
-		    while (counter2<target.length) {
-		    	double sum=0;
-		    	int other_count=0;
-		    	while (counter2<target.length && predictedvalues[counter]==predictedvalues[counter2] ){
-		    		other_count=other_count+1;
-		    		if (target[counter2]==high){
-		    			sum+=1;	
-		    		}
-		    		counter2++;
-		    	}			
-		    	if (sum==0) {
-		    		big_sum=big_sum+ (other_count * goodss);
-		    		Sum_bad=Sum_bad+other_count;
-		    	} else {
-		    		Sum_bad= (Sum_bad+ other_count- sum);
-		    		Sum_good= (Sum_good +sum);
-		    		big_sum=big_sum+ ( (other_count-sum) * (goodss-sum) ) + (((other_count-sum) *(sum)) /2);	
-		    	}
-
-		    	goodss=goodss-sum;
-		    	counter=counter2;
-		    }
-		    // the AUC
-		    distinct_values=null;
-		    predictedvalues=null;
-		    target=null;
-		    
-		    results[column]=(big_sum/combination);
+		    // sort-free auc of the column (radix keys)
+		    results[column]=new auc().GetValue(manipulate.select.columnselect.ColumnSelect(pred,column),
+		    		manipulate.select.columnselect.ColumnSelect(actual,column));
 		    
          }
 		 //deviance
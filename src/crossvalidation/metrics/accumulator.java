@@ -0,0 +1,67 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+/**
+ * 
+ * @author marios
+ *<p> interface for metrics that are computed in a stream , one or a few rows at a time , without holding the predicted and actual arrays. 
+ * Accumulators of the same kind can be merged , so that each thread or chunk of a file fills its own and they are merged at the end. </p>
+ */
+public interface accumulator {
+
+	/**
+	 * 
+	 * @param predicted : predicted value of a row
+	 * @param actual : actual value of a row
+	 */
+	public void update(double predicted, double actual);
+	/**
+	 * 
+	 * @param predicted : array with predicted values
+	 * @param actual : array with actual values
+	 */
+	public void update(double predicted [], double actual []);
+	/**
+	 * 
+	 * @param other : accumulator of the same kind (and settings) to add to this one
+	 */
+	public void merge(accumulator other);
+	/**
+	 * @return the value of the metric for all the rows seen so far
+	 */
+	public double value();
+	/**
+	 * @return the number of rows seen so far
+	 */
+	public long count();
+	/**
+	 * @return a new empty accumulator with the same settings (e.g. one for each thread)
+	 */
+	public accumulator empty();
+	/**
+	 * @return : the type of the metric
+	 */
+	public String Gettype();
+	
+}
@@ -0,0 +1,123 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Runnable that fills an {@link accumulator} with a range of rows , so that a metric can be computed with many threads 
+ * (each filling its own empty accumulator) and the results merged. </p>
+ */
+public class accumulatorhelper implements Runnable {
+	/**
+	 * the accumulator to fill
+	 */
+	private accumulator acc;
+	/**
+	 * predicted values
+	 */
+	private double predicted[];
+	/**
+	 * actual values
+	 */
+	private double actual[];
+	/**
+	 * start of the rows' loop
+	 */
+	private int start;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end;
+	
+	/**
+	 * 
+	 * @param acc : the accumulator to fill
+	 * @param predicted : predicted values
+	 * @param actual : actual values
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public accumulatorhelper(accumulator acc, double predicted[], double actual[], int st, int ed){
+		if (acc==null || predicted==null || actual==null || predicted.length!=actual.length || st<0 || ed>predicted.length || st>ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.acc=acc;
+		this.predicted=predicted;
+		this.actual=actual;
+		this.start=st;
+		this.end=ed;
+	}
+	
+	/**
+	 * Fills the accumulator with all the rows , with every thread filling an empty copy of it for a range of rows
+	 * @param acc : the accumulator to fill (it may already hold rows)
+	 * @param predicted : predicted values
+	 * @param actual : actual values
+	 * @param threads : number of threads
+	 * @return the accumulator
+	 */
+	public static accumulator update(accumulator acc, double predicted[], double actual[], int threads){
+		if (acc==null || predicted==null || actual==null || predicted.length!=actual.length){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		if (threads<=0) {
+			threads=1;
+		}
+		if (threads>predicted.length) {
+			threads=Math.max(1, predicted.length);
+		}
+		if (threads==1){
+			acc.update(predicted, actual);
+			return acc;
+		}
+		accumulator parts[]= new accumulator[threads];
+		Thread[] thread_array= new Thread[threads];
+		for (int n=0; n <threads; n++ ){
+			parts[n]=acc.empty();
+			thread_array[n]= new Thread(new accumulatorhelper(parts[n], predicted, actual,
+					(int) (((long) predicted.length*n)/threads), (int) (((long) predicted.length*(n+1))/threads)));
+			thread_array[n].start();
+		}
+		for (int n=0; n <threads; n++ ){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+			acc.merge(parts[n]);
+		}
+		return acc;
+	}
+
+	@Override
+	public void run() {
+		for (int i=start; i <end; i++){
+			acc.update(predicted[i], actual[i]);
+		}
+	}
+
+}
@@ -21,9 +21,9 @@ SOFTWARE.
 
 
 package crossvalidation.metrics;
-import java.util.Arrays;
 
 import exceptions.IllegalStateException;
+import manipulate.sort.radixsort;
 
 
 /**
@@ -35,82 +35,217 @@ import exceptions.IllegalStateException;
  * it maps the confusion matrix of sensitivity and 1-specificity for all possible cut-offs of the scoring array.
  * <p>The area under ROC will be calculated by summing the the number of cases with a positive score that are
  * higher of the total of those with a negative score for each different distinct score divided by the total number of 'good' and 'bad' combinations.
+ * <p> The scores of each class are sorted as radix keys (no copies of the arrays , no comparisons) in parallel chunks when threads&gt;1 
+ * and the pairs are counted with one walk over the sorted chunks , ties counting as half. For very large arrays bins&gt;0 gives 
+ * an approximate auc from a histogram of the scores along with its error bound.
  */
 public class auc implements Metric {
     /**
      * The current_metrics' value
      */
 	private double metric=0.0;
+	/**
+	 * Number of threads to use for the auc of one column. A thread is only used for every 100000 rows
+	 */
+	public int threads=1;
+	/**
+	 * If higher than zero , the auc is approximated with a histogram of that many bins of the scores instead of sorting them
+	 * (for very large arrays). The error bound is given by {@link #GetErrorBound()}
+	 */
+	public int bins=0;
+	/**
+	 * the error bound of the last approximate auc
+	 */
+	private double error_bound=0.0;
+	/**
+	 * minimum number of rows for every thread
+	 */
+	private static final int MIN_ROWS_PER_THREAD=100000;
 
 	public double GetValue(double[] predicted, double[] actual) {
 		//sensible checks
 		if (actual==null || predicted==null || actual.length==0 || predicted.length==0 || actual.length!=predicted.length){
 			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
 		}
-		 // find distinct values
-	    double [] distinct_values =manipulate.distinct.distinct.getdoubleDistinctset(actual);
-	    int Targetsize=  distinct_values.length;
-	    // Throw exception if the size is not 2
-	    if (Targetsize!=2) {
+		// find the two distinct values
+		double low=actual[0];
+		double high=actual[0];
+		for (int i=1; i <actual.length; i++){
+			double value=actual[i];
+			if (value==low || value==high){
+				continue;
+			}
+			if (low!=high){
 				throw new IllegalStateException("Your array needs to be binary (e.g to have 2 disticnt values like 0 and 1).");
-			}	 
-	    //find smallest and highest values
-	    Arrays.sort(distinct_values);
-	    double low=distinct_values[0];
-	    double high=distinct_values[1];	
-	    //make compies to respect order
-	    double predictedvalues []=manipulate.copies.copies.Copy(predicted);
-	    double target []=manipulate.copies.copies.Copy(actual);
-	    // Sort based on predictive value
-	    manipulate.sort.mergesorts.mergesort(predictedvalues,target,0,predictedvalues.length-1 );
-	    double Sum_bad=0;
-	    double Sum_good=0;	
-	    double firstc=0;
-	    double secon=0;
-	    for (int i=0; i< predictedvalues.length; i++) {
-   	         if(low==target[i]) 
-   	         { firstc++;} 
-   	         else 
-   	         {secon++;}
-   	         }
-	    //Calculate total combinations for the AUC
-	    double combination= firstc*secon;
-	    double good= (int)secon;
-	    //counters
-	    int counter=0;
-	    int counter2=0;
-	    //sum-ers
-	    double goodss= good;
-	    double big_sum=0;		
-	    // here starts the big while
-	    while (counter2<target.length) {
-	    	double sum=0;
-	    	int other_count=0;
-	    	while (counter2<target.length && predictedvalues[counter]==predictedvalues[counter2] ){
-	    		other_count=other_count+1;
-	    		if (target[counter2]==high){
-	    			sum+=1;	
-	    		}
-	    		counter2++;
-	    	}			
-	    	if (sum==0) {
-	    		big_sum=big_sum+ (other_count * goodss);
-	    		Sum_bad=Sum_bad+other_count;
-	    	} else {
-	    		Sum_bad= (Sum_bad+ other_count- sum);
-	    		Sum_good= (Sum_good +sum);
-	    		big_sum=big_sum+ ( (other_count-sum) * (goodss-sum) ) + (((other_count-sum) *(sum)) /2);	
-	    	}
-
-	    	goodss=goodss-sum;
-	    	counter=counter2;
-	    }
-	    // the AUC
-	    predictedvalues=null;
-	    target=null;
-	    distinct_values=null;
-		metric=(big_sum/combination);
-		return (big_sum/combination);
+			}
+			if (value<low){
+				low=value;
+			} else {
+				high=value;
+			}
+		}
+		if (low==high) {
+			throw new IllegalStateException("Your array needs to be binary (e.g to have 2 disticnt values like 0 and 1).");
+		}
+		error_bound=0.0;
+		if (bins>0){
+			metric=histogram(predicted, actual, high);
+		} else {
+			metric=exact(predicted, actual, high);
+		}
+		return metric;
+	}
+	
+	/**
+	 * @return the maximum difference between the last approximate auc (bins&gt;0) and the exact one. 0 for the exact auc
+	 */
+	public double GetErrorBound(){
+		return error_bound;
+	}
+	
+	/**
+	 * @param length : number of elements
+	 * @param chunks : number of chunks
+	 * @return the bounds of the chunks
+	 */
+	private static int [] bounds(int length, int chunks){
+		int bound[]=new int[chunks+1];
+		for (int c=0; c <=chunks; c++){
+			bound[c]=(int) (((long) length*c)/chunks);
+		}
+		return bound;
+	}
+	/**
+	 * @param length : number of rows
+	 * @return the number of threads to use
+	 */
+	private int get_threads(int length){
+		int t=Math.min(this.threads, length/MIN_ROWS_PER_THREAD);
+		return Math.max(t, 1);
+	}
+	/**
+	 * runs the helpers and waits for them
+	 */
+	private static void run_helpers(auchelper helpers[]){
+		if (helpers.length==1){
+			helpers[0].run();
+			return;
+		}
+		Thread[] thread_array= new Thread[helpers.length];
+		for (int n=0; n <helpers.length; n++){
+			thread_array[n]= new Thread(helpers[n]);
+			thread_array[n].start();
+		}
+		for (int n=0; n <helpers.length; n++){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
+	
+	/**
+	 * exact auc : the scores of each class are sorted (radix keys , in parallel chunks) and the pairs are counted with one walk
+	 * @param predicted : the scores
+	 * @param actual : the binary target
+	 * @param high : the value of the positive class
+	 * @return the auc
+	 */
+	private double exact(double predicted[], double actual[], double high){
+		int positive_count=0;
+		for (int i=0; i <actual.length; i++){
+			if (actual[i]==high){
+				positive_count++;
+			}
+		}
+		long positives[]=new long[positive_count];
+		long negatives[]=new long[actual.length-positive_count];
+		int p=0;
+		int n=0;
+		for (int i=0; i <actual.length; i++){
+			if (actual[i]==high){
+				positives[p++]=radixsort.key(predicted[i]);
+			} else {
+				negatives[n++]=radixsort.key(predicted[i]);
+			}
+		}
+		int chunks=get_threads(actual.length);
+		int pos_bounds[]=bounds(positives.length, chunks);
+		int neg_bounds[]=bounds(negatives.length, chunks);
+		auchelper helpers[]=new auchelper[chunks];
+		for (int c=0; c <chunks; c++){
+			helpers[c]=new auchelper(positives, pos_bounds, negatives, neg_bounds, c);
+		}
+		run_helpers(helpers);
+		long greater=0;
+		long ties=0;
+		for (int c=0; c <chunks; c++){
+			helpers[c].counting=true;
+		}
+		run_helpers(helpers);
+		for (int c=0; c <chunks; c++){
+			greater+=helpers[c].greater;
+			ties+=helpers[c].ties;
+		}
+		double combination=(double)positives.length*(double)negatives.length;
+		return (greater + ties*0.5)/combination;
+	}
+	
+	/**
+	 * approximate auc : the scores are counted in equal-width bins between the smallest and the highest score. 
+	 * Pairs within the same bin count as ties , so the error is at most half the share of such pairs (see {@link #GetErrorBound()})
+	 * @param predicted : the scores
+	 * @param actual : the binary target
+	 * @param high : the value of the positive class
+	 * @return the auc
+	 */
+	private double histogram(double predicted[], double actual[], double high){
+		double min=predicted[0];
+		double max=predicted[0];
+		for (int i=1; i <predicted.length; i++){
+			if (predicted[i]<min){
+				min=predicted[i];
+			} else if (predicted[i]>max){
+				max=predicted[i];
+			}
+		}
+		if (max<=min){
+			// all the scores are the same
+			return 0.5;
+		}
+		int chunks=get_threads(predicted.length);
+		int bound[]=bounds(predicted.length, chunks);
+		auchelper helpers[]=new auchelper[chunks];
+		for (int c=0; c <chunks; c++){
+			helpers[c]=new auchelper(predicted, actual, high, min, max, bins, bound[c], bound[c+1]);
+		}
+		run_helpers(helpers);
+		long pos_counts[]=helpers[0].pos_counts;
+		long neg_counts[]=helpers[0].neg_counts;
+		for (int c=1; c <chunks; c++){
+			for (int b=0; b <bins; b++){
+				pos_counts[b]+=helpers[c].pos_counts[b];
+				neg_counts[b]+=helpers[c].neg_counts[b];
+			}
+		}
+		double positives=0;
+		for (int b=0; b <bins; b++){
+			positives+=pos_counts[b];
+		}
+		double combination=positives*(predicted.length-positives);
+		// walk the bins from the lowest score , positives above the bin are counted for every negative
+		double above=positives;
+		double big_sum=0;
+		double same_bin=0;
+		for (int b=0; b <bins; b++){
+			above-=pos_counts[b];
+			big_sum+=neg_counts[b]*(above + pos_counts[b]*0.5);
+			same_bin+=(double)neg_counts[b]*pos_counts[b];
+		}
+		error_bound=(same_bin*0.5)/combination;
+		return big_sum/combination;
 	}
 
 	@Override
@@ -129,29 +264,8 @@ public class auc implements Metric {
 		if (threads>predicted[0].length) {
 			threads=predicted[0].length;
 		}	
-		// initialize the new arry to copy to
-		double new_array_to_copy_to []= new double [predicted[0].length];
-	
-		// the threads of operations
-		
-		Thread[] thread_array= new Thread[threads];
-		int count_of_live_threads=0;
-		
-		for (int n=0; n <new_array_to_copy_to.length; n++ ){
-			thread_array[count_of_live_threads]= new Thread(new Metrics2dRunnable(actual,predicted, new_array_to_copy_to, n,"auc"));
-			thread_array[count_of_live_threads].start();
-			count_of_live_threads++;
-			if (count_of_live_threads==threads || n==new_array_to_copy_to.length-1){
-				for (int s=0; s <count_of_live_threads;s++ ){
-					try {
-						thread_array[s].join();
-					} catch (InterruptedException e) {
-					   System.out.println(e.getMessage());
-					}
-				}
-				count_of_live_threads=0;
-			}
-		}
+		// every thread takes every threads-th column
+		double new_array_to_copy_to []= Metrics2dRunnable.compute(actual, predicted, "auc", threads);
 		
 	    metric=Stats.DescriptiveStatistics.getMean(new_array_to_copy_to);
 	    
@@ -0,0 +1,201 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Streaming (mergeable) accumulator for the auc. The scores are counted per class in a fixed number of equal-width bins 
+ * between a given minimum and maximum (scores outside go to the first or last bin) , so the memory does not depend on the rows. 
+ * Pairs within the same bin count as ties , see {@link #GetErrorBound()}. The same sketch gives the precision of the top K scored rows. </p>
+ */
+public class aucaccumulator implements accumulator {
+	/**
+	 * value of the positive class , any other value is the negative class
+	 */
+	private double positive=1.0;
+	/**
+	 * smallest score of the bins
+	 */
+	private double min;
+	/**
+	 * highest score of the bins
+	 */
+	private double max;
+	/**
+	 * number of bins divided by the range of the scores
+	 */
+	private double scale;
+	/**
+	 * count of the positives in every bin
+	 */
+	private long pos_counts[];
+	/**
+	 * count of the negatives in every bin
+	 */
+	private long neg_counts[];
+	/**
+	 * rows seen
+	 */
+	private long rows=0;
+	
+	/**
+	 * 1000 bins for probabilities (0 to 1) with 1.0 as the positive class
+	 */
+	public aucaccumulator(){
+		this(1000, 0.0, 1.0, 1.0);
+	}
+	/**
+	 * @param bins : number of bins
+	 * @param min : smallest score of the bins
+	 * @param max : highest score of the bins
+	 * @param positive : value of the positive class
+	 */
+	public aucaccumulator(int bins, double min, double max, double positive){
+		if (bins<=0 || !(max>min)){
+			throw new IllegalStateException(" bins need to be higher than zero and max higher than min" );
+		}
+		this.min=min;
+		this.max=max;
+		this.scale=bins/(max-min);
+		this.positive=positive;
+		this.pos_counts=new long[bins];
+		this.neg_counts=new long[bins];
+	}
+
+	@Override
+	public void update(double predicted, double actual) {
+		int b=auchelper.bin(predicted, pos_counts.length, min, scale);
+		if (actual==positive){
+			pos_counts[b]++;
+		} else {
+			neg_counts[b]++;
+		}
+		rows++;
+	}
+
+	@Override
+	public void update(double[] predicted, double[] actual) {
+		if (actual==null || predicted==null || actual.length!=predicted.length){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		for (int i=0; i <predicted.length; i++){
+			update(predicted[i], actual[i]);
+		}
+	}
+
+	@Override
+	public void merge(accumulator other) {
+		if (!(other instanceof aucaccumulator)){
+			throw new IllegalStateException(" Accumulators are not mergeable as: " + other.Gettype() + " <> " + this.Gettype());
+		}
+		aucaccumulator acc=(aucaccumulator) other;
+		if (acc.pos_counts.length!=pos_counts.length || acc.min!=min || acc.max!=max || acc.positive!=positive){
+			throw new IllegalStateException(" Accumulators of the auc need the same bins and positive class to be merged");
+		}
+		for (int b=0; b <pos_counts.length; b++){
+			pos_counts[b]+=acc.pos_counts[b];
+			neg_counts[b]+=acc.neg_counts[b];
+		}
+		rows+=acc.rows;
+	}
+	/**
+	 * @return the number of positives seen so far
+	 */
+	private double positives(){
+		double positives=0;
+		for (int b=0; b <pos_counts.length; b++){
+			positives+=pos_counts[b];
+		}
+		return positives;
+	}
+
+	@Override
+	public double value() {
+		double positives=positives();
+		double combination=positives*(rows-positives);
+		if (combination==0){
+			throw new IllegalStateException("Your array needs to be binary (e.g to have 2 disticnt values like 0 and 1).");
+		}
+		// walk the bins from the lowest score , positives above the bin are counted for every negative
+		double above=positives;
+		double big_sum=0;
+		for (int b=0; b <pos_counts.length; b++){
+			above-=pos_counts[b];
+			big_sum+=neg_counts[b]*(above + pos_counts[b]*0.5);
+		}
+		return big_sum/combination;
+	}
+	/**
+	 * @return the maximum difference between {@link #value()} and the exact auc of the rows seen so far 
+	 * (half the share of the positive-negative pairs that fall in the same bin)
+	 */
+	public double GetErrorBound(){
+		double positives=positives();
+		double same_bin=0;
+		for (int b=0; b <pos_counts.length; b++){
+			same_bin+=(double)neg_counts[b]*pos_counts[b];
+		}
+		return (same_bin*0.5)/(positives*(rows-positives));
+	}
+	/**
+	 * 
+	 * @param k : number of rows with the highest scores
+	 * @return the share of positives within the k rows with the highest scores. Rows of the bin where the k-th row falls count proportionally
+	 */
+	public double precision_at(long k){
+		if (k<=0 || k>rows){
+			throw new IllegalStateException(" k needs to be between 1 and the number of rows (" + rows + ")");
+		}
+		double taken=0;
+		double hits=0;
+		for (int b=pos_counts.length-1; b>=0 && taken<k; b--){
+			double in_bin=pos_counts[b]+neg_counts[b];
+			if (in_bin==0){
+				continue;
+			}
+			double take=Math.min(in_bin, k-taken);
+			hits+=pos_counts[b]*(take/in_bin);
+			taken+=take;
+		}
+		return hits/k;
+	}
+
+	@Override
+	public long count() {
+		return rows;
+	}
+
+	@Override
+	public accumulator empty() {
+		return new aucaccumulator(pos_counts.length, min, max, positive);
+	}
+
+	@Override
+	public String Gettype() {
+		return "auc";
+	}
+
+}
@@ -0,0 +1,211 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+import manipulate.sort.radixsort;
+
+/**
+ * 
+ * @author marios
+ *<p> Runnable parts of the auc. The scores of each class are held as radix keys split in chunks. 
+ * First each helper sorts its chunk of the positives and of the negatives , then (counting=true) it counts for its chunk of the negatives 
+ * how many positives have a higher or the same score , by walking each sorted chunk of the positives once. 
+ * No merge of the chunks is needed. A helper may also fill the counts of a histogram of the scores for a range of rows (approximate auc).</p>
+ */
+public class auchelper implements Runnable {
+	/**
+	 * radix keys of the scores of the positive class
+	 */
+	private long positives[];
+	/**
+	 * bounds of the chunks of the positives
+	 */
+	private int pos_bounds[];
+	/**
+	 * radix keys of the scores of the negative class
+	 */
+	private long negatives[];
+	/**
+	 * bounds of the chunks of the negatives
+	 */
+	private int neg_bounds[];
+	/**
+	 * the chunk of this helper
+	 */
+	private int chunk=0;
+	/**
+	 * True to count the pairs instead of sorting
+	 */
+	public boolean counting=false;
+	/**
+	 * pairs where the positive scores higher than the negative
+	 */
+	public long greater=0;
+	/**
+	 * pairs where the positive and the negative have the same score
+	 */
+	public long ties=0;
+	/**
+	 * scores for the histogram
+	 */
+	private double predicted[];
+	/**
+	 * target for the histogram
+	 */
+	private double actual[];
+	/**
+	 * the value of the positive class
+	 */
+	private double high;
+	/**
+	 * smallest score
+	 */
+	private double min;
+	/**
+	 * number of bins divided by the range of the scores
+	 */
+	private double scale;
+	/**
+	 * start of the rows' loop
+	 */
+	private int start;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end;
+	/**
+	 * count of the positives in every bin
+	 */
+	public long pos_counts[];
+	/**
+	 * count of the negatives in every bin
+	 */
+	public long neg_counts[];
+	
+	/**
+	 * 
+	 * @param positives : radix keys of the scores of the positive class
+	 * @param pos_bounds : bounds of the chunks of the positives
+	 * @param negatives : radix keys of the scores of the negative class
+	 * @param neg_bounds : bounds of the chunks of the negatives (same number of chunks)
+	 * @param chunk : the chunk of this helper
+	 */
+	public auchelper(long positives[], int pos_bounds[], long negatives[], int neg_bounds[], int chunk){
+		if (positives==null || negatives==null || pos_bounds==null || neg_bounds==null || pos_bounds.length!=neg_bounds.length
+				|| chunk<0 || chunk>=pos_bounds.length-1){
+			throw new IllegalStateException(" The chunks of the auc are not valid" );
+		}
+		this.positives=positives;
+		this.pos_bounds=pos_bounds;
+		this.negatives=negatives;
+		this.neg_bounds=neg_bounds;
+		this.chunk=chunk;
+	}
+	/**
+	 * 
+	 * @param predicted : the scores
+	 * @param actual : the binary target
+	 * @param high : the value of the positive class
+	 * @param min : smallest score
+	 * @param max : highest score
+	 * @param bins : number of bins
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public auchelper(double predicted[], double actual[], double high, double min, double max, int bins, int st, int ed){
+		if (predicted==null || actual==null || st<0 || ed>predicted.length || st>ed || bins<=0 || max<=min){
+			throw new IllegalStateException(" The histogram of the auc is not valid" );
+		}
+		this.predicted=predicted;
+		this.actual=actual;
+		this.high=high;
+		this.min=min;
+		this.scale=bins/(max-min);
+		this.start=st;
+		this.end=ed;
+		this.pos_counts=new long[bins];
+		this.neg_counts=new long[bins];
+	}
+	
+	/**
+	 * @param value : the score
+	 * @param bins : the number of bins
+	 * @param min : smallest score
+	 * @param scale : number of bins divided by the range of the scores
+	 * @return the bin of the score
+	 */
+	public static int bin(double value, int bins, double min, double scale){
+		int b=(int) ((value-min)*scale);
+		if (b>=bins){
+			b=bins-1;
+		} else if (b<0){
+			b=0;
+		}
+		return b;
+	}
+	
+	@Override
+	public void run() {
+		if (predicted!=null){
+			int bins=pos_counts.length;
+			for (int i=start; i <end; i++){
+				int b=bin(predicted[i], bins, min, scale);
+				if (actual[i]==high){
+					pos_counts[b]++;
+				} else {
+					neg_counts[b]++;
+				}
+			}
+		} else if (!counting){
+			radixsort.sort(positives, pos_bounds[chunk], pos_bounds[chunk+1], null);
+			radixsort.sort(negatives, neg_bounds[chunk], neg_bounds[chunk+1], null);
+		} else {
+			greater=0;
+			ties=0;
+			int st=neg_bounds[chunk];
+			int ed=neg_bounds[chunk+1];
+			for (int c=0; c <pos_bounds.length-1; c++){
+				int first=pos_bounds[c];
+				int last=pos_bounds[c+1];
+				int lower=first; // first positive with score >= the negative
+				int upper=first; // first positive with score > the negative
+				for (int i=st; i <ed; i++){
+					long k=negatives[i];
+					while (lower<last && positives[lower]<k){
+						lower++;
+					}
+					if (upper<lower){
+						upper=lower;
+					}
+					while (upper<last && positives[upper]==k){
+						upper++;
+					}
+					greater+=last-upper;
+					ties+=upper-lower;
+				}
+			}
+		}
+	}
+
+}
@@ -68,29 +68,8 @@ public class classification_accuracy implements Metric {
 		if (threads>predicted[0].length) {
 			threads=predicted[0].length;
 		}	
-		// initialize the new arry to copy to
-		double new_array_to_copy_to []= new double [predicted[0].length];
-	
-		// the threads of operations
-		
-		Thread[] thread_array= new Thread[threads];
-		int count_of_live_threads=0;
-		
-		for (int n=0; n <new_array_to_copy_to.length; n++ ){
-			thread_array[count_of_live_threads]= new Thread(new Metrics2dRunnable(actual,predicted, new_array_to_copy_to, n,"cat"));
-			thread_array[count_of_live_threads].start();
-			count_of_live_threads++;
-			if (count_of_live_threads==threads || n==new_array_to_copy_to.length-1){
-				for (int s=0; s <count_of_live_threads;s++ ){
-					try {
-						thread_array[s].join();
-					} catch (InterruptedException e) {
-					   System.out.println(e.getMessage());
-					}
-				}
-				count_of_live_threads=0;
-			}
-		}
+		// every thread takes every threads-th column
+		double new_array_to_copy_to []= Metrics2dRunnable.compute(actual, predicted, "cat", threads);
 		
 	    metric=Stats.DescriptiveStatistics.getMean(new_array_to_copy_to);
 		return  new_array_to_copy_to ;
@@ -0,0 +1,139 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Streaming (mergeable) accumulator for the classification accuracy (cat) , precision (pre) , recall (rec) and F-Measure (f). 
+ * It keeps the counts of the confusion matrix , where 1.0 is the positive class for pre , rec and f. </p>
+ */
+public class confusionaccumulator implements accumulator {
+	/**
+	 * The type in cat,pre,rec,f
+	 */
+	private String type;
+	/**
+	 * rows where the prediction is the actual value
+	 */
+	private long correct=0;
+	/**
+	 * true positives
+	 */
+	private long true_positive=0;
+	/**
+	 * false positives
+	 */
+	private long false_positive=0;
+	/**
+	 * false negatives
+	 */
+	private long false_negative=0;
+	/**
+	 * rows seen
+	 */
+	private long rows=0;
+	
+	/**
+	 * @param type : The type in cat,pre,rec,f
+	 */
+	public confusionaccumulator(String type){
+		if (type==null || (!type.equals("cat") && !type.equals("pre") && !type.equals("rec") && !type.equals("f"))){
+			throw new IllegalStateException(" Type was not recognized and has to be one of (cat,pre,rec,f)");
+		}
+		this.type=type;
+	}
+
+	@Override
+	public void update(double predicted, double actual) {
+		if (predicted==actual){
+			correct++;
+		}
+		if (predicted==1.0){
+			if (actual==1.0){
+				true_positive++;
+			} else {
+				false_positive++;
+			}
+		} else if (actual==1.0){
+			false_negative++;
+		}
+		rows++;
+	}
+
+	@Override
+	public void update(double[] predicted, double[] actual) {
+		if (actual==null || predicted==null || actual.length!=predicted.length){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		for (int i=0; i <predicted.length; i++){
+			update(predicted[i], actual[i]);
+		}
+	}
+
+	@Override
+	public void merge(accumulator other) {
+		if (!(other instanceof confusionaccumulator) || !((confusionaccumulator) other).type.equals(this.type)){
+			throw new IllegalStateException(" Accumulators are not mergeable as: " + other.Gettype() + " <> " + this.Gettype());
+		}
+		confusionaccumulator acc=(confusionaccumulator) other;
+		correct+=acc.correct;
+		true_positive+=acc.true_positive;
+		false_positive+=acc.false_positive;
+		false_negative+=acc.false_negative;
+		rows+=acc.rows;
+	}
+
+	@Override
+	public double value() {
+		if (rows==0){
+			return 0.0;
+		}
+		if (type.equals("cat")){
+			return (double) correct/rows;
+		} else if (type.equals("pre")){
+			return (double) true_positive/(true_positive+false_positive);
+		} else if (type.equals("rec")){
+			return (double) true_positive/(true_positive+false_negative);
+		}
+		return 2.0 * true_positive / (2.0 *true_positive  + false_positive + false_negative);
+	}
+
+	@Override
+	public long count() {
+		return rows;
+	}
+
+	@Override
+	public accumulator empty() {
+		return new confusionaccumulator(type);
+	}
+
+	@Override
+	public String Gettype() {
+		return type;
+	}
+
+}
@@ -0,0 +1,127 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Streaming (mergeable) accumulator for rmse , mae and log (deviance). The errors are added with a Kahan-compensated sum. 
+ * For log the actual values need to be 0 and 1 and the predictions are probabilities. </p>
+ */
+public class erroraccumulator implements accumulator {
+	/**
+	 * The type in rmse,mae,log
+	 */
+	private String type;
+	/**
+	 * sum of the errors
+	 */
+	private kahansum errors= new kahansum();
+	/**
+	 * rows seen
+	 */
+	private long rows=0;
+	
+	/**
+	 * @param type : The type in rmse,mae,log
+	 */
+	public erroraccumulator(String type){
+		if (type==null || (!type.equals("rmse") && !type.equals("mae") && !type.equals("log"))){
+			throw new IllegalStateException(" Type was not recognized and has to be one of (rmse,mae,log)");
+		}
+		this.type=type;
+	}
+
+	@Override
+	public void update(double predicted, double actual) {
+		if (type.equals("rmse")){
+			errors.add((actual-predicted)*(actual-predicted));
+		} else if (type.equals("mae")){
+			errors.add(Math.abs(actual-predicted));
+		} else {
+			double value=predicted;
+			if (value>1.0-(1E-14)){
+				value=1.0-(1E-14);
+			} else if (value<0+(1E-14)){
+				value=0.0+(1E-14);
+			}
+			if (actual==0){
+				errors.add(-Math.log(1-value));
+			} else if (actual==1.0){
+				errors.add(-Math.log(value));
+			} else {
+				throw new IllegalStateException("Your array needs to be binary and have the values of 0 and 1");
+			}
+		}
+		rows++;
+	}
+
+	@Override
+	public void update(double[] predicted, double[] actual) {
+		if (actual==null || predicted==null || actual.length!=predicted.length){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		for (int i=0; i <predicted.length; i++){
+			update(predicted[i], actual[i]);
+		}
+	}
+
+	@Override
+	public void merge(accumulator other) {
+		if (!(other instanceof erroraccumulator) || !((erroraccumulator) other).type.equals(this.type)){
+			throw new IllegalStateException(" Accumulators are not mergeable as: " + other.Gettype() + " <> " + this.Gettype());
+		}
+		erroraccumulator acc=(erroraccumulator) other;
+		errors.merge(acc.errors);
+		rows+=acc.rows;
+	}
+
+	@Override
+	public double value() {
+		if (rows==0){
+			return 0.0;
+		}
+		if (type.equals("rmse")){
+			return Math.sqrt(errors.value()/rows);
+		}
+		return errors.value()/rows;
+	}
+
+	@Override
+	public long count() {
+		return rows;
+	}
+
+	@Override
+	public accumulator empty() {
+		return new erroraccumulator(type);
+	}
+
+	@Override
+	public String Gettype() {
+		return type;
+	}
+
+}
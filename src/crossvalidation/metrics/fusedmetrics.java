@@ -0,0 +1,213 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Computes many metrics of the same predictions in one pass over the rows. The rows are split in ranges and every 
+ * {@link fusedmetricshelper} sums the errors of all the requested metrics for its range , so the predictions are read once.
+ * The predictions have one column (regression or the probability of the positive class) or one column per class. Valid metrics are
+ * <ul>
+ * <li> 'logloss' : the negative loglikelihood (the target needs to be 0 and 1 for one column or the index of the class) </li>
+ * <li> 'accuracy' : share of the rows where the class with the highest probability (0.5 cut-off for one column) is the target </li>
+ * <li> 'rmse' : root mean squared error of the first column </li>
+ * <li> 'mae' : mean absolute error of the first column </li>
+ * <li> 'auc' : area under the roc curve of the positive class (binary target only). This is not fused as it needs the scores sorted , but it uses the same threads </li>
+ * </ul>
+ */
+public class fusedmetrics {
+	/**
+	 * the metrics to compute
+	 */
+	private String metrics[];
+	/**
+	 * number of threads to use
+	 */
+	public int threads=1;
+	/**
+	 * minimum number of rows for every thread
+	 */
+	private static final int MIN_ROWS_PER_THREAD=50000;
+	
+	/**
+	 * 
+	 * @param metrics : the metrics to compute in logloss, accuracy, rmse, mae, auc
+	 */
+	public fusedmetrics(String metrics[]){
+		if (metrics==null || metrics.length==0){
+			throw new IllegalStateException(" There are no metrics to compute ");
+		}
+		for (int m=0; m <metrics.length; m++){
+			if (metrics[m]==null || (!metrics[m].equals("logloss") && !metrics[m].equals("accuracy") && !metrics[m].equals("rmse")
+					&& !metrics[m].equals("mae") && !metrics[m].equals("auc"))){
+				throw new IllegalStateException(" metric " + metrics[m] + " was not recognized and has to be one of (logloss, accuracy, rmse, mae, auc)");
+			}
+		}
+		this.metrics=metrics;
+	}
+	/**
+	 * 
+	 * @param metric : the metric to compute in logloss, accuracy, rmse, mae, auc
+	 */
+	public fusedmetrics(String metric){
+		this(new String[]{metric});
+	}
+	/**
+	 * @param name : the metric
+	 * @return true if the metric has been requested
+	 */
+	private boolean has(String name){
+		for (int m=0; m <metrics.length; m++){
+			if (metrics[m].equals(name)){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 
+	 * @param preds : 2 dimensional predictions
+	 * @param target : one dimensional target variable
+	 * @return the values of the metrics , in the order they were given
+	 */
+	public double [] GetValues(double preds[][], double target []){
+		return GetValues(preds, target, null, 1)[0];
+	}
+	/**
+	 * computes the metrics of many groups of rows (e.g. the folds of a cross validation) with one pass over the predictions
+	 * @param preds : 2 dimensional predictions
+	 * @param target : one dimensional target variable
+	 * @param group : the group of every row in [0,n_groups) , null if all the rows are one group
+	 * @param n_groups : number of groups
+	 * @return the values of the metrics of every group [group][metric] , in the order they were given
+	 */
+	public double [][] GetValues(double preds[][], double target [], int group[], int n_groups){
+		if (preds==null || target==null || preds.length==0 || preds.length!=target.length){
+			throw new IllegalStateException(" There is an error with the state of actual and pred in terms of length ");
+		}
+		if (n_groups<=0 || (group==null && n_groups!=1) || (group!=null && group.length!=preds.length)){
+			throw new IllegalStateException(" There needs to be one group for every row ");
+		}
+		double rows[]= new double[n_groups];
+		if (group==null){
+			rows[0]=preds.length;
+		} else {
+			for (int i=0; i <group.length; i++){
+				if (group[i]<0 || group[i]>=n_groups){
+					throw new IllegalStateException(" group " + group[i] + " of row " + i + " is not in [0," + n_groups + ")");
+				}
+				rows[group[i]]++;
+			}
+			for (int g=0; g <n_groups; g++){
+				if (rows[g]==0){
+					throw new IllegalStateException(" group " + g + " has no rows ");
+				}
+			}
+		}
+		int chunks=Math.max(1, Math.min(this.threads, preds.length/MIN_ROWS_PER_THREAD));
+		fusedmetricshelper helpers[]= new fusedmetricshelper[chunks];
+		for (int c=0; c <chunks; c++){
+			helpers[c]= new fusedmetricshelper(preds, target, group, n_groups, (int) (((long) preds.length*c)/chunks), (int) (((long) preds.length*(c+1))/chunks));
+			helpers[c].logloss=has("logloss");
+			helpers[c].accuracy=has("accuracy");
+			helpers[c].errors=has("rmse") || has("mae");
+		}
+		if (chunks==1){
+			helpers[0].run();
+		} else {
+			Thread[] thread_array= new Thread[chunks];
+			for (int c=0; c <chunks; c++){
+				thread_array[c]= new Thread(helpers[c]);
+				thread_array[c].start();
+			}
+			for (int c=0; c <chunks; c++){
+				try {
+					thread_array[c].join();
+				} catch (InterruptedException e) {
+				   System.out.println(e.getMessage());
+				   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+				}
+			}
+		}
+		double values[][]= new double[n_groups][metrics.length];
+		for (int g=0; g <n_groups; g++){
+			double log_sum=0.0;
+			double correct=0.0;
+			double squared_sum=0.0;
+			double absolute_sum=0.0;
+			for (int c=0; c <chunks; c++){
+				log_sum+=helpers[c].log_sum[g];
+				correct+=helpers[c].correct[g];
+				squared_sum+=helpers[c].squared_sum[g];
+				absolute_sum+=helpers[c].absolute_sum[g];
+			}
+			double len=rows[g];
+			for (int m=0; m <metrics.length; m++){
+				if (metrics[m].equals("logloss")){
+					values[g][m]=log_sum/len;
+				} else if (metrics[m].equals("accuracy")){
+					values[g][m]=correct/len;
+				} else if (metrics[m].equals("rmse")){
+					values[g][m]=Math.sqrt(squared_sum/len);
+				} else if (metrics[m].equals("mae")){
+					values[g][m]=absolute_sum/len;
+				} else {
+					values[g][m]=auc(preds, target, group, g, (int) len);
+				}
+			}
+		}
+		return values;
+	}
+	/**
+	 * @param preds : 2 dimensional predictions (one or two columns)
+	 * @param target : one dimensional target variable
+	 * @param group : the group of every row , null for one group
+	 * @param g : the group to compute the auc for
+	 * @param len : number of rows of the group
+	 * @return the auc of the positive class (last column) for the rows of the group
+	 */
+	private double auc(double preds[][], double target [], int group[], int g, int len){
+		if (preds[0].length>2){
+			throw new IllegalStateException(" auc needs one or two columns of predictions ");
+		}
+		int column=preds[0].length-1;
+		double scores[]= new double[len];
+		double actual[]= new double[len];
+		int count=0;
+		for (int i=0; i <preds.length; i++){
+			if (group==null || group[i]==g){
+				scores[count]=preds[i][column];
+				actual[count]=target[i];
+				count++;
+			}
+		}
+		auc a= new auc();
+		a.threads=this.threads;
+		return a.GetValue(scores, actual);
+	}
+
+}
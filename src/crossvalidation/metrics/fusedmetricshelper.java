@@ -0,0 +1,172 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Runnable part of {@link fusedmetrics} : one pass over a range of rows that sums the errors of all the requested metrics , for every group of rows (e.g. fold). </p>
+ */
+public class fusedmetricshelper implements Runnable {
+	/**
+	 * 2 dimensional predictions
+	 */
+	private double preds[][];
+	/**
+	 * one dimensional target variable
+	 */
+	private double target[];
+	/**
+	 * the group of every row (null if all rows are in group 0)
+	 */
+	private int group[];
+	/**
+	 * start of the rows' loop
+	 */
+	private int start;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end;
+	/**
+	 * True to sum the negative loglikelihood
+	 */
+	public boolean logloss=false;
+	/**
+	 * True to count the correct predictions
+	 */
+	public boolean accuracy=false;
+	/**
+	 * True to sum the squared and absolute errors of the first column
+	 */
+	public boolean errors=false;
+	/**
+	 * sum of the negative loglikelihood per group
+	 */
+	public double log_sum[];
+	/**
+	 * number of correct predictions per group
+	 */
+	public double correct[];
+	/**
+	 * sum of the squared errors per group
+	 */
+	public double squared_sum[];
+	/**
+	 * sum of the absolute errors per group
+	 */
+	public double absolute_sum[];
+	
+	/**
+	 * 
+	 * @param preds : 2 dimensional predictions
+	 * @param target : one dimensional target variable
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public fusedmetricshelper(double preds[][], double target[], int st, int ed){
+		this(preds, target, null, 1, st, ed);
+	}
+	/**
+	 * 
+	 * @param preds : 2 dimensional predictions
+	 * @param target : one dimensional target variable
+	 * @param group : the group of every row in [0,n_groups) , null for one group
+	 * @param n_groups : number of groups
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public fusedmetricshelper(double preds[][], double target[], int group[], int n_groups, int st, int ed){
+		if (preds==null || target==null || st<0 || ed>preds.length || st>ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.preds=preds;
+		this.target=target;
+		this.group=group;
+		this.start=st;
+		this.end=ed;
+		this.log_sum= new double[n_groups];
+		this.correct= new double[n_groups];
+		this.squared_sum= new double[n_groups];
+		this.absolute_sum= new double[n_groups];
+	}
+	
+	@Override
+	public void run() {
+		for (int i=start; i <end; i++ ) {
+			double row[]=preds[i];
+			double y=target[i];
+			int g=(group==null)?0:group[i];
+			if (logloss){
+				if (row.length==1){
+					double value=clip(row[0]);
+					if (y==0){
+						log_sum[g]-=Math.log(1-value);
+					} else {
+						log_sum[g]-=y*Math.log(value);
+					}
+				} else {
+					log_sum[g]-=Math.log(clip(row[(int) y]));
+				}
+			}
+			if (accuracy){
+				double predicted_class;
+				if (row.length==1){
+					predicted_class=(row[0]>=0.5)?1.0:0.0;
+				} else {
+					predicted_class=0.0;
+					double proba=row[0];
+					for (int j=1; j <row.length;j++ ){
+						if (row[j]>proba){
+							proba=row[j];
+							predicted_class=j;
+						}
+					}
+				}
+				if (y==predicted_class){
+					correct[g]+=1.0;
+				}
+			}
+			if (errors){
+				double error=row[0]-y;
+				squared_sum[g]+=error*error;
+				absolute_sum[g]+=Math.abs(error);
+			}
+		}
+	}
+	/**
+	 * @param value : a probability
+	 * @return the probability within [1E-14,1-1E-14]
+	 */
+	private static double clip(double value){
+		if (value>1.0-(1E-14)){
+			return 1.0-(1E-14);
+		} else if (value<0+(1E-14)){
+			return 0.0+(1E-14);
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.metrics;
+
+/**
+ * 
+ * @author marios
+ *<p> Kahan-compensated sum , so that the sum of many small errors does not lose precision as it grows. </p>
+ */
+public class kahansum {
+	/**
+	 * the sum
+	 */
+	private double sum=0.0;
+	/**
+	 * the low-order bits lost in the last additions
+	 */
+	private double compensation=0.0;
+	
+	/**
+	 * @param value : value to add
+	 */
+	public void add(double value){
+		double y=value-compensation;
+		double t=sum+y;
+		compensation=(t-sum)-y;
+		sum=t;
+	}
+	/**
+	 * @param other : sum to add
+	 */
+	public void merge(kahansum other){
+		add(other.sum);
+		add(-other.compensation);
+	}
+	/**
+	 * @return the sum
+	 */
+	public double value(){
+		return sum;
+	}
+	
+}
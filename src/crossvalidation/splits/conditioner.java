@@ -50,6 +50,10 @@ public class conditioner {
 	 * This is the value we always compare against as String
 	 */
 	private String svalue;		
+	/**
+	 * the comparison as an int , found once
+	 */
+	private int operator=-1;
 	
 	
 	/**
@@ -98,144 +102,124 @@ public class conditioner {
 	}
 
 	/**
-	 * 
-	 * @param Value : the value to compare with the cvalue (constructor)
-	 * @return 1 if the comparison with the object is true
+	 * @return the comparison as an int (0 to 5 for =,<,>,!=,<=,>=) so that it is not looked up as a String for every value
 	 */
-	public int compare(Object Value){
-		
-	
-		if (type.equals("double")) {
-			
-			double val=((Number)Value).doubleValue();
+	private int get_operator(){
+		if (operator<0){
 			if (comarison_type.equals("=")){
-				if (dvalue==val) {
-					return 1;
-				} else {
-					return 0;
-				}
+				operator=0;
 			} else if (comarison_type.equals("<")){
-				if (val<dvalue) {
-					return 1;
-				} else {
-					return 0;
-				}
+				operator=1;
 			} else if (comarison_type.equals(">")){
-				if (val>dvalue) {
-					return 1;
-				} else {
-					return 0;
-				}
+				operator=2;
 			} else if (comarison_type.equals("!=")){
-				if (val!=dvalue) {
-					return 1;
-				} else {
-					return 0;
-				}	
+				operator=3;
 			} else if (comarison_type.equals("<=")){
-				if (val<=dvalue) {
-					return 1;
-				} else {
-					return 0;
-				}					
+				operator=4;
 			} else if (comarison_type.equals(">=")){
-				if (val>=dvalue) {
-					return 1;
-				} else {
-					return 0;
-				}				
-			}	else {
+				operator=5;
+			} else {
 				throw new IllegalStateException("Comparison operator not recognised");	
 			}
-		}else if (type.equals("int")) {
-			int vali=((Number)Value).intValue();
-			if (comarison_type.equals("=")){
-				if (ivalue==vali) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals("<")){
-				if (vali<ivalue) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals(">")){
-				if (vali>ivalue) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals("!=")){
-				if (vali!=ivalue) {
-					return 1;
-				} else {
-					return 0;
-				}	
-			} else if (comarison_type.equals("<=")){
-				if (vali<=ivalue) {
-					return 1;
-				} else {
-					return 0;
-				}					
-			} else if (comarison_type.equals(">=")){
-				if (vali>=ivalue) {
-					return 1;
-				} else {
-					return 0;
-				}			
-			
-			}else {
-				throw new IllegalStateException("Comparison operator not recognised");	
+		}
+		return operator;
+	}
+	/**
+	 * @param difference : negative if the value is lower than the cvalue , zero if equal and positive if higher
+	 * @return true if the comparison holds
+	 */
+	private boolean holds(int difference){
+		switch (get_operator()){
+			case 0: return difference==0;
+			case 1: return difference<0;
+			case 2: return difference>0;
+			case 3: return difference!=0;
+			case 4: return difference<=0;
+			default: return difference>=0;
+		}
+	}
+	/**
+	 * @param val : the value to compare with the cvalue (constructor)
+	 * @param cvalue : the value we always compare against
+	 * @return true if the comparison holds
+	 */
+	private boolean holds(double val, double cvalue){
+		switch (get_operator()){
+			case 0: return val==cvalue;
+			case 1: return val<cvalue;
+			case 2: return val>cvalue;
+			case 3: return val!=cvalue;
+			case 4: return val<=cvalue;
+			default: return val>=cvalue;
+		}
+	}
+	/**
+	 * 
+	 * @param Value : the double value to compare with the cvalue (constructor) , without boxing
+	 * @return true if the comparison holds
+	 */
+	public boolean test(double Value){
+		if (type.equals("double")) {
+			return holds(Value, dvalue);
+		} else if (type.equals("int")) {
+			return holds((int) Value, ivalue);
+		} else if (type.equals("String")) {
+			return test(Double.toString(Value));
+		} else {
+			throw new IllegalStateException("Type was not recognised, it has to be one of double, int, String");	
+		}
+	}
+	/**
+	 * 
+	 * @param Value : the int value to compare with the cvalue (constructor) , without boxing
+	 * @return true if the comparison holds
+	 */
+	public boolean test(int Value){
+		if (type.equals("double")) {
+			return holds(Value, dvalue);
+		} else if (type.equals("int")) {
+			return holds(Value, ivalue);
+		} else if (type.equals("String")) {
+			return test(Integer.toString(Value));
+		} else {
+			throw new IllegalStateException("Type was not recognised, it has to be one of double, int, String");	
+		}
+	}
+	/**
+	 * 
+	 * @param Value : the String value to compare with the cvalue (constructor)
+	 * @return true if the comparison holds
+	 */
+	public boolean test(String Value){
+		if (type.equals("String")) {
+			int operator=get_operator();
+			if (operator==0){
+				return svalue.equals(Value);
+			} else if (operator==3){
+				return !svalue.equals(Value);
 			}
-		}else if (type.equals("String")) {
-			String vals=Value.toString();
-			if (comarison_type.equals("=")){
-				if (svalue.equals(vals)) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals("<")){
-				if (vals.compareTo(svalue)<0) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals(">")){
-				if (vals.compareTo(svalue)>0) {
-					return 1;
-				} else {
-					return 0;
-				}
-			} else if (comarison_type.equals("!=")){
-				if (!svalue.equals(vals)) {
-					return 1;
-				} else {
-					return 0;
-				}	
-			} else if (comarison_type.equals("<=")){
-				if (vals.compareTo(svalue)<=0) {
-					return 1;
-				} else {
-					return 0;
-				}					
-			} else if (comarison_type.equals(">=")){
-				if (vals.compareTo(svalue)>=0) {
-					return 1;
-				} else {
-					return 0;
-				}			
-			
-			}else {
-					throw new IllegalStateException("Comparison operator not recognised");	
-				}
-	
+			return holds(Value.compareTo(svalue));
+		} else {
+			throw new IllegalStateException("A String can only be compared with a String conditioner");	
+		}
+	}
+	/**
+	 * 
+	 * @param Value : the value to compare with the cvalue (constructor)
+	 * @return 1 if the comparison with the object is true
+	 */
+	public int compare(Object Value){
+		boolean result;
+		if (type.equals("double")) {
+			result=test(((Number)Value).doubleValue());
+		} else if (type.equals("int")) {
+			result=test(((Number)Value).intValue());
+		} else if (type.equals("String")) {
+			result=test(Value.toString());
 		} else {
 			throw new IllegalStateException("Type was not recognised, it has to be one of double, int, String");	
 		}
-
+		return result?1:0;
 	}
 
 	
@@ -21,119 +21,294 @@ SOFTWARE.
 
 
 package crossvalidation.splits;
+import java.util.Arrays;
 import java.util.Random;
 
+import preprocess.encoding.labelencoder;
+
 /**
  * 
  * @author mariosm
- * <p> Method to perform kfold and provide indices (as in rows) 
+ * <p> Method to perform kfold and provide indices (as in rows). The folds are kept as the fold of every row , so that
+ * only one fold's train and test indices need to exist at any time. The indices of a fold are given in the order of a
+ * (seeded) shuffle of the rows , hence plain kfold gives the same folds (and order) as the static {@link #getindices(int, int)}.
+ * An object does not change after it is made , so it may be used by many threads at the same time.
+ * Apart from plain kfold , the folds may be stratified by a target (every fold gets about the same share of each class)
+ * or grouped by an id column (all the rows of an id are in the same fold).
  */
 public class kfold {
 	
 	/**
-	 * The number of rows , kfold is constructed for
+	 *   seed to replicate results (used by the static {@link #getindices(int, int)})
+	 */	
+	public static int seed=1;
+	/**
+	 * number of folds
+	 */
+	private int nfolds;
+	/**
+	 * seed of this kfold's shuffle
 	 */
-	private static int sizes=0;
+	private int fold_seed;
+	/**
+	 * the fold (as in test sample) of every row
+	 */
+	private int fold_of[];
+	/**
+	 * number of rows in each fold
+	 */
+	private int fold_sizes[];
 	
 	/**
-	 * number of folds
+	 * plain (shuffled) kfold
+	 * @param size : the desired size to make indices for (as in rows)
+	 * @param folds : number of folds
+	 * @param seed : seed for the shuffle
 	 */
-	private static int nfolds=5;
+	public kfold(int size, int folds, int seed){
+		check(size, folds);
+		this.nfolds=folds;
+		this.fold_seed=seed;
+		int allcases[]=permutation(size);
+		int minibatch=(int)((double) size / (double) nfolds);
+		if (minibatch<1){
+			minibatch=1;
+		}
+		fold_of= new int [size];
+		for (int i=0; i < size; i++){
+			fold_of[allcases[i]]=Math.min(i/minibatch, nfolds-1);
+		}
+		count_sizes();
+	}
 	
 	/**
-	 *  target variable to make stratified kfold
+	 * private constructor for the stratified and group kfold
 	 */
-	public double doubletargetvar [];
+	private kfold(int folds, int seed, int fold_of[]){
+		this.nfolds=folds;
+		this.fold_seed=seed;
+		this.fold_of=fold_of;
+		count_sizes();
+	}
+	
+	/**
+	 * kfold where every fold gets about the same share of each class of the target. The rows of each class are dealt to the folds
+	 * in the order of the shuffle , starting where the previous class stopped so that the folds have about the same size.
+	 * @param target : the target variable (its distinct values are the classes)
+	 * @param folds : number of folds
+	 * @param seed : seed for the shuffle
+	 * @return the stratified kfold
+	 */
+	public static kfold stratified(double target[], int folds, int seed){
+		if (target==null){
+			throw new IllegalStateException(" There is no target to stratify by");
+		}
+		check(target.length, folds);
+		labelencoder encoder = new labelencoder(target);
+		int classes=encoder.size();
+		int encoded[]=encoder.encode(target);
+		int class_counts[]= new int [classes];
+		for (int i=0; i < encoded.length; i++){
+			class_counts[encoded[i]]++;
+		}
+		// each class starts dealing where the previous one stopped
+		int next_fold[]= new int [classes];
+		int dealt=0;
+		for (int c=0; c < classes; c++){
+			next_fold[c]=dealt % folds;
+			dealt+=class_counts[c];
+		}
+		int allcases[]=permutation(target.length, seed);
+		int fold_of[]= new int [target.length];
+		for (int i=0; i < allcases.length; i++){
+			int c=encoded[allcases[i]];
+			fold_of[allcases[i]]=next_fold[c];
+			next_fold[c]=(next_fold[c]+1) % folds;
+		}
+		return new kfold(folds, seed, fold_of);
+	}
 	
 	/**
-	 *  target variable to make stratified kfold
+	 * kfold where all the rows of an id are in the same fold. The ids are placed from the biggest to the smallest
+	 * (ties in the order of the shuffle) , each in the fold with the fewest rows so far.
+	 * @param ids : the id (group) of every row
+	 * @param folds : number of folds
+	 * @param seed : seed for the shuffle
+	 * @return the group kfold
 	 */
-	public String stringtargetvar [];
+	public static kfold grouped(double ids[], int folds, int seed){
+		if (ids==null){
+			throw new IllegalStateException(" There is no id column to group by");
+		}
+		check(ids.length, folds);
+		labelencoder encoder = new labelencoder(ids);
+		int groups=encoder.size();
+		if (groups<folds){
+			throw new IllegalStateException(" The distinct ids (" + groups + ") cannot be less than the given folds");
+		}
+		int encoded[]=encoder.encode(ids);
+		int group_sizes[]= new int [groups];
+		for (int i=0; i < encoded.length; i++){
+			group_sizes[encoded[i]]++;
+		}
+		// shuffle the groups , then (stable) sort them by size descending
+		int order[]=permutation(groups, seed);
+		long keys[]= new long [groups];
+		for (int g=0; g < groups; g++){
+			keys[g]=((long)(ids.length-group_sizes[order[g]]) << 32) | g;
+		}
+		Arrays.sort(keys);
+		int group_fold[]= new int [groups];
+		long fold_rows[]= new long [folds];
+		for (int k=0; k < groups; k++){
+			int g=order[(int)(keys[k] & 0xFFFFFFFFL)];
+			int lightest=0;
+			for (int f=1; f < folds; f++){
+				if (fold_rows[f]<fold_rows[lightest]){
+					lightest=f;
+				}
+			}
+			group_fold[g]=lightest;
+			fold_rows[lightest]+=group_sizes[g];
+		}
+		int fold_of[]= new int [ids.length];
+		for (int i=0; i < fold_of.length; i++){
+			fold_of[i]=group_fold[encoded[i]];
+		}
+		return new kfold(folds, seed, fold_of);
+	}
 	
 	/**
-	 *   seed to replicate results
-	 */	
-	public static int seed=1;
+	 * @return the number of folds
+	 */
+	public int getfolds(){
+		return nfolds;
+	}
+	/**
+	 * @return the number of rows
+	 */
+	public int getsize(){
+		return fold_of.length;
+	}
+	/**
+	 * @param row : the row
+	 * @return the fold where the row is in the test sample
+	 */
+	public int getfold(int row){
+		return fold_of[row];
+	}
+	/**
+	 * @param fold : the fold
+	 * @return the number of test rows of the fold
+	 */
+	public int test_size(int fold){
+		return fold_sizes[fold];
+	}
+	/**
+	 * @param fold : the fold
+	 * @return the number of train rows of the fold
+	 */
+	public int train_size(int fold){
+		return fold_of.length-fold_sizes[fold];
+	}
+	/**
+	 * @param fold : the fold
+	 * @return the train indices of the fold (made on every call)
+	 */
+	public int [] train(int fold){
+		return indices(fold, false);
+	}
+	/**
+	 * @param fold : the fold
+	 * @return the test indices of the fold (made on every call)
+	 */
+	public int [] test(int fold){
+		return indices(fold, true);
+	}
+	/**
+	 * @return a 3-dimensional array of [folds][2 samples] [indices] with all the folds. 
+	 * The first sample is the big one (as in the training) and the second is the test ( e.g. the small one )
+	 */
+	public int [] [] [] getindices(){
+		int [] [] [] holder= new int [nfolds] [2] [];
+		for (int f=0; f < nfolds ; f++){
+			holder[f][0]=train(f);
+			holder[f][1]=test(f);
+		}
+		return holder;
+	}
 	
 	/**
 	 * 
 	 * @param size : the desired size to make indices for (as in rows)
 	 * @param folds : number of folds
-	 * @return a 3-dimensional array of [folds][2 samples] [indices]. 
+	 * @return a 3-dimensional array of [folds][2 samples] [indices] made with the static seed. 
 	 * The first sample is the big one (as in the training) and the second is the test ( e.g. the small one )
 	 */
 	public static int [] [] [] getindices(int size, int folds){
-		
-		if (folds<2){
-			throw new IllegalStateException(" folds cannot be less than 2");
+		return new kfold(size, folds, seed).getindices();
+	}
+	
+	/**
+	 * @param fold : the fold
+	 * @param test : true for the test rows , false for the train rows
+	 * @return the rows in the order of the shuffle
+	 */
+	private int [] indices(int fold, boolean test){
+		if (fold<0 || fold>=nfolds){
+			throw new IllegalStateException(" fold " + fold + " does not exist");
 		}
-		
-		if (size<folds) {
-			throw new IllegalStateException(" Size cannot be less than the given folds");
+		int rows []= new int [test?test_size(fold):train_size(fold)];
+		int allcases[]=permutation(fold_of.length, fold_seed);
+		int k=0;
+		for (int i=0; i < allcases.length; i++){
+			if ((fold_of[allcases[i]]==fold)==test){
+				rows[k++]=allcases[i];
+			}
 		}
-		nfolds=folds;
-		sizes=size;
-		//set seed
+		return rows;
+	}
+	/**
+	 * counts the rows of each fold
+	 */
+	private void count_sizes(){
+		fold_sizes= new int [nfolds];
+		for (int i=0; i < fold_of.length; i++){
+			fold_sizes[fold_of[i]]++;
+		}
+	}
+	/**
+	 * @param size : number of rows
+	 * @return the shuffled rows with this kfold's seed
+	 */
+	private int [] permutation(int size){
+		return permutation(size, fold_seed);
+	}
+	/**
+	 * @param size : number of rows
+	 * @param seed : seed for the shuffle
+	 * @return the shuffled rows
+	 */
+	private static int [] permutation(int size, int seed){
 		Random ran= new Random();
 		ran.setSeed(seed);
-		
-		// we construct the main object
-		int [] [] [] holder= new int [nfolds] [2] [];
-		
-		int allcases[]= new int [sizes];
+		int allcases[]= new int [size];
 		for (int i=0; i < allcases.length; i++){
 			 allcases[i]=i;
 		}
-		
-		// shuffle the indices
 		shuffleArray(allcases,  ran);
-		
-		int hold_sizes []= new int[nfolds+1];
-		int minibatch=(int)((double) size / (double) nfolds);
-		
-		if (minibatch<1){
-			minibatch=1;
-		}
-		int sumofcasessofar=0;
-		for (int j=1; j <nfolds; j++){
-			sumofcasessofar+=minibatch;
-			hold_sizes[j]=sumofcasessofar;
-		}
-		hold_sizes[nfolds]= size;
-		//System.out.println(Arrays.toString(hold_sizes));
-		if (hold_sizes[nfolds]<=0){
-			throw new IllegalStateException(" The last sample cannot be negative, there is an internal computationl problem");
+		return allcases;
+	}
+	/**
+	 * checks the size and the folds
+	 */
+	private static void check(int size, int folds){
+		if (folds<2){
+			throw new IllegalStateException(" folds cannot be less than 2");
 		}
-		
-		//populate the arrays
-		
-		for (int f=0; f < nfolds ; f++){
-			
-			int train  []= new int [size - (hold_sizes[f+1]-hold_sizes[f])];
-			int test []=new int [(hold_sizes[f+1]-hold_sizes[f])];
-			int tr=0;
-			int te=0;
-			
-			for (int i=0; i < size; i++){
-				
-				if (i >= hold_sizes[f] && i < hold_sizes[f+1]){
-					test[te]=allcases[i];
-					te++;
-				} else {
-					train[tr]=allcases[i];
-					tr++;
-				}
-			}
-			holder[f][0]=train;
-			holder[f][1]=test;			
-			
-			
-			//end of main loop
+		if (size<folds) {
+			throw new IllegalStateException(" Size cannot be less than the given folds");
 		}
-		
-		return holder;
-		
-		
 	}
 	
 	/**
@@ -0,0 +1,156 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.splits;
+
+import java.util.Random;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Sampling of rows for bootstrapping and row sub-sampling. Samples are given as counts per row (how many times each row was drawn) 
+ * instead of lists of (duplicated) row indices , so a model may use them as weights and the rows do not need to be copied. </p>
+ */
+public class sampler {
+	/**
+	 * draws with replacement as many rows as given
+	 * @param rows : the rows to draw from
+	 * @param n : total number of rows (length of the counts)
+	 * @param random : random number generator
+	 * @return how many times each row was drawn
+	 */
+	public static int [] bootstrap(int rows[], int n, Random random){
+		if (rows==null || rows.length<=0){
+			throw new IllegalStateException(" There are no rows to draw from " );
+		}
+		int counts[]= new int[n];
+		for (int i=0; i <rows.length; i++){
+			counts[rows[random.nextInt(rows.length)]]++;
+		}
+		return counts;
+	}
+	/**
+	 * @param percentage : share of the rows to keep
+	 * @return the integer below which a random int keeps the row
+	 */
+	public static int threshold(double percentage){
+		double per= Math.min(Math.max(0, percentage),1.0);
+		double difference=2147483647.0+(2147483648.0);
+		return (int)(-2147483648.0 +  (per*difference ));
+	}
+	/**
+	 * keeps each row with a probability (at least one row is kept)
+	 * @param rows : the rows to sample from
+	 * @param percentage : share of the rows to keep
+	 * @param random : random number generator
+	 * @return the kept rows , in the order they were given
+	 */
+	public static int [] subsample(int rows[], double percentage, Random random){
+		int point=threshold(percentage);
+		int kept[]= new int[rows.length];
+		int count=0;
+		for (int i=0; i <rows.length; i++){
+			if (random.nextInt()<point){
+				kept[count++]=rows[i];
+			}
+		}
+		if (count<=0){
+			return new int []{rows[random.nextInt(rows.length)]};
+		}
+		if (count==kept.length){
+			return kept;
+		}
+		int result[]= new int[count];
+		System.arraycopy(kept, 0, result, 0, count);
+		return result;
+	}
+	/**
+	 * keeps each of the rows 0 to n-1 with a probability (at least one row is kept)
+	 * @param n : total number of rows
+	 * @param percentage : share of the rows to keep
+	 * @param random : random number generator
+	 * @return the kept rows in ascending order
+	 */
+	public static int [] subsample(int n, double percentage, Random random){
+		int point=threshold(percentage);
+		int kept[]= new int[n];
+		int count=0;
+		for (int i=0; i <n; i++){
+			if (random.nextInt()<point){
+				kept[count++]=i;
+			}
+		}
+		if (count<=0){
+			return new int []{random.nextInt(n)};
+		}
+		if (count==kept.length){
+			return kept;
+		}
+		int result[]= new int[count];
+		System.arraycopy(kept, 0, result, 0, count);
+		return result;
+	}
+	/**
+	 * @param counts : how many times each row was drawn
+	 * @return the rows drawn at least once , in ascending order
+	 */
+	public static int [] rows(int counts[]){
+		int count=0;
+		for (int i=0; i <counts.length; i++){
+			if (counts[i]>0){
+				count++;
+			}
+		}
+		int rows[]= new int[count];
+		count=0;
+		for (int i=0; i <counts.length; i++){
+			if (counts[i]>0){
+				rows[count++]=i;
+			}
+		}
+		return rows;
+	}
+	/**
+	 * @param weights : weights of the rows , multiplied in place (may be null)
+	 * @param counts : how many times each row was drawn
+	 * @return the weights multiplied by the counts (the counts themselves if the weights are null)
+	 */
+	public static double [] weights(double weights[], int counts[]){
+		if (weights==null){
+			weights= new double [counts.length];
+			for (int i=0; i <counts.length; i++){
+				weights[i]=counts[i];
+			}
+		} else {
+			if (weights.length!=counts.length){
+				throw new IllegalStateException(" weights and counts need to have the same length " );
+			}
+			for (int i=0; i <counts.length; i++){
+				weights[i]*=counts[i];
+			}
+		}
+		return weights;
+	}
+
+}
@@ -156,6 +156,10 @@ public class selectivesplit {
 	 * if true it prints stuff
 	 */
 	public boolean verbose =false;
+	/**
+	 * number of threads used to evaluate the conditions
+	 */
+	public int threads=1;
 
 	/**
 	 *  if true or conditioners are connected exclusively (with ||). <br>For example if row >35 <b>OR</b> column 3==2.3 then goes to test.
@@ -620,235 +624,14 @@ public class selectivesplit {
          //object to hold with 1 the case to test and 0 the cases for training 
         	 sum_train=0;
         	 sum_test=0;
-        	int [] splitter=new int [fsrows];
-        	 // loop in all rows
-        	 for (int i=0; i < fsrows ; i++){
-        		 if (toltal_condition_loops==1) {
-        			//only one conditioner, no point for chaining
-        			 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		 } else if(Hashasetintidconditioner){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if id value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		} else if(HashasetStringidconditioner){
-            			String ro=new String(Stringidcolumn[i]);
-            			// check if the String id value exists
-            			if(hasetStringidconditioner.contains(ro)){
-            				splitter[i]=1;
-            				sum_test++;
-            			} else {
-            				splitter[i]=0;
-            				sum_train++;
-            			}     			 
-        		    } else if(Hasrowconditioner){
-           			     // check if the row conditioner applies to the current row
-            			 if(rowconditioner.compare(i)==1){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		  
-     		    	} else if(Hasintidconditioner){
-          			     // check if the row conditioner applies to the current int index
-     		    		if(intidconditioner.compare(intidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-       		        			 
-     		    	} else if(HasStringidconditioner){
-         			     // check if the row conditioner applies to the current String index
-     		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-     		    	} else if(Hasmapper_conditions){
-         			     // check if the row conditioner applies to the current column of teh main data object
-     		    		if(mapper_conditions[0].GetConditioner().compare(f.GetElement(i, mapper_conditions[0].GetIndex()))==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}       		        			 
-        			        			 
-     		    	} else {
-     		    		throw new IllegalStateException(" no condition was founed to apply, which means I have made a mistake somewhere!");	
-     		    	}
-        		 } else {
-        			 
-        			 boolean proof_case_belongs_to_test_based_non_exclusive=false;
-        			 boolean proof_case_belongs_to_test_based_exclusive=true;        		
-        			 int count_of_exclusiveuntilbreak=0; // exclusive need to be at least 2 to have effect
-        			 
-        			 // there are multiple conditions here
-        			 //we find any non exclusive e.g connection_type[n]=true that is true in comparison
-        			 //Initialise the object to hold the results of multiple conditions
-            		 int condition_holder=0;
-            		 //if there is HashSet for rows
-            		 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hashasetintidconditioner && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }
-            		  if (HashasetStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 String ro=new String(Stringidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetStringidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hasrowconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(rowconditioner.compare(i)==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }  
-            		 if (Hasintidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(intidconditioner.compare(intidcolumn[i])==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;      			 
-            		 }              		 
-            		  if (HasStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-      		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-           				 if (connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_non_exclusive=true;
-           				 } else {
-           					 count_of_exclusiveuntilbreak++;
-           				 }
-           				 
-           			 } else {
-           				 if (!connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_exclusive=false;
-           				 }
-           			 }
-
-       				 condition_holder++;       			 
-            		 }      
-            		  if (Hasmapper_conditions && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 for (int j=0; j <mapper_conditions.length; j++){
-          		    		if(mapper_conditions[j].GetConditioner().compare(f.GetElement(i, mapper_conditions[j].GetIndex()))==1  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-               				 if (connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_non_exclusive=true;
-               					 break;
-               				 } else {
-               					 count_of_exclusiveuntilbreak++;
-               				 }
-               				 
-               			 } else {
-               				 if (!connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_exclusive=false;
-               					 break;
-               				 }
-               			 }
-
-           				 condition_holder++; 
-            			 }
-        		 } 
-            		  
-            	// now that all conditions are translated
-               // make the attribution to test if there is at least 1 non exclusive true condition or all exclusive were true given that there were at least 2
-               if (proof_case_belongs_to_test_based_non_exclusive || (proof_case_belongs_to_test_based_exclusive && count_of_exclusiveuntilbreak>=2)){
-	    			splitter[i]=1;
-	    			sum_test++;
-	    		} else {
-	    			splitter[i]=0;
-	    			sum_train++;
-	    		} 
-
-            	
-            		
-        	 }
-        		 
-          // emd of the loop 
-        	 }
-        
+		// the conditions compiled to primitive predicates , evaluated column-wise into a bitmap of the test rows
+		splitpredicate predicate= new splitpredicate(fsrows, hasetrowconditioner, hasetintidconditioner, hasetStringidconditioner,
+				rowconditioner, intidconditioner, Stringidconditioner, mapper_conditions, connection_type, intidcolumn, Stringidcolumn);
+		predicate.threads=this.threads;
+		long [] splitter=predicate.evaluate(f);
+		sum_test=splitpredicate.count(splitter);
+		sum_train=fsrows-sum_test;
+
         	 if (sum_train==0 || sum_test==0){
         		 throw new IllegalStateException(" one of train or test sets have zero elements, train/test: " + sum_train + "/" +sum_test);
         	 }
@@ -891,8 +674,8 @@ public class selectivesplit {
  		//do the allocation of objects
  		int count_train=0;
  		int count_test=0;
- 		for (int i=0; i < splitter.length; i++){
- 			int value=splitter[i];
+ 		for (int i=0; i < fsrows; i++){
+ 			int value=splitpredicate.get(splitter, i)?1:0;
  			if (value==1) { // case is allocated to test set
  		 		if (HasStringid) {
 
@@ -922,10 +705,8 @@ public class selectivesplit {
 
  		 			weights_test[count_test]= weights[i];
  					}
- 		 		// the fsmatrix
- 		 		 for (int j=0; j < fscols; j++){
- 		 			fsmatrix_test.SetElement(count_test, j, f.GetElement(i, j));
- 		 		 }
+ 		 		// the fsmatrix , the row is contiguous in both
+ 		 		System.arraycopy(f.data, i*fscols, fsmatrix_test.data, count_test*fscols, fscols);
  		 		
  		 		count_test++;				
  			} else { //case is allocated to training
@@ -958,9 +739,7 @@ public class selectivesplit {
 
  					}
  				// fs,atrix_train
-		 		 for (int j=0; j < fscols; j++){
-		 			fsmatrix_train.SetElement(count_train, j, f.GetElement(i, j));
-		 		 }
+		 		System.arraycopy(f.data, i*fscols, fsmatrix_train.data, count_train*fscols, fscols);
  		 		count_train++;
  			}
  			
@@ -1180,235 +959,14 @@ public class selectivesplit {
          //object to hold with 1 the case to test and 0 the cases for training 
         	 sum_train=0;
         	 sum_test=0;
-        	int [] splitter=new int [fsrows];
-        	 // loop in all rows
-        	 for (int i=0; i < fsrows ; i++){
-        		 if (toltal_condition_loops==1) {
-        			//only one conditioner, no point for chaining
-        			 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		 } else if(Hashasetintidconditioner){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if id value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		} else if(HashasetStringidconditioner){
-            			String ro=new String(Stringidcolumn[i]);
-            			// check if the String id value exists
-            			if(hasetStringidconditioner.contains(ro)){
-            				splitter[i]=1;
-            				sum_test++;
-            			} else {
-            				splitter[i]=0;
-            				sum_train++;
-            			}     			 
-        		    } else if(Hasrowconditioner){
-           			     // check if the row conditioner applies to the current row
-            			 if(rowconditioner.compare(i)==1){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		  
-     		    	} else if(Hasintidconditioner){
-          			     // check if the row conditioner applies to the current int index
-     		    		if(intidconditioner.compare(intidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-       		        			 
-     		    	} else if(HasStringidconditioner){
-         			     // check if the row conditioner applies to the current String index
-     		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-     		    	} else if(Hasmapper_conditions){
-         			     // check if the row conditioner applies to the current column of teh main data object
-     		    		if(mapper_conditions[0].GetConditioner().compare(data[i][mapper_conditions[0].GetIndex()])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}       		        			 
-        			        			 
-     		    	} else {
-     		    		throw new IllegalStateException(" no condition was founed to apply, which means I have made a mistake somewhere!");	
-     		    	}
-        		 } else {
-        			 
-        			 boolean proof_case_belongs_to_test_based_non_exclusive=false;
-        			 boolean proof_case_belongs_to_test_based_exclusive=true;        		
-        			 int count_of_exclusiveuntilbreak=0; // exclusive need to be at least 2 to have effect
-        			 
-        			 // there are multiple conditions here
-        			 //we find any non exclusive e.g connection_type[n]=true that is true in comparison
-        			 //Initialise the object to hold the results of multiple conditions
-            		 int condition_holder=0;
-            		 //if there is HashSet for rows
-            		 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hashasetintidconditioner && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }
-            		  if (HashasetStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 String ro=new String(Stringidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetStringidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hasrowconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(rowconditioner.compare(i)==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }  
-            		 if (Hasintidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(intidconditioner.compare(intidcolumn[i])==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;      			 
-            		 }              		 
-            		  if (HasStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-      		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-           				 if (connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_non_exclusive=true;
-           				 } else {
-           					 count_of_exclusiveuntilbreak++;
-           				 }
-           				 
-           			 } else {
-           				 if (!connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_exclusive=false;
-           				 }
-           			 }
-
-       				 condition_holder++;       			 
-            		 }      
-            		  if (Hasmapper_conditions && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 for (int j=0; j <mapper_conditions.length; j++){
-          		    		if(mapper_conditions[j].GetConditioner().compare(data[i][mapper_conditions[j].GetIndex()])==1  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-               				 if (connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_non_exclusive=true;
-               					 break;
-               				 } else {
-               					 count_of_exclusiveuntilbreak++;
-               				 }
-               				 
-               			 } else {
-               				 if (!connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_exclusive=false;
-               					 break;
-               				 }
-               			 }
-
-           				 condition_holder++; 
-            			 }
-        		 } 
-            		  
-            	// now that all conditions are translated
-               // make the attribution to test if there is at least 1 non exclusive true condition or all exclusive were true given that there were at least 2
-               if (proof_case_belongs_to_test_based_non_exclusive || (proof_case_belongs_to_test_based_exclusive && count_of_exclusiveuntilbreak>=2)){
-	    			splitter[i]=1;
-	    			sum_test++;
-	    		} else {
-	    			splitter[i]=0;
-	    			sum_train++;
-	    		} 
-
-            	
-            		
-        	 }
-        		 
-          // emd of the loop 
-        	 }
-        
+		// the conditions compiled to primitive predicates , evaluated column-wise into a bitmap of the test rows
+		splitpredicate predicate= new splitpredicate(fsrows, hasetrowconditioner, hasetintidconditioner, hasetStringidconditioner,
+				rowconditioner, intidconditioner, Stringidconditioner, mapper_conditions, connection_type, intidcolumn, Stringidcolumn);
+		predicate.threads=this.threads;
+		long [] splitter=predicate.evaluate(data);
+		sum_test=splitpredicate.count(splitter);
+		sum_train=fsrows-sum_test;
+
         	 if (sum_train==0 || sum_test==0){
         		 throw new IllegalStateException(" one of train or test sets have zero elements, train/test: " + sum_train + "/" +sum_test);
         	 }
@@ -1452,8 +1010,8 @@ public class selectivesplit {
  		//do the allocation of objects
  		int count_train=0;
  		int count_test=0;
- 		for (int i=0; i < splitter.length; i++){
- 			int value=splitter[i];
+ 		for (int i=0; i < fsrows; i++){
+ 			int value=splitpredicate.get(splitter, i)?1:0;
  			if (value==1) { // case is allocated to test set
  		 		if (HasStringid) {
 
@@ -1737,235 +1295,14 @@ public class selectivesplit {
          //object to hold with 1 the case to test and 0 the cases for training 
         	 sum_train=0;
         	 sum_test=0;
-        	int [] splitter=new int [fsrows];
-        	 // loop in all rows
-        	 for (int i=0; i < fsrows ; i++){
-        		 if (toltal_condition_loops==1) {
-        			//only one conditioner, no point for chaining
-        			 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		 } else if(Hashasetintidconditioner){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if id value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		} else if(HashasetStringidconditioner){
-            			String ro=new String(Stringidcolumn[i]);
-            			// check if the String id value exists
-            			if(hasetStringidconditioner.contains(ro)){
-            				splitter[i]=1;
-            				sum_test++;
-            			} else {
-            				splitter[i]=0;
-            				sum_train++;
-            			}     			 
-        		    } else if(Hasrowconditioner){
-           			     // check if the row conditioner applies to the current row
-            			 if(rowconditioner.compare(i)==1){
-            				 splitter[i]=1;
-                			 sum_test++;
-            			 } else {
-            				 splitter[i]=0;
-                			 sum_train++;
-            			 }     			 
-            		  
-     		    	} else if(Hasintidconditioner){
-          			     // check if the row conditioner applies to the current int index
-     		    		if(intidconditioner.compare(intidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-       		        			 
-     		    	} else if(HasStringidconditioner){
-         			     // check if the row conditioner applies to the current String index
-     		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}     			 
-     		    	} else if(Hasmapper_conditions){
-         			     // check if the row conditioner applies to the current column of teh main data object
-     		    		if(mapper_conditions[0].GetConditioner().compare(data[i][mapper_conditions[0].GetIndex()])==1){
-     		    			splitter[i]=1;
-     		    			sum_test++;
-     		    		} else {
-     		    			splitter[i]=0;
-     		    			sum_train++;
-     		    		}       		        			 
-        			        			 
-     		    	} else {
-     		    		throw new IllegalStateException(" no condition was founed to apply, which means I have made a mistake somewhere!");	
-     		    	}
-        		 } else {
-        			 
-        			 boolean proof_case_belongs_to_test_based_non_exclusive=false;
-        			 boolean proof_case_belongs_to_test_based_exclusive=true;        		
-        			 int count_of_exclusiveuntilbreak=0; // exclusive need to be at least 2 to have effect
-        			 
-        			 // there are multiple conditions here
-        			 //we find any non exclusive e.g connection_type[n]=true that is true in comparison
-        			 //Initialise the object to hold the results of multiple conditions
-            		 int condition_holder=0;
-            		 //if there is HashSet for rows
-            		 if (Hashasetrowconditioner){
-            			 Integer ro=new Integer(i);
-            			 // check if the row-value exists
-            			 if(hasetrowconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hashasetintidconditioner && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 Integer ro=new Integer(intidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetintidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }
-            		  if (HashasetStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 String ro=new String(Stringidcolumn[i]);
-            			 // check if the row-value exists
-            			 if(hasetStringidconditioner.contains(ro)){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;        			 
-            		 } 
-            		  if (Hasrowconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(rowconditioner.compare(i)==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;       			 
-            		 }  
-            		 if (Hasintidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-            			 if(intidconditioner.compare(intidcolumn[i])==1){
-            				 if (connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_non_exclusive=true;
-            				 } else {
-            					 count_of_exclusiveuntilbreak++;
-            				 }
-            				 
-            			 } else {
-            				 if (!connection_type[condition_holder]){
-            					 proof_case_belongs_to_test_based_exclusive=false;
-            				 }
-            			 }
-
-        				 condition_holder++;      			 
-            		 }              		 
-            		  if (HasStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 // check if the row-value exists
-      		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-           				 if (connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_non_exclusive=true;
-           				 } else {
-           					 count_of_exclusiveuntilbreak++;
-           				 }
-           				 
-           			 } else {
-           				 if (!connection_type[condition_holder]){
-           					 proof_case_belongs_to_test_based_exclusive=false;
-           				 }
-           			 }
-
-       				 condition_holder++;       			 
-            		 }      
-            		  if (Hasmapper_conditions && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-            			 for (int j=0; j <mapper_conditions.length; j++){
-          		    		if(mapper_conditions[j].GetConditioner().compare(data[i][mapper_conditions[j].GetIndex()])==1  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-               				 if (connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_non_exclusive=true;
-               					 break;
-               				 } else {
-               					 count_of_exclusiveuntilbreak++;
-               				 }
-               				 
-               			 } else {
-               				 if (!connection_type[condition_holder]){
-               					 proof_case_belongs_to_test_based_exclusive=false;
-               					 break;
-               				 }
-               			 }
-
-           				 condition_holder++; 
-            			 }
-        		 } 
-            		  
-            	// now that all conditions are translated
-               // make the attribution to test if there is at least 1 non exclusive true condition or all exclusive were true given that there were at least 2
-               if (proof_case_belongs_to_test_based_non_exclusive || (proof_case_belongs_to_test_based_exclusive && count_of_exclusiveuntilbreak>=2)){
-	    			splitter[i]=1;
-	    			sum_test++;
-	    		} else {
-	    			splitter[i]=0;
-	    			sum_train++;
-	    		} 
-
-            	
-            		
-        	 }
-        		 
-          // emd of the loop 
-        	 }
-        
+		// the conditions compiled to primitive predicates , evaluated column-wise into a bitmap of the test rows
+		splitpredicate predicate= new splitpredicate(fsrows, hasetrowconditioner, hasetintidconditioner, hasetStringidconditioner,
+				rowconditioner, intidconditioner, Stringidconditioner, mapper_conditions, connection_type, intidcolumn, Stringidcolumn);
+		predicate.threads=this.threads;
+		long [] splitter=predicate.evaluate(data);
+		sum_test=splitpredicate.count(splitter);
+		sum_train=fsrows-sum_test;
+
         	 if (sum_train==0 || sum_test==0){
         		 throw new IllegalStateException(" one of train or test sets have zero elements, train/test: " + sum_train + "/" +sum_test);
         	 }
@@ -2008,8 +1345,8 @@ public class selectivesplit {
  		//do the allocation of objects
  		int count_train=0;
  		int count_test=0;
- 		for (int i=0; i < splitter.length; i++){
- 			int value=splitter[i];
+ 		for (int i=0; i < fsrows; i++){
+ 			int value=splitpredicate.get(splitter, i)?1:0;
  			if (value==1) { // case is allocated to test set
  		 		if (HasStringid) {
 
@@ -2302,247 +1639,21 @@ public class selectivesplit {
           int sum_test=0;
           int sum_train=0;
 
-      	int [] splitter=new int [fsrows];
-      	// loop in all rows
-   	 	for (int i=0; i < fsrows ; i++){
-   		 if (toltal_condition_loops==1) {
-   			//only one conditioner, no point for chaining
-   			 if (Hashasetrowconditioner){
-       			 Integer ro=new Integer(i);
-       			 // check if the row-value exists
-       			 if(hasetrowconditioner.contains(ro)){
-       				 splitter[i]=1;
-                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-           			 sum_test++;
-       			 } else {
-       				 splitter[i]=0;
-           			 sum_train++;
-           			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-       			 }     			 
-       		 } else if(Hashasetintidconditioner){
-       			 Integer ro=new Integer(intidcolumn[i]);
-       			 // check if id value exists
-       			 if(hasetintidconditioner.contains(ro)){
-       				 splitter[i]=1;
-                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-           			 sum_test++;
-       			 } else {
-       				 splitter[i]=0;
-           			 sum_train++;
-           			sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-       			 }     			 
-       		} else if(HashasetStringidconditioner){
-       			String ro=new String(Stringidcolumn[i]);
-       			// check if the String id value exists
-       			if(hasetStringidconditioner.contains(ro)){
-       				splitter[i]=1;
-                    sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-          			 sum_test++;
-      			 } else {
-      				 splitter[i]=0;
-          			 sum_train++;
-          			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-       			}     			 
-   		    } else if(Hasrowconditioner){
-      			     // check if the row conditioner applies to the current row
-       			 if(rowconditioner.compare(i)==1){
-       				 splitter[i]=1;
-                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-           			 sum_test++;
-       			 } else {
-       				 splitter[i]=0;
-           			 sum_train++;
-           			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-       			 }     			 
-       		  
-		    	} else if(Hasintidconditioner){
-     			     // check if the row conditioner applies to the current int index
-		    		if(intidconditioner.compare(intidcolumn[i])==1){
-		    			splitter[i]=1;
-	                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-	           			 sum_test++;
-	       			 } else {
-	       				 splitter[i]=0;
-	           			 sum_train++;
-	           			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-		    		}     			 
-  		        			 
-		    	} else if(HasStringidconditioner){
-    			     // check if the row conditioner applies to the current String index
-		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-		    			splitter[i]=1;
-	                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-	           			 sum_test++;
-	       			 } else {
-	       				 splitter[i]=0;
-	           			 sum_train++;
-	           			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-		    		}     			 
-		    	} else if(Hasmapper_conditions){
-    			     // check if the row conditioner applies to the current column of the main data object
-		    		if(mapper_conditions[0].GetConditioner().compare(getelemntfromsparsearray(f.mainelementpile, f.valuespile, f.indexpile[i],  f.indexpile[i+1],  mapper_conditions[0].GetIndex() ) )==1){
-		    			splitter[i]=1;
-	                     sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-	           			 sum_test++;
-	       			 } else {
-	       				 splitter[i]=0;
-	           			 sum_train++;
-	           			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-		    		}       		        			 
-   			        			 
-		    	} else {
-		    		throw new IllegalStateException(" no condition was founed to apply, which means I have made a mistake somewhere!");	
-		    	}
-   		 } else {
-   			 
-   			 boolean proof_case_belongs_to_test_based_non_exclusive=false;
-   			 boolean proof_case_belongs_to_test_based_exclusive=true;        		
-   			 int count_of_exclusiveuntilbreak=0; // exclusive need to be at least 2 to have effect
-   			 
-   			 // there are multiple conditions here
-   			 //we find any non exclusive e.g connection_type[n]=true that is true in comparison
-   			 //Initialise the object to hold the results of multiple conditions
-       		 int condition_holder=0;
-       		 //if there is HashSet for rows
-       		 if (Hashasetrowconditioner){
-       			 Integer ro=new Integer(i);
-       			 // check if the row-value exists
-       			 if(hasetrowconditioner.contains(ro)){
-       				 if (connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_non_exclusive=true;
-       				 } else {
-       					 count_of_exclusiveuntilbreak++;
-       				 }
-       				 
-       			 } else {
-       				 if (!connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_exclusive=false;
-       				 }
-       			 }
-
-   				 condition_holder++;        			 
-       		 } 
-       		  if (Hashasetintidconditioner && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 Integer ro=new Integer(intidcolumn[i]);
-       			 // check if the row-value exists
-       			 if(hasetintidconditioner.contains(ro)){
-       				 if (connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_non_exclusive=true;
-       				 } else {
-       					 count_of_exclusiveuntilbreak++;
-       				 }
-       			 } else {
-       				 if (!connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_exclusive=false;
-       				 }
-       			 }
-
-   				 condition_holder++;       			 
-       		 }
-       		  if (HashasetStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 String ro=new String(Stringidcolumn[i]);
-       			 // check if the row-value exists
-       			 if(hasetStringidconditioner.contains(ro)){
-       				 if (connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_non_exclusive=true;
-       				 } else {
-       					 count_of_exclusiveuntilbreak++;
-       				 }
-       				 
-       			 } else {
-       				 if (!connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_exclusive=false;
-       				 }
-       			 }
-
-   				 condition_holder++;        			 
-       		 } 
-       		  if (Hasrowconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 // check if the row-value exists
-       			 if(rowconditioner.compare(i)==1){
-       				 if (connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_non_exclusive=true;
-       				 } else {
-       					 count_of_exclusiveuntilbreak++;
-       				 }
-       			 } else {
-       				 if (!connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_exclusive=false;
-       				 }
-       			 }
-
-   				 condition_holder++;       			 
-       		 }  
-       		 if (Hasintidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 // check if the row-value exists
-       			 if(intidconditioner.compare(intidcolumn[i])==1){
-       				 if (connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_non_exclusive=true;
-       				 } else {
-       					 count_of_exclusiveuntilbreak++;
-       				 }
-       				 
-       			 } else {
-       				 if (!connection_type[condition_holder]){
-       					 proof_case_belongs_to_test_based_exclusive=false;
-       				 }
-       			 }
-
-   				 condition_holder++;      			 
-       		 }              		 
-       		  if (HasStringidconditioner  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 // check if the row-value exists
- 		    		if(Stringidconditioner.compare(Stringidcolumn[i])==1){
-      				 if (connection_type[condition_holder]){
-      					 proof_case_belongs_to_test_based_non_exclusive=true;
-      				 } else {
-      					 count_of_exclusiveuntilbreak++;
-      				 }
-      				 
-      			 } else {
-      				 if (!connection_type[condition_holder]){
-      					 proof_case_belongs_to_test_based_exclusive=false;
-      				 }
-      			 }
-
-  				 condition_holder++;       			 
-       		 }      
-       		  if (Hasmapper_conditions && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-       			 for (int j=0; j <mapper_conditions.length; j++){
-     		    		if(mapper_conditions[j].GetConditioner().compare(getelemntfromsparsearray(f.mainelementpile, f.valuespile, f.indexpile[i],  f.indexpile[i+1], mapper_conditions[j].GetIndex()))==1  && (proof_case_belongs_to_test_based_non_exclusive==false || proof_case_belongs_to_test_based_exclusive==true)){
-          				 if (connection_type[condition_holder]){
-          					 proof_case_belongs_to_test_based_non_exclusive=true;
-          					 break;
-          				 } else {
-          					 count_of_exclusiveuntilbreak++;
-          				 }
-          				 
-          			 } else {
-          				 if (!connection_type[condition_holder]){
-          					 proof_case_belongs_to_test_based_exclusive=false;
-          					 break;
-          				 }
-          			 }
-
-      				 condition_holder++; 
-       			 }
-   		 } 
-       		  
-       	// now that all conditions are translated
-          // make the attribution to test if there is at least 1 non exclusive true condition or all exclusive were true given that there were at least 2
-          if (proof_case_belongs_to_test_based_non_exclusive || (proof_case_belongs_to_test_based_exclusive && count_of_exclusiveuntilbreak>=2)){
-   			splitter[i]=1;
-            sum_testln+=f.indexpile[i+1]-f.indexpile[i];
-  			 sum_test++;
-			 } else {
-			 splitter[i]=0;
-  			 sum_train++;
-  			 sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
-   		} 
-   	 }		 
-     // end of the loop 
-   	 }
-   
+		// the conditions compiled to primitive predicates , evaluated column-wise into a bitmap of the test rows
+		splitpredicate predicate= new splitpredicate(fsrows, hasetrowconditioner, hasetintidconditioner, hasetStringidconditioner,
+				rowconditioner, intidconditioner, Stringidconditioner, mapper_conditions, connection_type, intidcolumn, Stringidcolumn);
+		predicate.threads=this.threads;
+		long [] splitter=predicate.evaluate(f);
+		sum_test=splitpredicate.count(splitter);
+		sum_train=fsrows-sum_test;
+		for (int i=0; i < fsrows ; i++){
+			if (splitpredicate.get(splitter, i)){
+				sum_testln+=f.indexpile[i+1]-f.indexpile[i];
+			} else {
+				sum_trainln+=f.indexpile[i+1]-f.indexpile[i];
+			}
+		}
+
    	 if (sum_train==0 || sum_test==0){
    		 throw new IllegalStateException(" one of train or test sets have zero elements, train/test: " + sum_train + "/" +sum_test);
    	 }
@@ -2595,8 +1706,8 @@ public class selectivesplit {
  		//do the allocation of objects
  		int count_train=0;
  		int count_test=0;
- 		for (int i=0; i < splitter.length; i++){
- 			int value=splitter[i];
+ 		for (int i=0; i < fsrows; i++){
+ 			int value=splitpredicate.get(splitter, i)?1:0;
  			if (value==1) { // case is allocated to test set
  		 		if (HasStringid) {
 
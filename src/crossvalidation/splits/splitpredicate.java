@@ -0,0 +1,396 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.splits;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import utilis.map.intint.IntIntMapminus4a;
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> The conditions of a {@link selectivesplit} compiled once into a list of primitive predicates (in the hierarchy of the connection_type) 
+ * and evaluated column-wise over blocks of rows into a bitmap , where a set bit means the row goes to test. 
+ * The HashSet of rows becomes a bitmap and the HashSet of int ids a primitive map , so no values are boxed , 
+ * and the conditioners compare primitives without looking up the comparison String. Blocks are evaluated in parallel.
+ * The rules of the connections are the ones of {@link selectivesplit#connection_type}: a row goes to test if a non-exclusive condition is true 
+ * or all the exclusive conditions (at least 2) are true.</p>
+ */
+public class splitpredicate {
+	/**
+	 * kinds of the predicates
+	 */
+	private static final int ROW_SET=0, INT_ID_SET=1, STRING_ID_SET=2, ROW=3, INT_ID=4, STRING_ID=5, COLUMN=6;
+	/**
+	 * rows of every block , a multiple of 64 so that blocks do not share words of the bitmap
+	 */
+	private static final int BLOCK=4096;
+	/**
+	 * the kind of every predicate
+	 */
+	private int kinds[];
+	/**
+	 * the conditioner of every predicate (null for the sets)
+	 */
+	private conditioner conditions[];
+	/**
+	 * the column of every COLUMN predicate
+	 */
+	private int columns[];
+	/**
+	 * True if the predicate is connected non-exclusively
+	 */
+	private boolean non_exclusive[];
+	/**
+	 * the rows of the HashSet of rows as a bitmap
+	 */
+	private long row_set[];
+	/**
+	 * the int ids of the HashSet of int ids
+	 */
+	private IntIntMapminus4a int_set;
+	/**
+	 * the HashSet of String ids
+	 */
+	private HashSet<String> string_set;
+	/**
+	 * int id column
+	 */
+	private int intidcolumn[];
+	/**
+	 * String id column
+	 */
+	private String Stringidcolumn[];
+	/**
+	 * number of rows
+	 */
+	private int rows;
+	/**
+	 * dense data of the column predicates
+	 */
+	private fsmatrix fdata;
+	/**
+	 * double data of the column predicates
+	 */
+	private double data[][];
+	/**
+	 * String data of the column predicates
+	 */
+	private String sdata[][];
+	/**
+	 * sparse data of the column predicates (sorted by row)
+	 */
+	private smatrix sparse;
+	/**
+	 * number of threads to use
+	 */
+	public int threads=1;
+	
+	/**
+	 * Compiles the conditions. Only the ones that are not null (and not empty for the HashSets) are used , in the order of {@link selectivesplit#connection_type}
+	 * @param rows : number of rows
+	 * @param hasetrowconditioner : HashSet of rows
+	 * @param hasetintidconditioner : HashSet of int ids
+	 * @param hasetStringidconditioner : HashSet of String ids
+	 * @param rowconditioner : conditioner on the row
+	 * @param intidconditioner : conditioner on the int id column
+	 * @param Stringidconditioner : conditioner on the String id column
+	 * @param mapper_conditions : conditioners on the columns of the data
+	 * @param connection_type : True for every condition that is connected non-exclusively , one for every condition
+	 * @param intidcolumn : int id column
+	 * @param Stringidcolumn : String id column
+	 */
+	public splitpredicate(int rows, HashSet<Integer> hasetrowconditioner, HashSet<Integer> hasetintidconditioner, HashSet<String> hasetStringidconditioner,
+			conditioner rowconditioner, conditioner intidconditioner, conditioner Stringidconditioner, conditioner_mapper mapper_conditions[],
+			boolean connection_type[], int intidcolumn[], String Stringidcolumn[]){
+		int count=(mapper_conditions==null)?0:mapper_conditions.length;
+		kinds= new int[6+count];
+		conditions= new conditioner[6+count];
+		columns= new int[6+count];
+		int k=0;
+		if (hasetrowconditioner!=null && hasetrowconditioner.size()>0){
+			row_set= new long[(rows+63)>>>6];
+			Iterator<Integer> it=hasetrowconditioner.iterator();
+			while (it.hasNext()){
+				int row=it.next();
+				if (row>=0 && row<rows){
+					row_set[row>>>6]|=1L<<row;
+				}
+			}
+			kinds[k++]=ROW_SET;
+		}
+		if (hasetintidconditioner!=null && hasetintidconditioner.size()>0){
+			int_set= new IntIntMapminus4a(hasetintidconditioner.size(), 0.5f);
+			Iterator<Integer> it=hasetintidconditioner.iterator();
+			while (it.hasNext()){
+				int_set.put(it.next(), 1);
+			}
+			kinds[k++]=INT_ID_SET;
+		}
+		if (hasetStringidconditioner!=null && hasetStringidconditioner.size()>0){
+			string_set=hasetStringidconditioner;
+			kinds[k++]=STRING_ID_SET;
+		}
+		if (rowconditioner!=null){
+			conditions[k]=rowconditioner;
+			kinds[k++]=ROW;
+		}
+		if (intidconditioner!=null){
+			conditions[k]=intidconditioner;
+			kinds[k++]=INT_ID;
+		}
+		if (Stringidconditioner!=null){
+			conditions[k]=Stringidconditioner;
+			kinds[k++]=STRING_ID;
+		}
+		for (int j=0; j <count; j++){
+			conditions[k]=mapper_conditions[j].GetConditioner();
+			columns[k]=mapper_conditions[j].GetIndex();
+			kinds[k++]=COLUMN;
+		}
+		if (k==0){
+			throw new IllegalStateException(" No valid conditioners were found to make a selective split. You may consider a RandomSplit instead that does not require a conditioner");	
+		}
+		if (connection_type==null || connection_type.length!=k){
+			throw new IllegalStateException(" connection_type needs to have one element for every condition, namely: " + k);	
+		}
+		kinds=Arrays.copyOf(kinds, k);
+		conditions=Arrays.copyOf(conditions, k);
+		columns=Arrays.copyOf(columns, k);
+		this.non_exclusive=connection_type.clone();
+		this.rows=rows;
+		this.intidcolumn=intidcolumn;
+		this.Stringidcolumn=Stringidcolumn;
+	}
+	
+	/**
+	 * @param f : the data of the column conditions
+	 * @return the bitmap of the rows that go to test
+	 */
+	public long [] evaluate(fsmatrix f){
+		fdata=f;
+		return evaluate();
+	}
+	/**
+	 * @param data : the data of the column conditions
+	 * @return the bitmap of the rows that go to test
+	 */
+	public long [] evaluate(double data[][]){
+		this.data=data;
+		return evaluate();
+	}
+	/**
+	 * @param data : the data of the column conditions
+	 * @return the bitmap of the rows that go to test
+	 */
+	public long [] evaluate(String data[][]){
+		this.sdata=data;
+		return evaluate();
+	}
+	/**
+	 * @param f : the data of the column conditions (sorted by row)
+	 * @return the bitmap of the rows that go to test
+	 */
+	public long [] evaluate(smatrix f){
+		this.sparse=f;
+		return evaluate();
+	}
+	
+	/**
+	 * @param bitmap : a bitmap of rows
+	 * @return the number of rows in the bitmap
+	 */
+	public static int count(long bitmap[]){
+		int count=0;
+		for (int w=0; w <bitmap.length; w++){
+			count+=Long.bitCount(bitmap[w]);
+		}
+		return count;
+	}
+	/**
+	 * @param bitmap : a bitmap of rows
+	 * @param row : the row
+	 * @return true if the row is in the bitmap
+	 */
+	public static boolean get(long bitmap[], int row){
+		return ((bitmap[row>>>6]>>>row) & 1L)!=0;
+	}
+	
+	/**
+	 * @return the bitmap of the rows that go to test
+	 */
+	private long [] evaluate(){
+		long bitmap[]= new long[(rows+63)>>>6];
+		int blocks=(rows+BLOCK-1)/BLOCK;
+		int t=Math.max(1, Math.min(this.threads, blocks));
+		if (t==1){
+			for (int b=0; b <blocks; b++){
+				evaluate_block(b, bitmap);
+			}
+			return bitmap;
+		}
+		Thread[] thread_array= new Thread[t];
+		for (int n=0; n <t; n++){
+			thread_array[n]= new Thread(new splitpredicatehelper(this, bitmap, blocks, n, t));
+			thread_array[n].start();
+		}
+		for (int n=0; n <t; n++){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+		return bitmap;
+	}
+	
+	/**
+	 * evaluates all the predicates for a block of rows and sets the bits of the rows that go to test
+	 * @param block : the block of rows
+	 * @param bitmap : the bitmap to fill
+	 */
+	void evaluate_block(int block, long bitmap[]){
+		int st=block*BLOCK;
+		int len=Math.min(rows, st+BLOCK)-st;
+		boolean hit[]= new boolean[len];
+		// rows with a known outcome
+		boolean done[]= new boolean[len];
+		if (kinds.length==1){
+			//only one conditioner, no point for chaining
+			fill(0, st, len, hit, done);
+			for (int r=0; r <len; r++){
+				if (hit[r]){
+					bitmap[(st+r)>>>6]|=1L<<(st+r);
+				}
+			}
+			return;
+		}
+		boolean non_exclusive_true[]= new boolean[len];
+		boolean exclusive_true[]= new boolean[len];
+		Arrays.fill(exclusive_true, true);
+		int exclusive_count[]= new int[len];
+		for (int k=0; k <kinds.length; k++){
+			fill(k, st, len, hit, done);
+			boolean connection=non_exclusive[k];
+			boolean column=kinds[k]==COLUMN;
+			for (int r=0; r <len; r++){
+				if (done[r]){
+					continue;
+				}
+				if (hit[r]){
+					if (connection){
+						non_exclusive_true[r]=true;
+						done[r]=true;
+					} else {
+						exclusive_count[r]++;
+					}
+				} else if (!connection){
+					exclusive_true[r]=false;
+					// the conditions of the columns stop at the first false exclusive one
+					if (column){
+						done[r]=true;
+					}
+				}
+			}
+		}
+		for (int r=0; r <len; r++){
+			if (non_exclusive_true[r] || (exclusive_true[r] && exclusive_count[r]>=2)){
+				bitmap[(st+r)>>>6]|=1L<<(st+r);
+			}
+		}
+	}
+	
+	/**
+	 * evaluates one predicate column-wise for the rows that are not done
+	 */
+	private void fill(int k, int st, int len, boolean hit[], boolean done[]){
+		conditioner c=conditions[k];
+		int kind=kinds[k];
+		if (kind==ROW_SET){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && get(row_set, st+r);
+			}
+		} else if (kind==INT_ID_SET){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && int_set.get(intidcolumn[st+r])!=IntIntMapminus4a.NO_VALUE;
+			}
+		} else if (kind==STRING_ID_SET){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && string_set.contains(Stringidcolumn[st+r]);
+			}
+		} else if (kind==ROW){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && c.test(st+r);
+			}
+		} else if (kind==INT_ID){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && c.test(intidcolumn[st+r]);
+			}
+		} else if (kind==STRING_ID){
+			for (int r=0; r <len; r++){
+				hit[r]=!done[r] && c.test(Stringidcolumn[st+r]);
+			}
+		} else {
+			int column=columns[k];
+			if (fdata!=null){
+				int cols=fdata.GetColumnDimension();
+				double values[]=fdata.data;
+				for (int r=0; r <len; r++){
+					hit[r]=!done[r] && c.test(values[(st+r)*cols + column]);
+				}
+			} else if (data!=null){
+				for (int r=0; r <len; r++){
+					hit[r]=!done[r] && c.test(data[st+r][column]);
+				}
+			} else if (sdata!=null){
+				for (int r=0; r <len; r++){
+					hit[r]=!done[r] && c.test(sdata[st+r][column]);
+				}
+			} else if (sparse!=null){
+				for (int r=0; r <len; r++){
+					if (done[r]){
+						hit[r]=false;
+						continue;
+					}
+					double val=0.0;
+					for (int j=sparse.indexpile[st+r]; j <sparse.indexpile[st+r+1]; j++){
+						if (sparse.mainelementpile[j]==column){
+							val=sparse.valuespile[j];
+							break;
+						}
+					}
+					hit[r]=c.test(val);
+				}
+			} else {
+				throw new IllegalStateException(" There is no data for the conditions on the columns");	
+			}
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package crossvalidation.splits;
+
+/**
+ * 
+ * @author marios
+ *<p> Runnable that evaluates every threads-th block of rows of a {@link splitpredicate} into the shared bitmap. </p>
+ */
+public class splitpredicatehelper implements Runnable {
+	/**
+	 * the compiled conditions
+	 */
+	private splitpredicate predicate;
+	/**
+	 * the bitmap to fill
+	 */
+	private long bitmap[];
+	/**
+	 * number of blocks
+	 */
+	private int blocks;
+	/**
+	 * first block of this helper
+	 */
+	private int first;
+	/**
+	 * distance between the blocks of this helper
+	 */
+	private int step;
+	
+	/**
+	 * 
+	 * @param predicate : the compiled conditions
+	 * @param bitmap : the bitmap to fill
+	 * @param blocks : number of blocks
+	 * @param first : first block of this helper
+	 * @param step : distance between the blocks of this helper
+	 */
+	public splitpredicatehelper(splitpredicate predicate, long bitmap[], int blocks, int first, int step){
+		this.predicate=predicate;
+		this.bitmap=bitmap;
+		this.blocks=blocks;
+		this.first=first;
+		this.step=step;
+	}
+
+	@Override
+	public void run() {
+		for (int b=first; b <blocks; b+=step){
+			predicate.evaluate_block(b, bitmap);
+		}
+	}
+
+}
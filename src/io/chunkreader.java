@@ -0,0 +1,404 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package io;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.regex.Pattern;
+
+import matrix.DoubleColumnBuilder;
+import matrix.IntColumnBuilder;
+import matrix.smatrix;
+import preprocess.scaling.maxscaler;
+
+/**
+ *
+ * @author marios
+ * <p> Reads a file in chunks of rows so that models can be trained without loading the whole data in memory.
+ * Each chunk is returned as a row-sorted {@link smatrix} along with its target. A background thread parses the next chunk(s)
+ * while the current one is being used and at most <b>prefetch</b> parsed chunks wait in a bounded queue, so memory depends
+ * only on the chunk size. The file may be re-read for many passes (epochs) by calling open() again.
+ * The file may be in sparse format (target followed by column:value pairs , e.g. libsvm) or dense delimited format
+ * with the target in the first column.
+ */
+public class chunkreader implements Runnable {
+
+	/**
+	 * the file to read
+	 */
+	public String file;
+	/**
+	 * delimiter of the elements in a row
+	 */
+	public String delimeter=" ";
+	/**
+	 * delimiter between the column and the value for sparse files
+	 */
+	public String second_delimiter=":";
+	/**
+	 * True if the file is in sparse (column:value) format
+	 */
+	public boolean sparse=true;
+	/**
+	 * True if the file has a header (that needs to be skipped)
+	 */
+	public boolean hashead=false;
+	/**
+	 * Number of rows in each chunk
+	 */
+	public int chunk_rows=100000;
+	/**
+	 * Number of parsed chunks that can wait in memory while the current one is used
+	 */
+	public int prefetch=1;
+	/**
+	 * print stuff
+	 */
+	public boolean verbose=false;
+	/**
+	 * Number of columns (excluding the target). If not given it is found with a pass over the file
+	 */
+	private int columns=-1;
+	/**
+	 * Number of rows found in the last complete pass
+	 */
+	private int rows=-1;
+	/**
+	 * Holds the parsed chunks
+	 */
+	private ArrayBlockingQueue<Object []> queue;
+	/**
+	 * The thread that reads ahead
+	 */
+	private Thread reader;
+	/**
+	 * Error thrown in the reading thread (if any)
+	 */
+	private volatile RuntimeException reading_error;
+	/**
+	 * the current chunk
+	 */
+	private smatrix current_chunk;
+	/**
+	 * the target of the current chunk
+	 */
+	private double current_target[];
+	/**
+	 * True when the reading thread has been asked to stop
+	 */
+	private volatile boolean stopped=false;
+	/**
+	 * Marks the end of the file in the queue
+	 */
+	private static final Object [] END_OF_FILE= new Object[0];
+
+	/**
+	 * @param file : the file to read
+	 * @param columns : the number of columns (excluding the target). If less than or equal to zero, it will be found with a pass over the file
+	 * @param sparse : True if the file is in sparse (target column:value) format
+	 */
+	public chunkreader(String file, int columns, boolean sparse){
+		if (file==null || file.length()<=0){
+			throw new IllegalStateException(" There is no file to read" );
+		}
+		this.file=file;
+		this.columns=columns;
+		this.sparse=sparse;
+		if (!sparse){
+			this.delimeter=",";
+		}
+	}
+
+	/**
+	 * @return the number of columns (excluding the target). A pass over the file is done if it is not known
+	 */
+	public int GetColumnDimension(){
+		if (columns<=0){
+			scan();
+		}
+		return columns;
+	}
+	/**
+	 * @return the number of rows of the last complete pass (a pass over the file is done if it is not known)
+	 */
+	public int GetRowDimension(){
+		if (rows<0){
+			scan();
+		}
+		return rows;
+	}
+
+	/**
+	 * Fits a max scaler with one pass over the file.
+	 * @return the fitted scaler
+	 */
+	public maxscaler fit_scaler(){
+		maxscaler sc = new maxscaler();
+		open();
+		while (next()){
+			sc.partial_fit(current_chunk);
+		}
+		close();
+		return sc;
+	}
+
+	/**
+	 * Starts a new pass over the file. Any previous pass is stopped
+	 */
+	public void open(){
+		close();
+		if (this.chunk_rows<=0){
+			throw new IllegalStateException(" chunk_rows needs to be higher than zero" );
+		}
+		if (this.prefetch<=0){
+			this.prefetch=1;
+		}
+		GetColumnDimension();
+		stopped=false;
+		reading_error=null;
+		queue= new ArrayBlockingQueue<Object []>(prefetch);
+		reader= new Thread(this);
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Moves to the next chunk
+	 * @return false when there are no more chunks in this pass
+	 */
+	public boolean next(){
+		if (queue==null){
+			throw new IllegalStateException(" The reader needs to be opened first" );
+		}
+		Object [] chunk=null;
+		try {
+			chunk=queue.take();
+		} catch (InterruptedException e) {
+			throw new IllegalStateException(" reading was terminated due to multithreading error");
+		}
+		if (reading_error!=null){
+			throw reading_error;
+		}
+		if (chunk==END_OF_FILE){
+			current_chunk=null;
+			current_target=null;
+			return false;
+		}
+		current_chunk=(smatrix) chunk[0];
+		current_target=(double []) chunk[1];
+		return true;
+	}
+	/**
+	 * @return the current chunk (sorted by row)
+	 */
+	public smatrix GetChunk(){
+		return current_chunk;
+	}
+	/**
+	 * @return the target of the current chunk
+	 */
+	public double [] GetTarget(){
+		return current_target;
+	}
+
+	/**
+	 * stops the current pass (if any)
+	 */
+	public void close(){
+		stopped=true;
+		if (reader!=null){
+			reader.interrupt();
+			try {
+				reader.join();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(" reading was terminated due to multithreading error");
+			}
+		}
+		reader=null;
+		queue=null;
+		current_chunk=null;
+		current_target=null;
+	}
+
+	/**
+	 * finds the number of rows and (if not given) columns with a pass over the file
+	 */
+	private void scan(){
+		Pattern del = Pattern.compile(delimeter + "+");
+		Pattern del2 = Pattern.compile(second_delimiter + "+");
+		int max_column=-1;
+		int row_counter=0;
+		String line="";
+		BufferedReader br=null;
+		try {
+			br = new BufferedReader(new InputStreamReader(new FileInputStream(file),"UTF-8"));
+			if (hashead){
+				br.readLine();
+			}
+			while ((line = br.readLine()) != null  ) {
+				if (line.trim().length()==0){
+					continue;
+				}
+				String element []=del.split(line.trim(),-1);
+				if (sparse){
+					for (int h=1; h < element.length; h++) {
+						int column=Integer.parseInt(del2.split(element[h],-1)[0]);
+						if (column>max_column){
+							max_column=column;
+						}
+					}
+				} else if (element.length-2>max_column){
+					max_column=element.length-2;
+				}
+				row_counter++;
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("File " + file + "  failed to be scanned at row " + row_counter + " : " + e.getMessage());
+		} finally {
+			close(br);
+		}
+		rows=row_counter;
+		if (columns<=0){
+			columns=max_column+1;
+		}
+		if (verbose){
+			System.out.println(" Scanned File: " + file + " rows: " + rows + " columns: " + columns);
+		}
+	}
+
+	/**
+	 * closes the reader (if opened) , ignoring errors on close
+	 */
+	private static void close(BufferedReader br){
+		if (br==null){
+			return;
+		}
+		try {
+			br.close();
+		} catch (IOException e) {
+			// nothing left to read from it
+		}
+	}
+
+	/**
+	 * places a chunk in the queue , waiting while the queue is full
+	 */
+	private boolean put(Object [] chunk){
+		try {
+			queue.put(chunk);
+			return true;
+		} catch (InterruptedException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void run() {
+		// reading thread : parses one chunk at a time and waits while the queue is full
+		Pattern del = Pattern.compile(delimeter + "+");
+		Pattern del2 = Pattern.compile(second_delimiter + "+");
+		// the buffers are kept between the chunks , each chunk gets its own copy of them
+		double target []= new double [chunk_rows];
+		IntColumnBuilder index= new IntColumnBuilder(chunk_rows+1);
+		int capacity=Math.max(16, chunk_rows);
+		DoubleColumnBuilder values= new DoubleColumnBuilder(capacity);
+		IntColumnBuilder cols= new IntColumnBuilder(capacity);
+		index.add(0);
+		int row_counter=0;
+		int element_counter=0;
+		int total_rows=0;
+		String line="";
+		BufferedReader br=null;
+		try {
+			br = new BufferedReader(new InputStreamReader(new FileInputStream(file),"UTF-8"));
+			if (hashead){
+				br.readLine();
+			}
+			while (!stopped && (line = br.readLine()) != null  ) {
+				if (line.trim().length()==0){
+					continue;
+				}
+				String element []=del.split(line.trim(),-1);
+				target[row_counter]=Double.parseDouble(element[0]);
+				for (int h=1; h < element.length; h++) {
+					int column=h-1;
+					double val=0.0;
+					if (sparse){
+						String this_value[]=del2.split(element[h],-1);
+						column=Integer.parseInt(this_value[0]);
+						val=Double.parseDouble(this_value[1]);
+					} else {
+						val=Double.parseDouble(element[h]);
+					}
+					if (val==0.0){
+						continue;
+					}
+					if (column>=columns){
+						throw new IllegalStateException(" column " + column + " exceeds the given column dimension of " + columns);
+					}
+					values.add(val);
+					cols.add(column);
+					element_counter++;
+				}
+				row_counter++;
+				index.add(element_counter);
+
+				if (row_counter==chunk_rows){
+					double chunk_target []= new double [row_counter];
+					System.arraycopy(target, 0, chunk_target, 0, row_counter);
+					if (!put(new Object []{values.toSmatrix(cols, index, columns),chunk_target})){
+						return;
+					}
+					total_rows+=row_counter;
+					row_counter=0;
+					element_counter=0;
+					index.add(0);
+				}
+			}
+			close(br);
+			if (!stopped && row_counter>0){
+				double chunk_target []= new double [row_counter];
+				System.arraycopy(target, 0, chunk_target, 0, row_counter);
+				if (!put(new Object []{values.toSmatrix(cols, index, columns),chunk_target})){
+					return;
+				}
+				total_rows+=row_counter;
+			}
+			if (!stopped){
+				rows=total_rows;
+			}
+		} catch (RuntimeException e) {
+			reading_error=e;
+		} catch (Exception e) {
+			reading_error= new IllegalStateException("File " + file + "  failed to import at row " + (total_rows+row_counter) + " : " + line);
+		} finally {
+			close(br);
+		}
+		if (!stopped){
+			put(END_OF_FILE);
+		}
+	}
+
+}
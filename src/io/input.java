@@ -29,6 +29,8 @@ import java.util.Arrays;
 import java.util.Vector;
 
 import exceptions.NullObjectException;
+import matrix.DoubleColumnBuilder;
+import matrix.IntColumnBuilder;
 import matrix.fsmatrix;
 import matrix.smatrix;
 
@@ -1230,17 +1232,12 @@ public class input {
 	         */
 	        public smatrix readsmatrixdata(String file, String second_delimiter, boolean hashead, boolean has_target){
 	        	
-	        	// first we need to count the number of elements in the file (rows and columns)
-	        	// this file cannot have headers
- 
-	        	int stats [] =GetTotalNumberOfElementsandrows(file, this.delimeter, false,has_target);
-	        	System.out.println(Arrays.toString(stats));
-	        	int elements=stats[0];
-	        	int rowsize=stats[1];
-	        	//initialize the elements of the smatrix
-	        	int rows []= new int [rowsize+1];
-	        	int cols []= new int [elements];
-	        	double values []= new double [elements];
+	        	// single pass : the elements are appended to growable primitive buffers
+	        	// so that the file does not need to be counted first
+	        	DoubleColumnBuilder values= new DoubleColumnBuilder();
+	        	IntColumnBuilder cols= new IntColumnBuilder();
+	        	IntColumnBuilder rows= new IntColumnBuilder();
+	        	rows.add(0);
 	        	int element_counter=0;
 	        	int row_counter=0;
 	        	int column_counter=0;
@@ -1267,11 +1264,11 @@ public class input {
 	                    			int columns=Integer.parseInt(this_value[0]);
 	                    			double val=Double.parseDouble(this_value[1]);
 	                    			//rows[element_counter]=row_counter;
-	                    			cols[element_counter]=columns;
+	                    			cols.add(columns);
 	                    			if (columns>column_counter){
 	                    				column_counter=columns;
 	                    			}
-	                    			values[element_counter]=val;
+	                    			values.add(val);
 	                    			element_counter++;
 	                    			} catch (Exception e) {
 	                    				throw new IllegalStateException("Could not parse elemnt : " + h + " at row: " + row_counter + " and specifically the value of: " +element[h] );	
@@ -1287,11 +1284,11 @@ public class input {
 	                    			int columns=Integer.parseInt(this_value[0]);
 	                    			double val=Double.parseDouble(this_value[1]);
 	                    			//rows[element_counter]=row_counter;
-	                    			cols[element_counter]=columns;
+	                    			cols.add(columns);
 	                    			if (columns>column_counter){
 	                    				column_counter=columns;
 	                    			}
-	                    			values[element_counter]=val;
+	                    			values.add(val);
 	                    			element_counter++;
 	                    			} catch (Exception e) {
 	                    				throw new IllegalStateException("Could not parse elemnt : " + 0 + " at row: " + row_counter + " and specifically the value of: " +element[0] );	
@@ -1303,12 +1300,10 @@ public class input {
 	   
 	                    	
 	                    	row_counter++;	
-	                    	rows[row_counter]=element_counter;
-	   	        		 if (this.verbose){
-		        			 if (element_counter%(elements/20)==0.0) {
-		        				 System.out.printf(" Completed: %.2f %% \n",  ((double)element_counter/(double)elements)*100.0 );
-		    	        	 }
-		        			 }
+	                    	rows.add(element_counter);
+	   	        		 if (this.verbose && row_counter%100000==0){
+	   	        			 System.out.println(" Completed rows: " + row_counter );
+		        		 }
 	                    }
             	} catch (Exception e) {
 	        		throw new IllegalStateException("File " + file + "  failed to import at bufferreader");
@@ -1318,10 +1313,10 @@ public class input {
 	        		System.out.println(" Loaded File: " + file);
 	        		System.out.println(" Total rows in the file: " + row_counter);
 	        		System.out.println(" Total columns in the file: undetrmined-Sparse");		
-	        		System.out.println(" Number of elements : " + elements  );		        			
+	        		System.out.println(" Number of elements : " + element_counter  );		        			
 	        	}
 	            
-	            return  new smatrix(values, cols, rows,  row_counter,column_counter+1, element_counter,true);
+	            return values.toSmatrix(cols, rows, column_counter+1);
 	          	
 	        }
 	            
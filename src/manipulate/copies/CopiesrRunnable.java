@@ -20,7 +20,6 @@ SOFTWARE.
 */
 package manipulate.copies;
 
-import java.util.ArrayList;
 
 import exceptions.NullObjectException;
 
@@ -47,14 +46,6 @@ public class CopiesrRunnable implements Runnable{
     */	
 	double array2dtopass[][];
 	/**
-    * 2d Arraylist to copy values from
-    */	
-	ArrayList<ArrayList<Double>> arraylist1d2d;
-	/**
-    * 2d Arraylist to copy values to
-    */		
-	ArrayList<ArrayList<Double>> arraylist1d2dtopass;
-	/**
 	 * start location of the loop
 	 */
 	int s=0;
@@ -102,24 +93,6 @@ public class CopiesrRunnable implements Runnable{
 	};
 	 
 	
-	/**
-	 * 
-	 * @param array  The arraylist to process (by reference)
-	 * @param array_topass  The 2d arraylist to copy values to (by reference) 
-	 * @param start The start location 
-	 * @param end The end location
-	 * Basic constructor with copy operations for 2d arraylists
-	 */
-	
-	CopiesrRunnable( ArrayList<ArrayList<Double>> array,ArrayList<ArrayList<Double>> array_topass, int start, int end) {
-		
-		arraylist1d2d=array;
-		arraylist1d2dtopass=array_topass;
-		s=start;
-		e=end;
-
-		
-	};	
 	
 	
 	@Override
@@ -156,20 +129,6 @@ public class CopiesrRunnable implements Runnable{
 				
 		
 			// end of array2d
-		} else if (arraylist1d2d!=null && arraylist1d2dtopass!=null && arraylist1d2d.size()==arraylist1d2dtopass.size()) {
-			
-
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2dtopass.get(i).set(j, arraylist1d2d.get(i).get(j) );
-					}
-				}
-				
-	
-			
-			
-			// end of arraylist 2d
 		} else {
 			
 			// all object are null, throw error
@@ -19,7 +19,6 @@ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
 SOFTWARE.
 */
 package manipulate.copies;
-import java.util.ArrayList;
 import exceptions.NullObjectException;
 
 /**
@@ -225,34 +224,6 @@ public class copies {
 	}
 		
 
-	/**
-	 * 
-	 * @param arraylist2d_to_copy_from 2d Arraylist to copy
-	 * @param threads number of threads to use
-	 * @return the copied arraylist
-	 */
-	public static ArrayList<ArrayList<Double>>  Copy( final ArrayList<ArrayList<Double>> arraylist2d_to_copy_from ) {
-		
-		// sensible checks
-		if (arraylist2d_to_copy_from==null || arraylist2d_to_copy_from.size()==0){
-			
-			throw new NullObjectException (" Array to copy from is null or empty ");
-		}
-
-		// initialize the new arry to copy to
-		ArrayList<ArrayList<Double>> arraylist2d_to_copy_to= new ArrayList<ArrayList<Double>>(arraylist2d_to_copy_from.size());
-		for (int n=0; n <arraylist2d_to_copy_from.size(); n++ ){
-			ArrayList<Double> temp= new ArrayList<Double>(arraylist2d_to_copy_from.get(n).size());
-			for (int j=0; j <arraylist2d_to_copy_from.get(n).size(); j++ ){
-				temp.add(arraylist2d_to_copy_from.get(n).get(j) + 0.0);
-			}
-			arraylist2d_to_copy_to.add(temp);
-			
-		}
-	
-	return arraylist2d_to_copy_to;
-		//end of multiply this method
-	}
 	
 	
 	
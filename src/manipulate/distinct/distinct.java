@@ -26,6 +26,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import exceptions.IllegalStateException;
+import matrix.DoubleColumnBuilder;
 
 /**
  * 
@@ -46,7 +47,7 @@ public class distinct {
 		}
 		
 
-		  ArrayList<Double> sets= new ArrayList<Double>();
+		  DoubleColumnBuilder sets= new DoubleColumnBuilder();
 			
 				for (int j=0; j <Array.length; j++ ){
 				int	y=0;
@@ -61,11 +62,7 @@ public class distinct {
 				}
 			}
 			
-				double[] Arr= new double [sets.size()];
-				for (int j=0; j <Arr.length; j++ ){
-					Arr[j]=sets.get(j);
-				}
-			return Arr;
+			return sets.toArray();
 
 	}
 	
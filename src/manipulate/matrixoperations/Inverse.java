@@ -28,6 +28,11 @@ import exceptions.NullObjectException;
 
 public class Inverse {
 	
+	/**
+	 * columns in each block of the blocked decompositions
+	 */
+	private static final int BLOCK=64;
+	
 	
 	/**
 	 * 
@@ -905,6 +910,124 @@ public class Inverse {
 		//System.gc();
 		
 	}	
+	/**
+	 * Solves A*x=b for a symmetric positive definite matrix A via an in-place Cholesky decomposition (A=L*L'),
+	 * which is cheaper and more stable than forming the inverse.
+	 * @param data : symmetric positive definite matrix in a single double array representing a 2d array. Its lower triangle is replaced by L
+	 * @param b : the right-hand side. It is replaced by the solution x
+	 */
+	public static void CholeskySolvethis(double data [], double b []) {
+		CholeskySolvethis(data, b, 1);
+	}
+	/**
+	 * Solves A*x=b for a symmetric positive definite matrix A via the blocked Cholesky decomposition (A=L*L'),
+	 * which is cheaper and more stable than forming the inverse.
+	 * @param data : symmetric positive definite matrix in a single double array representing a 2d array. Its lower triangle is replaced by L
+	 * @param b : the right-hand side. It is replaced by the solution x
+	 * @param threads : Number of threads to use
+	 */
+	public static void CholeskySolvethis(double data [], double b [], int threads) {
+		
+		if (data==null || data.length==0 || b==null){
+			throw new NullObjectException (" The  Array to solve is null or empty ");
+		}
+		CholeskySolvethis(data, b, 1, threads);
+	}
+	/**
+	 * Solves A*X=B for a symmetric positive definite matrix A and many right-hand sides via the blocked Cholesky decomposition (A=L*L').
+	 * @param data : symmetric positive definite matrix in a single double array representing a 2d array. Its lower triangle is replaced by L
+	 * @param B : the right-hand sides in a single double array representing a 2d array with m columns. It is replaced by the solution X
+	 * @param m : columns of the right-hand sides
+	 * @param threads : Number of threads to use
+	 */
+	public static void CholeskySolvethis(double data [], double B [], int m, int threads) {
+		
+		if (data==null || data.length==0 || B==null || m<=0){
+			throw new NullObjectException (" The  Array to solve is null or empty ");
+		}
+		int n=B.length/m;
+		if (n*m!=B.length){
+			throw new DimensionMismatchException (B.length,n*m);
+		}
+		if (n*n!=data.length){
+			throw new DimensionMismatchException (data.length,n*n);
+		}
+		if (threads<=0) {
+			threads=1;
+		}
+		Choleskythis(data, threads);
+		decompositionhelper.run(decompositionhelper.CHOLESKY_SUBSTITUTE, data, n, 0, n, B, m, threads);
+	}
+	/**
+	 * Solves A*X=B for a symmetric positive definite matrix A via the blocked Cholesky decomposition, without forming the inverse of A.
+	 * @param A : symmetric positive definite matrix (it is not changed)
+	 * @param B : the right-hand sides (it is not changed)
+	 * @param threads : Number of threads to use
+	 * @return the solution X
+	 */
+	public static double [][] CholeskySolve(double A [][], double B [][], int threads) {
+		
+		if (A==null || A.length==0 || B==null || B.length==0){
+			throw new NullObjectException (" The  Arrays to solve are null or empty ");
+		}
+		if (A.length!=A[0].length){
+			throw new DimensionMismatchException (A.length,A[0].length);
+		}
+		if (A.length!=B.length){
+			throw new DimensionMismatchException (B.length,A.length);
+		}
+		int m=B[0].length;
+		double X []= flatten(B);
+		CholeskySolvethis(flatten(A), X, m, threads);
+		return unflatten(X, B.length, m);
+	}
+	/**
+	 * In-place Cholesky decomposition (A=L*L') , right-looking and blocked by columns. The updates of the rows below each block run in parallel.
+	 * Only the lower triangle is used.
+	 * @param data : symmetric positive definite matrix in a single double array representing a 2d array. Its lower triangle is replaced by L
+	 * @param threads : Number of threads to use
+	 */
+	public static void Choleskythis(double data [], int threads) {
+		
+		if (data==null || data.length==0){
+			throw new NullObjectException (" The  Array to decompose is null or empty ");
+		}
+		int n=(int) Math.sqrt(data.length);
+		if (n*n!=data.length){
+			throw new DimensionMismatchException (data.length,n*n);
+		}
+		if (threads<=0) {
+			threads=1;
+		}
+		for (int kb=0; kb < n; kb+=BLOCK){
+			int ke=Math.min(n, kb + BLOCK);
+			// the diagonal block
+			for (int i = kb; i < ke; i++){
+				int rowi=i*n;
+				for (int j = kb; j <= i; j++){
+					int rowj=j*n;
+					double sum = data[rowi + j];
+					for (int k = kb; k < j; k++){
+						sum -= data[rowi + k] * data[rowj + k];
+					}
+					if (i == j){
+						if (sum <= 0.0){
+							throw new ConvergenceException("The matrix is not positive definite");
+						}
+						data[rowi + i] = Math.sqrt(sum);
+					} else {
+						data[rowi + j] = sum / data[rowj + j];
+					}
+				}
+			}
+			if (ke < n){
+				// the block's columns of the rows below and then the rest of their lower triangle
+				decompositionhelper.run(decompositionhelper.CHOLESKY_PANEL, data, n, kb, ke, null, 0, threads);
+				decompositionhelper.run(decompositionhelper.CHOLESKY_UPDATE, data, n, kb, ke, null, 0, threads);
+			}
+		}
+	}
+	
 	/**
 	 * @param LU : square matrix
 	 * @param x : pointer array of the permutations in a oclumn
@@ -940,248 +1063,255 @@ public class Inverse {
 	 * @param covariancev : Square matrix to solve
 	 */
 	public static void LUInversethis (double[] covariancev){
+		LUInversethis(covariancev, 1);
+	}	
+	
+	/**
+	 * @param covariancev : Square matrix to solve
+	 * @param threads : Number of threads to use
+	 */
+	public static void LUInversethis (double[] covariancev, int threads){
 		
 		if (covariancev==null || covariancev.length==0){
 			
 			throw new NullObjectException (" The  Array to copy from is null or empty ");
 		}
+		// threads' checks
+		if (threads<=0) {
+			threads=1;
+		}
 		// initialize objects
 		double A[]= manipulate.copies.copies.Copy(covariancev);
 		int N=(int) Math.sqrt(A.length);
-		int p[]= new int[N];
-		// Initialize sign of permutation.
-		double signum = 1.0;
-
-		// Initialize permutation.
-		for (int i = 0; i < N; ++ i)
-			{
-			p[i] = i;
-			}
-
-		// Do all columns.
-		for (int j = 0; j < N-1; ++ j)
-			{
-			// Find pivot element (maximum element) in the j-th column.
-			double max = Math.abs (A[j*N +j]);
-			int i_pivot = j;
-			for (int i = j+1; i < N; ++ i)
-				{
-				double aij = Math.abs (A[i*N +j]);
-				if (aij > max)
-					{
-					max = aij;
-					i_pivot = i;
-					}
-				}
-
-			// If the pivot element is not on the diagonal, interchange rows.
-			if (i_pivot != j)
-				{
-				// Swap pivot row with diagonal row.
-				double swap = 0.0;
-				for (int k = 0; k < N; ++ k){
-					swap=A[i_pivot*N + k];
-					A[i_pivot*N + k]=A[j*N + k];
-					A[j*N + k]=swap;
-				}
-
-				// Update permutation.
-				int swap2 = p[i_pivot];
-				p[i_pivot] = p[j];
-				p[j] = swap2;
-				signum = - signum;
-				}
-
-			// Update the decomposition.
-			double ajj = A[j*N +j];
-			if (ajj != 0.0)
-				{
-				for (int i = j+1; i < N; ++ i)
-					{
-					double aij = A[i*N +j] / ajj;
-					A[i*N +j] = aij;
-					for (int k = j+1; k < N; ++ k)
-						{
-						A[i*N +k] -= aij * A[j*N +k];
-						}
-					}
-				}
-			else // (ajj == 0.0)
-				{
-				throw new ConvergenceException
-					("Singularity thresold exceeded");
-				}
-			}
-		
-		// for each column
-		for (int i = 0; i < N; ++ i)
-			{
-			double[] x = new double [N];
-			for (int j = 0; j < N; ++ j)
-			{
-			x[j] = i == p[j] ? 1.0 : 0.0;
-			}
-			Substitute (A, x,N);
-			for (int j = 0; j <N; ++ j)
-				{
-				covariancev[j*N +i] = x[j];
-				}
+		int p[]=LUdecompositionthis(A, threads);
+		// the columns of the identity , with the rows permuted
+		for (int j = 0; j < N; ++ j){
+			int rowj=j*N;
+			for (int i = 0; i < N; ++ i){
+				covariancev[rowj +i] = i == p[j] ? 1.0 : 0.0;
 			}
+		}
+		decompositionhelper.run(decompositionhelper.LU_SUBSTITUTE, A, N, 0, N, covariancev, N, threads);
         A=null;
         p=null;
-		//System.gc();
-		
-	}	
+	}
 	
 	/**
-	 * @param covariancev : Square matrix to solve
+	 * In-place LU decomposition with partial pivoting , right-looking and blocked by columns. The updates of the rows below each block run in parallel.
+	 * @param data : square matrix in a single double array representing a 2d array. It is replaced by L (unit lower triangle, below the diagonal) and U
 	 * @param threads : Number of threads to use
+	 * @return the permutation of the rows (row i of L*U is row p[i] of the matrix)
 	 */
-	public static void LUInversethis (double[] covariancev, int threads){
+	public static int [] LUdecompositionthis(double data [], int threads){
 		
-		if (covariancev==null || covariancev.length==0){
-			
-			throw new NullObjectException (" The  Array to copy from is null or empty ");
+		if (data==null || data.length==0){
+			throw new NullObjectException (" The  Array to decompose is null or empty ");
+		}
+		int N=(int) Math.sqrt(data.length);
+		if (N*N!=data.length){
+			throw new DimensionMismatchException (data.length,N*N);
 		}
-		// threads' checks
 		if (threads<=0) {
 			threads=1;
 		}
-		
-
-		// initialize objects
-		double A[]= manipulate.copies.copies.Copy(covariancev);
-		int N=(int) Math.sqrt(A.length);
 		int p[]= new int[N];
-		// Initialize sign of permutation.
-		double signum = 1.0;
-		if (threads> N) {
-			threads= N;
-		}	
-			
-		// Initialize permutation.
-		for (int i = 0; i < N; ++ i)
-			{
+		for (int i = 0; i < N; ++ i){
 			p[i] = i;
-			}
-
-		// Do all columns.
-		for (int j = 0; j < N-1; ++ j)
-			{
-			// Find pivot element (maximum element) in the j-th column.
-			double max = Math.abs (A[j*N +j]);
-			int i_pivot = j;
-			for (int i = j+1; i < N; ++ i)
-				{
-				double aij = Math.abs (A[i*N +j]);
-				if (aij > max)
-					{
-					max = aij;
-					i_pivot = i;
+		}
+		for (int kb=0; kb < N; kb+=BLOCK){
+			int ke=Math.min(N, kb + BLOCK);
+			// the block of columns
+			for (int j = kb; j < ke && j < N-1; ++ j){
+				// Find pivot element (maximum element) in the j-th column.
+				double max = Math.abs (data[j*N +j]);
+				int i_pivot = j;
+				for (int i = j+1; i < N; ++ i){
+					double aij = Math.abs (data[i*N +j]);
+					if (aij > max){
+						max = aij;
+						i_pivot = i;
 					}
 				}
-
-			// If the pivot element is not on the diagonal, interchange rows.
-			if (i_pivot != j)
-				{
-				// Swap pivot row with diagonal row.
-				double swap = 0.0;
-				for (int k = 0; k < N; ++ k){
-					swap=A[i_pivot*N + k];
-					A[i_pivot*N + k]=A[j*N + k];
-					A[j*N + k]=swap;
+				// If the pivot element is not on the diagonal, interchange the rows.
+				if (i_pivot != j){
+					double swap = 0.0;
+					for (int k = 0; k < N; ++ k){
+						swap=data[i_pivot*N + k];
+						data[i_pivot*N + k]=data[j*N + k];
+						data[j*N + k]=swap;
+					}
+					int swap2 = p[i_pivot];
+					p[i_pivot] = p[j];
+					p[j] = swap2;
 				}
-
-				// Update permutation.
-				int swap2 = p[i_pivot];
-				p[i_pivot] = p[j];
-				p[j] = swap2;
-				signum = - signum;
+				// Update the block's columns of the decomposition.
+				double ajj = data[j*N +j];
+				if (ajj == 0.0){
+					throw new ConvergenceException("Singularity thresold exceeded");
 				}
-
-			// Update the decomposition.
-			double ajj = A[j*N +j];
-			if (ajj != 0.0)
-				{
-				for (int i = j+1; i < N; ++ i)
-					{
-					double aij = A[i*N +j] / ajj;
-					A[i*N +j] = aij;
-					for (int k = j+1; k < N; ++ k)
-						{
-						A[i*N +k] -= aij * A[j*N +k];
-						}
+				for (int i = j+1; i < N; ++ i){
+					double aij = data[i*N +j] / ajj;
+					data[i*N +j] = aij;
+					for (int k = j+1; k < ke; ++ k){
+						data[i*N +k] -= aij * data[j*N +k];
 					}
 				}
-			else // (ajj == 0.0)
-				{
-				throw new ConvergenceException
-					("Singularity thresold exceeded");
-				}
-			}
-
-		Thread[] thread_array= new Thread[threads];
-		int count_of_current_threads=0;
-		
-		// for each column
-		for (int i = 0; i < N; ++ i)
-			{
-			double[] x = new double [N];
-			for (int j = 0; j < N; ++ j)
-			{
-			x[j] = i == p[j] ? 1.0 : 0.0;
 			}
-			// create the thread
-			thread_array[count_of_current_threads]=new Thread(new LUInverseRunnable(x,A,covariancev,N,i ));
-			thread_array[count_of_current_threads].start();
-			count_of_current_threads++;
-			// join threads
-			if (count_of_current_threads==threads || i==N-1){
-				for (int n=0; n <count_of_current_threads; n++ ){
-					try {
-						thread_array[n].join();
-					} catch (InterruptedException e) {
-					   System.out.println(e.getMessage());
+			if (ke < N){
+				// the rows of U in the block
+				for (int i = kb+1; i < ke; ++ i){
+					for (int s = kb; s < i; ++ s){
+						double l = data[i*N +s];
+						for (int k = ke; k < N; ++ k){
+							data[i*N +k] -= l * data[s*N +k];
+						}
 					}
 				}
-				 thread_array= new Thread[threads];
-				count_of_current_threads=0;
-			}			
-
+				// the rows below the block
+				decompositionhelper.run(decompositionhelper.LU_UPDATE, data, N, kb, ke, null, 0, threads);
 			}
-        A=null;
-        p=null;
-		//System.gc();
+		}
+		return p;
+	}
+	
+	/**
+	 * Solves A*X=B via the blocked LU decomposition with partial pivoting , without forming the inverse of A.
+	 * @param data : square matrix in a single double array representing a 2d array. It is replaced by its LU decomposition
+	 * @param B : the right-hand sides in a single double array representing a 2d array with m columns. It is replaced by the solution X
+	 * @param m : columns of the right-hand sides
+	 * @param threads : Number of threads to use
+	 */
+	public static void LUSolvethis(double data [], double B [], int m, int threads){
 		
-	}	
+		if (data==null || data.length==0 || B==null || m<=0){
+			throw new NullObjectException (" The  Array to solve is null or empty ");
+		}
+		int N=B.length/m;
+		if (N*m!=B.length){
+			throw new DimensionMismatchException (B.length,N*m);
+		}
+		if (N*N!=data.length){
+			throw new DimensionMismatchException (data.length,N*N);
+		}
+		if (threads<=0) {
+			threads=1;
+		}
+		int p[]=LUdecompositionthis(data, threads);
+		// permute the rows of the right-hand sides
+		double copy []=manipulate.copies.copies.Copy(B);
+		for (int i = 0; i < N; ++ i){
+			System.arraycopy(copy, p[i]*m, B, i*m, m);
+		}
+		decompositionhelper.run(decompositionhelper.LU_SUBSTITUTE, data, N, 0, N, B, m, threads);
+	}
+	
 	/**
-	 * @param LU : square matrix
-	 * @param x : pointer array of the permutations in a oclumn
+	 * Solves A*X=B via the blocked LU decomposition with partial pivoting , without forming the inverse of A.
+	 * @param A : square matrix (it is not changed)
+	 * @param B : the right-hand sides (it is not changed)
+	 * @param threads : Number of threads to use
+	 * @return the solution X
 	 */
-	private static void Substitute(double[] LU, double[] x, int n)
-	{
-	// Solve Ly = b using forward substitution. 
+	public static double [][] solve(double A [][], double B [][], int threads){
 		
-	for (int i = 1; i < n; ++ i)
-		{
-		double sum = x[i];
-		for (int j = 0; j < i; ++ j)
-			{
-			sum -= LU[i * n + j] * x[j];
-			}
-		x[i] = sum;
+		if (A==null || A.length==0 || B==null || B.length==0){
+			throw new NullObjectException (" The  Arrays to solve are null or empty ");
 		}
-
-	// back substitution.
-	x[n-1] /= LU[(n-1)* n + (n-1)];
-	for (int i = n-2; i >= 0; -- i)
-		{
-		double sum = x[i];
-		for (int j = i+1; j < n; ++ j)
-			{
-			sum -= LU[i*n+j] * x[j];
+		if (A.length!=A[0].length){
+			throw new DimensionMismatchException (A.length,A[0].length);
+		}
+		if (A.length!=B.length){
+			throw new DimensionMismatchException (B.length,A.length);
+		}
+		int m=B[0].length;
+		double X []= flatten(B);
+		LUSolvethis(flatten(A), X, m, threads);
+		return unflatten(X, B.length, m);
+	}
+	
+	/**
+	 * Solves A*X=B via the LU decomposition with partial pivoting , without forming the inverse of A.
+	 * @param A : square matrix (it is not changed)
+	 * @param B : the right-hand sides (it is not changed)
+	 * @return the solution X
+	 */
+	public static double [][] solve(double A [][], double B [][]){
+		return solve(A, B, 1);
+	}
+	
+	/**
+	 * Solves A*x=b via the blocked LU decomposition with partial pivoting , without forming the inverse of A.
+	 * @param A : square matrix (it is not changed)
+	 * @param b : the right-hand side (it is not changed)
+	 * @param threads : Number of threads to use
+	 * @return the solution x
+	 */
+	public static double [] solve(double A [][], double b [], int threads){
+		
+		if (A==null || A.length==0 || b==null || b.length==0){
+			throw new NullObjectException (" The  Arrays to solve are null or empty ");
+		}
+		if (A.length!=A[0].length){
+			throw new DimensionMismatchException (A.length,A[0].length);
+		}
+		if (A.length!=b.length){
+			throw new DimensionMismatchException (b.length,A.length);
+		}
+		double x []= manipulate.copies.copies.Copy(b);
+		LUSolvethis(flatten(A), x, 1, threads);
+		return x;
+	}
+	
+	/**
+	 * Solves A*X=B via the blocked LU decomposition with partial pivoting , without forming the inverse of A.
+	 * @param A : square matrix (it is not changed)
+	 * @param B : the right-hand sides (it is not changed)
+	 * @param threads : Number of threads to use
+	 * @return the solution X
+	 */
+	public static fsmatrix solve(fsmatrix A, fsmatrix B, int threads){
+		
+		if (A==null || A.GetRowDimension()==0 || B==null || B.GetRowDimension()==0){
+			throw new NullObjectException (" The  matrices to solve are null or empty ");
+		}
+		if (A.GetRowDimension()!=A.GetColumnDimension()){
+			throw new DimensionMismatchException (A.GetRowDimension(),A.GetColumnDimension());
+		}
+		if (A.GetRowDimension()!=B.GetRowDimension()){
+			throw new DimensionMismatchException (B.GetRowDimension(),A.GetRowDimension());
+		}
+		double X []= B.GetData();
+		LUSolvethis(A.GetData(), X, B.GetColumnDimension(), threads);
+		return new fsmatrix(X, B.GetRowDimension(), B.GetColumnDimension());
+	}
+	
+	/**
+	 * @param array : 2d array
+	 * @return the rows of the array in a single double array
+	 */
+	private static double [] flatten(double array [][]){
+		int columns=array[0].length;
+		double flat []= new double [array.length*columns];
+		for (int i = 0; i < array.length; ++ i){
+			if (array[i].length!=columns){
+				throw new DimensionMismatchException (array[i].length,columns);
 			}
-		x[i] = sum / LU[i*n + i];
+			System.arraycopy(array[i], 0, flat, i*columns, columns);
+		}
+		return flat;
+	}
+	
+	/**
+	 * @param flat : single double array representing a 2d array
+	 * @param rows : rows of the 2d array
+	 * @param columns : columns of the 2d array
+	 * @return the 2d array
+	 */
+	private static double [][] unflatten(double flat [], int rows, int columns){
+		double array [][]= new double [rows][columns];
+		for (int i = 0; i < rows; ++ i){
+			System.arraycopy(flat, i*columns, array[i], 0, columns);
 		}
+		return array;
 	}
 }
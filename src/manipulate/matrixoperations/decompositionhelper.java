@@ -0,0 +1,347 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package manipulate.matrixoperations;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> Purpose of the class is to provide some scalabilty options to the blocked LU and Cholesky decompositions of {@link Inverse} . </p>
+ *<p> The matrices are square and held in a single double array representing a 2d array. The updates of the trailing rows (after a block of columns has been factorised)
+ * are split in chunks of rows given to the helpers in turn , while the substitutions are split by columns of the right-hand sides. Every element receives
+ * its updates one at a time and in the same order as in the unblocked algorithms , hence the results do not depend on the blocking or the number of threads.</p>
+ */
+public class decompositionhelper implements Runnable {
+
+	/**
+	 * LU : trailing rows minus their multipliers times the rows of the block
+	 */
+	static final int LU_UPDATE=0;
+	/**
+	 * Cholesky : the columns of the block for the trailing rows
+	 */
+	static final int CHOLESKY_PANEL=1;
+	/**
+	 * Cholesky : lower triangle of the trailing rows minus the products of the columns of the block
+	 */
+	static final int CHOLESKY_UPDATE=2;
+	/**
+	 * forward and back substitution with the LU
+	 */
+	static final int LU_SUBSTITUTE=3;
+	/**
+	 * forward and back substitution with the Cholesky factor
+	 */
+	static final int CHOLESKY_SUBSTITUTE=4;
+	/**
+	 * rows in each chunk of the trailing rows
+	 */
+	private static final int CHUNK=16;
+	/**
+	 * type of the work
+	 */
+	private int type;
+	/**
+	 * the square matrix (decomposed in place)
+	 */
+	private double a[];
+	/**
+	 * side of the square matrix
+	 */
+	private int n;
+	/**
+	 * first column of the block
+	 */
+	private int kb;
+	/**
+	 * end of the columns of the block
+	 */
+	private int ke;
+	/**
+	 * the right-hand sides , n rows and m columns
+	 */
+	private double b[];
+	/**
+	 * columns of the right-hand sides
+	 */
+	private int m;
+	/**
+	 * the part of the work of this helper
+	 */
+	private int part;
+	/**
+	 * number of parts of the work
+	 */
+	private int parts;
+	
+	/**
+	 * 
+	 * @param type : type of the work
+	 * @param a : the square matrix
+	 * @param n : side of the square matrix
+	 * @param kb : first column of the block
+	 * @param ke : end of the columns of the block
+	 * @param b : the right-hand sides (for the substitutions)
+	 * @param m : columns of the right-hand sides
+	 * @param part : the part of the work of this helper
+	 * @param parts : number of parts of the work
+	 */
+	decompositionhelper(int type, double a[], int n, int kb, int ke, double b[], int m, int part, int parts){
+		if (a==null || a.length!=n*n){
+			throw new IllegalStateException(" The matrix to decompose needs to be square");
+		}
+		if (part<0 || part>=parts){
+			throw new IllegalStateException(" The part of the work is not valid: " + part + " , " + parts  );
+		}
+		this.type=type;
+		this.a=a;
+		this.n=n;
+		this.kb=kb;
+		this.ke=ke;
+		this.b=b;
+		this.m=m;
+		this.part=part;
+		this.parts=parts;
+	}
+	
+	/**
+	 * runs the work in parts (in parallel if threads>1)
+	 * @param type : type of the work
+	 * @param a : the square matrix
+	 * @param n : side of the square matrix
+	 * @param kb : first column of the block
+	 * @param ke : end of the columns of the block
+	 * @param b : the right-hand sides (for the substitutions)
+	 * @param m : columns of the right-hand sides
+	 * @param threads : Number of threads to use
+	 */
+	static void run(int type, double a[], int n, int kb, int ke, double b[], int m, int threads){
+		int work=(type==LU_SUBSTITUTE || type==CHOLESKY_SUBSTITUTE)?m:(n-ke + CHUNK-1)/CHUNK;
+		threads=Math.max(1, Math.min(threads, work));
+		if (threads==1){
+			new decompositionhelper(type, a, n, kb, ke, b, m, 0, 1).run();
+			return;
+		}
+		Thread[] thread_array= new Thread[threads];
+		for (int t=0; t < threads; t++){
+			thread_array[t]= new Thread(new decompositionhelper(type, a, n, kb, ke, b, m, t, threads));
+			thread_array[t].start();
+		}
+		for (int t=0; t < threads; t++){
+			try {
+				thread_array[t].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
+	
+	/**
+	 * rows i in [ke,n) : a[i][k] -= a[i][s]*a[s][k] for the columns s of the block and k>=ke
+	 * @param i : the row
+	 */
+	private void luupdate(int i){
+		int rowi=i*n;
+		int s=kb;
+		// 4 rows of the block at a time , still subtracted one after the other
+		for (; s+3 < ke; s+=4){
+			double l0=a[rowi + s], l1=a[rowi + s+1], l2=a[rowi + s+2], l3=a[rowi + s+3];
+			int r0=s*n, r1=r0+n, r2=r1+n, r3=r2+n;
+			for (int k=ke; k < n; k++){
+				double v=a[rowi + k];
+				v-=l0*a[r0 + k];
+				v-=l1*a[r1 + k];
+				v-=l2*a[r2 + k];
+				v-=l3*a[r3 + k];
+				a[rowi + k]=v;
+			}
+		}
+		for (; s < ke; s++){
+			double l=a[rowi + s];
+			int rows=s*n;
+			for (int k=ke; k < n; k++){
+				a[rowi + k]-=l*a[rows + k];
+			}
+		}
+	}
+	
+	/**
+	 * rows i in [ke,n) : the factor of the columns of the block
+	 * @param i : the row
+	 */
+	private void choleskypanel(int i){
+		int rowi=i*n;
+		for (int j=kb; j < ke; j++){
+			int rowj=j*n;
+			double sum=a[rowi + j];
+			for (int s=kb; s < j; s++){
+				sum-=a[rowi + s]*a[rowj + s];
+			}
+			a[rowi + j]=sum/a[rowj + j];
+		}
+	}
+	
+	/**
+	 * rows i in [ke,n) : a[i][j] -= a[i][s]*a[j][s] for the columns s of the block and ke<=j<=i
+	 * @param i : the row
+	 */
+	private void choleskyupdate(int i){
+		int rowi=i*n;
+		int j=ke;
+		// 4 columns of the output at a time
+		for (; j+3 <= i; j+=4){
+			int r0=j*n, r1=r0+n, r2=r1+n, r3=r2+n;
+			double d0=a[rowi + j], d1=a[rowi + j+1], d2=a[rowi + j+2], d3=a[rowi + j+3];
+			for (int s=kb; s < ke; s++){
+				double v=a[rowi + s];
+				d0-=v*a[r0 + s];
+				d1-=v*a[r1 + s];
+				d2-=v*a[r2 + s];
+				d3-=v*a[r3 + s];
+			}
+			a[rowi + j]=d0;
+			a[rowi + j+1]=d1;
+			a[rowi + j+2]=d2;
+			a[rowi + j+3]=d3;
+		}
+		for (; j <= i; j++){
+			int rowj=j*n;
+			double d=a[rowi + j];
+			for (int s=kb; s < ke; s++){
+				d-=a[rowi + s]*a[rowj + s];
+			}
+			a[rowi + j]=d;
+		}
+	}
+	
+	/**
+	 * b[i][c] -= a[i][s]*b[s][c] for s in [from,to) one after the other , 4 rows of b at a time
+	 * @param rowi : offset of the row i of a
+	 * @param rowbi : offset of the row i of b
+	 */
+	private void forward(int rowi, int rowbi, int from, int to, int st, int ed){
+		int s=from;
+		for (; s+3 < to; s+=4){
+			double l0=a[rowi + s], l1=a[rowi + s+1], l2=a[rowi + s+2], l3=a[rowi + s+3];
+			int r0=s*m, r1=r0+m, r2=r1+m, r3=r2+m;
+			for (int c=st; c < ed; c++){
+				double v=b[rowbi + c];
+				v-=l0*b[r0 + c];
+				v-=l1*b[r1 + c];
+				v-=l2*b[r2 + c];
+				v-=l3*b[r3 + c];
+				b[rowbi + c]=v;
+			}
+		}
+		for (; s < to; s++){
+			double l=a[rowi + s];
+			int rowbs=s*m;
+			for (int c=st; c < ed; c++){
+				b[rowbi + c]-=l*b[rowbs + c];
+			}
+		}
+	}
+	
+	/**
+	 * solves L*U*x=b for the columns [st,ed) of b (the rows of b are already permuted)
+	 */
+	private void lusubstitute(int st, int ed){
+		// forward substitution with the unit lower triangle
+		for (int i=1; i < n; i++){
+			int rowi=i*n;
+			int rowbi=i*m;
+			forward(rowi, rowbi, 0, i, st, ed);
+		}
+		// back substitution with the upper triangle
+		for (int i=n-1; i >= 0; i--){
+			int rowi=i*n;
+			int rowbi=i*m;
+			forward(rowi, rowbi, i+1, n, st, ed);
+			double diagonal=a[rowi + i];
+			for (int c=st; c < ed; c++){
+				b[rowbi + c]/=diagonal;
+			}
+		}
+	}
+	
+	/**
+	 * solves L*L'*x=b for the columns [st,ed) of b
+	 */
+	private void choleskysubstitute(int st, int ed){
+		// forward substitution L*y=b
+		for (int i=0; i < n; i++){
+			int rowi=i*n;
+			int rowbi=i*m;
+			forward(rowi, rowbi, 0, i, st, ed);
+			double diagonal=a[rowi + i];
+			for (int c=st; c < ed; c++){
+				b[rowbi + c]/=diagonal;
+			}
+		}
+		// back substitution L'*x=y , going through the rows of L
+		for (int i=n-1; i >= 0; i--){
+			int rowi=i*n;
+			int rowbi=i*m;
+			double diagonal=a[rowi + i];
+			for (int c=st; c < ed; c++){
+				b[rowbi + c]/=diagonal;
+			}
+			for (int s=0; s < i; s++){
+				double l=a[rowi + s];
+				int rowbs=s*m;
+				for (int c=st; c < ed; c++){
+					b[rowbs + c]-=l*b[rowbi + c];
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		if (type==LU_SUBSTITUTE || type==CHOLESKY_SUBSTITUTE){
+			int st=(int) ((long) m*part/parts);
+			int ed=(int) ((long) m*(part+1)/parts);
+			if (type==LU_SUBSTITUTE){
+				lusubstitute(st, ed);
+			} else {
+				choleskysubstitute(st, ed);
+			}
+			return;
+		}
+		// chunks of the trailing rows in turn
+		for (int first=ke + part*CHUNK; first < n; first+=parts*CHUNK){
+			int last=Math.min(n, first + CHUNK);
+			for (int i=first; i < last; i++){
+				if (type==LU_UPDATE){
+					luupdate(i);
+				} else if (type==CHOLESKY_PANEL){
+					choleskypanel(i);
+				} else {
+					choleskyupdate(i);
+				}
+			}
+		}
+	}
+
+}
@@ -20,17 +20,26 @@ SOFTWARE.
 */
 
 package manipulate.matrixoperations;
+import matrix.fsmatrix;
+import matrix.smatrix;
 import exceptions.DimensionMismatchException;
+import exceptions.IllegalStateException;
 import exceptions.NullObjectException;
 
 /**
  * 
  * @author marios
- *<p> Purpose of the class is to multipliy arrays as mutrices
+ *<p> Purpose of the class is to multipliy arrays as mutrices. </p>
+ *<p> The products are cache blocked (see {@link matrixmultiplicationhelper}) and the threads work on panels of rows of the output.
+ * The results are the same regardless of the number of threads.</p>
 
  */
 public class matrixmultiplication {
 	
+	/**
+	 * minimum rows of the output for each thread
+	 */
+	private static final int MIN_ROWS_PER_THREAD=16;
 	
 	// -------------------------Normal Multiplication -------------------------//
 	/**
@@ -50,219 +59,279 @@ public class matrixmultiplication {
 		if (array_1[0].length!=array_2.length){
 			throw new DimensionMismatchException  (array_1[0].length,array_2.length);
 		}
+		// initialize the new arry to copy to
+		double dotmatrix [][]= new double [array_1.length][array_2[0].length];
 		
-		if (threads<=0) {
-			threads=1;
-		}
+		compute(matrixmultiplicationhelper.NORMAL, array_1, null, null, array_2, null, dotmatrix, null, array_2.length, array_2[0].length, threads);
 		
-		if (threads> array_1[0].length *array_2.length ) {
-			threads= array_1[0].length *array_2.length;
-		}	
+		return dotmatrix;
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first array that will be multiplied by row
+	 * @param array_2 : the second array that will be multiplied by column
+	 * @return the multiplication matrix of arrays 1 and 2
+	 */
+	public static double [][] multiply(  double array_1[][], double array_2[][] ) {
+		return multiply(array_1, array_2, 1);
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first matrix that will be multiplied by row
+	 * @param array_2 : the second matrix that will be multiplied by column
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of matrices 1 and 2
+	 */
+	public static fsmatrix multiply(  fsmatrix array_1, fsmatrix array_2 ,int threads) {
 		
-		// initialize the new arry to copy to
-		double dotmatrix [][]= new double [array_1.length][array_2[0].length];
+		// sensible checks
+		if (array_1==null || array_1.GetRowDimension()==0  || array_2==null || array_2.GetRowDimension()==0){
+			throw new NullObjectException (" The  matrices to multiply cannot be null or empty ");
+		}
+		if (array_1.GetColumnDimension()!=array_2.GetRowDimension()){
+			throw new DimensionMismatchException  (array_1.GetColumnDimension(),array_2.GetRowDimension());
+		}
+		int rows=array_1.GetRowDimension();
+		int shared=array_2.GetRowDimension();
+		int columns=array_2.GetColumnDimension();
+		fsmatrix dotmatrix= new fsmatrix(rows, columns);
 		
-		// the threads of operations
-				
+		int ao []= new int [rows];
+		int bo []= new int [shared];
+		int co []= new int [rows];
+		compute(matrixmultiplicationhelper.NORMAL, matrixmultiplicationhelper.rows(array_1.data, rows, shared, ao), ao, null,
+				matrixmultiplicationhelper.rows(array_2.data, shared, columns, bo), bo,
+				matrixmultiplicationhelper.rows(dotmatrix.data, rows, columns, co), co, shared, columns, threads);
 		
-		Thread[] thread_array= new Thread[threads];
-		int count_of_current_threads=0;
+		return dotmatrix;
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first matrix that will be multiplied by row
+	 * @param array_2 : the second matrix that will be multiplied by column
+	 * @return the multiplication matrix of matrices 1 and 2
+	 */
+	public static fsmatrix multiply(  fsmatrix array_1, fsmatrix array_2 ) {
+		return multiply(array_1, array_2, 1);
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The sparse matrix that will be multiplied by row. It will be sorted by row if it is not
+	 * @param array_2 : the dense array that will be multiplied by column
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of matrices 1 and 2
+	 */
+	public static double [][] multiply(  smatrix array_1, double array_2[][] ,int threads) {
 		
-		for (int i=0; i <array_1.length; i++ ){
-			for (int j=0; i <array_2[0].length; j++ ){
-				// create threads
-				thread_array[count_of_current_threads]=new Thread(new DotProductRunnable(dotmatrix,array_1,array_2,i,j ,0 ));
-				thread_array[count_of_current_threads].start();
-				count_of_current_threads++;
-				
-				// join threads
-				if (count_of_current_threads==threads || (i+1)*(j+1) ==array_1[0].length *array_2.length){
-					
-					for (int n=0; n <count_of_current_threads; n++ ){
-						try {
-							thread_array[n].join();
-						} catch (InterruptedException e) {
-						   System.out.println(e.getMessage());
-						}
-
-					}
-					 thread_array= new Thread[threads];
-					count_of_current_threads=0;
-				}				
-				
-				
-			}
-			
-			
+		// sensible checks
+		if (array_1==null || array_1.GetRowDimension()==0  || array_2==null || array_2.length==0){
+			throw new NullObjectException (" The  matrices to multiply cannot be null or empty ");
+		}
+		if (array_1.GetColumnDimension()!=array_2.length){
+			throw new DimensionMismatchException  (array_1.GetColumnDimension(),array_2.length);
+		}
+		if (!array_1.IsSortedByRow()){
+			array_1.convert_type();
 		}
+		double dotmatrix [][]= new double [array_1.GetRowDimension()][array_2[0].length];
 		
+		compute(matrixmultiplicationhelper.SPARSE_A, null, null, array_1, array_2, null, dotmatrix, null, array_2.length, array_2[0].length, threads);
 		
+		return dotmatrix;
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The sparse matrix that will be multiplied by row. It will be sorted by row if it is not
+	 * @param array_2 : the dense matrix that will be multiplied by column
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of matrices 1 and 2
+	 */
+	public static fsmatrix multiply(  smatrix array_1, fsmatrix array_2 ,int threads) {
+		
+		// sensible checks
+		if (array_1==null || array_1.GetRowDimension()==0  || array_2==null || array_2.GetRowDimension()==0){
+			throw new NullObjectException (" The  matrices to multiply cannot be null or empty ");
+		}
+		if (array_1.GetColumnDimension()!=array_2.GetRowDimension()){
+			throw new DimensionMismatchException  (array_1.GetColumnDimension(),array_2.GetRowDimension());
+		}
+		if (!array_1.IsSortedByRow()){
+			array_1.convert_type();
+		}
+		int rows=array_1.GetRowDimension();
+		int shared=array_2.GetRowDimension();
+		int columns=array_2.GetColumnDimension();
+		fsmatrix dotmatrix= new fsmatrix(rows, columns);
+		
+		int bo []= new int [shared];
+		int co []= new int [rows];
+		compute(matrixmultiplicationhelper.SPARSE_A, null, null, array_1,
+				matrixmultiplicationhelper.rows(array_2.data, shared, columns, bo), bo,
+				matrixmultiplicationhelper.rows(dotmatrix.data, rows, columns, co), co, shared, columns, threads);
 		
-			
 		return dotmatrix;
-		//end of transpose method		
 	}
 	
-
+	// -------------------------Inverse Multiplication -------------------------//				
+	
+	/**
+	 * 
+	 * @param array_1 : The first array that will be transposed and multiplied by row
+	 * @param array_2 : the second array that will be multiplied by column
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of the transposed array 1 and array 2
+	 */
+	public static double [][] multiplytransposed(  double array_1[][], double array_2[][] ,int threads) {
 		
-
+		// sensible checks
+		if (array_1==null || array_1.length==0  || array_2==null || array_2.length==0){
 			
+			throw new NullObjectException (" The  Arrays to multiply cannot be null or empty ");
+		}
+		if (array_1.length!=array_2.length){
+			throw new DimensionMismatchException  (array_1.length,array_2.length);
+		}
+		// initialize the new arry to copy to
+		double dotmatrix [][]= new double [array_1[0].length][array_2[0].length];
+		
+		compute(matrixmultiplicationhelper.TRANSPOSED_A, array_1, null, null, array_2, null, dotmatrix, null, array_2.length, array_2[0].length, threads);
+		
+		return dotmatrix;
+	}
 	
-		/**
-		 * 
-		 * @param array_1 : The first array that will be multiplied by row
-		 * @param array_2 : the second array that will be multiplied by column
-		 * @return the multiplication matrix of arrays 1 and 2
-		 */
-		public static double [][] multiply(  double array_1[][], double array_2[][] ) {
-			
-			// sensible checks
-			if (array_1==null || array_1.length==0  || array_2==null || array_2.length==0){
-				
-				throw new NullObjectException (" The  Arrays to multiply cannot be null or empty ");
-			}
-			if (array_1[0].length!=array_2.length){
-				throw new DimensionMismatchException  (array_1[0].length,array_2.length);
-			}
-
-			// initialize the new arry to copy to
-			double dotmatrix [][]= new double [array_1.length][array_2[0].length];
-			
-			
-			for (int i=0; i <array_1.length; i++ ){
-				for (int j=0; i <array_2[0].length; j++ ){
-					for (int n=0; n <array_1[i].length; n++ )	{
-						dotmatrix [i][j]+=array_1[i][n]* array_2[n][j];
-					}
-				}	
-			}
-			
-			
+	/**
+	 * 
+	 * @param array_1 : The first array that will be transposed and multiplied by row
+	 * @param array_2 : the second array that will be multiplied by column
+	 * @return the multiplication matrix of the transposed array 1 and array 2
+	 */
+	public static double [][] multiplytransposed(  double array_1[][], double array_2[][] ) {
+		return multiplytransposed(array_1, array_2, 1);
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first array that will be multiplied by row
+	 * @param array_2 : the second array that will be transposed and multiplied by column (e.g. its rows are multiplied)
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of array 1 and the transposed array 2
+	 */
+	public static double [][] multiplybytransposed(  double array_1[][], double array_2[][] ,int threads) {
+		
+		// sensible checks
+		if (array_1==null || array_1.length==0  || array_2==null || array_2.length==0){
 			
-				
-			return dotmatrix;
-			//end of transpose method		
+			throw new NullObjectException (" The  Arrays to multiply cannot be null or empty ");
+		}
+		if (array_1[0].length!=array_2[0].length){
+			throw new DimensionMismatchException  (array_1[0].length,array_2[0].length);
 		}
+		// initialize the new arry to copy to
+		double dotmatrix [][]= new double [array_1.length][array_2.length];
 		
-
-			
-			
-			// -------------------------Inverse Multiplication -------------------------//				
+		compute(matrixmultiplicationhelper.TRANSPOSED_B, array_1, null, null, array_2, null, dotmatrix, null, array_2[0].length, array_2.length, threads);
 		
-			/**
-			 * 
-			 * @param array_1 : The first array that will be multiplied by row
-			 * @param array_2 : the second array that will be multiplied by column
-			 * @param threads : Number of threads to use
-			 * @return the multiplication matrix of arrays 1 and 2
-			 */
-			public static double [][] multiplytransposed(  double array_1[][], double array_2[][] ,int threads) {
-				
-				// sensible checks
-				if (array_1==null || array_1.length==0  || array_2==null || array_2.length==0){
-					
-					throw new NullObjectException (" The  Arrays to multiply cannot be null or empty ");
-				}
-				if (array_1.length!=array_2.length){
-					throw new DimensionMismatchException  (array_1.length,array_2.length);
-				}
-				
-				if (threads<=0) {
-					threads=1;
-				}
-				
-				if (threads> array_1.length *array_2.length ) {
-					threads= array_1.length *array_2.length;
-				}	
-				
-				// initialize the new arry to copy to
-				double dotmatrix [][]= new double [array_1[0].length][array_2[0].length];
-				
-				// the threads of operations
-						
-				
-				Thread[] thread_array= new Thread[threads];
-				int count_of_current_threads=0;
-				
-				for (int i=0; i <array_1[0].length; i++ ){
-					for (int j=0; i <array_2[0].length; j++ ){
-						// create threads
-						thread_array[count_of_current_threads]=new Thread(new DotProductRunnable(dotmatrix,array_1,array_2,i,j ,1 ));
-						thread_array[count_of_current_threads].start();
-						count_of_current_threads++;
-						
-						// join threads
-						if (count_of_current_threads==threads || (i+1)*(j+1) ==array_1[0].length *array_2.length){
-							
-							for (int n=0; n <count_of_current_threads; n++ ){
-								try {
-									thread_array[n].join();
-								} catch (InterruptedException e) {
-								   System.out.println(e.getMessage());
-								}
-
-							}
-							 thread_array= new Thread[threads];
-							count_of_current_threads=0;
-						}				
-						
-						
-					}
-					
-					
-				}
-				
-				
-				
-					
-				return dotmatrix;
-				//end of transpose method		
-			}
-			
-
-				
-
-					
-			
-				/**
-				 * 
-				 * @param array_1 : The first array that will be multiplied by row
-				 * @param array_2 : the second array that will be multiplied by column
-				 * @return the multiplication matrix of arrays 1 and 2
-				 */
-				public static double [][] multiplytransposed(  double array_1[][], double array_2[][] ) {
-					
-					// sensible checks
-					if (array_1==null || array_1.length==0  || array_2==null || array_2.length==0){
-						
-						throw new NullObjectException (" The  Arrays to multiply cannot be null or empty ");
-					}
-					if (array_1.length!=array_2.length){
-						throw new DimensionMismatchException  (array_1.length,array_2.length);
-					}
-
-					// initialize the new arry to copy to
-					double dotmatrix [][]= new double [array_1[0].length][array_2[0].length];
-					
-					
-					for (int i=0; i <array_1[0].length; i++ ){
-						for (int j=0; i <array_2[0].length; j++ ){
-							for (int n=0; n <array_1.length; n++ )	{
-								dotmatrix [i][j]+=array_1[n][i]* array_2[n][j];
-							}
-						}	
-					}
-					
-					
-					
-						
-					return dotmatrix;
-					//end of transpose method		
-				}
-				
-
+		return dotmatrix;
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first array that will be multiplied by row
+	 * @param array_2 : the second array that will be transposed and multiplied by column (e.g. its rows are multiplied)
+	 * @return the multiplication matrix of array 1 and the transposed array 2
+	 */
+	public static double [][] multiplybytransposed(  double array_1[][], double array_2[][] ) {
+		return multiplybytransposed(array_1, array_2, 1);
+	}
+	
+	/**
+	 * 
+	 * @param array_1 : The first matrix that will be multiplied by row
+	 * @param array_2 : the second matrix that will be transposed and multiplied by column (e.g. its rows are multiplied)
+	 * @param threads : Number of threads to use
+	 * @return the multiplication matrix of matrix 1 and the transposed matrix 2
+	 */
+	public static fsmatrix multiplybytransposed(  fsmatrix array_1, fsmatrix array_2 ,int threads) {
 		
-
-
+		// sensible checks
+		if (array_1==null || array_1.GetRowDimension()==0  || array_2==null || array_2.GetRowDimension()==0){
+			throw new NullObjectException (" The  matrices to multiply cannot be null or empty ");
+		}
+		if (array_1.GetColumnDimension()!=array_2.GetColumnDimension()){
+			throw new DimensionMismatchException  (array_1.GetColumnDimension(),array_2.GetColumnDimension());
+		}
+		int rows=array_1.GetRowDimension();
+		int shared=array_1.GetColumnDimension();
+		int columns=array_2.GetRowDimension();
+		fsmatrix dotmatrix= new fsmatrix(rows, columns);
+		
+		int ao []= new int [rows];
+		int bo []= new int [columns];
+		int co []= new int [rows];
+		compute(matrixmultiplicationhelper.TRANSPOSED_B, matrixmultiplicationhelper.rows(array_1.data, rows, shared, ao), ao, null,
+				matrixmultiplicationhelper.rows(array_2.data, columns, shared, bo), bo,
+				matrixmultiplicationhelper.rows(dotmatrix.data, rows, columns, co), co, shared, columns, threads);
+		
+		return dotmatrix;
 	}
 	
+	/**
+	 * splits the rows of the output in panels and computes them (in parallel if threads>1)
+	 * @param type : type of the product
+	 * @param a : rows of the first matrix (null when sparse)
+	 * @param ao : offsets of the rows of the first matrix
+	 * @param sa : the first matrix when it is sparse
+	 * @param b : rows of the second matrix
+	 * @param bo : offsets of the rows of the second matrix
+	 * @param c : rows of the output
+	 * @param co : offsets of the rows of the output
+	 * @param k : the shared dimension
+	 * @param n : the columns of the output
+	 * @param threads : Number of threads to use
+	 */
+	private static void compute(int type, double a[][], int ao[], smatrix sa, double b[][], int bo[], double c[][], int co[], int k, int n, int threads){
+		
+		int rows=c.length;
+		if (threads<=0) {
+			threads=1;
+		}
+		threads=Math.max(1, Math.min(threads, rows/MIN_ROWS_PER_THREAD));
+		// panels of rows , multiples of 4 so that the kernels of the helper are used fully
+		int panel=(((rows + threads -1)/threads + 3)/4)*4;
+		threads=(rows + panel -1)/panel;
+		
+		matrixmultiplicationhelper helpers []= new matrixmultiplicationhelper[threads];
+		for (int t=0; t < threads; t++){
+			int st=t*panel;
+			int ed=Math.min(rows, st + panel);
+			if (sa!=null){
+				helpers[t]= new matrixmultiplicationhelper(sa, b, bo, c, co, n, st, ed);
+			} else {
+				helpers[t]= new matrixmultiplicationhelper(type, a, ao, b, bo, c, co, k, n, st, ed);
+			}
+		}
+		if (threads==1){
+			helpers[0].run();
+			return;
+		}
+		Thread[] thread_array= new Thread[threads];
+		for (int t=0; t < threads; t++){
+			thread_array[t]= new Thread(helpers[t]);
+			thread_array[t].start();
+		}
+		for (int t=0; t < threads; t++){
+			try {
+				thread_array[t].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,331 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package manipulate.matrixoperations;
+
+import exceptions.IllegalStateException;
+import matrix.smatrix;
+
+/**
+ * 
+ * @author marios
+ *<p> Purpose of the class is to compute a panel of rows of a matrix product , so that the panels can run in parallel. </p>
+ *<p> The dense products are blocked over the shared dimension and the columns of the output so that the parts of the inputs being used stay in cache,
+ * and 4 rows (or columns) of the output are updated together so that every loaded element is used 4 times. The rows of the matrices are
+ * given as an array of rows and an offset per row , so that both double [][] and the one dimensional data of the fsmatrix are handled by the same kernels.
+ * Every element of the output is summed in the order of the shared dimension , hence the results do not depend on the number of threads. </p>
+ */
+public class matrixmultiplicationhelper implements Runnable {
+
+	/**
+	 * block of the shared dimension
+	 */
+	static final int KC=256;
+	/**
+	 * block of the columns of the output
+	 */
+	static final int NC=1024;
+	/**
+	 * block of the rows of the second matrix in the transposed products
+	 */
+	static final int JC=64;
+	/**
+	 * a * b
+	 */
+	static final int NORMAL=0;
+	/**
+	 * a' * b
+	 */
+	static final int TRANSPOSED_A=1;
+	/**
+	 * a * b'
+	 */
+	static final int TRANSPOSED_B=2;
+	/**
+	 * sparse a * b
+	 */
+	static final int SPARSE_A=3;
+	/**
+	 * type of the product
+	 */
+	private int type;
+	/**
+	 * rows of the first matrix
+	 */
+	private double a[][];
+	/**
+	 * offset of each row of the first matrix (null for zero)
+	 */
+	private int ao[];
+	/**
+	 * the first matrix if it is sparse (sorted by row)
+	 */
+	private smatrix sa;
+	/**
+	 * rows of the second matrix
+	 */
+	private double b[][];
+	/**
+	 * offset of each row of the second matrix (null for zero)
+	 */
+	private int bo[];
+	/**
+	 * rows of the output
+	 */
+	private double c[][];
+	/**
+	 * offset of each row of the output (null for zero)
+	 */
+	private int co[];
+	/**
+	 * the shared dimension
+	 */
+	private int k;
+	/**
+	 * the columns of the output
+	 */
+	private int n;
+	/**
+	 * first row of the output
+	 */
+	private int start;
+	/**
+	 * end of the rows of the output
+	 */
+	private int end;
+	
+	/**
+	 * 
+	 * @param type : the type of the product (NORMAL, TRANSPOSED_A or TRANSPOSED_B)
+	 * @param a : rows of the first matrix
+	 * @param ao : offsets of the rows of the first matrix (may be null)
+	 * @param b : rows of the second matrix
+	 * @param bo : offsets of the rows of the second matrix (may be null)
+	 * @param c : rows of the output , initialised to zero
+	 * @param co : offsets of the rows of the output (may be null)
+	 * @param k : the shared dimension
+	 * @param n : the columns of the output
+	 * @param st : first row of the output to compute
+	 * @param ed : end of the rows of the output to compute
+	 */
+	matrixmultiplicationhelper(int type, double a[][], int ao[], double b[][], int bo[], double c[][], int co[], int k, int n, int st, int ed){
+		this(type, b, bo, c, co, k, n, st, ed);
+		if (a==null){
+			throw new IllegalStateException(" The first matrix to multiply cannot be null");
+		}
+		this.a=a;
+		this.ao=ao;
+	}
+	/**
+	 * 
+	 * @param a : the first matrix , sorted by row
+	 * @param b : rows of the second matrix
+	 * @param bo : offsets of the rows of the second matrix (may be null)
+	 * @param c : rows of the output , initialised to zero
+	 * @param co : offsets of the rows of the output (may be null)
+	 * @param n : the columns of the output
+	 * @param st : first row of the output to compute
+	 * @param ed : end of the rows of the output to compute
+	 */
+	matrixmultiplicationhelper(smatrix a, double b[][], int bo[], double c[][], int co[], int n, int st, int ed){
+		this(SPARSE_A, b, bo, c, co, a.GetColumnDimension(), n, st, ed);
+		if (!a.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse matrix to multiply needs to be sorted by row");
+		}
+		this.sa=a;
+	}
+	
+	private matrixmultiplicationhelper(int type, double b[][], int bo[], double c[][], int co[], int k, int n, int st, int ed){
+		if (b==null || c==null){
+			throw new IllegalStateException(" The matrices to multiply cannot be null");
+		}
+		if (st<0 || ed>c.length || st>ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.type=type;
+		this.b=b;
+		this.bo=bo;
+		this.c=c;
+		this.co=co;
+		this.k=k;
+		this.n=n;
+		this.start=st;
+		this.end=ed;
+	}
+	
+	/**
+	 * 
+	 * @param data : the one dimensional data of a fsmatrix
+	 * @param rows : the rows of the fsmatrix
+	 * @param columns : the columns of the fsmatrix
+	 * @param offsets : to fill with the offset of every row
+	 * @return the rows of the fsmatrix as references to its data
+	 */
+	static double [][] rows(double data[], int rows, int columns, int offsets[]){
+		double view [][]= new double [rows][];
+		for (int i=0; i < rows; i++){
+			view[i]=data;
+			offsets[i]=i*columns;
+		}
+		return view;
+	}
+	
+	/**
+	 * 
+	 * @param o : offsets (may be null)
+	 * @param i : the row
+	 * @return the offset of the row
+	 */
+	private static int offset(int o[], int i){
+		return o==null?0:o[i];
+	}
+	
+	/**
+	 * c[i][j] += sum a(i,s)*b[s][j] over the rows and the blocks of the shared dimension and the columns
+	 * @param transposed : true if a(i,s) is a[s][i]
+	 */
+	private void normal(boolean transposed){
+		for (int jj=0; jj < n; jj+=NC){
+			int je=Math.min(jj+NC, n);
+			for (int kk=0; kk < k; kk+=KC){
+				int ke=Math.min(kk+KC, k);
+				int i=start;
+				// 4 rows of the output at a time
+				for (; i+3 < end; i+=4){
+					double c0[]=c[i], c1[]=c[i+1], c2[]=c[i+2], c3[]=c[i+3];
+					int o0=offset(co,i), o1=offset(co,i+1), o2=offset(co,i+2), o3=offset(co,i+3);
+					for (int s=kk; s < ke; s++){
+						double a0, a1, a2, a3;
+						if (transposed){
+							double as[]=a[s];
+							int os=offset(ao,s);
+							a0=as[os+i]; a1=as[os+i+1]; a2=as[os+i+2]; a3=as[os+i+3];
+						} else {
+							a0=a[i][offset(ao,i)+s]; a1=a[i+1][offset(ao,i+1)+s];
+							a2=a[i+2][offset(ao,i+2)+s]; a3=a[i+3][offset(ao,i+3)+s];
+						}
+						double bs[]=b[s];
+						int ob=offset(bo,s);
+						for (int j=jj; j < je; j++){
+							double v=bs[ob+j];
+							c0[o0+j]+=a0*v;
+							c1[o1+j]+=a1*v;
+							c2[o2+j]+=a2*v;
+							c3[o3+j]+=a3*v;
+						}
+					}
+				}
+				// remaining rows
+				for (; i < end; i++){
+					double c0[]=c[i];
+					int o0=offset(co,i);
+					for (int s=kk; s < ke; s++){
+						double a0=transposed?a[s][offset(ao,s)+i]:a[i][offset(ao,i)+s];
+						double bs[]=b[s];
+						int ob=offset(bo,s);
+						for (int j=jj; j < je; j++){
+							c0[o0+j]+=a0*bs[ob+j];
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * c[i][j] = the dot product of the rows a[i] and b[j] , over blocks of rows of b
+	 */
+	private void transposedb(){
+		for (int jj=0; jj < n; jj+=JC){
+			int je=Math.min(jj+JC, n);
+			for (int i=start; i < end; i++){
+				double ai[]=a[i];
+				int oa=offset(ao,i);
+				double ci[]=c[i];
+				int oc=offset(co,i);
+				int j=jj;
+				// 4 columns of the output at a time
+				for (; j+3 < je; j+=4){
+					double b0[]=b[j], b1[]=b[j+1], b2[]=b[j+2], b3[]=b[j+3];
+					int o0=offset(bo,j), o1=offset(bo,j+1), o2=offset(bo,j+2), o3=offset(bo,j+3);
+					double d0=0.0, d1=0.0, d2=0.0, d3=0.0;
+					for (int s=0; s < k; s++){
+						double v=ai[oa+s];
+						d0+=v*b0[o0+s];
+						d1+=v*b1[o1+s];
+						d2+=v*b2[o2+s];
+						d3+=v*b3[o3+s];
+					}
+					ci[oc+j]=d0;
+					ci[oc+j+1]=d1;
+					ci[oc+j+2]=d2;
+					ci[oc+j+3]=d3;
+				}
+				// remaining columns
+				for (; j < je; j++){
+					double bj[]=b[j];
+					int ob=offset(bo,j);
+					double d=0.0;
+					for (int s=0; s < k; s++){
+						d+=ai[oa+s]*bj[ob+s];
+					}
+					ci[oc+j]=d;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * c[i] += value * b[column] for the non zero elements of every row of the sparse matrix
+	 */
+	private void sparse(){
+		for (int jj=0; jj < n; jj+=NC){
+			int je=Math.min(jj+NC, n);
+			for (int i=start; i < end; i++){
+				double ci[]=c[i];
+				int oc=offset(co,i);
+				for (int el=sa.indexpile[i]; el < sa.indexpile[i+1]; el++){
+					double v=sa.valuespile[el];
+					int s=sa.mainelementpile[el];
+					double bs[]=b[s];
+					int ob=offset(bo,s);
+					for (int j=jj; j < je; j++){
+						ci[oc+j]+=v*bs[ob+j];
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		if (type==NORMAL){
+			normal(false);
+		} else if (type==TRANSPOSED_A){
+			normal(true);
+		} else if (type==TRANSPOSED_B){
+			transposedb();
+		} else {
+			sparse();
+		}
+	}
+
+}
@@ -20,7 +20,6 @@ SOFTWARE.
 */
 
 package manipulate.operate;
-import java.util.ArrayList;
 import exceptions.NullObjectException;
 
 /**
@@ -46,14 +45,6 @@ public class OperateRunnable implements Runnable{
     */	
 	double array2dtopass[][];
 	/**
-    * 2d Arraylist to to operate to 
-    */	
-	ArrayList<ArrayList<Double>> arraylist1d2d;
-	/**
-    * 2d Arraylist to to operate from
-    */		
-	ArrayList<ArrayList<Double>> arraylist1d2dtopass;
-	/**
 	 * defines the operation type and can be any of "add, sub, mul, div"
 	 */
 	String type;
@@ -105,25 +96,6 @@ public class OperateRunnable implements Runnable{
 	};
 	 
 	
-	/**
-	 * 
-	 * @param array  The arraylist to process (by reference)
-	 * @param array_topass  The 2d arraylist to operate values to (by reference) 
-	 * @param start The start location 
-	 * @param end The end location
-	 * @param types The type operation can be "add, sub, mul, div" for addition, subtraction, multiplication, division
-	 * Basic constructor with  operations for 2d arraylists
-	 */
-	
-	OperateRunnable( ArrayList<ArrayList<Double>> array,ArrayList<ArrayList<Double>> array_topass, int start, int end, String types) {
-		
-		arraylist1d2d=array;
-		arraylist1d2dtopass=array_topass;
-		s=start;
-		e=end;
-        type=types;
-		
-	};	
 	
 	
 	@Override
@@ -243,61 +215,6 @@ public class OperateRunnable implements Runnable{
 
 		
 			// end of array2d
-		} else if (arraylist1d2d!=null && arraylist1d2dtopass!=null && arraylist1d2d.size()==arraylist1d2dtopass.size()) {
-			
-
-			if (type.equals("add")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j,arraylist1d2d.get(i).get(j) + arraylist1d2d.get(i).get(j));
-					}
-				}
-				
-				// end of addition
-			} else if (type.equals("sub")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j,arraylist1d2d.get(i).get(j) - arraylist1d2d.get(i).get(j));
-					}
-				}
-				
-				
-				// end of substraction
-			}else if (type.equals("mul")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) * arraylist1d2d.get(i).get(j));
-					}
-				}
-				// end of multiplication
-				
-			}
-			
-		
-		else if (type.equals("div")){
-			
-			for (int i=s; i < e; i++) {
-				for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-					arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) / arraylist1d2d.get(i).get(j));
-				}
-			}
-		
-			// end of division
-		
-		} else {
-			
-			
-			// all object are null, throw error
-			throw new NullObjectException (" operation type-String for scalar operation cannot be null ");	
-			
-			
-		}	
-				
-			
-			// end of arraylist 2d
 		} else {
 			
 			// all object are null, throw error
@@ -0,0 +1,134 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package manipulate.sort;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * <p> Least-significant-digit radix sort for long keys , 16 bits per pass. Doubles are mapped to longs with {@link #key(double)}
+ * so that the order of the keys is the order of the doubles and a pass is skipped when all the keys share the same digit
+ * (common for scores within a narrow range). No comparisons are made , so the cost is linear to the number of keys.</p>
+ */
+public class radixsort {
+	/**
+	 * bits of every pass
+	 */
+	private static final int BITS=16;
+	/**
+	 * number of buckets of every pass
+	 */
+	private static final int BUCKETS=1<<BITS;
+	
+	/**
+	 * @param value : the value to convert
+	 * @return a long that compares (as signed) in the same way as the double. -0.0 and 0.0 give the same key
+	 */
+	public static long key(double value){
+		long bits=Double.doubleToLongBits(value+0.0);
+		return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+	}
+	/**
+	 * @param key : a key made by {@link #key(double)}
+	 * @return the double of the key
+	 */
+	public static double value(long key){
+		return Double.longBitsToDouble(key ^ ((key >> 63) & Long.MAX_VALUE));
+	}
+	
+	/**
+	 * sorts the keys in ascending (signed) order
+	 * @param a : the keys
+	 * @param lo : start of the loop
+	 * @param hi : end of the loop (exclusive)
+	 * @param buffer : array of at least hi-lo elements to use as temporary space (may be null)
+	 */
+	public static void sort(long a[], int lo, int hi, long buffer[]){
+		int n=hi-lo;
+		if (n<=1){
+			return;
+		}
+		if (n<64){
+			insertionsort(a, lo, hi);
+			return;
+		}
+		if (buffer==null || buffer.length<n){
+			buffer=new long[n];
+		}
+		int counts[]=new int[BUCKETS];
+		long from[]=a;
+		long to[]=buffer;
+		int from_offset=lo;
+		int to_offset=0;
+		for (int shift=0; shift <64; shift+=BITS){
+			Arrays.fill(counts, 0);
+			for (int i=0; i <n; i++){
+				counts[digit(from[from_offset+i], shift)]++;
+			}
+			// all keys have the same digit
+			if (counts[digit(from[from_offset], shift)]==n){
+				continue;
+			}
+			int sum=0;
+			for (int b=0; b <BUCKETS; b++){
+				int c=counts[b];
+				counts[b]=sum;
+				sum+=c;
+			}
+			for (int i=0; i <n; i++){
+				long k=from[from_offset+i];
+				to[to_offset + counts[digit(k, shift)]++]=k;
+			}
+			long temp[]=from;
+			from=to;
+			to=temp;
+			int temp_offset=from_offset;
+			from_offset=to_offset;
+			to_offset=temp_offset;
+		}
+		if (from!=a){
+			System.arraycopy(from, from_offset, a, lo, n);
+		}
+	}
+	/**
+	 * @param k : the key
+	 * @param shift : the bits to skip
+	 * @return the digit of the pass , the sign bit is flipped so that negative keys come first
+	 */
+	private static int digit(long k, int shift){
+		return (int) (((k ^ Long.MIN_VALUE) >>> shift) & (BUCKETS-1));
+	}
+	
+	private static void insertionsort(long a[], int lo, int hi){
+		for (int i=lo+1; i <hi; i++){
+			long k=a[i];
+			int j=i-1;
+			while (j>=lo && a[j]>k){
+				a[j+1]=a[j];
+				j--;
+			}
+			a[j+1]=k;
+		}
+	}
+
+}
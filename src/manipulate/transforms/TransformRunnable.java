@@ -21,7 +21,6 @@ SOFTWARE.
 
 package manipulate.transforms;
 
-import java.util.ArrayList;
 
 import exceptions.NullObjectException;
 
@@ -34,8 +33,6 @@ public class TransformRunnable implements Runnable{
 
 	double array1d[];
 	double array2d[][];
-	//ArrayList<Double> arraylist1d1d;
-	ArrayList<ArrayList<Double>> arraylist1d2d;
 	int s=0;
 	int e=0;
 	String type;
@@ -373,65 +370,6 @@ public class TransformRunnable implements Runnable{
 			// end of array2d
 		} 
 		
-		/*
-		else if (arraylist1d2d!=null) {
-			
-			if (type.equals("add")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) + value);
-					}
-				}
-				
-				// end of addition
-			} else if (type.equals("sub")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) - value);
-					}
-				}
-				
-				
-				// end of substraction
-			}else if (type.equals("mul")){
-				
-				for (int i=s; i < e; i++) {
-					for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-						arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) * value);
-					}
-				}
-				// end of multiplication
-				
-			}
-			
-		
-		else if (type.equals("div")){
-			
-			for (int i=s; i < e; i++) {
-				for (int j=0; j < arraylist1d2d.get(i).size(); j++) {
-					arraylist1d2d.get(i).set(j, arraylist1d2d.get(i).get(j) / value);
-				}
-			}
-		
-			// end of division
-		
-		} else {
-			
-			
-			// all object are null, throw error
-			throw new NullObjectException (" operation type-String for scalar operation cannot be null ");	
-			
-			
-		}	
-			
-			
-		
-			
-			// end of arraylist 2d
-		} 
-			*/
 		else {
 			
 			// all object are null, throw error
@@ -14,6 +14,7 @@
  * <li>>clip-maximum</li>  
  * <li>>clip-minimum and maximum</li>  
  * </ol>
+ * Chains of the above along with scalar and element-wise operations may be applied in one pass via {@link manipulate.transforms.pipeline}.
  * </p>
  *
  */
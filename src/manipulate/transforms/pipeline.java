@@ -0,0 +1,596 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package manipulate.transforms;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import exceptions.DimensionMismatchException;
+import exceptions.NullObjectException;
+
+/**
+ * 
+ * @author marios
+ *<p> Purpose of the class is to record a chain of element-wise operations (the transforms of this package , scalar operations and
+ * operations with arrays of the same shape) and apply them all in one pass over the data, e.g.
+ * <pre>new pipeline().logplusone().multiply(2.0).minmax(0.0, 5.0).add(other).sig().transformthis(array, threads);</pre></p>
+ *<p> Nothing is computed while the chain is recorded. When applied , the data is processed in tiles of up to {@link #TILE} elements
+ * and all the operations run on a tile (in place) before moving to the next one, so the tile stays in cache and no intermediate arrays are made.
+ * The operations behave exactly as their counterparts in {@link transforms}, {@link manipulate.scalars.scalars} and {@link manipulate.operate.operations}.
+ * For a sparse matrix only the non zero elements are processed.</p>
+ */
+public class pipeline {
+	
+	/**
+	 * maximum elements of a tile
+	 */
+	public static final int TILE=1024;
+	
+	static final int LOG=0;
+	static final int LOGPLUSONE=1;
+	static final int SQRT=2;
+	static final int EXP=3;
+	static final int ABS=4;
+	static final int MIN=5;
+	static final int MAX=6;
+	static final int MINMAX=7;
+	static final int SIN=8;
+	static final int COS=9;
+	static final int TAN=10;
+	static final int TANH=11;
+	static final int SIG=12;
+	static final int POW=13;
+	static final int ADD=14;
+	static final int SUBTRACT=15;
+	static final int MULTIPLY=16;
+	static final int DIVIDE=17;
+	static final int ADD_ARRAY=18;
+	static final int SUBTRACT_ARRAY=19;
+	static final int MULTIPLY_ARRAY=20;
+	static final int DIVIDE_ARRAY=21;
+	
+	/**
+	 * the recorded operations
+	 */
+	private int operations []= new int [8];
+	/**
+	 * first value of each operation (e.g. the scalar or the minimum)
+	 */
+	private double values []= new double [8];
+	/**
+	 * second value of each operation (e.g. the maximum)
+	 */
+	private double values2 []= new double [8];
+	/**
+	 * the arrays of the operations with arrays (double [], double [][] or fsmatrix)
+	 */
+	private Object operands []= new Object [8];
+	/**
+	 * number of recorded operations
+	 */
+	private int size=0;
+	
+	/**
+	 * records an operation
+	 */
+	private pipeline record(int operation, double value, double value2, Object operand){
+		if (size==operations.length){
+			int capacity=size*2;
+			int new_operations []= new int [capacity];
+			double new_values []= new double [capacity];
+			double new_values2 []= new double [capacity];
+			Object new_operands []= new Object [capacity];
+			System.arraycopy(operations, 0, new_operations, 0, size);
+			System.arraycopy(values, 0, new_values, 0, size);
+			System.arraycopy(values2, 0, new_values2, 0, size);
+			System.arraycopy(operands, 0, new_operands, 0, size);
+			operations=new_operations;
+			values=new_values;
+			values2=new_values2;
+			operands=new_operands;
+		}
+		operations[size]=operation;
+		values[size]=value;
+		values2[size]=value2;
+		operands[size]=operand;
+		size++;
+		return this;
+	}
+	
+	/**
+	 * @return the number of recorded operations
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * removes all the recorded operations
+	 */
+	public void clear(){
+		for (int i=0; i < size; i++){
+			operands[i]=null;
+		}
+		size=0;
+	}
+	
+	//---------------------------------transforms----------------------------------//
+	
+	/**
+	 * @return this pipeline with the log transform (for values higher than zero) added
+	 */
+	public pipeline log(){
+		return record(LOG, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the log(x+1) transform (for values higher than -1) added
+	 */
+	public pipeline logplusone(){
+		return record(LOGPLUSONE, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the square root (for values higher than zero) added
+	 */
+	public pipeline sqrt(){
+		return record(SQRT, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the expotential transform added
+	 */
+	public pipeline exp(){
+		return record(EXP, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the absolute transform added
+	 */
+	public pipeline abs(){
+		return record(ABS, 0.0, 0.0, null);
+	}
+	/**
+	 * @param min : values less than this become equal to it
+	 * @return this pipeline with the clip-min transform added
+	 */
+	public pipeline min(double min){
+		return record(MIN, min, 0.0, null);
+	}
+	/**
+	 * @param max : values higher than this become equal to it
+	 * @return this pipeline with the clip-max transform added
+	 */
+	public pipeline max(double max){
+		return record(MAX, max, 0.0, null);
+	}
+	/**
+	 * @param min : values less than this become equal to it
+	 * @param max : values higher than this become equal to it
+	 * @return this pipeline with the clip-min and max transform added
+	 */
+	public pipeline minmax(double min, double max){
+		return record(MINMAX, min, max, null);
+	}
+	/**
+	 * @return this pipeline with the sine transform added
+	 */
+	public pipeline sin(){
+		return record(SIN, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the cosine transform added
+	 */
+	public pipeline cos(){
+		return record(COS, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the tangent transform added
+	 */
+	public pipeline tan(){
+		return record(TAN, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the hyperbolic tangent transform added
+	 */
+	public pipeline tanh(){
+		return record(TANH, 0.0, 0.0, null);
+	}
+	/**
+	 * @return this pipeline with the sigmoid transform added
+	 */
+	public pipeline sig(){
+		return record(SIG, 0.0, 0.0, null);
+	}
+	/**
+	 * @param pow : the power
+	 * @return this pipeline with the power transform added
+	 */
+	public pipeline pow(double pow){
+		return record(POW, pow, 0.0, null);
+	}
+	
+	//---------------------------------scalars----------------------------------//
+	
+	/**
+	 * @param value : value to add
+	 * @return this pipeline with the addition added
+	 */
+	public pipeline add(double value){
+		return record(ADD, value, 0.0, null);
+	}
+	/**
+	 * @param value : value to subtract
+	 * @return this pipeline with the subtraction added
+	 */
+	public pipeline subtract(double value){
+		return record(SUBTRACT, value, 0.0, null);
+	}
+	/**
+	 * @param value : value to multiply with
+	 * @return this pipeline with the multiplication added
+	 */
+	public pipeline multiply(double value){
+		return record(MULTIPLY, value, 0.0, null);
+	}
+	/**
+	 * @param value : value to divide with
+	 * @return this pipeline with the division added
+	 */
+	public pipeline divide(double value){
+		return record(DIVIDE, value, 0.0, null);
+	}
+	
+	//---------------------------------operations with arrays----------------------------------//
+	
+	/**
+	 * @param array : array of the same shape with the data (double [], double [][] or fsmatrix)
+	 * @return this pipeline with the element-wise addition added
+	 */
+	public pipeline add(Object array){
+		return record(ADD_ARRAY, 0.0, 0.0, operand(array));
+	}
+	/**
+	 * @param array : array of the same shape with the data (double [], double [][] or fsmatrix)
+	 * @return this pipeline with the element-wise subtraction added
+	 */
+	public pipeline subtract(Object array){
+		return record(SUBTRACT_ARRAY, 0.0, 0.0, operand(array));
+	}
+	/**
+	 * @param array : array of the same shape with the data (double [], double [][] or fsmatrix)
+	 * @return this pipeline with the element-wise multiplication added
+	 */
+	public pipeline multiply(Object array){
+		return record(MULTIPLY_ARRAY, 0.0, 0.0, operand(array));
+	}
+	/**
+	 * @param array : array of the same shape with the data (double [], double [][] or fsmatrix)
+	 * @return this pipeline with the element-wise division added
+	 */
+	public pipeline divide(Object array){
+		return record(DIVIDE_ARRAY, 0.0, 0.0, operand(array));
+	}
+	
+	private static Object operand(Object array){
+		if (array==null){
+			throw new NullObjectException (" Array to operate with is null ");
+		}
+		if (!(array instanceof double[]) && !(array instanceof double[][]) && !(array instanceof fsmatrix)){
+			throw new IllegalStateException(" Array to operate with needs to be double [], double [][] or fsmatrix");
+		}
+		return array;
+	}
+	
+	//---------------------------------application----------------------------------//
+	
+	/**
+	 * @param array : Array (this) to process
+	 * @param threads : number of threads to use
+	 */
+	public void transformthis(double array [], int threads){
+		if (array==null || array.length==0){
+			throw new NullObjectException (" Array to transform is null or empty ");
+		}
+		check(array.length, -1, array);
+		pipelinehelper.run(this, array, null, null, array.length, threads);
+	}
+	/**
+	 * @param array : Array (this) to process
+	 * @param threads : number of threads to use
+	 */
+	public void transformthis(double array [][], int threads){
+		if (array==null || array.length==0){
+			throw new NullObjectException (" Array to transform is null or empty ");
+		}
+		check(array.length, -1, array);
+		pipelinehelper.run(this, null, array, null, array.length, threads);
+	}
+	/**
+	 * @param array : matrix (this) to process
+	 * @param threads : number of threads to use
+	 */
+	public void transformthis(fsmatrix array, int threads){
+		if (array==null || array.GetRowDimension()==0){
+			throw new NullObjectException (" matrix to transform is null or empty ");
+		}
+		check(array.GetRowDimension(), array.GetColumnDimension(), array);
+		pipelinehelper.run(this, array.data, null, null, array.data.length, threads);
+	}
+	/**
+	 * The operations are applied to the non zero elements only , hence operations with arrays are not allowed
+	 * @param array : matrix (this) to process
+	 * @param threads : number of threads to use
+	 */
+	public void transformthis(smatrix array, int threads){
+		if (array==null || array.GetRowDimension()==0){
+			throw new NullObjectException (" matrix to transform is null or empty ");
+		}
+		for (int i=0; i < size; i++){
+			if (operands[i]!=null){
+				throw new IllegalStateException(" operations with arrays cannot be applied to the non zero elements of a sparse matrix");
+			}
+		}
+		pipelinehelper.run(this, array.valuespile, null, null, array.GeLength(), threads);
+	}
+	/**
+	 * @param array : Array to process (it is not changed)
+	 * @param threads : number of threads to use
+	 * @return the transformed copy of the array
+	 */
+	public double [] transform(double array [], int threads){
+		if (array==null || array.length==0){
+			throw new NullObjectException (" Array to transform is null or empty ");
+		}
+		check(array.length, -1, array);
+		double result []= new double [array.length];
+		pipelinehelper.run(this, result, null, array, array.length, threads);
+		return result;
+	}
+	/**
+	 * @param array : Array to process (it is not changed)
+	 * @param threads : number of threads to use
+	 * @return the transformed copy of the array
+	 */
+	public double [][] transform(double array [][], int threads){
+		if (array==null || array.length==0){
+			throw new NullObjectException (" Array to transform is null or empty ");
+		}
+		check(array.length, -1, array);
+		double result [][]= new double [array.length][];
+		for (int i=0; i < array.length; i++){
+			result[i]= new double [array[i].length];
+		}
+		pipelinehelper.run(this, null, result, array, array.length, threads);
+		return result;
+	}
+	/**
+	 * @param array : matrix to process (it is not changed)
+	 * @param threads : number of threads to use
+	 * @return the transformed copy of the matrix
+	 */
+	public fsmatrix transform(fsmatrix array, int threads){
+		if (array==null || array.GetRowDimension()==0){
+			throw new NullObjectException (" matrix to transform is null or empty ");
+		}
+		check(array.GetRowDimension(), array.GetColumnDimension(), array);
+		fsmatrix result= new fsmatrix(array.GetRowDimension(), array.GetColumnDimension());
+		pipelinehelper.run(this, result.data, null, array.data, array.data.length, threads);
+		return result;
+	}
+	
+	/**
+	 * checks that the arrays of the operations have the same shape with the data
+	 * @param rows : rows (or length) of the data
+	 * @param columns : columns of the data if it is an fsmatrix
+	 * @param data : the data
+	 */
+	private void check(int rows, int columns, Object data){
+		for (int i=0; i < size; i++){
+			Object operand=operands[i];
+			if (operand==null){
+				continue;
+			}
+			if (data instanceof double[]){
+				if (!(operand instanceof double[])){
+					throw new IllegalStateException(" Array to operate with needs to be double [] like the data");
+				}
+				if (((double[]) operand).length!=rows){
+					throw new DimensionMismatchException(((double[]) operand).length,rows);
+				}
+			} else if (data instanceof double[][]){
+				if (!(operand instanceof double[][])){
+					throw new IllegalStateException(" Array to operate with needs to be double [][] like the data");
+				}
+				double other [][]=(double[][]) operand;
+				double array [][]=(double[][]) data;
+				if (other.length!=rows){
+					throw new DimensionMismatchException(other.length,rows);
+				}
+				for (int j=0; j < rows; j++){
+					if (other[j].length!=array[j].length){
+						throw new DimensionMismatchException(other[j].length,array[j].length);
+					}
+				}
+			} else {
+				if (!(operand instanceof fsmatrix)){
+					throw new IllegalStateException(" Array to operate with needs to be fsmatrix like the data");
+				}
+				fsmatrix other=(fsmatrix) operand;
+				if (other.GetRowDimension()!=rows){
+					throw new DimensionMismatchException(other.GetRowDimension(),rows);
+				}
+				if (other.GetColumnDimension()!=columns){
+					throw new DimensionMismatchException(other.GetColumnDimension(),columns);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * applies all the operations to a tile , one operation at a time
+	 * @param x : the array that holds the tile
+	 * @param from : start of the tile
+	 * @param to : end of the tile
+	 * @param row : the row of the tile when the data is double [][]
+	 */
+	void apply(double x [], int from, int to, int row){
+		for (int o=0; o < size; o++){
+			double value=values[o];
+			switch (operations[o]){
+			case LOG:
+				for (int i=from; i < to; i++) {
+					if (x[i]>0){
+						x[i]=Math.log(x[i]);
+					}
+				}
+				break;
+			case LOGPLUSONE:
+				for (int i=from; i < to; i++) {
+					if (x[i]>0-1){
+						x[i]=Math.log(x[i] + 1.0);
+					}
+				}
+				break;
+			case SQRT:
+				for (int i=from; i < to; i++) {
+					if (x[i]>0){
+						x[i]=Math.sqrt(x[i]);
+					}
+				}
+				break;
+			case EXP:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.exp(x[i]);
+				}
+				break;
+			case ABS:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.abs(x[i]);
+				}
+				break;
+			case MIN:
+				for (int i=from; i < to; i++) {
+					if (x[i]<value){
+						x[i]=value;
+					}
+				}
+				break;
+			case MAX:
+				for (int i=from; i < to; i++) {
+					if (x[i]>value){
+						x[i]=value;
+					}
+				}
+				break;
+			case MINMAX:
+				double max=values2[o];
+				for (int i=from; i < to; i++) {
+					if (x[i]>max){
+						x[i]=max;
+					} else if (x[i]<value){
+						x[i]=value;
+					}
+				}
+				break;
+			case SIN:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.sin(x[i]);
+				}
+				break;
+			case COS:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.cos(x[i]);
+				}
+				break;
+			case TAN:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.tan(x[i]);
+				}
+				break;
+			case TANH:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.tanh(x[i]);
+				}
+				break;
+			case SIG:
+				for (int i=from; i < to; i++) {
+					x[i]=1.0 /( 1.0 + Math.exp(-x[i]) );
+				}
+				break;
+			case POW:
+				for (int i=from; i < to; i++) {
+					x[i]=Math.pow(x[i],value);
+				}
+				break;
+			case ADD:
+				for (int i=from; i < to; i++) {
+					x[i]+=value;
+				}
+				break;
+			case SUBTRACT:
+				for (int i=from; i < to; i++) {
+					x[i]-=value;
+				}
+				break;
+			case MULTIPLY:
+				for (int i=from; i < to; i++) {
+					x[i]*=value;
+				}
+				break;
+			case DIVIDE:
+				for (int i=from; i < to; i++) {
+					x[i]/=value;
+				}
+				break;
+			default:
+				double other []=row(operands[o], row);
+				if (operations[o]==ADD_ARRAY){
+					for (int i=from; i < to; i++) {
+						x[i]+=other[i];
+					}
+				} else if (operations[o]==SUBTRACT_ARRAY){
+					for (int i=from; i < to; i++) {
+						x[i]-=other[i];
+					}
+				} else if (operations[o]==MULTIPLY_ARRAY){
+					for (int i=from; i < to; i++) {
+						x[i]*=other[i];
+					}
+				} else {
+					for (int i=from; i < to; i++) {
+						x[i]/=other[i];
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param operand : the array of an operation
+	 * @param row : the row of the tile
+	 * @return the array that holds the elements of the tile
+	 */
+	private static double [] row(Object operand, int row){
+		if (operand instanceof double[][]){
+			return ((double[][]) operand)[row];
+		} else if (operand instanceof fsmatrix){
+			return ((fsmatrix) operand).data;
+		}
+		return (double []) operand;
+	}
+
+}
@@ -0,0 +1,143 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package manipulate.transforms;
+
+/**
+ * 
+ * @author marios
+ *<p> Purpose of the class is to provide a runnable class to the {@link pipeline} , applying all its operations to a range of the data one tile at a time </p>
+ */
+public class pipelinehelper implements Runnable{
+
+	/**
+	 * minimum elements of one dimensional data for each thread
+	 */
+	private static final int MIN_ELEMENTS_PER_THREAD=4*pipeline.TILE;
+	/**
+	 * the operations to apply
+	 */
+	private pipeline operations;
+	/**
+	 * the one dimensional data to process (by reference)
+	 */
+	private double array1d[];
+	/**
+	 * the two dimensional data to process (by reference)
+	 */
+	private double array2d[][];
+	/**
+	 * the data to copy from before processing (double [] or double [][]) , null to process in place
+	 */
+	private Object source;
+	/**
+	 * start location (element or row)
+	 */
+	private int s=0;
+	/**
+	 * end location (element or row)
+	 */
+	private int e=0;
+	
+	/**
+	 * 
+	 * @param operations : the operations to apply
+	 * @param array1d : the one dimensional data to process (or null)
+	 * @param array2d : the two dimensional data to process (or null)
+	 * @param source : the data to copy from before processing , null to process in place
+	 * @param start : The start location 
+	 * @param end : The end location
+	 */
+	pipelinehelper(pipeline operations, double array1d[], double array2d[][], Object source, int start, int end){
+		if (start>end){
+			throw new IllegalStateException(" The start of the loop in the pipeline cannot be less/equal than the end");
+		}
+		this.operations=operations;
+		this.array1d=array1d;
+		this.array2d=array2d;
+		this.source=source;
+		this.s=start;
+		this.e=end;
+	}
+	
+	/**
+	 * splits the data in ranges and processes them (in parallel if threads>1)
+	 * @param operations : the operations to apply
+	 * @param array1d : the one dimensional data to process (or null)
+	 * @param array2d : the two dimensional data to process (or null)
+	 * @param source : the data to copy from before processing , null to process in place
+	 * @param length : elements of the one dimensional data or rows of the two dimensional data
+	 * @param threads : number of threads to use
+	 */
+	static void run(pipeline operations, double array1d[], double array2d[][], Object source, int length, int threads){
+		if (threads<=0) {
+			threads=1;
+		}
+		if (array1d!=null){
+			threads=Math.min(threads, length/MIN_ELEMENTS_PER_THREAD);
+		} 
+		threads=Math.max(1, Math.min(threads, length));
+		if (threads==1){
+			new pipelinehelper(operations, array1d, array2d, source, 0, length).run();
+			return;
+		}
+		Thread[] thread_array= new Thread[threads];
+		for (int n=0; n <threads; n++ ){
+			int start=(int) ((long) length*n/threads);
+			int end=(int) ((long) length*(n+1)/threads);
+			thread_array[n]= new Thread(new pipelinehelper(operations, array1d, array2d, source, start, end));
+			thread_array[n].start();
+		}
+		for (int n=0; n <threads; n++ ){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}	
+		}
+	}
+
+	@Override
+	public void run() {
+		if (array1d!=null){
+			for (int from=s; from < e; from+=pipeline.TILE){
+				int to=Math.min(e, from + pipeline.TILE);
+				if (source!=null){
+					System.arraycopy((double []) source, from, array1d, from, to-from);
+				}
+				operations.apply(array1d, from, to, -1);
+			}
+		} else {
+			for (int i=s; i < e; i++){
+				double row []=array2d[i];
+				for (int from=0; from < row.length; from+=pipeline.TILE){
+					int to=Math.min(row.length, from + pipeline.TILE);
+					if (source!=null){
+						System.arraycopy(((double [][]) source)[i], from, row, from, to-from);
+					}
+					operations.apply(row, from, to, i);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package matrix;
+
+import exceptions.DimensionMismatchException;
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> A growable column of primitive doubles , for when the number of values is not known in advance (e.g. when a file is parsed).
+ * The capacity grows by half each time it is exceeded , so adding n values costs O(n) with no boxing. When done, the values
+ * may be taken as an exact-size array or as the data of an {@link fsmatrix} or {@link smatrix} with no further copies when the capacity matches.</p>
+ */
+public class DoubleColumnBuilder {
+	
+	/**
+	 * maximum size of an array
+	 */
+	static final int MAX_CAPACITY=Integer.MAX_VALUE-8;
+	/**
+	 * the values
+	 */
+	private double values [];
+	/**
+	 * number of values
+	 */
+	private int size=0;
+	/**
+	 * capacity of the array that is made when values are added after the array has been handed over (see take())
+	 */
+	private int reserved=16;
+	
+	/**
+	 * builder with a small initial capacity
+	 */
+	public DoubleColumnBuilder(){
+		this(16);
+	}
+	/**
+	 * @param capacity : initial capacity
+	 */
+	public DoubleColumnBuilder(int capacity){
+		if (capacity<=0){
+			capacity=16;
+		}
+		values= new double [capacity];
+	}
+	
+	/**
+	 * @param minimum : the capacity needed
+	 * @param current : the current capacity
+	 * @return the new capacity , at least half more than the current one
+	 */
+	static int grow(long minimum, int current){
+		if (minimum>MAX_CAPACITY){
+			throw new IllegalStateException(" The column cannot hold more than " + MAX_CAPACITY + " values");
+		}
+		long capacity=Math.max(minimum, current + (current>>1) + 1);
+		return (int) Math.min(capacity, MAX_CAPACITY);
+	}
+	/**
+	 * makes sure the builder can hold the given number of values without growing
+	 * @param capacity : number of values
+	 */
+	public void ensure(int capacity){
+		if (capacity>values.length){
+			int new_capacity=(values.length==0)?Math.max(capacity, reserved):grow(capacity, values.length);
+			double new_values []= new double [new_capacity];
+			System.arraycopy(values, 0, new_values, 0, size);
+			values=new_values;
+		}
+	}
+	/**
+	 * @param value : value to append
+	 */
+	public void add(double value){
+		if (size==values.length){
+			ensure(size+1);
+		}
+		values[size++]=value;
+	}
+	/**
+	 * @param array : values to append
+	 * @param from : first value of the array to append
+	 * @param to : end of the values of the array to append
+	 */
+	public void add(double array [], int from, int to){
+		ensure(size + (to-from));
+		System.arraycopy(array, from, values, size, to-from);
+		size+=to-from;
+	}
+	/**
+	 * @param index : the index of the value
+	 * @return the value
+	 */
+	public double get(int index){
+		if (index>=size){
+			throw new IllegalStateException(" index " + index + " is out of the " + size + " values of the column");
+		}
+		return values[index];
+	}
+	/**
+	 * @param index : the index of the value
+	 * @param value : the new value
+	 */
+	public void set(int index, double value){
+		if (index>=size){
+			throw new IllegalStateException(" index " + index + " is out of the " + size + " values of the column");
+		}
+		values[index]=value;
+	}
+	/**
+	 * @return the number of values
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * removes all the values , keeping the capacity
+	 */
+	public void clear(){
+		size=0;
+	}
+	/**
+	 * @return the values in an array of exact size (a copy)
+	 */
+	public double [] toArray(){
+		double array []= new double [size];
+		System.arraycopy(values, 0, array, 0, size);
+		return array;
+	}
+	/**
+	 * @return the values in an array of exact size. The builder's array is given (and the builder is emptied) when its capacity matches, else a copy.
+	 * A builder that gave its array makes one of the same capacity when values are added again , so that a reused builder does not grow from the start
+	 */
+	double [] take(){
+		double array []=values;
+		if (array.length!=size){
+			array=toArray();
+		} else {
+			reserved=Math.max(16, array.length);
+			values= new double [0];
+		}
+		size=0;
+		return array;
+	}
+	
+	/**
+	 * The values are taken as the rows of the matrix one after the other and the builder is emptied.
+	 * @param columns : the columns of the matrix
+	 * @return the fsmatrix
+	 */
+	public fsmatrix toFsmatrix(int columns){
+		if (columns<=0 || size==0){
+			throw new IllegalStateException(" There is nothing to make an fsmatrix from");
+		}
+		if (size%columns!=0){
+			throw new IllegalStateException(" The " + size + " values cannot be split in rows of " + columns + " columns");
+		}
+		int rows=size/columns;
+		return new fsmatrix(take(), rows, columns);
+	}
+	
+	/**
+	 * Makes a matrix sorted by row from the non zero values of this builder. All the builders are emptied.
+	 * @param columns : the column of every value
+	 * @param index : where every row starts in the values , with an extra element at the end for the number of values (size rows+1)
+	 * @param n_columns : the columns of the matrix
+	 * @return the smatrix
+	 */
+	public smatrix toSmatrix(IntColumnBuilder columns, IntColumnBuilder index, int n_columns){
+		if (columns==null || index==null || index.size()==0){
+			throw new IllegalStateException(" There is nothing to make an smatrix from");
+		}
+		if (columns.size()!=size){
+			throw new DimensionMismatchException(columns.size(),size);
+		}
+		if (index.get(index.size()-1)!=size){
+			throw new DimensionMismatchException(index.get(index.size()-1),size);
+		}
+		int rows=index.size()-1;
+		int elements=size;
+		return new smatrix(take(), columns.take(), index.take(), rows, n_columns, elements, true);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package matrix;
+
+import exceptions.IllegalStateException;
+
+/**
+ * 
+ * @author marios
+ *<p> A growable column of primitive ints , for when the number of values is not known in advance (e.g. the columns of the non zero elements
+ * of a sparse file). It grows like {@link DoubleColumnBuilder} and the two are used together to make an {@link smatrix}.</p>
+ */
+public class IntColumnBuilder {
+	
+	/**
+	 * the values
+	 */
+	private int values [];
+	/**
+	 * number of values
+	 */
+	private int size=0;
+	/**
+	 * capacity of the array that is made when values are added after the array has been handed over (see take())
+	 */
+	private int reserved=16;
+	
+	/**
+	 * builder with a small initial capacity
+	 */
+	public IntColumnBuilder(){
+		this(16);
+	}
+	/**
+	 * @param capacity : initial capacity
+	 */
+	public IntColumnBuilder(int capacity){
+		if (capacity<=0){
+			capacity=16;
+		}
+		values= new int [capacity];
+	}
+	
+	/**
+	 * makes sure the builder can hold the given number of values without growing
+	 * @param capacity : number of values
+	 */
+	public void ensure(int capacity){
+		if (capacity>values.length){
+			int new_capacity=(values.length==0)?Math.max(capacity, reserved):DoubleColumnBuilder.grow(capacity, values.length);
+			int new_values []= new int [new_capacity];
+			System.arraycopy(values, 0, new_values, 0, size);
+			values=new_values;
+		}
+	}
+	/**
+	 * @param value : value to append
+	 */
+	public void add(int value){
+		if (size==values.length){
+			ensure(size+1);
+		}
+		values[size++]=value;
+	}
+	/**
+	 * @param index : the index of the value
+	 * @return the value
+	 */
+	public int get(int index){
+		if (index>=size){
+			throw new IllegalStateException(" index " + index + " is out of the " + size + " values of the column");
+		}
+		return values[index];
+	}
+	/**
+	 * @param index : the index of the value
+	 * @param value : the new value
+	 */
+	public void set(int index, int value){
+		if (index>=size){
+			throw new IllegalStateException(" index " + index + " is out of the " + size + " values of the column");
+		}
+		values[index]=value;
+	}
+	/**
+	 * @return the number of values
+	 */
+	public int size(){
+		return size;
+	}
+	/**
+	 * removes all the values , keeping the capacity
+	 */
+	public void clear(){
+		size=0;
+	}
+	/**
+	 * @return the values in an array of exact size (a copy)
+	 */
+	public int [] toArray(){
+		int array []= new int [size];
+		System.arraycopy(values, 0, array, 0, size);
+		return array;
+	}
+	/**
+	 * @return the values in an array of exact size. The builder's array is given (and the builder is emptied) when its capacity matches, else a copy.
+	 * A builder that gave its array makes one of the same capacity when values are added again , so that a reused builder does not grow from the start
+	 */
+	int [] take(){
+		int array []=values;
+		if (array.length!=size){
+			array=toArray();
+		} else {
+			reserved=Math.max(16, array.length);
+			values= new int [0];
+		}
+		size=0;
+		return array;
+	}
+
+}
@@ -23,8 +23,6 @@ package ml.Kernel.copy;
 
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -35,6 +33,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -109,6 +108,22 @@ public class KernelmodelClassifier implements estimator,classifier {
 	 * Coefficient for poly
 	 */
 	public double coeff=1.0;	
+	/**
+	 * Approximation of the kernel with explicit features in place of the support vectors. It can be none, RFF (random Fourier features, RBF only) or NYSTROM
+	 */
+	public String approximation="none";
+	/**
+	 * Number of explicit features (or landmarks) when approximation is not none
+	 */
+	public int components=100;
+	/**
+	 * Megabytes of kernel rows to keep between the passes of SGD/FTRL , shared by the models that run at the same time. 0 to compute them every time
+	 */
+	public double kernel_cache_mb=64;
+	/**
+	 * The explicit feature map (shared by all the models) when approximation is not none
+	 */
+	private kernelfeatures featuremap;
 	/**
 	 * threads inside the step algorithm
 	 */
@@ -198,6 +213,19 @@ public class KernelmodelClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 
 	/**
@@ -311,6 +339,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -364,6 +393,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 	
 	@Override
 	public double[][] predict_proba(double[][] data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -462,6 +494,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[][] predict_proba(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -569,6 +604,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[][] predict_proba(smatrix data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		
 		/*
 		 *  check if the Create_Logic method is run properly
@@ -694,6 +732,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict_probaRow(double[] data) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -794,6 +835,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict_probaRow(fsmatrix data, int rows) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data, rows));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -896,6 +940,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict_probaRow(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data, start, end));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1012,6 +1059,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1100,11 +1150,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1113,6 +1159,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1229,11 +1278,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 				    			 maxi=k;	 
 				    		 }
 				    	  }
-				    	  try{
-				    		  predictions[i]=Double.parseDouble(classes[maxi]);
-				    	  } catch (Exception e){
-				    		  predictions[i]=maxi;
-				    	  }
+				    	  predictions[i]=encoder.decode(maxi);
 
 					}
 				
@@ -1242,6 +1287,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double[] predict(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1334,11 +1382,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			    			 maxi=k;	 
 			    		 }
 			    	  }
-			    	  try{
-			    		  predictions[i]=Double.parseDouble(classes[maxi]);
-			    	  } catch (Exception e){
-			    		  predictions[i]=maxi;
-			    	  }
+			    	  predictions[i]=encoder.decode(maxi);
 
 				}
 			
@@ -1348,6 +1392,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double predict_Row(double[] row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(row));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1437,11 +1484,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			    			 maxi=k;	 
 			    		 }
 			    	  }
-			    	  try{
-			    		  predictions=Double.parseDouble(classes[maxi]);
-			    	  } catch (Exception e){
-			    		  predictions=maxi;
-			    	  }
+			    	  predictions=encoder.decode(maxi);
 
 				
 			
@@ -1451,6 +1494,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double predict_Row(fsmatrix f, int row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(f, row));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1542,11 +1588,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			    			 maxi=k;	 
 			    		 }
 			    	  }
-			    	  try{
-			    		  predictions=Double.parseDouble(classes[maxi]);
-			    	  } catch (Exception e){
-			    		  predictions=maxi;
-			    	  }
+			    	  predictions=encoder.decode(maxi);
 
 				
 			
@@ -1556,6 +1598,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 	@Override
 	public double predict_Row(smatrix f, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(f, start, end));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1658,11 +1703,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			    			 maxi=k;	 
 			    		 }
 			    	  }
-			    	  try{
-			    		  predictions=Double.parseDouble(classes[maxi]);
-			    	  } catch (Exception e){
-			    		  predictions=maxi;
-			    	  }
+			    	  predictions=encoder.decode(maxi);
 
 				
 			
@@ -1729,33 +1770,18 @@ public class KernelmodelClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1787,6 +1813,16 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 		//initialize column dimension
 		columndimension=data[0].length;
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -1801,7 +1837,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1844,6 +1880,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 						
 			//logit.SetBetas(betas[1], constants[1]);
 			logit.target=label;
@@ -1851,9 +1893,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 			//System.out.println(Arrays.toString((vectorset[1].get(0))));
 			constant[1]= logit.Getcosntant();
 			this.vectorset[1]=logit.getsupportvectorset();
-			double beta[]= new double [this.vectorset[1].GetRowDimension()];
-			double betainv[]= new double [this.vectorset[1].GetRowDimension()];
 			double bigbets []=logit.Getbetas();
+			double beta[]= new double [support_size(this.vectorset[1], bigbets)];
+			double betainv[]= new double [support_size(this.vectorset[1], bigbets)];
 			for(int b=0; b <  beta.length;b++){
 				beta[b]=bigbets[b];
 				betainv[b]=-beta[b];
@@ -1869,7 +1911,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1912,6 +1954,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 		
 			//logit.SetBetas(betas[n], constants[n]);
 			logit.target=label;
@@ -1940,8 +1988,8 @@ public class KernelmodelClassifier implements estimator,classifier {
 				for (int j=0; j < count_of_live_threads; j++){
 								constant[class_passed]= minimodels[j].Getcosntant();
 								vectorset[class_passed]=minimodels[j].getsupportvectorset();
-								double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 								double bigbets []= minimodels[j].Getbetas();
+								double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 								for(int b=0; b <  beta.length;b++){
 									beta[b]=bigbets[b];
 								}
@@ -2023,33 +2071,18 @@ public class KernelmodelClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2081,6 +2114,16 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -2095,7 +2138,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2138,6 +2181,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 						
 			//logit.SetBetas(betas[1], constants[1]);
 			logit.target=label;
@@ -2146,11 +2195,11 @@ public class KernelmodelClassifier implements estimator,classifier {
 			constant[1]= logit.Getcosntant();
 			System.out.println("constant: " + constant[1]);
 			this.vectorset[1]=logit.getsupportvectorset();
+			double bigbets []=logit.Getbetas();
 			//System.out.println("vector set length : " + this.vectorset[1].GetRowDimension());
 			//System.out.println("vector set columns : " + this.vectorset[1].GetColumnDimension());
-			double beta[]= new double [this.vectorset[1].GetRowDimension()];
-			double betainv[]= new double [this.vectorset[1].GetRowDimension()];
-			double bigbets []=logit.Getbetas();
+			double beta[]= new double [support_size(this.vectorset[1], bigbets)];
+			double betainv[]= new double [support_size(this.vectorset[1], bigbets)];
 			for(int b=0; b <  beta.length;b++){
 				beta[b]=bigbets[b];
 				betainv[b]=-beta[b];
@@ -2168,7 +2217,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2211,6 +2260,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 		
 			//logit.SetBetas(betas[n], constants[n]);
 			logit.target=label;
@@ -2238,8 +2293,8 @@ public class KernelmodelClassifier implements estimator,classifier {
 				for (int j=0; j < count_of_live_threads; j++){
 					constant[class_passed]= minimodels[j].Getcosntant();
 					vectorset[class_passed]=minimodels[j].getsupportvectorset();
-					double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 					double bigbets []= minimodels[j].Getbetas();
+					double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 					for(int b=0; b <  beta.length;b++){
 						beta[b]=bigbets[b];
 					}
@@ -2320,33 +2375,18 @@ public class KernelmodelClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2378,6 +2418,16 @@ public class KernelmodelClassifier implements estimator,classifier {
 
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -2392,7 +2442,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2435,6 +2485,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 						
 			//logit.SetBetas(betas[1], constants[1]);
 			logit.target=label;
@@ -2442,9 +2498,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 			//System.out.println(Arrays.toString((vectorset[1].get(0))));
 			constant[1]= logit.Getcosntant();
 			this.vectorset[1]=logit.getsupportvectorset();
-			double beta[]= new double [this.vectorset[1].GetRowDimension()];
-			double betainv[]= new double [this.vectorset[1].GetRowDimension()];
 			double bigbets []=logit.Getbetas();
+			double beta[]= new double [support_size(this.vectorset[1], bigbets)];
+			double betainv[]= new double [support_size(this.vectorset[1], bigbets)];
 			for(int b=0; b <  beta.length;b++){
 				beta[b]=bigbets[b];
 				betainv[b]=-beta[b];
@@ -2460,7 +2516,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2503,6 +2559,12 @@ public class KernelmodelClassifier implements estimator,classifier {
 			logit.tolerance=this.tolerance;
 			logit.setScaler(this.Scaler);
 			logit.usescale=true;
+			logit.approximation=this.approximation;
+			logit.components=this.components;
+			logit.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+			if (featuremap!=null){
+				logit.setfeatures(featuremap, features);
+			}
 		
 			//logit.SetBetas(betas[n], constants[n]);
 			logit.target=label;
@@ -2530,8 +2592,8 @@ public class KernelmodelClassifier implements estimator,classifier {
 				for (int j=0; j < count_of_live_threads; j++){
 					constant[class_passed]= minimodels[j].Getcosntant();
 					vectorset[class_passed]=minimodels[j].getsupportvectorset();
-					double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 					double bigbets []= minimodels[j].Getbetas();
+					double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 					for(int b=0; b <  beta.length;b++){
 						beta[b]=bigbets[b];
 					}
@@ -2567,6 +2629,89 @@ public class KernelmodelClassifier implements estimator,classifier {
 		return "KernelmodelClassifier";
 	}
 
+	/**
+	 * @param set : the support vectors of a model (null when approximation is not none)
+	 * @param coefficients : the coefficients of the model
+	 * @return the number of coefficients to keep
+	 */
+	private static int support_size(smatrix set, double coefficients[]){
+		return (set==null)?coefficients.length:set.GetRowDimension();
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the probabilities of the row computed from the explicit kernel features
+	 */
+	private double [] approximate_probaRow(double z[]){
+		double predictions[]= new double [n_classes];
+		double sum=0.0;
+		for (int k=0; k<this.n_classes; k++) {
+			if (this.n_classes==2){
+				k++;
+			}
+			double pred=constant[k];
+			for (int j=0; j < z.length; j++){
+				pred+=z[j]*betas[k][j];
+			}
+			if (this.Objective.equals("logistic")){
+				pred= 1. / (1. + Math.exp(-pred));
+			}
+			predictions[k]=pred;
+			sum+=pred;
+		}
+		if (this.n_classes==2){
+			if (this.Objective.equals("logistic")){
+				predictions[0]=1-predictions[1];
+				sum+=predictions[0];
+			}else {
+				predictions[0]=-predictions[1];
+			}
+		}
+		if (this.Objective.equals("logistic")){
+			for (int k=0; k<this.n_classes; k++) {
+				predictions[k]= predictions[k]/sum;
+			}
+		}
+		return predictions;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the probabilities of the rows
+	 */
+	private double [][] approximate_proba(double Z[][]){
+		double predictions[][]= new double [Z.length][];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_probaRow(Z[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the class with the highest probability
+	 */
+	private double approximate_predict_Row(double z[]){
+		double temp[]=approximate_probaRow(z);
+		int maxi=0;
+		double max=temp[0];
+		for (int k=1; k<n_classes; k++) {
+			if (temp[k]>max){
+				max=temp[k];
+				maxi=k;
+			}
+		}
+		return encoder.decode(maxi);
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the class with the highest probability for each row
+	 */
+	private double [] approximate_predict(double Z[][]){
+		double predictions[]= new double [Z.length];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row(Z[i]);
+		}
+		return predictions;
+	}
+
 	@Override
 	public void PrintInformation() {
 		
@@ -2586,7 +2731,10 @@ public class KernelmodelClassifier implements estimator,classifier {
 		System.out.println("kernel type   "+ this.distance);
 		System.out.println("Std for RBF   "+ this.gammabfs);
 		System.out.println("degrees for POLY  "+ this.degree);
-		System.out.println("Coefficient for POLY  "+ this.coeff);			
+		System.out.println("Coefficient for POLY  "+ this.coeff);
+		System.out.println("Kernel approximation  "+ this.approximation);
+		System.out.println("Number of approximation components  "+ this.components);
+		System.out.println("Kernel cache (MB)  "+ this.kernel_cache_mb);			
 		System.out.println("Regularization value: "+ this.C);		
 		System.out.println("Regularization L1 for FTLR: "+ this.l1C);			
 		System.out.println("Training method: "+ this.Type);	
@@ -2639,6 +2787,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 		vectorset=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		smooth=0.1;
 		intthreads=1;
 		intpasses=1;
@@ -2652,6 +2801,10 @@ public class KernelmodelClassifier implements estimator,classifier {
 		gammabfs=0.01;
 		degree=2;
 		coeff=1.0;
+		approximation="none";
+		components=100;
+		kernel_cache_mb=64;
+		featuremap=null;
 		C=1.0;
 		l1C=1.0;
 		Type="SGD";
@@ -2682,7 +2835,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 		br.vectorset = new smatrix [this.n_classes] ;
 		for (int f=0; f<this.n_classes;f++){
 
-			br.vectorset[f]=(smatrix)this.vectorset[f].Copy();
+			br.vectorset[f]=(this.vectorset[f]==null)?null:(smatrix)this.vectorset[f].Copy();
 		}
 		
 
@@ -2700,6 +2853,10 @@ public class KernelmodelClassifier implements estimator,classifier {
 		br.gammabfs=this.gammabfs;
 		br.degree=this.degree;
 		br.coeff=this.coeff;
+		br.approximation=this.approximation;
+		br.components=this.components;
+		br.kernel_cache_mb=this.kernel_cache_mb;
+		br.featuremap=this.featuremap;
 		br.C=this.C;
 		br.columndimension=this.columndimension;
 		br.l1C=this.l1C;
@@ -2715,6 +2872,7 @@ public class KernelmodelClassifier implements estimator,classifier {
 		br.random=this.random;
 		br.tolerance=this.tolerance; 
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.target=manipulate.copies.copies.Copy(this.target.clone());
 		br.Starget=this.Starget.clone();		
@@ -2766,6 +2924,9 @@ public class KernelmodelClassifier implements estimator,classifier {
 				else if (metric.equals("gammabfs")) {this.gammabfs=Double.parseDouble(value);}
 				else if (metric.equals("degree")) {this.degree=Integer.parseInt(value);}
 				else if (metric.equals("coeff")) {this.coeff=Double.parseDouble(value);}
+				else if (metric.equals("approximation")) {this.approximation=value;}
+				else if (metric.equals("components")) {this.components=Integer.parseInt(value);}
+				else if (metric.equals("kernel_cache_mb")) {this.kernel_cache_mb=Double.parseDouble(value);}
 				else if (metric.equals("shuffle")) {this.shuffle=(value.equals("True")?true:false);}
 				else if (metric.equals("learn_rate")) {this.learn_rate=Double.parseDouble(value);}
 				else if (metric.equals("copy")) {this.copy=(value.equals("True")?true:false);}
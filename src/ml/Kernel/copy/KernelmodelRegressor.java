@@ -102,6 +102,22 @@ public class KernelmodelRegressor implements estimator,regressor {
 	 * Coefficient for poly
 	 */
 	public double coeff=1.0;	
+	/**
+	 * Approximation of the kernel with explicit features in place of the support vectors. It can be none, RFF (random Fourier features, RBF only) or NYSTROM
+	 */
+	public String approximation="none";
+	/**
+	 * Number of explicit features (or landmarks) when approximation is not none
+	 */
+	public int components=100;
+	/**
+	 * Megabytes of kernel rows to keep between the passes of SGD/FTRL , shared by the models that run at the same time. 0 to compute them every time
+	 */
+	public double kernel_cache_mb=64;
+	/**
+	 * The explicit feature map (shared by all the models) when approximation is not none
+	 */
+	private kernelfeatures featuremap;
 	/**
 	 * threads inside the step algorithm
 	 */
@@ -338,6 +354,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 	private static final long serialVersionUID = -8611561535854392960L;
 	@Override
 	public double[][] predict2d(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -413,6 +432,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[][] predict2d(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -498,6 +520,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[][] predict2d(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		
 		/*
 		 *  check if the Create_Logic method is run properly
@@ -598,6 +623,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict_Row2d(double[] data) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -674,6 +702,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict_Row2d(fsmatrix data, int rows) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data, rows));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -747,6 +778,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict_Row2d(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data, start, end));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -837,6 +871,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -910,6 +947,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1009,6 +1049,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double[] predict(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1085,6 +1128,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double predict_Row(double[] row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(row));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1157,6 +1203,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double predict_Row(fsmatrix f, int row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(f, row));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1230,6 +1279,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 	@Override
 	public double predict_Row(smatrix f, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(f, start, end));
+		}
 		/*
 		 *  check if the Create_Logic method is run properly
 		 */
@@ -1414,6 +1466,16 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 		//initialize column dimension
 		columndimension=data[0].length;
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -1485,6 +1547,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 					
 		
 		
@@ -1493,9 +1561,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 		
 		constant[0]= svc.Getcosntant();
 		this.vectorset[0]=svc.getsupportvectorset();
-		double beta[]= new double [this.vectorset[0].GetRowDimension()];
-		double betainv[]= new double [this.vectorset[0].GetRowDimension()];
 		double bigbets []=svc.Getbetas();
+		double beta[]= new double [support_size(this.vectorset[0], bigbets)];
+		double betainv[]= new double [support_size(this.vectorset[0], bigbets)];
 		
 		for(int b=0; b <  beta.length;b++){
 			
@@ -1570,6 +1638,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 
 		svc.target=label;
 		minimodels[count_of_live_threads]=svc;
@@ -1597,8 +1671,8 @@ public class KernelmodelRegressor implements estimator,regressor {
 			for (int j=0; j < count_of_live_threads; j++){
 							constant[class_passed]= minimodels[j].Getcosntant();
 							vectorset[class_passed]=minimodels[j].getsupportvectorset();
-							double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 							double bigbets []= minimodels[j].Getbetas();
+							double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 							for(int b=0; b <  beta.length;b++){
 								beta[b]=bigbets[b];
 							}
@@ -1721,6 +1795,16 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -1792,6 +1876,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 					
 		
 		
@@ -1800,9 +1890,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 		
 		constant[0]= svc.Getcosntant();
 		this.vectorset[0]=svc.getsupportvectorset();
-		double beta[]= new double [this.vectorset[0].GetRowDimension()];
-		double betainv[]= new double [this.vectorset[0].GetRowDimension()];
 		double bigbets []=svc.Getbetas();
+		double beta[]= new double [support_size(this.vectorset[0], bigbets)];
+		double betainv[]= new double [support_size(this.vectorset[0], bigbets)];
 		
 		for(int b=0; b <  beta.length;b++){
 			
@@ -1877,6 +1967,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 
 		svc.target=label;
 		minimodels[count_of_live_threads]=svc;
@@ -1904,8 +2000,8 @@ public class KernelmodelRegressor implements estimator,regressor {
 			for (int j=0; j < count_of_live_threads; j++){
 							constant[class_passed]= minimodels[j].Getcosntant();
 							vectorset[class_passed]=minimodels[j].getsupportvectorset();
-							double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 							double bigbets []= minimodels[j].Getbetas();
+							double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 							for(int b=0; b <  beta.length;b++){
 								beta[b]=bigbets[b];
 							}
@@ -2028,6 +2124,16 @@ public class KernelmodelRegressor implements estimator,regressor {
 
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		featuremap=null;
+		double features[][]=null;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0){
+				this.gammabfs=1.0/((double)this.columndimension);
+			}
+			// fit the feature map and transform the data once for all the models
+			featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+			features=featuremap.transform(data);
+		}
 		//initialise beta and constant
 		betas= new double[n_classes][];
 		constant=new double[n_classes];
@@ -2099,6 +2205,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 					
 		
 		
@@ -2107,9 +2219,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 		
 		constant[0]= svc.Getcosntant();
 		this.vectorset[0]=svc.getsupportvectorset();
-		double beta[]= new double [this.vectorset[0].GetRowDimension()];
-		double betainv[]= new double [this.vectorset[0].GetRowDimension()];
 		double bigbets []=svc.Getbetas();
+		double beta[]= new double [support_size(this.vectorset[0], bigbets)];
+		double betainv[]= new double [support_size(this.vectorset[0], bigbets)];
 		
 		for(int b=0; b <  beta.length;b++){
 			
@@ -2184,6 +2296,12 @@ public class KernelmodelRegressor implements estimator,regressor {
 		svc.tolerance=this.tolerance;
 		svc.setScaler(this.Scaler);
 		svc.usescale=true;
+		svc.approximation=this.approximation;
+		svc.components=this.components;
+		svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
+		if (featuremap!=null){
+			svc.setfeatures(featuremap, features);
+		}
 
 		svc.target=label;
 		minimodels[count_of_live_threads]=svc;
@@ -2211,8 +2329,8 @@ public class KernelmodelRegressor implements estimator,regressor {
 			for (int j=0; j < count_of_live_threads; j++){
 							constant[class_passed]= minimodels[j].Getcosntant();
 							vectorset[class_passed]=minimodels[j].getsupportvectorset();
-							double beta[]= new double [this.vectorset[class_passed].GetRowDimension()];
 							double bigbets []= minimodels[j].Getbetas();
+							double beta[]= new double [support_size(this.vectorset[class_passed], bigbets)];
 							for(int b=0; b <  beta.length;b++){
 								beta[b]=bigbets[b];
 							}
@@ -2248,6 +2366,63 @@ public class KernelmodelRegressor implements estimator,regressor {
 		return "KernelmodelRegressor";
 	}
 
+	/**
+	 * @param set : the support vectors of a model (null when approximation is not none)
+	 * @param coefficients : the coefficients of the model
+	 * @return the number of coefficients to keep
+	 */
+	private static int support_size(smatrix set, double coefficients[]){
+		return (set==null)?coefficients.length:set.GetRowDimension();
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the scores of all the targets computed from the explicit kernel features
+	 */
+	private double [] approximate_predict_Row2d(double z[]){
+		double predictions[]= new double [n_classes];
+		for (int k=0; k<this.n_classes; k++) {
+			double pred=constant[k];
+			for (int j=0; j < z.length; j++){
+				pred+=z[j]*betas[k][j];
+			}
+			predictions[k]=pred;
+		}
+		return predictions;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the scores of all the targets for each row
+	 */
+	private double [][] approximate_predict2d(double Z[][]){
+		double predictions[][]= new double [Z.length][];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row2d(Z[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the score of the first target
+	 */
+	private double approximate_predict_Row(double z[]){
+		double pred=constant[0];
+		for (int j=0; j < z.length; j++){
+			pred+=z[j]*betas[0][j];
+		}
+		return pred;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the score of the first target for each row
+	 */
+	private double [] approximate_predict(double Z[][]){
+		double predictions[]= new double [Z.length];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row(Z[i]);
+		}
+		return predictions;
+	}
+
 	@Override
 	public void PrintInformation() {
 		
@@ -2269,7 +2444,10 @@ public class KernelmodelRegressor implements estimator,regressor {
 		System.out.println("kernel type   "+ this.distance);
 		System.out.println("Std for RBF   "+ this.gammabfs);
 		System.out.println("degrees for POLY  "+ this.degree);
-		System.out.println("Coefficient for POLY  "+ this.coeff);			
+		System.out.println("Coefficient for POLY  "+ this.coeff);
+		System.out.println("Kernel approximation  "+ this.approximation);
+		System.out.println("Number of approximation components  "+ this.components);
+		System.out.println("Kernel cache (MB)  "+ this.kernel_cache_mb);			
 		System.out.println("Tau value of QUANTILE obkective : "+ this.tau);			
 	
 		System.out.println("Regularization value: "+ this.C);		
@@ -2337,6 +2515,10 @@ public class KernelmodelRegressor implements estimator,regressor {
 		gammabfs=0.01;
 		degree=2;
 		coeff=1.0;
+		approximation="none";
+		components=100;
+		kernel_cache_mb=64;
+		featuremap=null;
 		C=0.01;
 		l1C=0.01;
 		Type="SGD";
@@ -2370,7 +2552,7 @@ public class KernelmodelRegressor implements estimator,regressor {
 		br.vectorset = new smatrix [this.n_classes] ;
 		for (int f=0; f<this.n_classes;f++){
 
-			br.vectorset[f]=(smatrix)this.vectorset[f].Copy();
+			br.vectorset[f]=(this.vectorset[f]==null)?null:(smatrix)this.vectorset[f].Copy();
 		}
 		
 		
@@ -2394,6 +2576,10 @@ public class KernelmodelRegressor implements estimator,regressor {
 		br.gammabfs=this.gammabfs;
 		br.degree=this.degree;
 		br.coeff=this.coeff;
+		br.approximation=this.approximation;
+		br.components=this.components;
+		br.kernel_cache_mb=this.kernel_cache_mb;
+		br.featuremap=this.featuremap;
 		br.tau=this.tau;
 		br.Type=this.Type;
 		br.threads=this.threads;
@@ -2461,6 +2647,9 @@ public class KernelmodelRegressor implements estimator,regressor {
 				else if (metric.equals("gammabfs")) {this.gammabfs=Double.parseDouble(value);}
 				else if (metric.equals("degree")) {this.degree=Integer.parseInt(value);}
 				else if (metric.equals("coeff")) {this.coeff=Double.parseDouble(value);}
+				else if (metric.equals("approximation")) {this.approximation=value;}
+				else if (metric.equals("components")) {this.components=Integer.parseInt(value);}
+				else if (metric.equals("kernel_cache_mb")) {this.kernel_cache_mb=Double.parseDouble(value);}
 				else if (metric.equals("shuffle")) {this.shuffle=(value.equals("True")?true:false);}
 				else if (metric.equals("learn_rate")) {this.learn_rate=Double.parseDouble(value);}
 				else if (metric.equals("copy")) {this.copy=(value.equals("True")?true:false);}
@@ -21,7 +21,6 @@ SOFTWARE.
 
 package ml.Kernel.copy;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -127,6 +126,26 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 	 * Coefficient for poly
 	 */
 	public double coeff=1.0;	
+	/**
+	 * Approximation of the kernel with explicit features in place of the support vectors. It can be none, RFF (random Fourier features, RBF only) or NYSTROM
+	 */
+	public String approximation="none";
+	/**
+	 * Number of explicit features (or landmarks) when approximation is not none
+	 */
+	public int components=100;
+	/**
+	 * Megabytes of kernel rows to keep between the passes of SGD/FTRL. 0 to compute them every time
+	 */
+	public double kernel_cache_mb=64;
+	/**
+	 * The explicit feature map when approximation is not none
+	 */
+	private kernelfeatures featuremap;
+	/**
+	 * Rows already transformed with the feature map to use in the next fit (see {@link #setfeatures(kernelfeatures, double[][])})
+	 */
+	private double approximate_features[][];
 	
 	/**
 	 * threads to use
@@ -303,10 +322,10 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 	
 	/**
 	 * 
-	 * @return the sparse matrix of support vectors
+	 * @return the sparse matrix of support vectors (null when approximation is not none)
 	 */
 	public smatrix getsupportvectorset(){
-		if (betas==null || betas.length<=0 || this.vectorset==null){
+		if (betas==null || betas.length<=0 || (this.vectorset==null && featuremap==null)){
 			throw new IllegalStateException(" estimator needs to be fitted first" );
 		}
 		return this.vectorset;
@@ -314,6 +333,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 
 	@Override
 	public double[][] predict_proba(double[][] data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -379,6 +401,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
       * @return the probability for the event to be 1
       */
 	public double[] predict_single(double[][] data) {
+		if (featuremap!=null){
+			return approximate_single(featuremap.transform(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -438,6 +463,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 	
 	@Override
 	public double[][] predict_proba(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -504,6 +532,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
      * @return the probability for the event to be 1
      */
 	public double[] predict_single(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_single(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -563,6 +594,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 	
 	@Override
 	public double[][] predict_proba(smatrix data) {
+		if (featuremap!=null){
+			return approximate_proba(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -644,6 +678,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 
 	@Override
 	public double[] predict_probaRow(double[] data) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data));
+		}
 		
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
@@ -700,6 +737,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 
 	@Override
 	public double[] predict_probaRow(fsmatrix data, int row) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data, row));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -755,6 +795,9 @@ public class binarykernelmodel implements estimator,classifier,Runnable {
 
 	@Override
 	public double[] predict_probaRow(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_probaRow(featuremap.transform_row(data, start, end));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -825,6 +868,9 @@ return predictions;
 
 	@Override
 	public double[] predict(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -885,6 +931,9 @@ return predictions;
 
 	@Override
 	public double[] predict(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -967,6 +1016,9 @@ return predictions;
 
 	@Override
 	public double [] predict(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
@@ -1025,6 +1077,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(double[] data) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -1075,6 +1130,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(fsmatrix data, int row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data, row));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -1126,6 +1184,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data, start, end));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -1301,6 +1362,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data[0].length;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.length){
@@ -1333,7 +1408,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -1353,6 +1429,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -1366,10 +1443,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -1404,16 +1483,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -1424,7 +1507,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -1444,6 +1526,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -1471,6 +1554,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -1513,10 +1597,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data[i][ vectorset.mainelementpile[h]], vectorset.mainelementpile[h]);
@@ -1552,6 +1643,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 		    	if (this.Objective.equals("logistic")){
 		    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -1622,6 +1716,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -1675,11 +1770,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data[i][ vectorset.mainelementpile[h]], vectorset.mainelementpile[h]);
@@ -1725,7 +1827,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 			    if (this.Objective.equals("logistic")){
 			    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -1932,6 +2037,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.GetRowDimension()){
@@ -1964,7 +2083,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -1984,6 +2104,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -1997,10 +2118,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -2035,16 +2158,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -2055,7 +2182,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -2075,6 +2201,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -2102,6 +2229,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2144,10 +2272,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data.GetElement(i,  vectorset.mainelementpile[h]), vectorset.mainelementpile[h]);
@@ -2183,6 +2318,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 		    	if (this.Objective.equals("logistic")){
 		    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -2253,6 +2391,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2306,11 +2445,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data.GetElement(i,  vectorset.mainelementpile[h]), vectorset.mainelementpile[h]);
@@ -2356,7 +2502,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 			    if (this.Objective.equals("logistic")){
 			    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -2565,6 +2714,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.GetRowDimension()){
@@ -2597,7 +2760,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -2617,6 +2781,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -2630,10 +2795,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -2668,16 +2835,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -2688,7 +2859,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -2708,6 +2878,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -2735,6 +2906,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2780,10 +2952,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				int cc=vectorset.mainelementpile[h];
@@ -2835,6 +3014,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 		    	if (this.Objective.equals("logistic")){
 		    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -2905,6 +3087,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2961,11 +3144,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				int cc=vectorset.mainelementpile[h];
 		    				Integer ks=has_index.get(cc);
@@ -3025,7 +3215,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 			    if (this.Objective.equals("logistic")){
 			    	pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
@@ -3128,6 +3321,231 @@ return predictions;
 		}
 
 	}
+	/**
+	 * Sets an already fitted feature map and the rows of the data (that will be given to fit) transformed with it, so that
+	 * the models of the different classes do not need to transform the data again. Used only when approximation is not none
+	 * @param map : the fitted feature map
+	 * @param features : the transformed rows
+	 */
+	void setfeatures(kernelfeatures map, double features[][]){
+		this.featuremap=map;
+		this.approximate_features=features;
+	}
+	/**
+	 * Trains the coefficients on the explicit kernel features with the same SGD or FTRL updates that are used for the support vectors
+	 * @param features : the kernel features of each row
+	 */
+	private void fit_approximate(double features[][]){
+		int m=featuremap.GetColumnDimension();
+		betas= new double[m];
+		constant= new double[]{0.0};
+		support_cases=null;
+		vectorset=null;
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		random= new Random();
+		random.setSeed(seed);
+		double n []= new double[m]; // sum of squared gradients
+		double nc=0;
+		double feature=0.0;
+		
+		if (Type.equals("SGD")){
+			
+			for (int it=0; it <this.maxim_Iteration; it++){
+			    for (int k=0; k < features.length; k++){
+			    	int i=k;
+			    	if (this.shuffle){
+			    	 i=random.nextInt(features.length);
+			    	}
+			    	double z[]=features[i];
+			    	double pred=constant[0];
+			    	for (int j=0; j < m; j++){
+			    		pred+=z[j]*betas[j];
+			    	}
+			    	if (this.Objective.equals("logistic")){
+			    		pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
+			    	}
+			    	double yi=0;
+			    	if (target[i]>0){
+			    		yi=1.0;
+			    	}
+			    	double residual=(pred-yi);
+			    	if (target[i]<0){
+			    		yi=-1;
+			    	}
+			    	double gradient=residual;
+			    	if (this.Objective.equals("svm")){
+			    		gradient=( pred*yi<1)?-yi:0;
+			    	}
+			    	gradient+=C*constant[0];
+			    	nc+=gradient*gradient;
+			    	constant[0]-=(this.learn_rate*gradient)/Math.sqrt(nc+this.smooth);
+			    	
+			    	for (int j=0; j < m;j++){
+			    		feature=z[j];
+			    		if (feature==0.0){
+			    			continue;
+			    		}
+			    		gradient=residual*feature;
+			    		if (this.Objective.equals("svm")){
+			    			gradient=( pred*yi<1)?-yi*feature:0;
+			    		}
+			    		gradient+=C*betas[j];
+			    		n[j]+=gradient*gradient;
+			    		betas[j]-=(this.learn_rate*gradient)/Math.sqrt(n[j]+this.smooth);
+			    	}
+			    }
+	    		if (verbose){
+	    			System.out.println("iteration: " + (it+1));
+	    		}
+			}
+			
+		} else if (Type.equals("FTRL")){
+			
+			if (this.l1C<=0){
+				throw new IllegalStateException(" L1C regularizer cannot be less equal to zero");
+			}
+			double BETA [] = new double[m];
+			for (int it=0; it <this.maxim_Iteration; it++){
+			    for (int k=0; k < features.length; k++){
+			    	int i=k;
+			    	if (this.shuffle){
+			    	 i=random.nextInt(features.length);
+			    	}
+			    	double z[]=features[i];
+			    	double Constant=ftrl_weight(constant[0], nc);
+			    	double pred=Constant;
+			    	for (int j=0; j < m; j++){
+			    		BETA[j]=ftrl_weight(betas[j], n[j]);
+			    		pred+= BETA[j]*z[j];
+			    	}
+			    	if (this.Objective.equals("logistic")){
+			    		pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));  // logit transform
+			    	}
+			    	double yi=0;
+			    	if (target[i]>0){
+			    		yi=1.0;
+			    	}
+			    	double residual=(pred-yi);
+			    	if (target[i]<0){
+			    		yi=-1;
+			    	}
+			    	double gradient=residual;
+			    	if (this.Objective.equals("svm")){
+			    		gradient=( pred*yi<1)?-yi:0;
+			    	}
+			    	double move=(Math.sqrt(nc + gradient * gradient) - Math.sqrt(nc)) / this.learn_rate;
+			    	constant[0]+=gradient-move*Constant;
+			    	nc+=gradient*gradient;
+			    	
+			    	for (int j=0; j < m;j++){
+			    		feature=z[j];
+			    		if (feature==0.0){
+			    			continue;
+			    		}
+			    		double gradientx=residual*feature;
+			    		if (this.Objective.equals("svm")){
+			    			gradientx=( pred*yi<1)?-yi*feature:0;
+			    		}
+			    		gradientx+=C*betas[j];
+			    		move=(Math.sqrt(n[j] + gradientx * gradientx) - Math.sqrt(n[j])) / this.learn_rate;
+			    		betas[j] += gradientx - move * BETA[j];
+			    		n[j] += gradientx * gradientx;
+			    	}
+			    }
+	    		if (verbose){
+	    			System.out.println("iteration: " + (it+1));
+	    		}
+			}
+			constant[0]=ftrl_weight(constant[0], nc);
+			for (int j=0; j < m; j++){
+				betas[j]=ftrl_weight(betas[j], n[j]);
+			}
+		}
+	}
+	/**
+	 * @param z : the FTRL state of a coefficient
+	 * @param n : the sum of squared gradients of the coefficient
+	 * @return the coefficient
+	 */
+	private double ftrl_weight(double z, double n){
+		double sign=(z<0)?-1.0:1.0;
+		if (sign * z  <= l1C){
+			return 0.0;
+		}
+		return (sign * l1C - z) / (( 0.1+Math.sqrt(n)) / this.learn_rate + C);
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the probability (logistic) or the score (svm) of the row
+	 */
+	private double approximate_score(double z[]){
+		double pred=constant[0];
+		for (int j=0; j < z.length; j++){
+			pred+=z[j]*betas[j];
+		}
+		if (this.Objective.equals("logistic")){
+			pred= 1.0/ (1.0 + Math.exp(-pred));  // logit transform
+		}
+		return pred;
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the probabilities of the row in the same form as {@link #predict_probaRow(double[])}
+	 */
+	private double [] approximate_probaRow(double z[]){
+		double pred=approximate_score(z);
+		if (this.Objective.equals("logistic")){
+			return new double []{1-pred, pred};
+		}
+		return new double []{-pred, pred};
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the predicted label (0 or 1) of the row
+	 */
+	private double approximate_predict_Row(double z[]){
+		double pred=approximate_score(z);
+		if (this.Objective.equals("logistic")){
+			return (pred >= 0.5) ? 1.0 :0.0 ;
+		}
+		return (pred >= 0.0) ? 1.0 :0.0 ;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the probabilities of the rows
+	 */
+	private double [][] approximate_proba(double Z[][]){
+		double predictions[][]= new double [Z.length][];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_probaRow(Z[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the probability (logistic) or the score (svm) of the rows
+	 */
+	private double [] approximate_single(double Z[][]){
+		double predictions[]= new double [Z.length];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_score(Z[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the predicted labels of the rows
+	 */
+	private double [] approximate_predict(double Z[][]){
+		double predictions[]= new double [Z.length];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row(Z[i]);
+		}
+		return predictions;
+	}
+
 	@Override
 	public String GetType() {
 		return "classifier";
@@ -3157,7 +3575,10 @@ return predictions;
 		System.out.println("kernel type   "+ this.distance);
 		System.out.println("Std for RBF   "+ this.gammabfs);
 		System.out.println("degrees for POLY  "+ this.degree);
-		System.out.println("Coefficient for POLY  "+ this.coeff);	
+		System.out.println("Coefficient for POLY  "+ this.coeff);
+		System.out.println("Kernel approximation  "+ this.approximation);
+		System.out.println("Number of approximation components  "+ this.components);
+		System.out.println("Kernel cache (MB)  "+ this.kernel_cache_mb);	
 		System.out.println("Regularization value: "+ this.C);
 		System.out.println("Regularization L1 for FTLR: "+ this.l1C);		
 		System.out.println("Training method: "+ this.Type);	
@@ -3224,6 +3645,10 @@ return predictions;
 		gammabfs=0.01;
 		degree=2;
 		coeff=1.0;
+		approximation="none";
+		components=100;
+		kernel_cache_mb=64;
+		featuremap=null;
 		support_cases=null;
 		Scaler=null;
 		copy=true;
@@ -3240,7 +3665,7 @@ return predictions;
 		binarykernelmodel br = new binarykernelmodel();
 		br.constant=this.constant;
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
-		br.support_cases=support_cases.clone();
+		br.support_cases=(support_cases==null)?null:support_cases.clone();
 		br.RegularizationType=this.RegularizationType;
 		br.C=this.C;
 		br.l1C=this.l1C;
@@ -3260,6 +3685,10 @@ return predictions;
 		br.gammabfs=this.gammabfs;
 		br.degree=this.degree;
 		br.coeff=this.coeff;
+		br.approximation=this.approximation;
+		br.components=this.components;
+		br.kernel_cache_mb=this.kernel_cache_mb;
+		br.featuremap=this.featuremap;
 		br.usescale=this.usescale;
 		br.shuffle=this.shuffle;
 		br.learn_rate=this.learn_rate;
@@ -3372,6 +3801,9 @@ return predictions;
 				else if (metric.equals("gammabfs")) {this.gammabfs=Double.parseDouble(value);}
 				else if (metric.equals("degree")) {this.degree=Integer.parseInt(value);}
 				else if (metric.equals("coeff")) {this.coeff=Double.parseDouble(value);}
+				else if (metric.equals("approximation")) {this.approximation=value;}
+				else if (metric.equals("components")) {this.components=Integer.parseInt(value);}
+				else if (metric.equals("kernel_cache_mb")) {this.kernel_cache_mb=Double.parseDouble(value);}
 				else if (metric.equals("usescale")) {this.usescale=(value.equals("True")?true:false);}
 				else if (metric.equals("shuffle")) {this.shuffle=(value.equals("True")?true:false);}
 				else if (metric.equals("learn_rate")) {this.learn_rate=Double.parseDouble(value);}
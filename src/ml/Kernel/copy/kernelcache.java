@@ -0,0 +1,102 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.Kernel.copy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * <p> Least recently used cache of kernel rows. A row holds the kernel values of one data row against all the
+ * candidate support vectors (or support vectors) of a model , so the passes after the first one over the same row
+ * do not need to compute them again. The number of rows held is bounded by the given memory and the arrays of the rows that are
+ * evicted are reused for the new ones.</p>
+ */
+public class kernelcache {
+
+	/**
+	 * the cached rows in access order
+	 */
+	private LinkedHashMap<Integer, double []> rows;
+	/**
+	 * maximum number of rows to hold
+	 */
+	private int capacity;
+	/**
+	 * length of each row
+	 */
+	private int length;
+	
+	/**
+	 * @param length : number of kernel values in a row
+	 * @param megabytes : memory to use
+	 */
+	public kernelcache(int length, double megabytes){
+		if (length<=0){
+			throw new IllegalStateException(" The kernel rows need to have at least one value" );
+		}
+		this.length=length;
+		this.capacity=(int) Math.min(Integer.MAX_VALUE-1, (megabytes*1024.0*1024.0)/(8.0*length+64.0));
+		this.rows=new LinkedHashMap<Integer, double []>(16, 0.75f, true);
+	}
+	/**
+	 * @param megabytes : memory to use
+	 * @param length : number of kernel values in a row
+	 * @return a cache , or null if not even one row fits in the memory
+	 */
+	public static kernelcache create(int length, double megabytes){
+		if (length<=0 || (megabytes*1024.0*1024.0)<(8.0*length+64.0)){
+			return null;
+		}
+		return new kernelcache(length, megabytes);
+	}
+	/**
+	 * @param key : the data row
+	 * @return the kernel values of the row , or null if they are not in the cache
+	 */
+	public double [] get(int key){
+		return rows.get(key);
+	}
+	/**
+	 * @param key : the data row
+	 * @param values : the kernel values of the row (they are copied)
+	 */
+	public void put(int key, double values[]){
+		double row[]=null;
+		if (rows.size()>=capacity){
+			Iterator<double []> eldest=rows.values().iterator();
+			row=eldest.next();
+			eldest.remove();
+		} else {
+			row=new double [length];
+		}
+		System.arraycopy(values, 0, row, 0, length);
+		rows.put(key, row);
+	}
+	/**
+	 * @return the number of rows held
+	 */
+	public int size(){
+		return rows.size();
+	}
+
+}
@@ -0,0 +1,484 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.Kernel.copy;
+
+import java.io.Serializable;
+import java.util.Random;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Maps the (scaled) rows to a fixed number of explicit features whose dot products approximate the kernel , so that
+ * a linear model can be trained on them instead of the kernel values against the support vectors (fit and predict become linear in the rows).
+ * <ul>
+ * <li> RFF : random Fourier features (Rahimi and Recht) for the RBF kernel , z_j(x)= sqrt(2/m) cos(w_j'x + b_j) with w_j drawn from N(0, 2*gamma) and b_j from U(0, 2pi) </li>
+ * <li> NYSTROM : m random rows are kept as landmarks and z(x)= L^-1 k(x) , where k(x) holds the kernel values of x against the landmarks and L L'
+ * is the Cholesky decomposition of the landmarks' kernel matrix. It works with any of RBF, POLY and SIGMOID (as long as the landmarks' kernel matrix is positive definite)</li>
+ * </ul>
+ * The kernels are the same with the ones of the exact models, except that RBF uses all the columns.</p>
+ */
+public class kernelfeatures implements Serializable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6209418865347721094L;
+	/**
+	 * the approximation , RFF or NYSTROM
+	 */
+	private String approximation;
+	/**
+	 * the kernel , RBF , POLY or SIGMOID
+	 */
+	private String distance;
+	/**
+	 * number of features
+	 */
+	private int components;
+	/**
+	 * number of columns of the data
+	 */
+	private int columns;
+	/**
+	 * gamma of the kernel
+	 */
+	private double gammabfs;
+	/**
+	 * degree of POLY
+	 */
+	private int degree;
+	/**
+	 * coefficient of POLY and SIGMOID
+	 */
+	private double coeff;
+	/**
+	 * Scaler to apply to the rows (null for none)
+	 */
+	private scaler Scaler;
+	/**
+	 * RFF : the random directions, column-major (column*components + feature)
+	 */
+	private double directions[];
+	/**
+	 * RFF : the random offsets
+	 */
+	private double offsets[];
+	/**
+	 * NYSTROM : the scaled landmarks (landmark*columns + column)
+	 */
+	private double landmarks[];
+	/**
+	 * NYSTROM : lower triangular Cholesky factor of the landmarks' kernel matrix (row*components + column)
+	 */
+	private double cholesky[];
+	
+	/**
+	 * @param approximation : RFF or NYSTROM
+	 * @param distance : the kernel , RBF , POLY or SIGMOID
+	 * @param components : number of features
+	 * @param gammabfs : gamma of the kernel
+	 * @param degree : degree of POLY
+	 * @param coeff : coefficient of POLY and SIGMOID
+	 * @param Scaler : Scaler to apply to the rows (null for none)
+	 * @param columns : number of columns of the data
+	 */
+	private kernelfeatures(String approximation, String distance, int components, double gammabfs, int degree, double coeff, scaler Scaler, int columns){
+		if (!approximation.equals("RFF") && !approximation.equals("NYSTROM")){
+			throw new IllegalStateException(" approximation has to be one of none, RFF or NYSTROM" );	
+		}
+		if (approximation.equals("RFF") && !distance.equals("RBF")){
+			throw new IllegalStateException(" RFF approximates only the RBF kernel, use NYSTROM for POLY and SIGMOID" );	
+		}
+		if (components<1){
+			throw new IllegalStateException(" The number of components needs to be at least 1" );	
+		}
+		this.approximation=approximation;
+		this.distance=distance;
+		this.components=components;
+		this.gammabfs=gammabfs;
+		this.degree=degree;
+		this.coeff=coeff;
+		this.Scaler=Scaler;
+		this.columns=columns;
+	}
+	
+	/**
+	 * @return the number of features
+	 */
+	public int GetColumnDimension(){
+		return components;
+	}
+	
+	/**
+	 * @param approximation : RFF or NYSTROM
+	 * @param distance : the kernel , RBF , POLY or SIGMOID
+	 * @param components : number of features
+	 * @param gammabfs : gamma of the kernel
+	 * @param degree : degree of POLY
+	 * @param coeff : coefficient of POLY and SIGMOID
+	 * @param Scaler : Scaler to apply to the rows (null for none)
+	 * @param data : the training data (the landmarks are drawn from it)
+	 * @param seed : seed for the random draws
+	 * @return the fitted feature map
+	 */
+	public static kernelfeatures fit(String approximation, String distance, int components, double gammabfs, int degree, double coeff, scaler Scaler, fsmatrix data, int seed){
+		kernelfeatures map=new kernelfeatures(approximation, distance, components, gammabfs, degree, coeff, Scaler, data.GetColumnDimension());
+		Random random = new Random(seed);
+		if (map.approximation.equals("RFF")){
+			map.draw_directions(random);
+		} else {
+			int rows[]=map.draw_landmarks(data.GetRowDimension(), random);
+			double x[]=new double [map.columns];
+			for (int l=0; l < rows.length; l++){
+				map.load(data, rows[l], x);
+				System.arraycopy(x, 0, map.landmarks, l*map.columns, map.columns);
+			}
+			map.decompose();
+		}
+		return map;
+	}
+	/**
+	 * see {@link #fit(String, String, int, double, int, double, scaler, fsmatrix, int)}
+	 */
+	public static kernelfeatures fit(String approximation, String distance, int components, double gammabfs, int degree, double coeff, scaler Scaler, smatrix data, int seed){
+		kernelfeatures map=new kernelfeatures(approximation, distance, components, gammabfs, degree, coeff, Scaler, data.GetColumnDimension());
+		Random random = new Random(seed);
+		if (map.approximation.equals("RFF")){
+			map.draw_directions(random);
+		} else {
+			if (!data.IsSortedByRow()){
+				data.convert_type();
+			}
+			int rows[]=map.draw_landmarks(data.GetRowDimension(), random);
+			double x[]=new double [map.columns];
+			for (int l=0; l < rows.length; l++){
+				map.load(data, data.indexpile[rows[l]], data.indexpile[rows[l]+1], x);
+				System.arraycopy(x, 0, map.landmarks, l*map.columns, map.columns);
+			}
+			map.decompose();
+		}
+		return map;
+	}
+	/**
+	 * see {@link #fit(String, String, int, double, int, double, scaler, fsmatrix, int)}
+	 */
+	public static kernelfeatures fit(String approximation, String distance, int components, double gammabfs, int degree, double coeff, scaler Scaler, double data[][], int seed){
+		return fit(approximation, distance, components, gammabfs, degree, coeff, Scaler, new fsmatrix(data), seed);
+	}
+	
+	/**
+	 * draws the RFF directions and offsets
+	 */
+	private void draw_directions(Random random){
+		directions=new double [columns*components];
+		offsets=new double [components];
+		double deviation=Math.sqrt(2.0*gammabfs);
+		for (int k=0; k < directions.length; k++){
+			directions[k]=random.nextGaussian()*deviation;
+		}
+		for (int j=0; j < components; j++){
+			offsets[j]=random.nextDouble()*2.0*Math.PI;
+		}
+	}
+	/**
+	 * @return the rows to use as landmarks (all the rows if they are not more than the components)
+	 */
+	private int [] draw_landmarks(int rows, Random random){
+		if (rows<=components){
+			components=rows;
+			int chosen[]=new int [rows];
+			for (int i=0; i < rows; i++){
+				chosen[i]=i;
+			}
+			landmarks=new double [components*columns];
+			return chosen;
+		}
+		int all[]=new int [rows];
+		for (int i=0; i < rows; i++){
+			all[i]=i;
+		}
+		for (int i=0; i < components; i++){
+			int j=i+random.nextInt(rows-i);
+			int temp=all[i];
+			all[i]=all[j];
+			all[j]=temp;
+		}
+		int chosen[]=new int [components];
+		System.arraycopy(all, 0, chosen, 0, components);
+		landmarks=new double [components*columns];
+		return chosen;
+	}
+	/**
+	 * Cholesky decomposition of the landmarks' kernel matrix. A small value is added to the diagonal (and increased if needed)
+	 * to keep the decomposition stable
+	 */
+	private void decompose(){
+		int m=components;
+		double kernel[]=new double [m*m];
+		double trace=0.0;
+		for (int a=0; a < m; a++){
+			for (int b=0; b <= a; b++){
+				double k=kernel(landmarks, a*columns, landmarks, b*columns);
+				kernel[a*m+b]=k;
+				kernel[b*m+a]=k;
+			}
+			trace+=kernel[a*m+a];
+		}
+		double jitter=1.0E-10*Math.max(Math.abs(trace)/m, 1.0E-300);
+		for (int attempt=0; attempt < 12; attempt++){
+			cholesky=new double [m*m];
+			if (cholesky(kernel, m, jitter)){
+				return;
+			}
+			jitter*=10.0;
+		}
+		throw new IllegalStateException(" The kernel matrix of the landmarks is not positive definite. Use fewer components or the RBF/POLY kernels" );
+	}
+	/**
+	 * @return false if the matrix (with jitter added to the diagonal) is not positive definite
+	 */
+	private boolean cholesky(double kernel[], int m, double jitter){
+		for (int a=0; a < m; a++){
+			for (int b=0; b <= a; b++){
+				double sum=kernel[a*m+b];
+				if (a==b){
+					sum+=jitter;
+				}
+				for (int k=0; k < b; k++){
+					sum-=cholesky[a*m+k]*cholesky[b*m+k];
+				}
+				if (a==b){
+					if (sum<=0.0 || sum!=sum){
+						return false;
+					}
+					cholesky[a*m+a]=Math.sqrt(sum);
+				} else {
+					cholesky[a*m+b]=sum/cholesky[b*m+b];
+				}
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return the kernel value of two dense scaled rows
+	 */
+	private double kernel(double x1[], int offset1, double x2[], int offset2){
+		double feature=0.0;
+		if (distance.equals("RBF")) {
+			for (int h=0; h < columns; h++){
+				double euc=x1[offset1+h]-x2[offset2+h];
+				feature+=euc*euc;
+			}
+			return Math.exp(-this.gammabfs * feature); 
+		}
+		for (int h=0; h < columns; h++){
+			feature+=x1[offset1+h]*x2[offset2+h];
+		}
+		if (distance.equals("POLY")) {
+			feature=(this.gammabfs*feature)+this.coeff;
+			for (int h=0; h <this.degree-1; h++){
+				feature*=feature;
+			}
+			return feature;
+		}
+		return Math.tanh(this.gammabfs * feature + this.coeff);
+	}
+	
+	/**
+	 * places the scaled row of a dense matrix in x
+	 */
+	private void load(fsmatrix data, int row, double x[]){
+		int offset=row*columns;
+		for (int h=0; h < columns; h++){
+			double val=data.data[offset+h];
+			if (Scaler!=null){
+				val=Scaler.transform(val, h);
+			}
+			x[h]=val;
+		}
+	}
+	/**
+	 * places the scaled elements [start,end) of a sparse matrix (sorted by row) in x
+	 */
+	private void load(smatrix data, int start, int end, double x[]){
+		for (int h=0; h < columns; h++){
+			x[h]=0.0;
+		}
+		for (int v=start; v < end; v++){
+			int h=data.mainelementpile[v];
+			double val=data.valuespile[v];
+			if (Scaler!=null){
+				val=Scaler.transform(val, h);
+			}
+			x[h]+=val;
+		}
+	}
+	/**
+	 * places the scaled row in x
+	 */
+	private void load(double data[], double x[]){
+		for (int h=0; h < columns; h++){
+			double val=data[h];
+			if (Scaler!=null){
+				val=Scaler.transform(val, h);
+			}
+			x[h]=val;
+		}
+	}
+	
+	/**
+	 * @param x : a dense scaled row
+	 * @param z : where the features are placed
+	 */
+	private void map(double x[], double z[]){
+		if (directions!=null){
+			for (int j=0; j < components; j++){
+				z[j]=offsets[j];
+			}
+			for (int h=0; h < columns; h++){
+				double val=x[h];
+				if (val==0.0){
+					continue;
+				}
+				int offset=h*components;
+				for (int j=0; j < components; j++){
+					z[j]+=val*directions[offset+j];
+				}
+			}
+			double norm=Math.sqrt(2.0/components);
+			for (int j=0; j < components; j++){
+				z[j]=norm*Math.cos(z[j]);
+			}
+		} else {
+			// forward substitution L z = k(x)
+			for (int a=0; a < components; a++){
+				double sum=kernel(x, 0, landmarks, a*columns);
+				for (int k=0; k < a; k++){
+					sum-=cholesky[a*components+k]*z[k];
+				}
+				z[a]=sum/cholesky[a*components+a];
+			}
+		}
+	}
+	
+	/**
+	 * @param data : the data
+	 * @return the features of each row
+	 */
+	public double [][] transform(fsmatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		if (data.GetColumnDimension()!=columns){
+			throw new IllegalStateException(" Number of predictors is not the same as the trained one: " +  columns + " <> " + data.GetColumnDimension());	
+		}
+		double x[]=new double [columns];
+		double z[][]=new double [data.GetRowDimension()][components];
+		for (int i=0; i < z.length; i++){
+			load(data, i, x);
+			map(x, z[i]);
+		}
+		return z;
+	}
+	/**
+	 * @param data : the data
+	 * @return the features of each row
+	 */
+	public double [][] transform(smatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		if (data.GetColumnDimension()!=columns){
+			throw new IllegalStateException(" Number of predictors is not the same as the trained one: " +  columns + " <> " + data.GetColumnDimension());	
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		double x[]=new double [columns];
+		double z[][]=new double [data.GetRowDimension()][components];
+		for (int i=0; i < z.length; i++){
+			load(data, data.indexpile[i], data.indexpile[i+1], x);
+			map(x, z[i]);
+		}
+		return z;
+	}
+	/**
+	 * @param data : the data
+	 * @return the features of each row
+	 */
+	public double [][] transform(double data[][]){
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		if (data[0].length!=columns){
+			throw new IllegalStateException(" Number of predictors is not the same as the trained one: " +  columns + " <> " + data[0].length);	
+		}
+		double x[]=new double [columns];
+		double z[][]=new double [data.length][components];
+		for (int i=0; i < z.length; i++){
+			load(data[i], x);
+			map(x, z[i]);
+		}
+		return z;
+	}
+	/**
+	 * @param data : a row
+	 * @return the features of the row
+	 */
+	public double [] transform_row(double data[]){
+		double x[]=new double [columns];
+		double z[]=new double [components];
+		load(data, x);
+		map(x, z);
+		return z;
+	}
+	/**
+	 * @param data : the data
+	 * @param row : the row
+	 * @return the features of the row
+	 */
+	public double [] transform_row(fsmatrix data, int row){
+		double x[]=new double [columns];
+		double z[]=new double [components];
+		load(data, row, x);
+		map(x, z);
+		return z;
+	}
+	/**
+	 * @param data : the data (sorted by row)
+	 * @param start : first element of the row
+	 * @param end : end of the elements of the row
+	 * @return the features of the row
+	 */
+	public double [] transform_row(smatrix data, int start, int end){
+		double x[]=new double [columns];
+		double z[]=new double [components];
+		load(data, start, end, x);
+		map(x, z);
+		return z;
+	}
+
+}
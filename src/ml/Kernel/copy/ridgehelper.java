@@ -20,7 +20,6 @@ SOFTWARE.
 */
 
 package ml.Kernel.copy;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -73,6 +72,10 @@ public class ridgehelper implements Runnable {
 	 * Coefficient for poly
 	 */
 	public double coeff=1.0;	
+	/**
+	 * Megabytes of kernel rows to keep between the passes. 0 to compute them every time
+	 */
+	public double kernel_cache_mb=0.0;
 	/**
 	 * Scaler to use in case of usescale=true
 	 */
@@ -120,9 +123,13 @@ public class ridgehelper implements Runnable {
 	private double coeff_thresol=0.0;
 	
 	/**
-	 * The arrayList the holds the best cases
+	 * The array that holds the best cases. This helper writes only in its own slice [start,end) of it
 	 */
-	private ArrayList<Integer> indices_tokeep;
+	private int indices_tokeep[];
+	/**
+	 * Number of cases kept in the slice after the fit
+	 */
+	private int kept=0;
 	
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -146,9 +153,9 @@ public class ridgehelper implements Runnable {
 	 * @param per_thre: thresold parameter for percentage of cases that need to remain
 	 * @param coeff_thre : another threshold parameter for the coefficients' value
 	 * @param scs : a scaler object 
-	 * @param indkeep : arraylist to hold the indices worth keeping to proceed to the next elimination phases
+	 * @param indkeep : array (of the same length with indies) where the indices worth keeping to proceed to the next elimination phases are written , starting from st
 	 */
-	public ridgehelper(double data [][],int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,ArrayList<Integer> indkeep ){
+	public ridgehelper(double data [][],int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,int indkeep[] ){
 		
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to train on" );
@@ -171,6 +178,9 @@ public class ridgehelper implements Runnable {
 		if (coeff_thre>=1 || coeff_thre<=0 ){
 			throw new IllegalStateException(" coeff_thresol has to be (0,1)" );
 		}		
+		if (indkeep==null || indkeep.length<ed){
+			throw new IllegalStateException(" The array of the indices to keep needs to have at least " + ed + " elements" );
+		}
 
 		this.given_indices=indies;
 		this.start_array=st;
@@ -193,10 +203,10 @@ public class ridgehelper implements Runnable {
 	 * @param per_thre: thresold parameter for percentage of cases that need to remain
 	 * @param coeff_thre : another threshold parameter for the coefficients' value
 	 * @param scs : a scaler object 
-	 * @param indkeep : arraylist to hold the indices worth keeping to proceed to the next elimination phases
+	 * @param indkeep : array (of the same length with indies) where the indices worth keeping to proceed to the next elimination phases are written , starting from st
 	 */
 	
-	public ridgehelper(fsmatrix data,int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,ArrayList<Integer> indkeep ){
+	public ridgehelper(fsmatrix data,int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,int indkeep[] ){
 		
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to train on" );
@@ -219,6 +229,9 @@ public class ridgehelper implements Runnable {
 		if (coeff_thre>=1 || coeff_thre<=0 ){
 			throw new IllegalStateException(" coeff_thresol has to be (0,1)" );
 		}		
+		if (indkeep==null || indkeep.length<ed){
+			throw new IllegalStateException(" The array of the indices to keep needs to have at least " + ed + " elements" );
+		}
 	
 
 		this.given_indices=indies;
@@ -240,9 +253,9 @@ public class ridgehelper implements Runnable {
 	 * @param per_thre: thresold parameter for percentage of cases that need to remain
 	 * @param coeff_thre : another threshold parameter for the coefficients' value
 	 * @param scs : a scaler object 
-	 * @param indkeep : arraylist to hold the indices worth keeping to proceed to the next elimination phases
+	 * @param indkeep : array (of the same length with indies) where the indices worth keeping to proceed to the next elimination phases are written , starting from st
 	 */
-	public ridgehelper(smatrix data,int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,ArrayList<Integer> indkeep ){
+	public ridgehelper(smatrix data,int indies[], int st, int ed, double per_thre,double coeff_thre, scaler scs,int indkeep[] ){
 		
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to train on" );
@@ -265,6 +278,9 @@ public class ridgehelper implements Runnable {
 		if (coeff_thre>=1 || coeff_thre<=0 ){
 			throw new IllegalStateException(" coeff_thresol has to be (0,1)" );
 		}		
+		if (indkeep==null || indkeep.length<ed){
+			throw new IllegalStateException(" The array of the indices to keep needs to have at least " + ed + " elements" );
+		}
 		
 
 		this.given_indices=indies;
@@ -280,6 +296,13 @@ public class ridgehelper implements Runnable {
 	
 	
 
+	/**
+	 * @return the number of cases kept (written in the slice of the array of the indices to keep that starts from the start of the loop)
+	 */
+	public int getcount(){
+		return kept;
+	}
+
 //	/**
 //	 * 
 //	 * @return the betas
@@ -377,6 +400,7 @@ public class ridgehelper implements Runnable {
 			double constant=0.0;
 			double n []= new double[columndimension]; // sum of squared gradients
 			double features []= new double[columndimension]; // sum of squared gradients
+			kernelcache kernel_cache=kernelcache.create(columndimension, this.kernel_cache_mb);
 			
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
@@ -392,9 +416,16 @@ public class ridgehelper implements Runnable {
 	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=this.start_array; j < this.end_array; j++){
 		    		feature=0;
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j-this.start_array];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=0; h <data[0].length; h++){
 		    				double euc=Scaler.transform(data[i][h], h)-Scaler.transform(data[given_indices[j]][ h], h);
 		    				feature+=euc*euc;
@@ -422,6 +453,9 @@ public class ridgehelper implements Runnable {
 			    pred+=feature*betas[j-this.start_array];
 		    			
 		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}
 		    	
 		    	double residual=(pred-yi);
 		    	
@@ -466,11 +500,13 @@ public class ridgehelper implements Runnable {
 			double thress=n[location];
 			
 			/* find which cases to bring */
+			kept=0;
 			
 			for (int j=0; j < betas.length;j++){ 
 				feature=Math.abs(betas[j]);
 				if (feature>=thress && feature>=this.coeff_thresol){
-					this.indices_tokeep.add(this.given_indices[this.start_array+j]);
+					this.indices_tokeep[this.start_array+kept]=this.given_indices[this.start_array+j];
+					kept++;
 				}
 			}
 			
@@ -570,6 +606,7 @@ public class ridgehelper implements Runnable {
 			double constant=0.0;
 			double n []= new double[columndimension]; // sum of squared gradients
 			double features []= new double[columndimension]; // sum of squared gradients
+			kernelcache kernel_cache=kernelcache.create(columndimension, this.kernel_cache_mb);
 			
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
@@ -585,9 +622,16 @@ public class ridgehelper implements Runnable {
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=this.start_array; j < this.end_array; j++){
 		    		feature=0;
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j-this.start_array];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=0; h <data.GetColumnDimension(); h++){
 		    				double euc=Scaler.transform(data.GetElement(i, h), h)-Scaler.transform(data.GetElement(given_indices[j], h), h);
 		    				feature+=euc*euc;
@@ -615,6 +659,9 @@ public class ridgehelper implements Runnable {
 			    pred+=feature*betas[j-this.start_array];
 		    			
 		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}
 		    	
 		    	double residual=(pred-yi);
 		    	
@@ -659,11 +706,13 @@ public class ridgehelper implements Runnable {
 			double thress=n[location];
 
 			/* find which cases to bring */
+			kept=0;
 			
 			for (int j=0; j < betas.length;j++){ 
 				feature=Math.abs(betas[j]);
 				if (feature>=thress && feature>=this.coeff_thresol){
-					this.indices_tokeep.add(this.given_indices[this.start_array+j]);
+					this.indices_tokeep[this.start_array+kept]=this.given_indices[this.start_array+j];
+					kept++;
 				}
 			}
 			
@@ -763,6 +812,7 @@ public class ridgehelper implements Runnable {
 			double constant=0.0;
 			double n []= new double[columndimension]; // sum of squared gradients
 			double features []= new double[columndimension]; // sum of squared gradients
+			kernelcache kernel_cache=kernelcache.create(columndimension, this.kernel_cache_mb);
 			HashMap<Integer, Integer> has_index=null;
 
 			// iterative algorithms start here
@@ -783,10 +833,17 @@ public class ridgehelper implements Runnable {
 				}	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=this.start_array; j < this.end_array; j++){
 		    		feature=0;
 
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j-this.start_array];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int b=data.indexpile[given_indices[j]]; b <data.indexpile[given_indices[j]+1]; b++){
 		    				int h=data.mainelementpile[b];
 		    				double balue=data.valuespile[b];
@@ -836,6 +893,9 @@ public class ridgehelper implements Runnable {
 			    pred+=feature*betas[j-this.start_array];
 		    			
 		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}
 		    	
 		    	double residual=(pred-yi);
 		    	
@@ -880,11 +940,13 @@ public class ridgehelper implements Runnable {
 			double thress=n[location];
 			
 			/* find which cases to bring */
+			kept=0;
 			
 			for (int j=0; j < betas.length;j++){ 
 				feature=Math.abs(betas[j]);
 				if (feature>=thress && feature>=this.coeff_thresol){
-					this.indices_tokeep.add(this.given_indices[this.start_array+j]);
+					this.indices_tokeep[this.start_array+kept]=this.given_indices[this.start_array+j];
+					kept++;
 				}
 			}
 			
@@ -21,7 +21,6 @@ SOFTWARE.
 
 package ml.Kernel.copy;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Random;
@@ -129,6 +128,26 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 	 * Coefficient for poly
 	 */
 	public double coeff=1.0;	
+	/**
+	 * Approximation of the kernel with explicit features in place of the support vectors. It can be none, RFF (random Fourier features, RBF only) or NYSTROM
+	 */
+	public String approximation="none";
+	/**
+	 * Number of explicit features (or landmarks) when approximation is not none
+	 */
+	public int components=100;
+	/**
+	 * Megabytes of kernel rows to keep between the passes of SGD/FTRL. 0 to compute them every time
+	 */
+	public double kernel_cache_mb=64;
+	/**
+	 * The explicit feature map when approximation is not none
+	 */
+	private kernelfeatures featuremap;
+	/**
+	 * Rows already transformed with the feature map to use in the next fit (see {@link #setfeatures(kernelfeatures, double[][])})
+	 */
+	private double approximate_features[][];
 	
 	/**
 	 * threads to use
@@ -305,16 +324,19 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 
 	/**
 	 * 
-	 * @return the sparse matrix of support vectors
+	 * @return the sparse matrix of support vectors (null when approximation is not none)
 	 */
 	public smatrix getsupportvectorset(){
-		if (betas==null || betas.length<=0 || this.vectorset==null){
+		if (betas==null || betas.length<=0 || (this.vectorset==null && featuremap==null)){
 			throw new IllegalStateException(" estimator needs to be fitted first" );
 		}
 		return this.vectorset;
 	}
 	@Override
 	public double[][] predict2d(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -375,6 +397,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
       * @return the score
       */
 	public double[] predict(double[][] data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -432,6 +457,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 	
 	@Override
 	public double[][] predict2d(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -493,6 +521,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
      * @return the score
      */
 	public double[] predict(fsmatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -550,6 +581,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 	
 	@Override
 	public double[][] predict2d(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict2d(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -624,6 +658,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 	
 	@Override
 	public double[] predict(smatrix data) {
+		if (featuremap!=null){
+			return approximate_predict(featuremap.transform(data));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -697,6 +734,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 	}	
 	@Override
 	public double[] predict_Row2d(double[] data) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data));
+		}
 		
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
@@ -747,6 +787,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 
 	@Override
 	public double[] predict_Row2d(fsmatrix data, int row) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data, row));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -797,6 +840,9 @@ public class singlekernelmodel implements estimator,regressor,Runnable {
 
 	@Override
 	public double[] predict_Row2d(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row2d(featuremap.transform_row(data, start, end));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -863,6 +909,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(double[] data) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data));
+		}
 		if (data==null || data.length<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -909,6 +958,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(fsmatrix data, int row) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data, row));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -955,6 +1007,9 @@ return predictions;
 
 	@Override
 	public double predict_Row(smatrix data, int start, int end) {
+		if (featuremap!=null){
+			return approximate_predict_Row(featuremap.transform_row(data, start, end));
+		}
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -1108,6 +1163,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data[0].length;
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.length){
@@ -1140,7 +1209,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -1160,6 +1230,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -1173,10 +1244,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -1211,16 +1284,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -1231,7 +1308,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -1251,6 +1327,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -1278,6 +1355,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -1318,10 +1396,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data[i][ vectorset.mainelementpile[h]], vectorset.mainelementpile[h]);
@@ -1357,6 +1442,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 
 		    	//System.out.println(Arrays.toString(features));
@@ -1435,6 +1523,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -1488,11 +1577,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data[i][ vectorset.mainelementpile[h]], vectorset.mainelementpile[h]);
@@ -1538,7 +1634,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 
 			    
@@ -1735,6 +1834,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.GetRowDimension()){
@@ -1767,7 +1880,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -1787,6 +1901,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -1800,10 +1915,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -1838,16 +1955,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -1858,7 +1979,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -1878,6 +1998,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -1905,6 +2026,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -1946,10 +2068,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data.GetElement(i,  vectorset.mainelementpile[h]), vectorset.mainelementpile[h]);
@@ -1985,6 +2114,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 
 		    	//System.out.println(Arrays.toString(features));
@@ -2063,6 +2195,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2116,11 +2249,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				double euc=Scaler.transform(vectorset.valuespile[h], vectorset.mainelementpile[h])-Scaler.transform(data.GetElement(i,  vectorset.mainelementpile[h]), vectorset.mainelementpile[h]);
@@ -2166,7 +2306,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 
 		    	double yi=target[i];
@@ -2365,6 +2508,20 @@ return predictions;
 		
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
+		if (!this.approximation.equals("none")){
+			if (this.gammabfs<=0  ){
+				this.gammabfs=1.0/((double)this.columndimension); //gamma
+			}
+			double features[][]=approximate_features;
+			approximate_features=null;
+			if (features==null){
+				featuremap=kernelfeatures.fit(this.approximation, this.distance, this.components, this.gammabfs, this.degree, this.coeff, Scaler, data, this.seed);
+				features=featuremap.transform(data);
+			}
+			fit_approximate(features);
+			return;
+		}
+		featuremap=null;
 		//initialise beta
 		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
 			if (betas.length!=data.GetRowDimension()){
@@ -2397,7 +2554,8 @@ return predictions;
 		if (batch_size<1){
 			batch_size=1;
 		}	
-		ArrayList<Integer> temps_ints= new ArrayList<Integer>();
+		// each helper writes the cases it keeps in its own slice [start,end) of this array
+		int temps_ints []= new int [support_cases.length];
 		int counter=0;
 		int sum=0;
 		while(sum<support_cases.length){
@@ -2417,6 +2575,7 @@ return predictions;
 		}	
 		loop_list[loop_list.length-1]=support_cases.length;
 		Thread[] thread_array= new Thread[this.threads];
+		ridgehelper helpers []= new ridgehelper[loop_list.length-1];
 		// start the loop to find the support vectors 
 		int iters=0;
 		
@@ -2430,10 +2589,12 @@ return predictions;
 				
 				//Initialise an svc helper model
 				ridgehelper svc = new ridgehelper(data, support_cases ,  loop_list[n] ,  loop_list[n+1] , this.intpertokeep, this.intcoeffthres,Scaler,temps_ints);
+				helpers[n]=svc;
 				svc.C=this.C;
 				svc.learn_rate=this.learn_rate;
 				svc.gammabfs=this.gammabfs;
 				svc.coeff=this.coeff;
+				svc.kernel_cache_mb=this.kernel_cache_mb/this.threads;
 				svc.distance=this.distance;
 				svc.maxim_Iteration=this.intpasses;
 				svc.shuffle=this.shuffle;
@@ -2468,16 +2629,20 @@ return predictions;
 			
 			iters+=1;
 			
+			// compact the slices of the helpers into the chosen so far most influential observations (prefix sum of their counts)
+			int kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				kept+=helpers[n].getcount();
+			}
 			if (this.verbose==true){
-				System.out.println(" Completed Iteration : " + iters + " cases so far: " + temps_ints.size());	
+				System.out.println(" Completed Iteration : " + iters + " cases so far: " + kept);	
 			}
-			
-			// retrieve the array that hold the chosen so far most influential observations
-			support_cases =new int [temps_ints.size()];
-			
-
-			for (int g=0; g < support_cases.length;g++){
-				support_cases[g]=temps_ints.get(g);
+			support_cases =new int [kept];
+			kept=0;
+			for (int n=0; n <helpers.length; n++ ){
+				System.arraycopy(temps_ints, loop_list[n], support_cases, kept, helpers[n].getcount());
+				kept+=helpers[n].getcount();
+				helpers[n]=null;
 			}
 			
 			if (support_cases.length<=final_row_zise){
@@ -2488,7 +2653,6 @@ return predictions;
 					shuffleArray(support_cases,  random);
 				}	
 				
-				temps_ints= new ArrayList<Integer>();
 				counter=0;
 				sum=0;
 				while(sum<support_cases.length){
@@ -2508,6 +2672,7 @@ return predictions;
 				}	
 				loop_list[loop_list.length-1]=support_cases.length;
 				thread_array= new Thread[this.threads];
+				helpers= new ridgehelper[loop_list.length-1];
 				// start the loop to find the support vectors 			
 			
 			
@@ -2535,6 +2700,7 @@ return predictions;
 		}
 		
 		if (Type.equals("SGD")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2578,10 +2744,17 @@ return predictions;
 		    	
 		    	// compute score
 		    	// run the coefficients' loop
+		    	double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+		    	boolean cached=cached_row!=null;
+		    	if (cached){
+		    		System.arraycopy(cached_row, 0, features, 0, features.length);
+		    	}
 		    	for (int j=0; j <support_cases.length ; j++){
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				//unique_cases.add(vectorset.mainelementpile[h]);
 		    				int cc=vectorset.mainelementpile[h];
@@ -2633,6 +2806,9 @@ return predictions;
 		    		
 			    pred+=feature*betas[j];
 		    			
+		    	}
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
 		    	}	
 
 		    	//System.out.println(Arrays.toString(features));
@@ -2710,6 +2886,7 @@ return predictions;
 			
 			// end of SGD
 		} else if (Type.equals("FTRL")){
+			kernelcache kernel_cache=kernelcache.create(support_cases.length, this.kernel_cache_mb);
 			
 			// based on Tingru's code
 			if (this.learn_rate<=0.00000000000001){
@@ -2766,11 +2943,18 @@ return predictions;
 		    	
 		    	
 		    	// other features
+			    double cached_row[]=(kernel_cache==null)?null:kernel_cache.get(i);
+			    boolean cached=cached_row!=null;
+			    if (cached){
+			    	System.arraycopy(cached_row, 0, features, 0, features.length);
+			    }
 			    for (int j=0; j < support_cases.length; j++){	
 			    	
 		    		feature=0;
 		    		//unique_cases= new HashSet<Integer> (this.columndimension);
-		    		if (distance.equals("RBF")) {
+		    		if (cached){
+		    			feature=features[j];
+		    		} else if (distance.equals("RBF")) {
 		    			for (int h=vectorset.indexpile[j]; h <vectorset.indexpile[j+1]; h++){
 		    				int cc=vectorset.mainelementpile[h];
 		    				Integer ks=has_index.get(cc);
@@ -2830,7 +3014,10 @@ return predictions;
 			    
 			    pred+= BETA[j]*feature;	
 			    	
-			    }			     
+			    }
+		    	if (!cached && kernel_cache!=null){
+		    		kernel_cache.put(i, features);
+		    	}			     
 			    
 
 			    
@@ -2940,6 +3127,187 @@ return predictions;
 		}
 
 	}
+	/**
+	 * Sets an already fitted feature map and the rows of the data (that will be given to fit) transformed with it, so that
+	 * the models of the different classes do not need to transform the data again. Used only when approximation is not none
+	 * @param map : the fitted feature map
+	 * @param features : the transformed rows
+	 */
+	void setfeatures(kernelfeatures map, double features[][]){
+		this.featuremap=map;
+		this.approximate_features=features;
+	}
+	/**
+	 * Trains the coefficients on the explicit kernel features with the same SGD or FTRL updates that are used for the support vectors
+	 * @param features : the kernel features of each row
+	 */
+	private void fit_approximate(double features[][]){
+		int m=featuremap.GetColumnDimension();
+		betas= new double[m];
+		constant= new double[]{0.0};
+		support_cases=null;
+		vectorset=null;
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		random= new Random();
+		random.setSeed(seed);
+		double n []= new double[m]; // sum of squared gradients
+		double nc=0;
+		double feature=0.0;
+		
+		if (Type.equals("SGD")){
+			
+			for (int it=0; it <this.maxim_Iteration; it++){
+			    for (int k=0; k < features.length; k++){
+			    	int i=k;
+			    	if (this.shuffle){
+			    	 i=random.nextInt(features.length);
+			    	}
+			    	double z[]=features[i];
+			    	double pred=constant[0];
+			    	for (int j=0; j < m; j++){
+			    		pred+=z[j]*betas[j];
+			    	}
+			    	double residual=loss_gradient(pred-target[i]);
+			    	double gradient=residual+C*constant[0];
+			    	nc+=gradient*gradient;
+			    	constant[0]-=(this.learn_rate*gradient)/Math.sqrt(nc+this.smooth);
+			    	
+			    	for (int j=0; j < m;j++){
+			    		feature=z[j];
+			    		if (feature==0.0){
+			    			continue;
+			    		}
+			    		gradient=residual*feature+C*betas[j];
+			    		n[j]+=gradient*gradient;
+			    		betas[j]-=(this.learn_rate*gradient)/Math.sqrt(n[j]+this.smooth);
+			    	}
+			    }
+	    		if (verbose){
+	    			System.out.println("iteration: " + (it+1));
+	    		}
+			}
+			
+		} else if (Type.equals("FTRL")){
+			
+			if (this.l1C<=0){
+				throw new IllegalStateException(" L1C regularizer cannot be less equal to zero");
+			}
+			double BETA [] = new double[m];
+			for (int it=0; it <this.maxim_Iteration; it++){
+			    for (int k=0; k < features.length; k++){
+			    	int i=k;
+			    	if (this.shuffle){
+			    	 i=random.nextInt(features.length);
+			    	}
+			    	double z[]=features[i];
+			    	double Constant=ftrl_weight(constant[0], nc);
+			    	double pred=Constant;
+			    	for (int j=0; j < m; j++){
+			    		BETA[j]=ftrl_weight(betas[j], n[j]);
+			    		pred+= BETA[j]*z[j];
+			    	}
+			    	double gradient=loss_gradient(pred-target[i]);
+			    	double move=(Math.sqrt(nc + gradient * gradient) - Math.sqrt(nc)) / this.learn_rate;
+			    	constant[0]+=gradient-move*Constant;
+			    	nc+=gradient*gradient;
+			    	
+			    	for (int j=0; j < m;j++){
+			    		feature=z[j];
+			    		if (feature==0.0){
+			    			continue;
+			    		}
+			    		double gradientx=gradient*feature+C*betas[j];
+			    		move=(Math.sqrt(n[j] + gradientx * gradientx) - Math.sqrt(n[j])) / this.learn_rate;
+			    		betas[j] += gradientx - move * BETA[j];
+			    		n[j] += gradientx * gradientx;
+			    	}
+			    }
+	    		if (verbose){
+	    			System.out.println("iteration: " + (it+1));
+	    		}
+			}
+			constant[0]=ftrl_weight(constant[0], nc);
+			for (int j=0; j < m; j++){
+				betas[j]=ftrl_weight(betas[j], n[j]);
+			}
+		}
+	}
+	/**
+	 * @param residual : prediction minus target
+	 * @return the derivative of the objective in respect to the prediction
+	 */
+	private double loss_gradient(double residual){
+		if (this.Objective.equals("RMSE")){
+			return residual;
+		}
+		double sign=0.0;
+		if (residual>0){
+			sign=1.0;
+		} else if (residual<0){
+			sign=-1.0;
+		}
+		if (this.Objective.equals("QUANTILE")){
+			sign*=this.tau;
+		} else if (!this.Objective.equals("MAE")){
+			sign=0.0;
+		}
+		return sign;
+	}
+	/**
+	 * @param z : the FTRL state of a coefficient
+	 * @param n : the sum of squared gradients of the coefficient
+	 * @return the coefficient
+	 */
+	private double ftrl_weight(double z, double n){
+		double sign=(z<0)?-1.0:1.0;
+		if (sign * z  <= l1C){
+			return 0.0;
+		}
+		return (sign * l1C - z) / (( 0.1+Math.sqrt(n)) / this.learn_rate + C);
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the score of the row
+	 */
+	private double approximate_predict_Row(double z[]){
+		double pred=constant[0];
+		for (int j=0; j < z.length; j++){
+			pred+=z[j]*betas[j];
+		}
+		return pred;
+	}
+	/**
+	 * @param z : the kernel features of a row
+	 * @return the score of the row in a 1-element array
+	 */
+	private double [] approximate_predict_Row2d(double z[]){
+		return new double []{approximate_predict_Row(z)};
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the scores of the rows
+	 */
+	private double [] approximate_predict(double Z[][]){
+		double predictions[]= new double [Z.length];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row(Z[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * @param Z : the kernel features of the rows
+	 * @return the scores of the rows in 1-column form
+	 */
+	private double [][] approximate_predict2d(double Z[][]){
+		double predictions[][]= new double [Z.length][];
+		for (int i=0; i < predictions.length; i++) {
+			predictions[i]=approximate_predict_Row2d(Z[i]);
+		}
+		return predictions;
+	}
+
 	@Override
 	public String GetType() {
 		return "regressor";
@@ -2970,7 +3338,10 @@ return predictions;
 		System.out.println("kernel type   "+ this.distance);
 		System.out.println("Std for RBF   "+ this.gammabfs);
 		System.out.println("degrees for POLY  "+ this.degree);
-		System.out.println("Coefficient for POLY  "+ this.coeff);	
+		System.out.println("Coefficient for POLY  "+ this.coeff);
+		System.out.println("Kernel approximation  "+ this.approximation);
+		System.out.println("Number of approximation components  "+ this.components);
+		System.out.println("Kernel cache (MB)  "+ this.kernel_cache_mb);	
 		System.out.println("Regularization value: "+ this.C);
 		System.out.println("Regularization L1 for FTLR: "+ this.l1C);		
 		System.out.println("Training method: "+ this.Type);	
@@ -3038,6 +3409,10 @@ return predictions;
 		gammabfs=0.01;
 		degree=2;
 		coeff=1.0;
+		approximation="none";
+		components=100;
+		kernel_cache_mb=64;
+		featuremap=null;
 		support_cases=null;
 		Scaler=null;
 		copy=true;
@@ -3054,7 +3429,7 @@ return predictions;
 		singlekernelmodel br = new singlekernelmodel();
 		br.constant=this.constant;
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
-		br.support_cases=support_cases.clone();
+		br.support_cases=(support_cases==null)?null:support_cases.clone();
 		br.RegularizationType=this.RegularizationType;
 		br.C=this.C;
 		br.l1C=this.l1C;
@@ -3075,6 +3450,10 @@ return predictions;
 		br.gammabfs=this.gammabfs;
 		br.degree=this.degree;
 		br.coeff=this.coeff;
+		br.approximation=this.approximation;
+		br.components=this.components;
+		br.kernel_cache_mb=this.kernel_cache_mb;
+		br.featuremap=this.featuremap;
 		br.usescale=this.usescale;
 		br.shuffle=this.shuffle;
 		br.learn_rate=this.learn_rate;
@@ -3134,6 +3513,9 @@ return predictions;
 				else if (metric.equals("gammabfs")) {this.gammabfs=Double.parseDouble(value);}
 				else if (metric.equals("degree")) {this.degree=Integer.parseInt(value);}
 				else if (metric.equals("coeff")) {this.coeff=Double.parseDouble(value);}
+				else if (metric.equals("approximation")) {this.approximation=value;}
+				else if (metric.equals("components")) {this.components=Integer.parseInt(value);}
+				else if (metric.equals("kernel_cache_mb")) {this.kernel_cache_mb=Double.parseDouble(value);}
 				else if (metric.equals("usescale")) {this.usescale=(value.equals("True")?true:false);}
 				else if (metric.equals("shuffle")) {this.shuffle=(value.equals("True")?true:false);}
 				else if (metric.equals("learn_rate")) {this.learn_rate=Double.parseDouble(value);}
@@ -22,8 +22,6 @@ SOFTWARE.
 package ml.LSVC;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 /**
  * 
  * Linear Support vector machine class runnable with 3 different optimisation methods:
@@ -164,6 +163,19 @@ public class LSVC implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -281,6 +293,7 @@ public class LSVC implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -649,11 +662,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -677,11 +686,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 			}
 		}
 		return predictions;
@@ -729,11 +734,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -757,11 +758,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -807,11 +804,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -835,11 +828,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -883,11 +872,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -910,11 +895,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -959,11 +940,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -986,11 +963,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -1036,11 +1009,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -1063,11 +1032,7 @@ public class LSVC implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -1109,32 +1074,18 @@ public class LSVC implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1176,7 +1127,7 @@ public class LSVC implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1225,7 +1176,7 @@ public class LSVC implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1323,31 +1274,18 @@ public class LSVC implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1389,7 +1327,7 @@ public class LSVC implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1418,6 +1356,7 @@ public class LSVC implements estimator,classifier {
 			svc.shuffle=this.shuffle;
 			svc.learn_rate=this.learn_rate;
 			svc.tolerance=this.tolerance;
+			svc.threads=this.threads;
 			if (usescale){
 				svc.setScaler(this.Scaler);
 				svc.usescale=true;
@@ -1437,7 +1376,7 @@ public class LSVC implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1535,31 +1474,18 @@ public class LSVC implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1614,7 +1540,7 @@ public class LSVC implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1644,6 +1570,7 @@ public class LSVC implements estimator,classifier {
 			svc.shuffle=this.shuffle;
 			svc.learn_rate=this.learn_rate;
 			svc.tolerance=this.tolerance;
+			svc.threads=this.threads;
 			if (usescale){
 				svc.setScaler(this.Scaler);
 				svc.usescale=true;
@@ -1659,11 +1586,15 @@ public class LSVC implements estimator,classifier {
 		}else {		
 		int count_of_live_threads=0;
 		int class_passed=0;
+		// with SGD all the one-vs-rest models are trained together , with one pass over the rows per iteration
+		boolean one_pass=Type.equals("SGD");
+		binaryLSVC models []= new binaryLSVC[n_classes];
+		double labels [][]= new double[n_classes][];
 		for (int n=0; n <n_classes; n++ ){
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1699,6 +1630,11 @@ public class LSVC implements estimator,classifier {
 			}
 			svc.SetBetas(betas[n], constants[n]);
 			svc.target=label;
+			if (one_pass){
+				models[n]=svc;
+				labels[n]=label;
+				continue;
+			}
 			thread_array[count_of_live_threads]= new Thread(svc);
 			thread_array[count_of_live_threads].start();
 			count_of_live_threads++;
@@ -1726,10 +1662,53 @@ public class LSVC implements estimator,classifier {
 				count_of_live_threads=0;
 			}
 		}		
-		
+		if (one_pass){
+			fit_one_pass(data, models, labels);
+			for (int n=0; n <n_classes; n++ ){
+				constant[n]= constants[n][0];
+			}
+		}
 		}
 		
 	}
+	/**
+	 * Trains the one-vs-rest models with SGD , all together. The classes are split in groups (one per thread)
+	 * and each group makes one pass over the rows per iteration , updating the coefficients of all its models with each row.
+	 * @param data : the data (sorted by row)
+	 * @param models : the models (one per class) with their coefficients already set
+	 * @param labels : the target of each model
+	 */
+	private void fit_one_pass(smatrix data, binaryLSVC models [], double labels [][]){
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		int groups=Math.min(this.threads, models.length);
+		Thread[] thread_array= new Thread[groups];
+		for (int g=0; g < groups; g++){
+			int st=g*models.length/groups;
+			int ed=(g+1)*models.length/groups;
+			binaryLSVC group_models []= new binaryLSVC[ed-st];
+			double group_labels [][]= new double[ed-st][];
+			for (int m=st; m < ed; m++){
+				group_models[m-st]=models[m];
+				group_labels[m-st]=labels[m];
+			}
+			svcovrhelper helper = new svcovrhelper(data, group_models, group_labels);
+			helper.maxim_Iteration=this.maxim_Iteration;
+			helper.shuffle=this.shuffle;
+			helper.seed=this.seed;
+			thread_array[g]= new Thread(helper);
+			thread_array[g].start();
+		}
+		for (int g=0; g < groups; g++){
+			try {
+				thread_array[g].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
 
 	@Override
 	public String GetType() {
@@ -1807,6 +1786,7 @@ public class LSVC implements estimator,classifier {
 		betas=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		RegularizationType="L2";
 		C=1.0;
 		l1C=1.0;
@@ -1836,6 +1816,7 @@ public class LSVC implements estimator,classifier {
 		br.constant=manipulate.copies.copies.Copy(this.constant);
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.RegularizationType=this.RegularizationType;
 		br.C=this.C;
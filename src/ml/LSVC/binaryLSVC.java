@@ -24,12 +24,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Random;
 
+import io.chunkreader;
 import preprocess.scaling.maxscaler;
 import preprocess.scaling.scaler;
 import exceptions.DimensionMismatchException;
 import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
+import ml.dualhelper;
 import ml.estimator;
 
 /**
@@ -1929,6 +1931,17 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 		            index[i] = i;
 		        }
 
+		        if (this.threads>1 && l>=2*this.threads){
+		        	// asynchronous dual coordinate descent : each thread owns a block of rows and all share the betas
+		        	svcdualhelper helpers []= new svcdualhelper[this.threads];
+		        	for (int t=0; t < helpers.length; t++){
+		        		helpers[t]= new svcdualhelper(data, target, alpha, QD, diag, upper_bound, betas, constant, Scaler,
+		        				(int)((long)t*l/helpers.length), (int)((long)(t+1)*l/helpers.length), new Random(random.nextLong()));
+		        		helpers[t].usescale=usescale;
+		        		helpers[t].UseConstant=UseConstant;
+		        	}
+		        	run_dual_helpers(helpers);
+		        } else {
 		        while (iter < max_iter) {
 		            PGmax_new = Double.NEGATIVE_INFINITY;
 		            PGmin_new = Double.POSITIVE_INFINITY;
@@ -2026,6 +2039,7 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 		            if (PGmax_old <= 0) PGmax_old = Double.POSITIVE_INFINITY;
 		            if (PGmin_old >= 0) PGmin_old = Double.NEGATIVE_INFINITY;
 		        }
+		        }
 
 		        // calculate objective value
 
@@ -2909,6 +2923,17 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 		            index[i] = i;
 		        }
 
+		        if (this.threads>1 && l>=2*this.threads){
+		        	// asynchronous dual coordinate descent : each thread owns a block of rows and all share the betas
+		        	svcdualhelper helpers []= new svcdualhelper[this.threads];
+		        	for (int t=0; t < helpers.length; t++){
+		        		helpers[t]= new svcdualhelper(data, target, alpha, QD, diag, upper_bound, betas, constant, Scaler,
+		        				(int)((long)t*l/helpers.length), (int)((long)(t+1)*l/helpers.length), new Random(random.nextLong()));
+		        		// like the serial loop , the sparse path works on the raw values
+		        		helpers[t].UseConstant=UseConstant;
+		        	}
+		        	run_dual_helpers(helpers);
+		        } else {
 		        while (iter < max_iter) {
 		            PGmax_new = Double.NEGATIVE_INFINITY;
 		            PGmin_new = Double.POSITIVE_INFINITY;
@@ -2992,6 +3017,7 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 		            if (PGmax_old <= 0) PGmax_old = Double.POSITIVE_INFINITY;
 		            if (PGmin_old >= 0) PGmin_old = Double.NEGATIVE_INFINITY;
 		        }
+		        }
 
 		        // calculate objective value
 
@@ -3348,7 +3374,7 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 			
 			double iteration_tol=Double.POSITIVE_INFINITY;
 			int it=0;
-			double nc=0;
+			double nc []= new double[]{0.0};
 			//initiali
 			// random number generator
 			random= new Random();
@@ -3367,138 +3393,7 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
 
-		    for (int k=0; k < data.GetRowDimension(); k++){
-		    	int i=k;
-
-		    	if (this.shuffle){
-		    	 i=random.nextInt(data.GetRowDimension());
-		    	}
-		    	/*
-				double BETA [] = new double [betas.length];
-				double Constant=0.0;
-		    	double pred=0;
-		    	*/
-		    	double pred=constant[0];
-		    	double yi=-1.0;
-		    	if (target[i]>0){
-		    		yi=1.0;
-		    	}
-		    	if (!this.RegularizationType.equals("L2") && Math.abs(constant[0])<=C){
-		    		pred=0.0;
-		    	}
-		    	// compute score
-		    	if (this.RegularizationType.equals("L2")){
-		    		for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
-		    		pred+=data.valuespile[j]*betas[data.mainelementpile[j]];
-		    	}
-		    	} else {
-		    		for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
-		        		if (Math.abs(betas[data.mainelementpile[j]]) >C)
-			    		pred+=data.valuespile[j]*betas[data.mainelementpile[j]];
-			    	}
-		    	}
-		    	
-		    	//we need to check if pred*yi is > 1
-		    	//if  pred*yi < 1 then the gradient is -yixi + C*beta
-		    	// if pred*yi >=1 then the gradient is C*beta
-		    	
-
-		    	// we update constant gradient
-		    	 if (UseConstant){
-				    	boolean is_first_gradient=true;
-				    	if (pred*yi>1){
-				    		is_first_gradient=false;
-				    		}
-		    		 boolean superceeds_regularization=true;
-		    		 double gradient=0 ;
-		    		 if (is_first_gradient==true){
-		    			 gradient=-yi;
-		    		 }
-		    		 if (this.RegularizationType.equals("L2")){
-		    			 gradient+=C*constant[0];
-		    		 } else{
-		    			 //get sign
-		    			 double sign=-1;
-		    			 
-		    			 if (constant[0]>0){
-		    				 sign=1.0;
-		 		    	}
-		    			 if (sign * constant[0]  <= C  && nc!=0.0){
-		    				// gradient=0.0;
-		    				 superceeds_regularization=false;
-		    			 } else{
-		    				 gradient+=C*sign*constant[0];
-		    			 }
-		    		 }
-		    		if (superceeds_regularization){
-		    		 nc+=gradient*gradient;
-		    		 double move=(this.learn_rate*gradient)/Math.sqrt(nc+0.00000000000001);
-		    		 constant[0]=constant[0]-move;
-		    		 
-		    		} else {
-		    			if (is_first_gradient==true){
-		    				 nc=(-yi)*(-yi);
-		    				 constant[0]=-yi;
-			    		 } else {
-		    			
-		    			 //nc=0;
-		    			 //constant[0]=0;
-			    		 }
-		    		}
-		    		 
-		    	 }
-		    	 for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
-		    		 int col_index=data.mainelementpile[j];
-		    		 double col_val=data.valuespile[j];
-		    		 boolean superceeds_regularization=true;
-		    		 boolean is_first_gradient=true;
-				    	if (pred*yi>=1){
-				    		is_first_gradient=false;
-				    		}
-				    	 double gradient=0.0;
-				    	if 	(is_first_gradient==true){
-				    		gradient=-col_val*yi;
-				    	}
-		    		 
-		    		 
-		    		 if (this.RegularizationType.equals("L2")){
-		    			 gradient+=C*betas[col_index];
-		    		 } else{
-		    			 //get sign
-		    			 double sign=-1;
-		    			 if (betas[col_index]>0){
-		    				 sign=1.0;  
-		 		    	}
-		    			 if (sign * betas[col_index]  <= C && n[col_index]!=0.0){
-		    				// gradient=0.0;
-		    				 superceeds_regularization=false;
-		    			 } else{
-		    				 gradient+=C*sign*betas[col_index];
-		    			 }
-		    		 }
-		    		 
-			    		if (superceeds_regularization){
-				    		 n[col_index]+=gradient*gradient;
-				    		 double move=(this.learn_rate*gradient)/Math.sqrt(n[col_index]+0.00000000000001);
-				    		 betas[col_index]=betas[col_index]-move;
-				    		 if (Math.abs(move)>iteration_tol){
-								 iteration_tol= Math.abs(move);
-							 }
-				    		} else {
-				    			
-				      			if (is_first_gradient==true){
-				    				 n[col_index]=(-col_val*yi)*(-col_val*yi);
-				    				 betas[col_index]=-col_val*yi;
-					    		 } else {
-				    			
-					    			 //n[j]=0;
-					    			 //betas[j]=0;
-					    		 }
-				    		}
-		    		
-		    	 }
-		    
-		    }
+			sgd_pass(data, target, n, nc);
              
 		    	
 	           //end of while
@@ -3674,6 +3569,254 @@ public class binaryLSVC implements estimator,classifier,Runnable {
 		}
 
 	}
+	/**
+	 * Out-of-core fit with SGD. The data is read in chunks from a file (see {@link chunkreader}) and maxim_Iteration passes
+	 * are made over it (one if not set), hence memory use does not depend on the number of rows. The target in the file needs to have values -1 and 1.
+	 * If usescale is true and the scaler is not fitted, a {@link maxscaler} is fitted with one extra pass over the file.
+	 * @param reader : the reader of the file to train on
+	 */
+	public void fit_stream(chunkreader reader) {
+		if (reader==null){
+			throw new IllegalStateException(" There is no reader to train on" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if ( !Type.equals("SGD")){
+			throw new IllegalStateException(" Only SGD is supported when reading the data in chunks" );
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (this.maxim_Iteration<=0){
+			this.maxim_Iteration=1; // one pass over the file
+		}
+		//initialize column dimension
+		columndimension=reader.GetColumnDimension();
+		// Initialise scaler with a pass over the file
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler=reader.fit_scaler();
+		}
+		// set random number generator 
+		random = new Random();
+		random.setSeed(seed);
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
+			if (betas.length!=columndimension){
+				throw new IllegalStateException(" The pre-given betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  columndimension);
+			}
+		} else { //Initialise beta if not given
+			betas= new double[columndimension];
+			constant= new double[]{0.0};
+		}
+		double n []= new double[columndimension]; // sum of squared gradients
+		double nc []= new double[]{0.0};
+		// each iteration is a pass over the file , while the next chunk is parsed in the background
+		for (int it=0; it <this.maxim_Iteration; it++){
+			reader.open();
+			while (reader.next()){
+				sgd_pass(reader.GetChunk(), reader.GetTarget(), n, nc);
+			}
+			reader.close();
+			if (verbose){
+				System.out.println("iteration: " + (it+1));
+			}
+		}
+	}
+	/**
+	 * Runs the dual coordinate descent epochs with all the helpers in parallel until the projected gradients
+	 * (over all helpers) are within the tolerance or maxim_Iteration epochs are reached. Shrinking is done by each helper
+	 * on its own rows with the thresholds of the previous epoch. After each epoch the coefficients are rebuilt from the changes of the helpers.
+	 * @param helpers : the helpers , one per thread
+	 */
+	private void run_dual_helpers(svcdualhelper helpers []){
+		double betas_start[]=betas.clone();
+		double constant_start=constant[0];
+		double PGmax_old = Double.POSITIVE_INFINITY;
+		double PGmin_old = Double.NEGATIVE_INFINITY;
+		int iter=0;
+		while (iter < maxim_Iteration) {
+			for (int t=0; t < helpers.length; t++){
+				helpers[t].PGmax_old=PGmax_old;
+				helpers[t].PGmin_old=PGmin_old;
+			}
+			dualhelper.run(helpers);
+			dualhelper.rebuild(helpers, betas_start, constant_start);
+			double PGmax_new = Double.NEGATIVE_INFINITY;
+			double PGmin_new = Double.POSITIVE_INFINITY;
+			boolean all_active=true;
+			for (int t=0; t < helpers.length; t++){
+				PGmax_new=Math.max(PGmax_new, helpers[t].PGmax_new);
+				PGmin_new=Math.min(PGmin_new, helpers[t].PGmin_new);
+				all_active=all_active && helpers[t].all_active();
+			}
+			if ( verbose){
+				System.out.println("Iteration: " + iter);
+			}
+			iter++;
+
+			if (PGmax_new - PGmin_new <= tolerance) {
+				if (all_active)
+					break;
+				else {
+					for (int t=0; t < helpers.length; t++){
+						helpers[t].reset_active();
+					}
+					PGmax_old = Double.POSITIVE_INFINITY;
+					PGmin_old = Double.NEGATIVE_INFINITY;
+					continue;
+				}
+			}
+			PGmax_old = PGmax_new;
+			PGmin_old = PGmin_new;
+			if (PGmax_old <= 0) PGmax_old = Double.POSITIVE_INFINITY;
+			if (PGmin_old >= 0) PGmin_old = Double.NEGATIVE_INFINITY;
+		}
+	}
+	/**
+	 * One SGD pass over the rows of a sparse matrix (sorted by row). The sums of squared gradients are held by the caller
+	 * so that the passes may continue over many parts of the data (e.g. see {@link #fit_stream(chunkreader)})
+	 * @param data : the data (sorted by row)
+	 * @param target : the target of the data with values -1 and 1
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 */
+	private void sgd_pass(smatrix data, double target[], double n[], double nc[]){
+		for (int k=0; k < data.GetRowDimension(); k++){
+			int i=k;
+			if (this.shuffle){
+				i=random.nextInt(data.GetRowDimension());
+			}
+			sgd_row(data, i, target[i], n, nc);
+		}
+	}
+	/**
+	 * One SGD update with one row of a sparse matrix (sorted by row). It is used by {@link #sgd_pass(smatrix, double[], double[], double[])}
+	 * and by the one-vs-rest models of {@link LSVC} that update the coefficients of all the classes with each row.
+	 * @param data : the data (sorted by row)
+	 * @param i : the row
+	 * @param target_value : the target of the row (higher than zero for the positive class)
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 */
+	void sgd_row(smatrix data, int i, double target_value, double n[], double nc[]){
+		    	double pred=constant[0];
+		    	double yi=-1.0;
+		    	if (target_value>0){
+		    		yi=1.0;
+		    	}
+		    	if (!this.RegularizationType.equals("L2") && Math.abs(constant[0])<=C){
+		    		pred=0.0;
+		    	}
+		    	// compute score
+		    	if (this.RegularizationType.equals("L2")){
+		    		for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
+		    		pred+=data.valuespile[j]*betas[data.mainelementpile[j]];
+		    	}
+		    	} else {
+		    		for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
+		        		if (Math.abs(betas[data.mainelementpile[j]]) >C)
+			    		pred+=data.valuespile[j]*betas[data.mainelementpile[j]];
+			    	}
+		    	}
+		    	
+		    	//we need to check if pred*yi is > 1
+		    	//if  pred*yi < 1 then the gradient is -yixi + C*beta
+		    	// if pred*yi >=1 then the gradient is C*beta
+		    	
+
+		    	// we update constant gradient
+		    	 if (UseConstant){
+				    	boolean is_first_gradient=true;
+				    	if (pred*yi>1){
+				    		is_first_gradient=false;
+				    		}
+		    		 boolean superceeds_regularization=true;
+		    		 double gradient=0 ;
+		    		 if (is_first_gradient==true){
+		    			 gradient=-yi;
+		    		 }
+		    		 if (this.RegularizationType.equals("L2")){
+		    			 gradient+=C*constant[0];
+		    		 } else{
+		    			 //get sign
+		    			 double sign=-1;
+		    			 
+		    			 if (constant[0]>0){
+		    				 sign=1.0;
+		 		    	}
+		    			 if (sign * constant[0]  <= C  && nc[0]!=0.0){
+		    				// gradient=0.0;
+		    				 superceeds_regularization=false;
+		    			 } else{
+		    				 gradient+=C*sign*constant[0];
+		    			 }
+		    		 }
+		    		if (superceeds_regularization){
+		    		 nc[0]+=gradient*gradient;
+		    		 double move=(this.learn_rate*gradient)/Math.sqrt(nc[0]+0.00000000000001);
+		    		 constant[0]=constant[0]-move;
+		    		 
+		    		} else {
+		    			if (is_first_gradient==true){
+		    				 nc[0]=(-yi)*(-yi);
+		    				 constant[0]=-yi;
+			    		 } else {
+		    			
+		    			 //nc[0]=0;
+		    			 //constant[0]=0;
+			    		 }
+		    		}
+		    		 
+		    	 }
+		    	 for (int j=data.indexpile[i]; j<data.indexpile[i+1]; j++ ) {
+		    		 int col_index=data.mainelementpile[j];
+		    		 double col_val=data.valuespile[j];
+		    		 boolean superceeds_regularization=true;
+		    		 boolean is_first_gradient=true;
+				    	if (pred*yi>=1){
+				    		is_first_gradient=false;
+				    		}
+				    	 double gradient=0.0;
+				    	if 	(is_first_gradient==true){
+				    		gradient=-col_val*yi;
+				    	}
+		    		 
+		    		 
+		    		 if (this.RegularizationType.equals("L2")){
+		    			 gradient+=C*betas[col_index];
+		    		 } else{
+		    			 //get sign
+		    			 double sign=-1;
+		    			 if (betas[col_index]>0){
+		    				 sign=1.0;  
+		 		    	}
+		    			 if (sign * betas[col_index]  <= C && n[col_index]!=0.0){
+		    				// gradient=0.0;
+		    				 superceeds_regularization=false;
+		    			 } else{
+		    				 gradient+=C*sign*betas[col_index];
+		    			 }
+		    		 }
+		    		 
+			    		if (superceeds_regularization){
+				    		 n[col_index]+=gradient*gradient;
+				    		 double move=(this.learn_rate*gradient)/Math.sqrt(n[col_index]+0.00000000000001);
+				    		 betas[col_index]=betas[col_index]-move;
+				    		} else {
+				    			
+				      			if (is_first_gradient==true){
+				    				 n[col_index]=(-col_val*yi)*(-col_val*yi);
+				    				 betas[col_index]=-col_val*yi;
+					    		 } else {
+				    			
+					    			 //n[j]=0;
+					    			 //betas[j]=0;
+					    		 }
+				    		}
+		    		
+		    	 }
+	}
 	@Override
 	public String GetType() {
 		return "classifier";
@@ -0,0 +1,232 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml.LSVC;
+
+import java.util.Random;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import ml.dualhelper;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> One epoch of the Liblinear dual coordinate descent (L2-regularized L1/L2-loss SVC) over a range of rows.
+ * Each helper owns the dual variables of its rows and keeps its own shrinking state , while the
+ * primal coefficients are shared and updated without locks by all helpers (asynchronous, PASSCoDe-style).
+ * After the epochs the caller rebuilds the coefficients from the changes of every helper (see {@link dualhelper}).</p>
+ */
+public class svcdualhelper extends dualhelper {
+
+	/**
+	 * The target variable with values -1 and 1
+	 */
+	private double target[];
+	/**
+	 * the dual variables (only the ones of this helper's rows are touched)
+	 */
+	private double alpha[];
+	/**
+	 * diagonal of the Q matrix
+	 */
+	private double QD[];
+	/**
+	 * diagonal shift per class
+	 */
+	private double diag[];
+	/**
+	 * upper bound of alpha per class
+	 */
+	private double upper_bound[];
+	/**
+	 * the rows of this helper , the first active_size of them are not shrunk
+	 */
+	private int index[];
+	/**
+	 * number of active rows
+	 */
+	private int active_size;
+	/**
+	 * Random number generator to use for the permutation of the rows
+	 */
+	private Random random;
+	/**
+	 * maximum projected gradient of the previous epoch over all helpers (used for shrinking)
+	 */
+	public double PGmax_old = Double.POSITIVE_INFINITY;
+	/**
+	 * minimum projected gradient of the previous epoch over all helpers (used for shrinking)
+	 */
+	public double PGmin_old = Double.NEGATIVE_INFINITY;
+	/**
+	 * maximum projected gradient of the last epoch
+	 */
+	public double PGmax_new;
+	/**
+	 * minimum projected gradient of the last epoch
+	 */
+	public double PGmin_new;
+
+	/**
+	 * @param data : the dense data
+	 * @param target : the target variable
+	 * @param alpha : the dual variables
+	 * @param QD : diagonal of the Q matrix
+	 * @param diag : diagonal shift per class
+	 * @param upper_bound : upper bound of alpha per class
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param Scaler : scaler object
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 * @param random : random number generator for the permutations
+	 */
+	public svcdualhelper(fsmatrix data, double target[], double alpha[], double QD[], double diag[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		this(target, alpha, QD, diag, upper_bound, betas, constant, Scaler, st, ed, random);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		this.fdata=data;
+	}
+	/**
+	 * @param data : the sparse data (sorted by row)
+	 * @param target : the target variable
+	 * @param alpha : the dual variables
+	 * @param QD : diagonal of the Q matrix
+	 * @param diag : diagonal shift per class
+	 * @param upper_bound : upper bound of alpha per class
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param Scaler : scaler object
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 * @param random : random number generator for the permutations
+	 */
+	public svcdualhelper(smatrix data, double target[], double alpha[], double QD[], double diag[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		this(target, alpha, QD, diag, upper_bound, betas, constant, Scaler, st, ed, random);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (!data.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse data needs to be sorted by row" );
+		}
+		this.sdata=data;
+	}
+
+	private svcdualhelper(double target[], double alpha[], double QD[], double diag[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		super(betas, constant, Scaler);
+		if (target==null || st<0 || ed>target.length || st>=ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.target=target;
+		this.alpha=alpha;
+		this.QD=QD;
+		this.diag=diag;
+		this.upper_bound=upper_bound;
+		this.random=random;
+		this.index=new int[ed-st];
+		for (int s=0; s <index.length; s++){
+			index[s]=st+s;
+		}
+		this.active_size=index.length;
+	}
+
+	/**
+	 * @return true if none of the rows is shrunk
+	 */
+	public boolean all_active(){
+		return active_size==index.length;
+	}
+	/**
+	 * restores all the shrunk rows
+	 */
+	public void reset_active(){
+		active_size=index.length;
+	}
+
+	@Override
+	public void run() {
+		PGmax_new = Double.NEGATIVE_INFINITY;
+		PGmin_new = Double.POSITIVE_INFINITY;
+
+		for (int i = 0; i < active_size; i++) {
+			int j = i + random.nextInt(active_size - i);
+			int temp=index[i];
+			index[i]=index[j];
+			index[j]=temp;
+		}
+
+		for (int s = 0; s < active_size; s++) {
+			int i = index[s];
+			double yi = target[i];
+			int yindex=(int) (yi + 1);
+			double G = dot(i);
+			if (UseConstant){
+				G +=constant[0] ;
+			}
+			G = G * yi - 1;
+
+			double C = upper_bound[yindex];
+			G += alpha[i] * diag[yindex];
+
+			double PG = 0;
+			if (alpha[i] == 0) {
+				if (G > PGmax_old) {
+					active_size--;
+					int temp=index[s];
+					index[s]=index[active_size];
+					index[active_size]=temp;
+					s--;
+					continue;
+				} else if (G < 0) {
+					PG = G;
+				}
+			} else if (alpha[i] == C) {
+				if (G < PGmin_old) {
+					active_size--;
+					int temp=index[s];
+					index[s]=index[active_size];
+					index[active_size]=temp;
+					s--;
+					continue;
+				} else if (G > 0) {
+					PG = G;
+				}
+			} else {
+				PG = G;
+			}
+
+			PGmax_new = Math.max(PGmax_new, PG);
+			PGmin_new = Math.min(PGmin_new, PG);
+
+			if (Math.abs(PG) > 1.0e-12) {
+				double alpha_old = alpha[i];
+				alpha[i] = Math.min(Math.max(alpha[i] - G / QD[i], 0.0), C);
+				double d = (alpha[i] - alpha_old) * yi;
+				update(i, d);
+			}
+		}
+	}
+
+}
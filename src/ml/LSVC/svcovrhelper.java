@@ -0,0 +1,100 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml.LSVC;
+
+import java.util.Random;
+
+import matrix.smatrix;
+
+/**
+ * <p> Trains a group of one-vs-rest {@link binaryLSVC} models with SGD in a single pass over the rows of a shared {@link smatrix}.
+ * Each row is read once and then updates the coefficients of every model of the group, instead of each model reading
+ * the whole data on its own. The rows are picked with the same seed as each model would use on its own.</p>
+ */
+public class svcovrhelper implements Runnable {
+
+	/**
+	 * The data to train on. It needs to be sorted by row
+	 */
+	private smatrix data;
+	/**
+	 * the models to train (their coefficients are already set)
+	 */
+	private binaryLSVC models[];
+	/**
+	 * the target of each model , with values -1 and 1
+	 */
+	private double labels[][];
+	/**
+	 * number of passes over the data
+	 */
+	public int maxim_Iteration=1;
+	/**
+	 * pick rows at random (with replacement)
+	 */
+	public boolean shuffle=true;
+	/**
+	 * seed to use for the random rows
+	 */
+	public int seed=1;
+
+	/**
+	 * @param data : the data to train on (sorted by row)
+	 * @param models : the models to train
+	 * @param labels : the target of each model
+	 */
+	public svcovrhelper(smatrix data, binaryLSVC models[], double labels[][]){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (!data.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse data needs to be sorted by row" );
+		}
+		if (models==null || labels==null || models.length!=labels.length || models.length==0){
+			throw new IllegalStateException(" There needs to be one target per model" );
+		}
+		this.data=data;
+		this.models=models;
+		this.labels=labels;
+	}
+
+	@Override
+	public void run() {
+		Random random = new Random();
+		random.setSeed(seed);
+		double n [][]= new double[models.length][data.GetColumnDimension()]; // sum of squared gradients
+		double nc [][]= new double[models.length][1];
+		int rows=data.GetRowDimension();
+		for (int it=0; it <this.maxim_Iteration; it++){
+			for (int k=0; k < rows; k++){
+				int i=k;
+				if (this.shuffle){
+					i=random.nextInt(rows);
+				}
+				for (int m=0; m < models.length; m++){
+					models[m].sgd_row(data, i, labels[m][i], n[m], nc[m]);
+				}
+			}
+		}
+	}
+
+}
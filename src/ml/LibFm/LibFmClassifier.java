@@ -22,8 +22,6 @@ SOFTWARE.
 package ml.LibFm;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -162,6 +161,19 @@ public class LibFmClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 
 	/**
@@ -275,6 +287,7 @@ public class LibFmClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -930,11 +943,7 @@ return predictions;
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1030,11 +1039,7 @@ return predictions;
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -1122,11 +1127,7 @@ return predictions;
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -1212,11 +1213,7 @@ return predictions;
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1302,11 +1299,7 @@ return predictions;
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1398,11 +1391,7 @@ return predictions;
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 	
 		return predictions;
@@ -1452,33 +1441,18 @@ return predictions;
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1525,7 +1499,7 @@ return predictions;
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1584,7 +1558,7 @@ return predictions;
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1701,33 +1675,18 @@ return predictions;
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1773,7 +1732,7 @@ return predictions;
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1827,7 +1786,7 @@ return predictions;
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1937,31 +1896,18 @@ return predictions;
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2014,7 +1960,7 @@ return predictions;
 				double label []= new double [data.GetRowDimension()];
 				for (int i=0; i < label.length; i++){
 					if (target!=null){
-						if ( (target[i]+"").equals(classes[1])){
+						if ( encoder.encode(target[i])==1){
 							label[i]=1.0;
 						} else {
 							label[i]=-1.0;	
@@ -2046,6 +1992,7 @@ return predictions;
 				logit.shuffle=this.shuffle;
 				logit.learn_rate=this.learn_rate;
 				logit.tolerance=this.tolerance;
+				logit.threads=this.threads; // Hogwild! threads in the sparse kernel
 
 				if (usescale){
 					logit.setScaler(this.Scaler);
@@ -2069,7 +2016,7 @@ return predictions;
 				double label []= new double [data.GetRowDimension()];
 				for (int i=0; i < label.length; i++){
 					if (target!=null){
-						if ( (target[i]+"").equals(classes[n])){
+						if ( encoder.encode(target[i])==n){
 							label[i]=1.0;
 						} else {
 							label[i]=-1.0;	
@@ -2216,6 +2163,7 @@ return predictions;
 		latent_features=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		C2=1;
 		smooth=0.1;
 		lfeatures=4;
@@ -2256,6 +2204,7 @@ return predictions;
 		
 
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		
 		
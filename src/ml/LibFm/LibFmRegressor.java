@@ -1832,6 +1832,7 @@ return predictions;
 				svc.shuffle=this.shuffle;
 				svc.learn_rate=this.learn_rate;
 				svc.tolerance=this.tolerance;
+				svc.threads=this.threads; // Hogwild! threads in the sparse kernel
 
 				if (usescale){
 					svc.setScaler(this.Scaler);
@@ -570,9 +570,9 @@ public class binaryLibFm implements estimator,classifier,Runnable {
 
     				
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];    					
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+    					double val=latent_features[column*this.lfeatures + f];    					
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
     				
     				//end latent features loop
     				}
@@ -633,9 +633,9 @@ public class binaryLibFm implements estimator,classifier,Runnable {
     				
     				
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];    					
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+    					double val=latent_features[column*this.lfeatures + f];    					
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
     				
     				//end latent features loop
     				}
@@ -812,9 +812,9 @@ public class binaryLibFm implements estimator,classifier,Runnable {
 
 				
 				for (int f=0; f <lfeatures; f++){
-					double val=latent_features[column*this.lfeatures + j];    					
-					sumone[j]+=val*current_fetaure;
-    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+					double val=latent_features[column*this.lfeatures + f];    					
+					sumone[f]+=val*current_fetaure;
+    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
 				
 				//end latent features loop
 				}
@@ -935,9 +935,9 @@ public class binaryLibFm implements estimator,classifier,Runnable {
     				
     				
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];    					
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;	
+    					double val=latent_features[column*this.lfeatures + f];    					
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;	
     				
     				//end latent features loop
     				}
@@ -1178,9 +1178,9 @@ public class binaryLibFm implements estimator,classifier,Runnable {
 				
 				for (int f=0; f <lfeatures; f++){
 					
-					double val=latent_features[column*this.lfeatures + j];    					
-					sumone[j]+=val*current_fetaure;
-    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+					double val=latent_features[column*this.lfeatures + f];    					
+					sumone[f]+=val*current_fetaure;
+    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
 				
 				//end latent features loop
 				}
@@ -1796,8 +1796,7 @@ public class binaryLibFm implements estimator,classifier,Runnable {
 		double[] past_gradients= new double [lfeatures*this.columndimension];
 		
 		double n []= new double[data.GetColumnDimension()]; // sum of squared gradients
-		double nc=0;
-		double current_fetaure=0.0;
+		double nc []= new double[]{0.0}; // sum of squared gradients for the constant
 		// Initialise latent features
 		for (int f=0; f <columndimension;f++ ){
 
@@ -1824,102 +1823,51 @@ public class binaryLibFm implements estimator,classifier,Runnable {
 			}
 			double iteration_tol=Double.POSITIVE_INFINITY;
 			int it=0;
-
-			// random number generator
+			
+			// one helper per thread over contiguous blocks of rows, all updating the same coefficients (Hogwild!)
+			int helpers=Math.min(this.threads, data.GetRowDimension());
+			libfmhelper [] helper_array= new libfmhelper[helpers];
+			int batch_size=data.GetRowDimension()/helpers;
+			for (int h=0; h <helpers; h++){
+				int st=h*batch_size;
+				int ed=(h==helpers-1)?data.GetRowDimension():st+batch_size;
+				Random rand=random;
+				if (helpers>1){
+					rand=new Random(seed + h);
+				}
+				libfmhelper fmhelper= new libfmhelper(data, target, betas, constant, latent_features,
+						n, past_gradients, nc, Scaler, st, ed, rand, lfeatures);
+				fmhelper.isClassification=true;
+				fmhelper.C=this.C;
+				fmhelper.C2=this.C2;
+				fmhelper.learn_rate=this.learn_rate;
+				fmhelper.smooth=this.smooth;
+				fmhelper.UseConstant=this.UseConstant;
+				fmhelper.usescale=this.usescale;
+				fmhelper.shuffle=this.shuffle;
+				helper_array[h]=fmhelper;
+			}
 
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
 				
-		    for (int k=0; k < data.GetRowDimension(); k++){
-		    	int s=k;
-
-		    	if (this.shuffle){
-		    	 s=random.nextInt(data.GetRowDimension());
-		    	}
-
-		    	double y=0.0;
-		    	if (target[s]>0){
-		    		y=1.0;
-		    	}
-	    		double sumone []= new double[lfeatures];
-	    		double sumtwo []= new double[lfeatures];
-	    		double productf=0.0;
-
-	    		double linear_pred=0.0;
-	    		
-	    		if (UseConstant){
-		    		 linear_pred=constant[0] ;
-		    		}
-	    		
-	    			for (int d =data.indexpile[s]; d <data.indexpile[s+1]; d++) {
-	    			int i=data.mainelementpile[d];	    			
-	    			current_fetaure=data.valuespile[d];
-	    			if (usescale){
-	    				current_fetaure=Scaler.transform(current_fetaure,i);
-	    			}
-	    				
-	    				linear_pred+=betas[i]*current_fetaure;
-	    				
-	    				for (int j=0; j <lfeatures; j++){
-	    					double val=latent_features[i*this.lfeatures + j];	    					
-	    					sumone[j]+=val*current_fetaure;
-		    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;	
-	    				
-	    				//end latent features loop
-	    				}
-	    			//end latent features loop	
-	    		}
-	    		
-	    		for (int j=0; j <lfeatures; j++){
-	    			productf+=((sumone[j]*sumone[j])-sumtwo[j]);
-	    		}
-	    		
-	
-	    		//calculate the final product
-	    		// the final prediction
-	    		double final_product =(linear_pred+productf);
-	    		
-	    		//convert to probability
-	    		final_product= 1. / (1. + Math.exp(-Math.max(Math.min(final_product, 35.), -35.)));
-	    		
-	    		// compute the residual
-	    		double residual=final_product-y;
-	    		
-		    		
-	            //update constant	
-	    		//compute gradient for constant
-	    		if (UseConstant){
-	    		double constant_gradient=residual+ C*constant[0];
-	            // update sum of squared gradients for constant		
-	    		nc+=constant_gradient*constant_gradient;
-	    		constant[0] -= this.learn_rate * ( constant_gradient ) /Math.sqrt(nc+smooth);
-	    		}		    				    			
-    			for (int d =data.indexpile[s]; d <data.indexpile[s+1]; d++) {
-    					int i=data.mainelementpile[d];	    			
-    					current_fetaure=data.valuespile[d];
-    					//beta updates
-    	    			if (usescale){
-    	    				current_fetaure=Scaler.transform(current_fetaure,i);
-    	    			}
-	    					double beta_gradient=residual*current_fetaure+ C*betas[i];
-	    					n[i]+=beta_gradient*beta_gradient;
-	    					betas[i]-=this.learn_rate* (beta_gradient)/Math.sqrt(n[i]+smooth);
-	    					
-	         				 if (Math.abs(betas[i])>iteration_tol){
-								 iteration_tol= Math.abs(betas[i]);
-							 }
-	    					
-	    					for (int f=0; f < lfeatures; f++){
-	    						double value=latent_features[i*this.lfeatures + f];
-	    						double factorgradient=residual*(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure))) + C2*value  ;
-	    						past_gradients[i*this.lfeatures + f]+=factorgradient*factorgradient;
-	    						latent_features[i*this.lfeatures + f]-=this.learn_rate* (factorgradient)/Math.sqrt(past_gradients[i*this.lfeatures + f]+smooth);
-	    					}
-	    					
-    					
-    			}
-		    		        
-		    }
+				if (helpers==1){
+					helper_array[0].run();
+				} else {
+					Thread[] thread_array= new Thread[helpers];
+					for (int h=0; h <helpers; h++){
+						thread_array[h]= new Thread(helper_array[h]);
+						thread_array[h].start();
+					}
+					for (int h=0; h <helpers; h++){
+						try {
+							thread_array[h].join();
+						} catch (InterruptedException e) {
+						   System.out.println(e.getMessage());
+						   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+						}
+					}
+				}
 		    	
 	           //end of while
 	            it++; 
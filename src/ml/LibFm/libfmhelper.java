@@ -0,0 +1,287 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml.LibFm;
+
+import java.util.Random;
+
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Sparse SGD kernel for the factorisation machines (one pass over a range of rows of an {@link smatrix}).
+ * The scaled values of a row and the per-factor sums are computed once and reused for both the prediction and the gradients.
+ * The latent features are held feature-major (feature*lfeatures + factor) in one contiguous array.
+ * When more than one helper runs on the same arrays the updates are done without locks (Hogwild!).</p>
+ */
+public class libfmhelper implements Runnable {
+
+	/**
+	 * The data to train on. It needs to be sorted by row
+	 */
+	private smatrix data;
+	/**
+	 * The target variable. For classification it needs to have values -1 and 1
+	 */
+	private double target[];
+	/**
+	 * coefficients (shared among the helpers)
+	 */
+	private double betas[];
+	/**
+	 * The cosntant value (shared among the helpers)
+	 */
+	private double constant[];
+	/**
+	 * latent features in feature-major order (shared among the helpers)
+	 */
+	private double latent_features[];
+	/**
+	 * sum of squared gradients for the coefficients
+	 */
+	private double n[];
+	/**
+	 * sum of squared gradients for the latent features
+	 */
+	private double past_gradients[];
+	/**
+	 * sum of squared gradients for the constant, in a 1-element array so that it can be shared
+	 */
+	private double nc[];
+	/**
+	 * Scaler to use in case of usescale=true
+	 */
+	private scaler Scaler;
+	/**
+	 * start of the rows' loop
+	 */
+	private int start=0;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end=0;
+	/**
+	 * Random number generator to use for shuffling
+	 */
+	private Random random;
+	/**
+	 * true for the binary (logistic) loss , false for regression
+	 */
+	public boolean isClassification=false;
+	/**
+	 * The objective for regression. It may be RMSE, MAE or QUANTILE
+	 */
+	public String Objective="RMSE";
+	/**
+	 * quantile value
+	 */
+	public double tau=0.5;
+	/**
+	 * Regularization value
+	 */
+	public double C=1.0;
+	/**
+	 * Regularization value for the latent features
+	 */
+	public double C2=1.0;
+	/**
+	 * Learning rate
+	 */
+	public double learn_rate=1.0;
+	/**
+	 * Initial Learning smooth value Rate
+	 */
+	public double smooth=1.0;
+	/**
+	 * Number of latent features
+	 */
+	public int lfeatures=4;
+	/**
+	 * If we want to use constant in the model
+	 */
+	public boolean UseConstant=true;
+	/**
+	 * scale the data on the fly
+	 */
+	public boolean usescale=true;
+	/**
+	 * pick rows at random (with replacement) within [start,end)
+	 */
+	public boolean shuffle=true;
+	/**
+	 * per-factor sums of the current row , reused for prediction and gradients
+	 */
+	private double sumone[];
+	/**
+	 * the scaled values of the current row
+	 */
+	private double row_values[];
+
+	/**
+	 * @param data : the data to train on (sorted by row)
+	 * @param target : the target variable
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param latent_features : latent features in feature-major order
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param past_gradients : sum of squared gradients for the latent features
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 * @param Scaler : scaler object
+	 * @param st : start of the (sub)loop
+	 * @param ed : end of the (sub)loop
+	 * @param random : random number generator for the shuffling
+	 * @param lfeatures : number of latent features
+	 */
+	public libfmhelper(smatrix data, double target[], double betas[], double constant[], double latent_features[],
+			double n[], double past_gradients[], double nc[], scaler Scaler, int st, int ed, Random random, int lfeatures){
+
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (target==null || target.length!=data.GetRowDimension()){
+			throw new IllegalStateException(" target array needs to be provided and must have the same length with the dataset"  );
+		}
+		if (st<0 || ed>data.GetRowDimension() || st>=ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		if (lfeatures<=0){
+			throw new IllegalStateException(" Number of Latent features has to be higher than 0" );
+		}
+		this.data=data;
+		this.target=target;
+		this.betas=betas;
+		this.constant=constant;
+		this.latent_features=latent_features;
+		this.n=n;
+		this.past_gradients=past_gradients;
+		this.nc=nc;
+		this.Scaler=Scaler;
+		this.start=st;
+		this.end=ed;
+		this.random=random;
+		this.lfeatures=lfeatures;
+		this.sumone=new double[lfeatures];
+		int max_row=0;
+		for (int s=st; s <ed; s++){
+			if (data.indexpile[s+1]-data.indexpile[s]>max_row){
+				max_row=data.indexpile[s+1]-data.indexpile[s];
+			}
+		}
+		this.row_values=new double[max_row];
+	}
+
+	/**
+	 *
+	 * @param residual : prediction minus target
+	 * @return the derivative of the loss in respect to the prediction
+	 */
+	private double loss_derivative(double residual){
+		if (isClassification || this.Objective.equals("RMSE")){
+			return residual;
+		}
+		double sign=0.0;
+		if (residual>0){
+			sign=1.0;
+		} else if (residual<0){
+			sign=-1.0;
+		}
+		if (this.Objective.equals("QUANTILE")){
+			sign*=this.tau;
+		}
+		return sign;
+	}
+
+	@Override
+	public void run() {
+		int rows=end-start;
+		for (int k=0; k < rows; k++){
+			int s=start+k;
+			if (this.shuffle){
+				s=start+random.nextInt(rows);
+			}
+			double y=target[s];
+			if (isClassification){
+				y=(target[s]>0)?1.0:0.0;
+			}
+			int first=data.indexpile[s];
+			int last=data.indexpile[s+1];
+
+			for (int f=0; f <lfeatures; f++){
+				sumone[f]=0.0;
+			}
+			double sumtwo=0.0;
+			double linear_pred=0.0;
+			if (UseConstant){
+				linear_pred=constant[0];
+			}
+			// single pass over the non zeros : scale once and accumulate the factor sums
+			for (int d=first; d <last; d++) {
+				int i=data.mainelementpile[d];
+				double current_fetaure=data.valuespile[d];
+				if (usescale){
+					current_fetaure=Scaler.transform(current_fetaure,i);
+				}
+				row_values[d-first]=current_fetaure;
+				linear_pred+=betas[i]*current_fetaure;
+				int offset=i*lfeatures;
+				double x2=current_fetaure*current_fetaure;
+				for (int f=0; f <lfeatures; f++){
+					double val=latent_features[offset + f];
+					sumone[f]+=val*current_fetaure;
+					sumtwo+=val*val*x2;
+				}
+			}
+			double productf=-sumtwo;
+			for (int f=0; f <lfeatures; f++){
+				productf+=sumone[f]*sumone[f];
+			}
+			double final_product=linear_pred+productf;
+			if (isClassification){
+				final_product= 1. / (1. + Math.exp(-Math.max(Math.min(final_product, 35.), -35.)));
+			}
+			double gradient=loss_derivative(final_product-y);
+
+			if (UseConstant){
+				double constant_gradient=gradient+ C*constant[0];
+				nc[0]+=constant_gradient*constant_gradient;
+				constant[0] -= this.learn_rate * ( constant_gradient ) /Math.sqrt(nc[0]+smooth);
+			}
+			// updates reuse the sums computed above
+			for (int d=first; d <last; d++) {
+				int i=data.mainelementpile[d];
+				double current_fetaure=row_values[d-first];
+				double beta_gradient=gradient*current_fetaure+ C*betas[i];
+				n[i]+=beta_gradient*beta_gradient;
+				betas[i]-=this.learn_rate* (beta_gradient)/Math.sqrt(n[i]+smooth);
+
+				int offset=i*lfeatures;
+				double x2=current_fetaure*current_fetaure;
+				for (int f=0; f < lfeatures; f++){
+					double value=latent_features[offset + f];
+					double factorgradient=gradient*(current_fetaure*(sumone[f] -(value*x2))) + C2*value;
+					past_gradients[offset + f]+=factorgradient*factorgradient;
+					latent_features[offset + f]-=this.learn_rate* (factorgradient)/Math.sqrt(past_gradients[offset + f]+smooth);
+				}
+			}
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ package ml.LibFm;
 
 import java.util.Random;
 
+import io.chunkreader;
 import preprocess.scaling.maxscaler;
 import preprocess.scaling.scaler;
 import exceptions.DimensionMismatchException;
@@ -570,9 +571,9 @@ public class singleLibFm implements estimator,regressor,Runnable {
     				
     				
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+    					double val=latent_features[column*this.lfeatures + f];
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
     				
     				//end latent features loop
     				}
@@ -631,9 +632,9 @@ public class singleLibFm implements estimator,regressor,Runnable {
     				
     				
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+    					double val=latent_features[column*this.lfeatures + f];
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
     				
     				//end latent features loop
     				}
@@ -804,9 +805,9 @@ public class singleLibFm implements estimator,regressor,Runnable {
 				linear_pred+=betas[column]*current_fetaure;
 				
 				for (int f=0; f <lfeatures; f++){
-					double val=latent_features[column*this.lfeatures + j];
-					sumone[j]+=val*current_fetaure;
-    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+					double val=latent_features[column*this.lfeatures + f];
+					sumone[f]+=val*current_fetaure;
+    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
 				
 				//end latent features loop
 				}
@@ -921,9 +922,9 @@ public class singleLibFm implements estimator,regressor,Runnable {
     				linear_pred+=betas[column]*current_fetaure;
 
     				for (int f=0; f <lfeatures; f++){
-    					double val=latent_features[column*this.lfeatures + j];
-    					sumone[j]+=val*current_fetaure;
-	    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;	
+    					double val=latent_features[column*this.lfeatures + f];
+    					sumone[f]+=val*current_fetaure;
+	    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;	
     				
     				//end latent features loop
     				}
@@ -1147,9 +1148,9 @@ public class singleLibFm implements estimator,regressor,Runnable {
 				linear_pred+=betas[column]*current_fetaure;
 
 				for (int f=0; f <lfeatures; f++){
-					double val=latent_features[column*this.lfeatures + j];
-					sumone[j]+=val*current_fetaure;
-    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
+					double val=latent_features[column*this.lfeatures + f];
+					sumone[f]+=val*current_fetaure;
+    				sumtwo[f]+=val*val*current_fetaure*current_fetaure;
 				//end latent features loop
 				}
 			
@@ -1840,8 +1841,7 @@ public class singleLibFm implements estimator,regressor,Runnable {
 		}	
 		double[] past_gradients= new double [lfeatures*this.columndimension];
 		double n []= new double[data.GetColumnDimension()]; // sum of squared gradients
-		double nc=0;
-		double current_fetaure=0.0;
+		double nc []= new double[]{0.0}; // sum of squared gradients for the constant
 		// Initialise latent features
 		for (int f=0; f <columndimension;f++ ){
 
@@ -1868,151 +1868,13 @@ public class singleLibFm implements estimator,regressor,Runnable {
 			}
 			double iteration_tol=Double.POSITIVE_INFINITY;
 			int it=0;
-
-			// random number generator
+			
+			libfmhelper [] helper_array=get_helpers(data, target, n, past_gradients, nc, random);
 
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
 				
-		    for (int k=0; k < data.GetRowDimension(); k++){
-		    	int s=k;
-
-		    	if (this.shuffle){
-		    	 s=random.nextInt(data.GetRowDimension());
-		    	}
-
-		    	double y=target[s];
-
-	    		double sumone []= new double[lfeatures];
-	    		double sumtwo []= new double[lfeatures];
-	    		double productf=0.0;
-
-	    		double linear_pred=0.0;
-	    		
-	    		if (UseConstant){
-		    		 linear_pred=constant[0] ;
-		    		}
-	    		
-	    			for (int d =data.indexpile[s]; d <data.indexpile[s+1]; d++) {
-	    			int i=data.mainelementpile[d];	    			
-	    			current_fetaure=data.valuespile[d];
-	    			if (usescale){
-	    				current_fetaure=Scaler.transform(current_fetaure,i);
-	    			}
-	    				
-	    				linear_pred+=betas[i]*current_fetaure;
-
-	    				for (int j=0; j <lfeatures; j++){
-	    					double val=latent_features[i*this.lfeatures + j];
-	    					sumone[j]+=val*current_fetaure;
-		    				sumtwo[j]+=val*val*current_fetaure*current_fetaure;
-	    				
-	    				//end latent features loop
-	    				}
-	    			//end latent features loop	
-	    		}
-	    		
-	    		for (int j=0; j <lfeatures; j++){
-	    			productf+=((sumone[j]*sumone[j])-sumtwo[j]);
-	    		}
-	    		
-	
-	    		//calculate the final product
-	    		// the final prediction
-	    		double final_product =(linear_pred+productf);
-	    		
-	    		
-	    		// compute the residual
-	    		double residual=final_product-y;
-	    		
-		    		
-	            //update constant	
-	    		//compute gradient for constant
-	    		 if (UseConstant){
-	 	    		double constant_gradient=0.0;
-	 	    		 if (this.Objective.equals("RMSE")){
-	 	    			 constant_gradient=residual;
-	 	    		 } else if  (this.Objective.equals("MAE")){
-	 	    			 if (residual>0){
-	 	    				 constant_gradient=1;
-	 	    			 } else if (residual<0){
-	 	    				 constant_gradient=-1;
-	 	    			 }
-	 	    		 }else if  (this.Objective.equals("QUANTILE")){
-	 	    			 if (residual>0){
-	 	    				 constant_gradient=1*this.tau;
-	 	    			 } else if (residual<0){
-	 	    				 constant_gradient=-1*this.tau;
-	 	    			 }
-	 	    		 }	    		
-	 	    		 constant_gradient+=C*constant[0];
-	            // update sum of squared gradients for constant		
-	    		nc+=constant_gradient*constant_gradient;
-	    		constant[0] -= this.learn_rate * ( constant_gradient ) /Math.sqrt(nc+smooth);
-	    		
-	    		}		    				    			
-    			for (int d =data.indexpile[s]; d <data.indexpile[s+1]; d++) {
-    					int i=data.mainelementpile[d];	    			
-    					current_fetaure=data.valuespile[d];
-    					//beta updates
-    	    			if (usescale){
-    	    				current_fetaure=Scaler.transform(current_fetaure,i);
-    	    			}
-	    				 double beta_gradient=0.0;
-					 	 if (this.Objective.equals("RMSE")){
-					 		beta_gradient=residual*current_fetaure;
-			    		 } else if  (this.Objective.equals("MAE")){
-			    			 if (residual>0){
-			    				 beta_gradient=current_fetaure;
-			    			 } else if (residual<0){
-			    				 beta_gradient=-current_fetaure;
-			    			 }
-			    		 }else if  (this.Objective.equals("QUANTILE")){
-			    			 if (residual>0){
-			    				 beta_gradient=current_fetaure*this.tau;
-			    			 } else if (residual<0){
-			    				 beta_gradient=-current_fetaure*this.tau;
-			    			 }
-			    		 }	   	    					
-
-	    					beta_gradient+=C*betas[i];
-	    					n[i]+=beta_gradient*beta_gradient;
-	    					betas[i]-=this.learn_rate* (beta_gradient)/Math.sqrt(n[i]+smooth);
-	    					
-	         				 if (Math.abs(betas[i])>iteration_tol){
-								 iteration_tol= Math.abs(betas[i]);
-							 }
-	    					
-	    					for (int f=0; f < lfeatures; f++){
-
-	    						double factorgradient=0.0;
-	    						double value=latent_features[i*this.lfeatures + f];
-		   					 	if (this.Objective.equals("RMSE")){
-		   					 	factorgradient=residual*(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure))) ;
-		 			    		} else if  (this.Objective.equals("MAE")){
-		 			    			 if (residual>0){
-		 			    				factorgradient=(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure)));
-		 			    			 } else if (residual<0){
-		 			    				factorgradient=-(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure)));
-		 			    			 }
-		 			    		}else if  (this.Objective.equals("QUANTILE")){
-		 			    			 if (residual>0){
-		 			    				factorgradient=(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure)))*this.tau;
-		 			    			 } else if (residual<0){
-		 			    				factorgradient=-(current_fetaure*(sumone[f] -(value*current_fetaure*current_fetaure)))*this.tau;
-		 			    			 }
-		 			    		}	    						
-
-	    						factorgradient+= C2*value;
-	    						
-	    						past_gradients[i*this.lfeatures + f]+=factorgradient*factorgradient;
-	    						latent_features[i*this.lfeatures + f]-=this.learn_rate* (factorgradient)/Math.sqrt(past_gradients[i*this.lfeatures + f]+smooth);
-	    					}
-
-    					
-    			}
-		    		        
-		    }
+				run_helpers(helper_array);
 		    	
 	           //end of while
 	            it++; 
@@ -2027,6 +1889,146 @@ public class singleLibFm implements estimator,regressor,Runnable {
 			// end of SGD
 		} 
 	}
+	/**
+	 * Out-of-core fit. The data is read in chunks from a file (see {@link chunkreader}) and maxim_Iteration passes
+	 * are made over it (one if not set), hence memory use does not depend on the number of rows.
+	 * Each chunk is trained with the sparse SGD kernel (see {@link libfmhelper}) using the given threads.
+	 * If usescale is true and the scaler is not fitted, a {@link maxscaler} is fitted with one extra pass over the file.
+	 * @param reader : the reader of the file to train on
+	 */
+	public void fit_stream(chunkreader reader) {
+		if (reader==null){
+			throw new IllegalStateException(" There is no reader to train on" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if (C2<=0){
+			throw new IllegalStateException(" The regularization Value of the latent features C2 needs to be higher than zero" );
+		}
+		if ( !Type.equals("SGD") ){
+			throw new IllegalStateException(" Type has to be SGD " );	
+		}
+		if ( !this.Objective.equals("MAE")&& !this.Objective.equals("QUANTILE") && !this.Objective.equals("RMSE"))  {
+			throw new IllegalStateException("the objective has to be one of RMSE,MAE or QUANTILE" );	
+		}	
+		if ( this.Objective.equals("QUANTILE") && (this.tau<=0 || this.tau>=1) )  {
+			throw new IllegalStateException("For  QUANTILE tau value needs to be in (0,1)" );	
+		}
+		if (this.lfeatures<=0){
+			throw new IllegalStateException(" Number of Latent features has to be higher than 0. You may use linear models instead." );	
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (this.maxim_Iteration<=0){
+			this.maxim_Iteration=1; // one pass over the file
+		}
+		if (this.threads<=0){
+			this.threads=Runtime.getRuntime().availableProcessors();
+		}
+		if (this.smooth<=0){
+			this.smooth=0.1;
+		}	
+		if (this.init_values<=0){
+			this.init_values=0.1;
+		}
+		//initialize column dimension
+		columndimension=reader.GetColumnDimension();
+		// Initialise scaler with a pass over the file
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler=reader.fit_scaler();
+		}
+		// set random number generator 
+		random = new Random();
+		random.setSeed(seed);
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
+			if (betas.length!=columndimension){
+				throw new IllegalStateException(" The pre-given betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  columndimension);
+			}
+		} else { //Initialise beta if not given
+			betas= new double[columndimension];
+			constant= new double[]{0.0};
+			latent_features=new  double[lfeatures*this.columndimension];
+		}	
+		double[] past_gradients= new double [lfeatures*this.columndimension];
+		double n []= new double[columndimension]; // sum of squared gradients
+		double nc []= new double[]{0.0}; // sum of squared gradients for the constant
+		// Initialise latent features
+		for (int f=0; f <columndimension;f++ ){
+			for (int j=0; j < lfeatures; j++){
+				latent_features[f*lfeatures + j]=random.nextDouble()+this.init_values;
+			} 
+		}
+		// each iteration is a pass over the file , while the next chunk is parsed in the background
+		for (int it=0; it <this.maxim_Iteration; it++){
+			reader.open();
+			while (reader.next()){
+				run_helpers(get_helpers(reader.GetChunk(), reader.GetTarget(), n, past_gradients, nc, random));
+			}
+			reader.close();
+			if (verbose){
+				System.out.println("iteration: " + (it+1));
+			}
+		}
+	}
+	/**
+	 * Creates one sparse SGD helper per thread over contiguous blocks of rows. All helpers update the same coefficients (Hogwild!)
+	 * @param data : the data (sorted by row)
+	 * @param target : the target of the data
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param past_gradients : sum of squared gradients for the latent features
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 * @param rand : the random number generator to use when there is only one helper
+	 * @return the helpers
+	 */
+	private libfmhelper [] get_helpers(smatrix data, double target [], double n [], double past_gradients [], double nc [], Random rand){
+		int helpers=Math.min(this.threads, data.GetRowDimension());
+		libfmhelper [] helper_array= new libfmhelper[helpers];
+		int batch_size=data.GetRowDimension()/helpers;
+		for (int h=0; h <helpers; h++){
+			int st=h*batch_size;
+			int ed=(h==helpers-1)?data.GetRowDimension():st+batch_size;
+			libfmhelper fmhelper= new libfmhelper(data, target, betas, constant, latent_features,
+					n, past_gradients, nc, Scaler, st, ed, (helpers>1)?new Random(rand.nextLong()):rand, lfeatures);
+			fmhelper.isClassification=false;
+			fmhelper.Objective=this.Objective;
+			fmhelper.tau=this.tau;
+			fmhelper.C=this.C;
+			fmhelper.C2=this.C2;
+			fmhelper.learn_rate=this.learn_rate;
+			fmhelper.smooth=this.smooth;
+			fmhelper.UseConstant=this.UseConstant;
+			fmhelper.usescale=this.usescale;
+			fmhelper.shuffle=this.shuffle;
+			helper_array[h]=fmhelper;
+		}
+		return helper_array;
+	}
+	/**
+	 * Makes one pass with the given helpers, each on its own thread
+	 * @param helper_array : the helpers to run
+	 */
+	private void run_helpers(libfmhelper [] helper_array){
+		if (helper_array.length==1){
+			helper_array[0].run();
+			return;
+		}
+		Thread[] thread_array= new Thread[helper_array.length];
+		for (int h=0; h <helper_array.length; h++){
+			thread_array[h]= new Thread(helper_array[h]);
+			thread_array[h].start();
+		}
+		for (int h=0; h <helper_array.length; h++){
+			try {
+				thread_array[h].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
 	@Override
 	public String GetType() {
 		return "regressor";
@@ -0,0 +1,365 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml.LinearRegression;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Helps parallelism when building the (weighted) normal equations X'WX and X'Wy.
+ * Each helper accumulates a block of rows into its own buffers . Dense rows are scaled once into a small row-block buffer
+ * and the upper triangle of X'WX is updated tile by tile so that the part of the output being updated stays in cache.
+ * The partial results of the helpers are summed and mirrored to the lower triangle at the end.</p>
+ */
+public class covariancehelper implements Runnable {
+
+	/**
+	 * rows in each block of dense rows
+	 */
+	private static final int ROW_BLOCK=64;
+	/**
+	 * columns in each tile of the output
+	 */
+	private static final int TILE=128;
+	/**
+	 * The object that holds the modelling data in double form in cases the user chooses this form
+	 */
+	private double dataset[][];
+	/**
+	 * The object that holds the modelling data in fsmatrix form cases the user chooses this form
+	 */
+	private fsmatrix fsdataset;
+	/**
+	 * The object that holds the modelling data in smatrix form cases the user chooses this form (sorted by row)
+	 */
+	private smatrix sdataset;
+	/**
+	 * the target variable
+	 */
+	private double target[];
+	/**
+	 * weighst to used per row(sample)
+	 */
+	private double weights[];
+	/**
+	 * Scaler to use in case of usescale=true
+	 */
+	private scaler Scaler;
+	/**
+	 * scale the data on the fly
+	 */
+	private boolean usescale=false;
+	/**
+	 * 1 if there is a constant in the model , 0 otherwise
+	 */
+	private int in=0;
+	/**
+	 * number of predictors
+	 */
+	private int columns=0;
+	/**
+	 * start of the rows' loop
+	 */
+	private int start=0;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end=0;
+	/**
+	 * partial X'WX (upper triangle) of this helper
+	 */
+	private double covariancev[];
+	/**
+	 * partial X'Wy of this helper
+	 */
+	private double second_part[];
+
+	/**
+	 * Builds X'WX (in covariancev) and X'Wy (in second_part) with many threads
+	 * @param data : the data
+	 * @param target : the target variable
+	 * @param weights : the weights of the rows
+	 * @param Scaler : scaler object
+	 * @param usescale : true to use scaling
+	 * @param UseConstant : true if the first row/column correspond to the constant
+	 * @param covariancev : place holder for X'WX of size (columns+constant)^2
+	 * @param second_part : place holder for X'Wy of size columns+constant
+	 * @param threads : threads to use
+	 */
+	public static void fill(double data [][], double target [], double weights [], scaler Scaler, boolean usescale,
+			boolean UseConstant, double covariancev [], double second_part [], int threads){
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		covariancehelper [] helpers= new covariancehelper [get_helpers(data.length, threads)];
+		for (int h=0; h <helpers.length; h++){
+			helpers[h]= new covariancehelper(target, weights, Scaler, usescale, UseConstant, data[0].length, data.length, h, helpers.length);
+			helpers[h].dataset=data;
+		}
+		run(helpers, covariancev, second_part);
+	}
+	/**
+	 * Builds X'WX (in covariancev) and X'Wy (in second_part) with many threads
+	 * @param data : the data
+	 * @param target : the target variable
+	 * @param weights : the weights of the rows
+	 * @param Scaler : scaler object
+	 * @param usescale : true to use scaling
+	 * @param UseConstant : true if the first row/column correspond to the constant
+	 * @param covariancev : place holder for X'WX of size (columns+constant)^2
+	 * @param second_part : place holder for X'Wy of size columns+constant
+	 * @param threads : threads to use
+	 */
+	public static void fill(fsmatrix data, double target [], double weights [], scaler Scaler, boolean usescale,
+			boolean UseConstant, double covariancev [], double second_part [], int threads){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		covariancehelper [] helpers= new covariancehelper [get_helpers(data.GetRowDimension(), threads)];
+		for (int h=0; h <helpers.length; h++){
+			helpers[h]= new covariancehelper(target, weights, Scaler, usescale, UseConstant, data.GetColumnDimension(), data.GetRowDimension(), h, helpers.length);
+			helpers[h].fsdataset=data;
+		}
+		run(helpers, covariancev, second_part);
+	}
+	/**
+	 * Builds X'WX (in covariancev) and X'Wy (in second_part) with many threads
+	 * @param data : the data (sorted by row)
+	 * @param target : the target variable
+	 * @param weights : the weights of the rows
+	 * @param Scaler : scaler object
+	 * @param usescale : true to use scaling
+	 * @param UseConstant : true if the first row/column correspond to the constant
+	 * @param covariancev : place holder for X'WX of size (columns+constant)^2
+	 * @param second_part : place holder for X'Wy of size columns+constant
+	 * @param threads : threads to use
+	 */
+	public static void fill(smatrix data, double target [], double weights [], scaler Scaler, boolean usescale,
+			boolean UseConstant, double covariancev [], double second_part [], int threads){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		covariancehelper [] helpers= new covariancehelper [get_helpers(data.GetRowDimension(), threads)];
+		for (int h=0; h <helpers.length; h++){
+			helpers[h]= new covariancehelper(target, weights, Scaler, usescale, UseConstant, data.GetColumnDimension(), data.GetRowDimension(), h, helpers.length);
+			helpers[h].sdataset=data;
+		}
+		run(helpers, covariancev, second_part);
+	}
+
+	/**
+	 * @return the number of helpers , so that each one gets at least a full block of rows
+	 */
+	private static int get_helpers(int rows, int threads){
+		if (threads<=0){
+			threads=1;
+		}
+		return Math.max(1, Math.min(threads, rows/ROW_BLOCK));
+	}
+
+	/**
+	 * runs the helpers, sums their buffers and mirrors the upper triangle
+	 */
+	private static void run(covariancehelper [] helpers, double covariancev [], double second_part []){
+		int L=second_part.length;
+		if (covariancev.length!=L*L){
+			throw new IllegalStateException(" The size of the covariance place holder is not valid");
+		}
+		if (helpers.length==1){
+			helpers[0].covariancev=covariancev;
+			helpers[0].second_part=second_part;
+			helpers[0].run();
+		} else {
+			Thread[] thread_array= new Thread[helpers.length];
+			for (int h=0; h <helpers.length; h++){
+				helpers[h].covariancev=(h==0)?covariancev:new double [L*L];
+				helpers[h].second_part=(h==0)?second_part:new double [L];
+				thread_array[h]= new Thread(helpers[h]);
+				thread_array[h].start();
+			}
+			for (int h=0; h <helpers.length; h++){
+				try {
+					thread_array[h].join();
+				} catch (InterruptedException e) {
+				   System.out.println(e.getMessage());
+				   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+				}
+			}
+			for (int h=1; h <helpers.length; h++){
+				double [] cov=helpers[h].covariancev;
+				for (int j=0; j <L; j++){
+					for (int d=j; d <L; d++){
+						covariancev[j*L + d]+=cov[j*L + d];
+					}
+					second_part[j]+=helpers[h].second_part[j];
+				}
+				helpers[h].covariancev=null;
+			}
+		}
+		// mirror
+		for (int j=0; j <L; j++){
+			for (int d=j+1; d <L; d++){
+				covariancev[d*L + j]=covariancev[j*L + d];
+			}
+		}
+	}
+
+	/**
+	 * @param target : the target variable
+	 * @param weights : the weights of the rows
+	 * @param Scaler : scaler object
+	 * @param usescale : true to use scaling
+	 * @param UseConstant : true if the first row/column correspond to the constant
+	 * @param columns : number of predictors
+	 * @param rows : number of rows
+	 * @param helper : the index of this helper
+	 * @param helpers : the total number of helpers
+	 */
+	private covariancehelper(double target [], double weights [], scaler Scaler, boolean usescale,
+			boolean UseConstant, int columns, int rows, int helper, int helpers){
+		this.target=target;
+		this.weights=weights;
+		this.Scaler=Scaler;
+		this.usescale=usescale;
+		this.in=UseConstant?1:0;
+		this.columns=columns;
+		int batch_size=rows/helpers;
+		this.start=helper*batch_size;
+		this.end=(helper==helpers-1)?rows:start+batch_size;
+	}
+
+	@Override
+	public void run() {
+		if (sdataset!=null){
+			run_sparse();
+		} else {
+			run_dense();
+		}
+	}
+
+	/**
+	 * accumulates dense rows block by block
+	 */
+	private void run_dense(){
+		int L=columns+in;
+		double block []= new double [ROW_BLOCK*columns];
+		double w []= new double [ROW_BLOCK];
+		for (int b=start; b <end; b+=ROW_BLOCK){
+			int block_rows=Math.min(ROW_BLOCK, end-b);
+			// scale each value once
+			for (int r=0; r <block_rows; r++){
+				int i=b+r;
+				int offset=r*columns;
+				w[r]=weights[i];
+				if (in==1){
+					covariancev[0]+=w[r];
+					second_part[0]+=target[i]*w[r];
+				}
+				for (int j=0; j <columns; j++){
+					double feature=(dataset!=null)?dataset[i][j]:fsdataset.GetElement(i, j);
+					if (feature!=0.0 && usescale){
+						feature=Scaler.transform(feature, j);
+					}
+					block[offset+j]=feature;
+					if (feature!=0.0){
+						second_part[j+in]+=feature*target[i]*w[r];
+						if (in==1){
+							covariancev[j+in]+=feature*w[r];
+						}
+					}
+				}
+			}
+			// upper triangle , tile by tile
+			for (int jt=0; jt <columns; jt+=TILE){
+				int jend=Math.min(columns, jt+TILE);
+				for (int dt=jt; dt <columns; dt+=TILE){
+					int dend=Math.min(columns, dt+TILE);
+					for (int r=0; r <block_rows; r++){
+						int offset=r*columns;
+						for (int j=jt; j <jend; j++){
+							double feature=block[offset+j];
+							if (feature==0.0){
+								continue;
+							}
+							feature*=w[r];
+							int out=(j+in)*L + in;
+							for (int d=Math.max(j, dt); d <dend; d++){
+								covariancev[out+d]+=feature*block[offset+d];
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * accumulates sparse rows, only over the pairs of non zero elements
+	 */
+	private void run_sparse(){
+		int L=columns+in;
+		int max_row=0;
+		for (int i=start; i <end; i++){
+			max_row=Math.max(max_row, sdataset.indexpile[i+1]-sdataset.indexpile[i]);
+		}
+		double row []= new double [max_row];
+		for (int i=start; i <end; i++){
+			int first=sdataset.indexpile[i];
+			int last=sdataset.indexpile[i+1];
+			double wi=weights[i];
+			if (in==1){
+				covariancev[0]+=wi;
+				second_part[0]+=target[i]*wi;
+			}
+			for (int s=first; s <last; s++){
+				int j=sdataset.mainelementpile[s];
+				double feature=sdataset.valuespile[s];
+				if (usescale){
+					feature=Scaler.transform(feature, j);
+				}
+				row[s-first]=feature;
+				second_part[j+in]+=feature*target[i]*wi;
+				if (in==1){
+					covariancev[j+in]+=feature*wi;
+				}
+			}
+			for (int s=first; s <last; s++){
+				int j=sdataset.mainelementpile[s];
+				double feature=row[s-first]*wi;
+				if (feature==0.0){
+					continue;
+				}
+				for (int ss=first; ss <last; ss++){
+					int d=sdataset.mainelementpile[ss];
+					if (d>=j){
+						covariancev[(j+in)*L + d+in]+=feature*row[ss-first];
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ package ml.LinearRegression;
 import java.util.HashSet;
 import java.util.Random;
 
+import io.chunkreader;
 import preprocess.scaling.maxscaler;
 import preprocess.scaling.scaler;
 import exceptions.DimensionMismatchException;
@@ -146,6 +147,14 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	 * The cosntant value
 	 */
 	private double[] constant;
+	/**
+	 * sums of squared gradients of the coefficients from the last SGD fit (to continue with partial_fit)
+	 */
+	private double squared_gradients[];
+	/**
+	 * sum of squared gradients of the constant from the last SGD fit , in a 1-element array
+	 */
+	private double constant_squared_gradient[];
 	/**
 	 * How many predictors the model has
 	 */
@@ -774,93 +783,15 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 				in=1;
 			}
 		    double BETAS[]= new double [columndimension+in];		
-            double second_part []= new double [BETAS.length];
-            double feature=0.0;
-            double feature2=0.0;
-		// calculate the Probabilities	
         	double covariancev[]= new double [(BETAS.length)*(BETAS.length)];
-        	// fill it in
-        	for (int i=0; i <data.length; i++ ){
-        		
-        		if (UseConstant){
-        			covariancev[0]+=1* weights[i];
-        					
-        			for (int d=0;d <data[0].length; d++ ){
-        				feature=data[i][d];
-        				if (feature==0.0){
-        					continue;
-        				}
-        				if (usescale){
-        					feature=Scaler.transform(feature, d);
-        				}
-        				covariancev[d+in]+= feature * weights[i];
-        			}
-        		
-            		for (int j=0; j <data[0].length; j++ ){
-            			
-        				feature=data[i][j];
-        				if (feature==0.0){
-        					continue;
-        				}        				
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}
-        				
-            			if (UseConstant){
-            				covariancev[(j+in)*BETAS.length]+= feature * weights[i];
-            			}
-                			
-            			for (int d=0;d <data[0].length; d++ ){
-            				
-            				feature2=data[i][d];
-            				if (feature2==0.0){
-            					continue;
-            				}            				
-            				if (usescale){
-            					feature2=Scaler.transform(feature2, d);
-            				}
-            				covariancev[(j+in)*BETAS.length + d+in]+= feature * feature2* weights[i];
-            			}
-            		}	
-        				
-        		}
-        		
-        	}
+        	// fill in X'WX and X'Wy (in BETAS) in parallel blocks of rows
+        	covariancehelper.fill(data, target, weights, Scaler, usescale, UseConstant, covariancev, BETAS, this.threads);
         	//add regularization parameter
         	for (int d=0;d <BETAS.length; d++ ){
         		covariancev[(d)*(BETAS.length) +d]+=C;
         	}
-
-        	// get inverse
-        	manipulate.matrixoperations.Inverse.GetInversethis(covariancev);
-        	
-        	// Xt*Yw
-
-        		for (int i=0; i <data.length; i++ ){
-        			if (UseConstant){
-        				second_part[0]+=target[i] * weights[i];
-        			}
-        			for (int j=0; j <data[0].length; j++ ){
-        				feature=data[i][j];
-        				if (feature==0.0){
-        					continue;
-        				}
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}        				
-        				second_part[j+in]+=feature*target[i] * weights[i];
-        			
-        		}
-        	}
-        	
-        	//betas
-        	
-        	
-        	for (int j=0; j <BETAS.length; j++ ){
-        		for (int i=0; i <BETAS.length; i++ ){
-        			BETAS[j]+=covariancev[i*BETAS.length + j] * second_part[i];
-        		}
-        	}
+        	// solve (X'WX + C*I)*BETAS=X'Wy without forming the inverse
+        	manipulate.matrixoperations.Inverse.CholeskySolvethis(covariancev, BETAS, this.threads);
         	
         	if (UseConstant){
         		constant[0]=BETAS[0];
@@ -985,6 +916,8 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=new double[]{nc};
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -1268,94 +1201,15 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 				in=1;
 			}
 		    double BETAS[]= new double [columndimension+in];		
-            double second_part []= new double [BETAS.length];
-            double feature=0.0;
-            double feature2=0.0;
-            
-		// calculate the Probabilities	
         	double covariancev[]= new double [(BETAS.length)*(BETAS.length)];
-        	// fill it in
-        	for (int i=0; i <data.GetRowDimension(); i++ ){
-        		
-        		if (UseConstant){
-        			covariancev[0]+=1* weights[i];
-        					
-        			for (int d=0;d <data.GetColumnDimension(); d++ ){
-        				 feature=data.GetElement(i, d);
-     		    		if (feature==0.0){
-    		    			continue;
-    		    		}
-        				if (usescale){
-        					feature=Scaler.transform(feature, d);
-        				}
-        				covariancev[d+in]+= feature * weights[i];
-        			}
-        		
-            		for (int j=0; j <data.GetColumnDimension(); j++ ){
-            			
-        				 feature=data.GetElement(i, j);
-     		    		if (feature==0.0){
-    		    			continue;
-    		    		}
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}
-        				
-            			if (UseConstant){
-            				covariancev[(j+in)*BETAS.length]+= feature * weights[i];
-            			}
-                			
-            			for (int d=0;d <data.GetColumnDimension(); d++ ){
-            				
-            				 feature2=data.GetElement(i, d);
-         		    		if (feature2==0.0){
-        		    			continue;
-        		    		}
-            				if (usescale){
-            					feature2=Scaler.transform(feature2, d);
-            				}
-            				covariancev[(j+in)*BETAS.length + d+in]+= feature * feature2* weights[i];
-            			}
-            		}	
-        				
-        		}
-        		
-        	}
+        	// fill in X'WX and X'Wy (in BETAS) in parallel blocks of rows
+        	covariancehelper.fill(data, target, weights, Scaler, usescale, UseConstant, covariancev, BETAS, this.threads);
         	//add regularization parameter
         	for (int d=0;d <BETAS.length; d++ ){
         		covariancev[(d)*(BETAS.length) +d]+=C;
         	}
-
-        	// get inverse
-        	manipulate.matrixoperations.Inverse.GetInversethis(covariancev);
-        	
-        	// Xt*Yw
-
-        		for (int i=0; i <data.GetRowDimension(); i++ ){
-        			if (UseConstant){
-        				second_part[0]+=target[i] * weights[i];
-        			}
-        			for (int j=0; j <data.GetColumnDimension(); j++ ){
-        				 feature=data.GetElement(i, j);
-     		    		if (feature==0.0){
-    		    			continue;
-    		    		}
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}        				
-        				second_part[j+in]+=feature*target[i] * weights[i];
-        			
-        		}
-        	}
-        	
-        	//betas
-        	
-        	
-        	for (int j=0; j <BETAS.length; j++ ){
-        		for (int i=0; i <BETAS.length; i++ ){
-        			BETAS[j]+=covariancev[i*BETAS.length + j] * second_part[i];
-        		}
-        	}
+        	// solve (X'WX + C*I)*BETAS=X'Wy without forming the inverse
+        	manipulate.matrixoperations.Inverse.CholeskySolvethis(covariancev, BETAS, this.threads);
         	
         	if (UseConstant){
         		constant[0]=BETAS[0];
@@ -1482,6 +1336,8 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=new double[]{nc};
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -1782,85 +1638,15 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 				in=1;
 			}
 		    double BETAS[]= new double [columndimension+in];		
-            double second_part []= new double [BETAS.length];
-            
-            
-		// calculate the Probabilities	
         	double covariancev[]= new double [(BETAS.length)*(BETAS.length)];
-        	// fill it in
-        	for (int i=0; i <data.GetRowDimension(); i++ ){
-        		
-        		if (UseConstant){
-        			covariancev[0]+=1* weights[i];
-        					
-        			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
-        				int d= data.mainelementpile[s];
-        				
-        				double feature=data.valuespile[s];
-        				if (usescale){
-        					feature=Scaler.transform(feature, d);
-        				}
-        				covariancev[d+in]+= feature * weights[i];
-        			}
-        		
-        			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
-        				int j= data.mainelementpile[s];
-        				double feature=data.valuespile[s];
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}
-        				
-            			if (UseConstant){
-            				covariancev[(j+in)*BETAS.length]+= feature * weights[i];
-            			}
-                			
-            			for (int ss=data.indexpile[i]; ss<data.indexpile[i+1]; ss++ ) {
-            				int d= data.mainelementpile[ss];
-            				
-            				double feature2=data.valuespile[ss];
-            				if (usescale){
-            					feature2=Scaler.transform(feature2, d);
-            				}
-            				covariancev[(j+in)*BETAS.length + d+in]+= feature * feature2* weights[i];
-            			}
-            		}	
-        				
-        		}
-        		
-        	}
+        	// fill in X'WX and X'Wy (in BETAS) in parallel blocks of rows
+        	covariancehelper.fill(data, target, weights, Scaler, usescale, UseConstant, covariancev, BETAS, this.threads);
         	//add regularization parameter
         	for (int d=0;d <BETAS.length; d++ ){
         		covariancev[(d)*(BETAS.length) +d]+=C;
         	}
-
-        	// get inverse
-        	manipulate.matrixoperations.Inverse.GetInversethis(covariancev);
-        	
-        	// Xt*Yw
-
-        		for (int i=0; i <data.GetRowDimension(); i++ ){
-        			if (UseConstant){
-        				second_part[0]+=target[i] * weights[i];
-        			}
-        			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
-        				int j= data.mainelementpile[s];
-        				double feature=data.valuespile[s];
-        				if (usescale){
-        					feature=Scaler.transform(feature, j);
-        				}        				
-        				second_part[j+in]+=feature*target[i] * weights[i];
-        			
-        		}
-        	}
-        	
-        	//betas
-        	
-        	
-        	for (int j=0; j <BETAS.length; j++ ){
-        		for (int i=0; i <BETAS.length; i++ ){
-        			BETAS[j]+=covariancev[i*BETAS.length + j] * second_part[i];
-        		}
-        	}
+        	// solve (X'WX + C*I)*BETAS=X'Wy without forming the inverse
+        	manipulate.matrixoperations.Inverse.CholeskySolvethis(covariancev, BETAS, this.threads);
         	
         	if (UseConstant){
         		constant[0]=BETAS[0];
@@ -1880,7 +1666,7 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 			}
 			double iteration_tol=Double.POSITIVE_INFINITY;
 			int it=0;
-			double nc=0;
+			double nc []= new double[]{0.0};
 			//initiali
 			// random number generator
 			random= new Random();
@@ -1890,91 +1676,7 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
 
-		    for (int k=0; k < data.GetRowDimension(); k++){
-		    	int i=k;
-
-		    	if (this.shuffle){
-		    	 i=random.nextInt(data.GetRowDimension());
-		    	}
-		    	double pred=constant[0];
-		    	double yi=target[i];
-	
-		    	// compute score
-		    		
-    			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
-    				int j= data.mainelementpile[s];
-    				double feature=data.valuespile[s];
-
-	    				if (usescale){
-	    					feature=Scaler.transform(feature, j);
-	    				}    
-			    		pred+=feature*betas[j];
-		    		
-		    		
-		    	}
-		    	
-		    	double residual=(pred-yi);
-		    	
-		    	// we update constant gradient
-		    	 if (UseConstant){
-		    		 double gradient=0 ;
-		    		 if (this.Objective.equals("RMSE")){
-		    			 gradient=residual;
-		    		 } else if  (this.Objective.equals("MAE")){
-		    			 if (residual>0){
-		    				 gradient=1;
-		    			 } else if (residual<0){
-		    				 gradient=-1;
-		    			 }
-		    		 }else if  (this.Objective.equals("QUANTILE")){
-		    			 if (residual>0){
-		    				 gradient=1*this.tau;
-		    			 } else if (residual<0){
-		    				 gradient=-1*this.tau;
-		    			 }
-		    		 }
-		    	     gradient+=C*constant[0];
-		    		 double move=(this.learn_rate*gradient)/Math.sqrt(nc+this.smooth);
-		    		 nc+=gradient*gradient;
-		    		 constant[0]=constant[0]-weights[i]*move; 
-		    	 }
-		    	 
-	    			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
-	    				int j= data.mainelementpile[s];
-	    				double feature=data.valuespile[s];
-		    		 	    		 
-	
-		    				if (usescale){
-		    					feature=Scaler.transform(feature, j);
-		    				}   
-				    	 double gradient=0.0;
-				    	 
-				    	 if (this.Objective.equals("RMSE")){
-			    			 gradient=residual*feature;
-			    		 } else if  (this.Objective.equals("MAE")){
-			    			 if (residual>0){
-			    				 gradient=feature;
-			    			 } else if (residual<0){
-			    				 gradient=-feature;
-			    			 }
-			    		 }else if  (this.Objective.equals("QUANTILE")){
-			    			 if (residual>0){
-			    				 gradient=feature*this.tau;
-			    			 } else if (residual<0){
-			    				 gradient=-feature*this.tau;
-			    			 }
-			    		 }	    		 
-		    		 
-		    			 gradient+=C*betas[j];
-
-			    		 double move=(this.learn_rate*gradient)/Math.sqrt(n[j]+this.smooth);
-			    		 n[j]+=gradient*gradient;
-			    		 betas[j]=betas[j]-weights[i]*move;
-
-		    		 	
-		    	 }
-		    
-		    }
+			sgd_pass(data, target, weights, n, nc);
              
 	           //end of while
 	            it++; 
@@ -1983,6 +1685,8 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=nc;
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -2171,6 +1875,246 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 		}
 
 	}
+	/**
+	 * Out-of-core fit with SGD. The data is read in chunks from a file (see {@link chunkreader}) and maxim_Iteration passes
+	 * are made over it (one if not set), hence memory use does not depend on the number of rows.
+	 * If usescale is true and the scaler is not fitted, a {@link maxscaler} is fitted with one extra pass over the file.
+	 * @param reader : the reader of the file to train on
+	 */
+	public void fit_stream(chunkreader reader) {
+		if (reader==null){
+			throw new IllegalStateException(" There is no reader to train on" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if ( !this.Objective.equals("MAE")&& !this.Objective.equals("QUANTILE") && !this.Objective.equals("RMSE"))  {
+			throw new IllegalStateException("the objective has to be one of RMSE,MAE or QUANTILE" );	
+		}
+		if (this.smooth<0.0){
+			throw new IllegalStateException(" smooth value cannot be less  than 0");
+		}
+		if ( !Type.equals("SGD")){
+			throw new IllegalStateException(" Only SGD is supported when reading the data in chunks" );
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (this.maxim_Iteration<=0){
+			this.maxim_Iteration=1; // one pass over the file
+		}
+		//initialize column dimension
+		columndimension=reader.GetColumnDimension();
+		// Initialise scaler with a pass over the file
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler=reader.fit_scaler();
+		}
+		// set random number generator 
+		random = new Random();
+		random.setSeed(seed);
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
+			if (betas.length!=columndimension){
+				throw new IllegalStateException(" The pre-given betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  columndimension);
+			}
+		} else { //Initialise beta if not given
+			betas= new double[columndimension];
+			constant= new double[]{0.0};
+		}
+		double n []= new double[columndimension]; // sum of squared gradients
+		double nc []= new double[]{0.0};
+		double row_weights []= new double[reader.chunk_rows]; // the rows of the file are not weighted
+		for (int i=0; i < row_weights.length; i++){
+			row_weights[i]=1.0;
+		}
+		// each iteration is a pass over the file , while the next chunk is parsed in the background
+		for (int it=0; it <this.maxim_Iteration; it++){
+			reader.open();
+			while (reader.next()){
+				sgd_pass(reader.GetChunk(), reader.GetTarget(), row_weights, n, nc);
+			}
+			reader.close();
+			if (verbose){
+				System.out.println("iteration: " + (it+1));
+			}
+		}
+		squared_gradients=n;
+		constant_squared_gradient=nc;
+	}
+	/**
+	 * Incremental fit with SGD. One pass is made over the new rows, continuing from the current coefficients and from the sums of squared
+	 * gradients of the previous (SGD) fit, so that a fitted model can be refreshed with new data without a full refit. The rows are not weighted.
+	 * If the model is not fitted yet it starts from zero coefficients. The scaler is only fitted (on the given rows) when it is not fitted already.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(fsmatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		int rows []= new int [data.GetRowDimension()];
+		for (int i=0; i < rows.length; i++){
+			rows[i]=i;
+		}
+		partial_fit(new smatrix(data, rows), target);
+	}
+	/**
+	 * Incremental fit with SGD. One pass is made over the new rows, continuing from the current coefficients and from the sums of squared
+	 * gradients of the previous (SGD) fit, so that a fitted model can be refreshed with new data without a full refit. The rows are not weighted.
+	 * If the model is not fitted yet it starts from zero coefficients. The scaler is only fitted (on the given rows) when it is not fitted already.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(smatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (target==null || target.length!=data.GetRowDimension()){
+			throw new IllegalStateException(" target array needs to be provided with the same length as the data" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if ( !this.Objective.equals("MAE")&& !this.Objective.equals("QUANTILE") && !this.Objective.equals("RMSE"))  {
+			throw new IllegalStateException("the objective has to be one of RMSE,MAE or QUANTILE" );	
+		}
+		if (this.smooth<0.0){
+			throw new IllegalStateException(" smooth value cannot be less  than 0");
+		}
+		if ( !Type.equals("SGD")){
+			throw new IllegalStateException(" Only SGD is supported for incremental updates" );
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){
+			if (betas.length!=data.GetColumnDimension()){
+				throw new IllegalStateException(" The fitted betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  data.GetColumnDimension());
+			}
+		} else {
+			betas= new double[data.GetColumnDimension()];
+			constant= new double[]{0.0};
+			squared_gradients=null;
+		}
+		columndimension=data.GetColumnDimension();
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler = new maxscaler();
+			Scaler.fit(data);
+		}
+		if (random==null){
+			random = new Random();
+			random.setSeed(seed);
+		}
+		if (squared_gradients==null || squared_gradients.length!=columndimension){
+			squared_gradients= new double[columndimension];
+			constant_squared_gradient= new double[]{0.0};
+		}
+		double row_weights []= new double[data.GetRowDimension()];
+		for (int i=0; i < row_weights.length; i++){
+			row_weights[i]=1.0;
+		}
+		sgd_pass(data, target, row_weights, squared_gradients, constant_squared_gradient);
+	}
+	/**
+	 * One SGD pass over the rows of a sparse matrix (sorted by row). The sums of squared gradients are held by the caller
+	 * so that the passes may continue over many parts of the data (e.g. see {@link #fit_stream(chunkreader)})
+	 * @param data : the data (sorted by row)
+	 * @param target : the target of the data
+	 * @param weights : the weights of the rows
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 */
+	private void sgd_pass(smatrix data, double target[], double weights[], double n[], double nc[]){
+		    for (int k=0; k < data.GetRowDimension(); k++){
+		    	int i=k;
+
+		    	if (this.shuffle){
+		    	 i=random.nextInt(data.GetRowDimension());
+		    	}
+		    	double pred=constant[0];
+		    	double yi=target[i];
+	
+		    	// compute score
+		    		
+    			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
+    				int j= data.mainelementpile[s];
+    				double feature=data.valuespile[s];
+
+	    				if (usescale){
+	    					feature=Scaler.transform(feature, j);
+	    				}    
+			    		pred+=feature*betas[j];
+		    		
+		    		
+		    	}
+		    	
+		    	double residual=(pred-yi);
+		    	
+		    	// we update constant gradient
+		    	 if (UseConstant){
+		    		 double gradient=0 ;
+		    		 if (this.Objective.equals("RMSE")){
+		    			 gradient=residual;
+		    		 } else if  (this.Objective.equals("MAE")){
+		    			 if (residual>0){
+		    				 gradient=1;
+		    			 } else if (residual<0){
+		    				 gradient=-1;
+		    			 }
+		    		 }else if  (this.Objective.equals("QUANTILE")){
+		    			 if (residual>0){
+		    				 gradient=1*this.tau;
+		    			 } else if (residual<0){
+		    				 gradient=-1*this.tau;
+		    			 }
+		    		 }
+		    	     gradient+=C*constant[0];
+		    		 double move=(this.learn_rate*gradient)/Math.sqrt(nc[0]+this.smooth);
+		    		 nc[0]+=gradient*gradient;
+		    		 constant[0]=constant[0]-weights[i]*move; 
+		    	 }
+		    	 
+	    			for (int s=data.indexpile[i]; s<data.indexpile[i+1]; s++ ) {
+	    				int j= data.mainelementpile[s];
+	    				double feature=data.valuespile[s];
+		    		 	    		 
+	
+		    				if (usescale){
+		    					feature=Scaler.transform(feature, j);
+		    				}   
+				    	 double gradient=0.0;
+				    	 
+				    	 if (this.Objective.equals("RMSE")){
+			    			 gradient=residual*feature;
+			    		 } else if  (this.Objective.equals("MAE")){
+			    			 if (residual>0){
+			    				 gradient=feature;
+			    			 } else if (residual<0){
+			    				 gradient=-feature;
+			    			 }
+			    		 }else if  (this.Objective.equals("QUANTILE")){
+			    			 if (residual>0){
+			    				 gradient=feature*this.tau;
+			    			 } else if (residual<0){
+			    				 gradient=-feature*this.tau;
+			    			 }
+			    		 }	    		 
+		    		 
+		    			 gradient+=C*betas[j];
+
+			    		 double move=(this.learn_rate*gradient)/Math.sqrt(n[j]+this.smooth);
+			    		 n[j]+=gradient*gradient;
+			    		 betas[j]=betas[j]-weights[i]*move;
+
+		    		 	
+		    	 }
+		    
+		    }
+	}
 	@Override
 	public String GetType() {
 		return "regressor";
@@ -2236,6 +2180,8 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	public void reset() {
 		constant=new double []{0.0};
 		betas=null;
+		squared_gradients=null;
+		constant_squared_gradient=null;
 		Objective="RMSE";
 		C=1.0;
 		l1C=1.0;
@@ -2262,8 +2208,12 @@ public class singleLinearRegression implements estimator,regressor,Runnable {
 	@Override
 	public estimator copy() {
 		singleLinearRegression br = new singleLinearRegression();
-		br.constant=this.constant;
+		br.constant=this.constant.clone();
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
+		if (this.squared_gradients!=null){
+			br.squared_gradients=this.squared_gradients.clone();
+			br.constant_squared_gradient=this.constant_squared_gradient.clone();
+		}
 		br.Objective=this.Objective;
 		br.C=this.C;
 		br.l1C=this.l1C;
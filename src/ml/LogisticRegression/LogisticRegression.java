@@ -22,8 +22,6 @@ SOFTWARE.
 package ml.LogisticRegression;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 /**
  * 
  * Logistic regression class runnable with 4 different optimisation methods:
@@ -157,6 +156,19 @@ public class LogisticRegression implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -276,6 +288,7 @@ public class LogisticRegression implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -702,11 +715,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -733,11 +742,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -790,11 +795,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -821,11 +822,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -874,11 +871,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		} else {
@@ -905,11 +898,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 	
 			}
 		
@@ -957,11 +946,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -987,11 +972,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -1039,11 +1020,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -1069,11 +1046,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -1122,11 +1095,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		} else {
 
@@ -1152,11 +1121,7 @@ public class LogisticRegression implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 
 		
@@ -1195,33 +1160,18 @@ public class LogisticRegression implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1267,7 +1217,7 @@ public class LogisticRegression implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1313,7 +1263,7 @@ public class LogisticRegression implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1409,31 +1359,18 @@ public class LogisticRegression implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1478,7 +1415,7 @@ public class LogisticRegression implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1505,6 +1442,7 @@ public class LogisticRegression implements estimator,classifier {
 			logit.shuffle=this.shuffle;
 			logit.learn_rate=this.learn_rate;
 			logit.tolerance=this.tolerance;
+			logit.threads=this.threads;
 			if (usescale){
 				logit.setScaler(this.Scaler);
 				logit.usescale=true;
@@ -1523,7 +1461,7 @@ public class LogisticRegression implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1620,31 +1558,18 @@ public class LogisticRegression implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1702,7 +1627,7 @@ public class LogisticRegression implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1732,6 +1657,7 @@ public class LogisticRegression implements estimator,classifier {
 			logit.shuffle=this.shuffle;
 			logit.learn_rate=this.learn_rate;
 			logit.tolerance=this.tolerance;
+			logit.threads=this.threads;
 
 			if (usescale){
 				logit.setScaler(this.Scaler);
@@ -1749,11 +1675,15 @@ public class LogisticRegression implements estimator,classifier {
 		
 		int count_of_live_threads=0;
 		int class_passed=0;
+		// with SGD all the one-vs-rest models are trained together , with one pass over the rows per iteration
+		boolean one_pass=Type.equals("SGD");
+		binarylogistic models []= new binarylogistic[n_classes];
+		double labels [][]= new double[n_classes][];
 		for (int n=0; n <n_classes; n++ ){
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1789,6 +1719,11 @@ public class LogisticRegression implements estimator,classifier {
 			}
 			logit.SetBetas(betas[n], constants[n]);
 			logit.target=label;
+			if (one_pass){
+				models[n]=logit;
+				labels[n]=label;
+				continue;
+			}
 			thread_array[count_of_live_threads]= new Thread(logit);
 			thread_array[count_of_live_threads].start();
 			count_of_live_threads++;
@@ -1816,10 +1751,53 @@ public class LogisticRegression implements estimator,classifier {
 				count_of_live_threads=0;
 			}
 		}		
-		
+		if (one_pass){
+			fit_one_pass(data, models, labels);
+			for (int n=0; n <n_classes; n++ ){
+				constant[n]= constants[n][0];
+			}
+		}
 		}
 		
 	}
+	/**
+	 * Trains the one-vs-rest models with SGD , all together. The classes are split in groups (one per thread)
+	 * and each group makes one pass over the rows per iteration , updating the coefficients of all its models with each row.
+	 * @param data : the data (sorted by row)
+	 * @param models : the models (one per class) with their coefficients already set
+	 * @param labels : the target of each model
+	 */
+	private void fit_one_pass(smatrix data, binarylogistic models [], double labels [][]){
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		int groups=Math.min(this.threads, models.length);
+		Thread[] thread_array= new Thread[groups];
+		for (int g=0; g < groups; g++){
+			int st=g*models.length/groups;
+			int ed=(g+1)*models.length/groups;
+			binarylogistic group_models []= new binarylogistic[ed-st];
+			double group_labels [][]= new double[ed-st][];
+			for (int m=st; m < ed; m++){
+				group_models[m-st]=models[m];
+				group_labels[m-st]=labels[m];
+			}
+			logisticovrhelper helper = new logisticovrhelper(data, group_models, group_labels, this.usescale?this.Scaler:null);
+			helper.maxim_Iteration=this.maxim_Iteration;
+			helper.shuffle=this.shuffle;
+			helper.seed=this.seed;
+			thread_array[g]= new Thread(helper);
+			thread_array[g].start();
+		}
+		for (int g=0; g < groups; g++){
+			try {
+				thread_array[g].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
 
 	@Override
 	public String GetType() {
@@ -1897,6 +1875,7 @@ public class LogisticRegression implements estimator,classifier {
 		betas=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		RegularizationType="L2";
 		C=1.0;
 		l1C=1.0;
@@ -1925,6 +1904,7 @@ public class LogisticRegression implements estimator,classifier {
 		br.constant=manipulate.copies.copies.Copy(this.constant);
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.RegularizationType=this.RegularizationType;
 		br.C=this.C;
@@ -24,12 +24,14 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Random;
 
+import io.chunkreader;
 import preprocess.scaling.maxscaler;
 import preprocess.scaling.scaler;
 import exceptions.DimensionMismatchException;
 import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
+import ml.dualhelper;
 import ml.estimator;
 
 /**
@@ -134,6 +136,14 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	 * The cosntant value
 	 */
 	private double[] constant;
+	/**
+	 * sums of squared gradients of the coefficients from the last SGD fit (to continue with partial_fit)
+	 */
+	private double squared_gradients[];
+	/**
+	 * sum of squared gradients of the constant from the last SGD fit , in a 1-element array
+	 */
+	private double constant_squared_gradient[];
 	/**
 	 * How many predictors the model has
 	 */
@@ -1772,6 +1782,8 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=new double[]{nc};
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -2067,6 +2079,18 @@ public class binarylogistic implements estimator,classifier,Runnable {
 		       
 		    }
 
+		    if (this.threads>1 && l>=2*this.threads){
+		    	// asynchronous dual coordinate descent : each thread owns a block of rows and all share the betas
+		    	logisticdualhelper helpers []= new logisticdualhelper[this.threads];
+		    	for (int t=0; t < helpers.length; t++){
+		    		helpers[t]= new logisticdualhelper(data, target, alpha, xTx, upper_bound, betas, constant, Scaler,
+		    				(int)((long)t*l/helpers.length), (int)((long)(t+1)*l/helpers.length), new Random(random.nextLong()));
+		    		helpers[t].usescale=usescale;
+		    		helpers[t].UseConstant=UseConstant;
+		    		helpers[t].max_inner_iter=max_inner_iter;
+		    	}
+		    	iter=run_dual_helpers(helpers, innereps, innereps_min);
+		    } else {
 		    while (iter < max_iter) {
 		        for (i = 0; i < l; i++) {
 		            int j = i +random.nextInt(l - i) ;
@@ -2159,6 +2183,7 @@ public class binarylogistic implements estimator,classifier,Runnable {
 		        }
 
 		    }
+		    }
 
 		    
 		    if (this.verbose){
@@ -2914,6 +2939,8 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=new double[]{nc};
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -3216,6 +3243,18 @@ public class binarylogistic implements estimator,classifier,Runnable {
 		       
 		    }
 
+		    if (this.threads>1 && l>=2*this.threads){
+		    	// asynchronous dual coordinate descent : each thread owns a block of rows and all share the betas
+		    	logisticdualhelper helpers []= new logisticdualhelper[this.threads];
+		    	for (int t=0; t < helpers.length; t++){
+		    		helpers[t]= new logisticdualhelper(data, target, alpha, xTx, upper_bound, betas, constant, Scaler,
+		    				(int)((long)t*l/helpers.length), (int)((long)(t+1)*l/helpers.length), new Random(random.nextLong()));
+		    		helpers[t].usescale=usescale;
+		    		helpers[t].UseConstant=UseConstant;
+		    		helpers[t].max_inner_iter=max_inner_iter;
+		    	}
+		    	iter=run_dual_helpers(helpers, innereps, innereps_min);
+		    } else {
 		    while (iter < max_iter) {
 		        for (i = 0; i < l; i++) {
 		            int j = i +random.nextInt(l - i) ;
@@ -3298,6 +3337,7 @@ public class binarylogistic implements estimator,classifier,Runnable {
 		        }
 
 		    }
+		    }
 
 		    
 		    if (this.verbose){
@@ -3903,13 +3943,12 @@ public class binarylogistic implements estimator,classifier,Runnable {
 			
 			double iteration_tol=Double.POSITIVE_INFINITY;
 			int it=0;
-			double nc=0;
+			double nc []= new double[]{0.0};
 			//initiali
 			// random number generator
 			random= new Random();
 			random.setSeed(seed);
 			double n []= new double[data.GetColumnDimension()]; // sum of squared gradients
-			double val=0.0;
 		    // check if data is sorted by row and sort it if now
 	        if (sparse_set==false){
 		    if (!data.IsSortedByRow()){
@@ -3922,116 +3961,7 @@ public class binarylogistic implements estimator,classifier,Runnable {
 			// iterative algorithms start here
 			while (it <this.maxim_Iteration && iteration_tol> this.tolerance) {
 
-		    for (int k=0; k < data.GetRowDimension(); k++){
-		    	int i=k;
-
-		    	if (this.shuffle){
-		    	 i=random.nextInt(data.GetRowDimension());
-		    	}
-		    	/*
-				double BETA [] = new double [betas.length];
-				double Constant=0.0;
-		    	double pred=0;
-		    	*/
-		    	double pred=constant[0];
-		    	double yi=0.0;
-		    	if (target[i]>0){
-		    		yi=1.0;
-		    	}
-		    	if (!this.RegularizationType.equals("L2") && Math.abs(constant[0])<=C){
-		    		pred=0.0;
-		    	}
-		    	// compute score
-		    	if (this.RegularizationType.equals("L2")){
-		    		 for (int j = data.indexpile[i]; j < data.indexpile[i+1] ; j++) {
-		    			 val = data.valuespile[j];
-				            if (this.usescale){
-				            	val=Scaler.transform(val, data.mainelementpile[j]);
-				            } 
-		    			 
-		    		pred+=val*betas[data.mainelementpile[j]];
-		    	}
-		    	} else {
-		    		 for (int j = data.indexpile[i]; j < data.indexpile[i+1]; j++) {
-		        		if (Math.abs(betas[data.mainelementpile[j]]) >C)
-		        			val = data.valuespile[j];
-			            if (this.usescale){
-			            	val=Scaler.transform(val, data.mainelementpile[j]);
-			            } 
-			    		pred+=val*betas[data.mainelementpile[j]];
-			    	}
-		    	}
-		    	// pred to probability
-		    	 pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));
-		    	 if (UseConstant){
-		    		 boolean superceeds_regularization=true;
-		    		 double gradient=(pred - yi) ;
-		    		 if (this.RegularizationType.equals("L2")){
-		    			 gradient+=C*constant[0];
-		    		 } else{
-		    			 //get sign
-		    			 double sign=-1;
-		    			 
-		    			 if (constant[0]>0){
-		    				 sign=1.0;
-		 		    	}
-		    			 if (sign * constant[0]  <= C  && nc!=0.0){
-		    				// gradient=0.0;
-		    				 superceeds_regularization=false;
-		    			 } else{
-		    				 gradient+=C*sign*constant[0];
-		    			 }
-		    		 }
-		    		if (superceeds_regularization){
-		    		 nc+=gradient*gradient;
-		    		 double move=(this.learn_rate*gradient)/Math.sqrt(nc+0.00000000000001);
-		    		 constant[0]=constant[0]-move;
-		    		 
-		    		} else {
-		    			// nc=(pred - yi)*(pred - yi);
-		    			// constant[0]=(pred - yi);
-		    		}
-		    		 
-		    	 }
-		    	 for (int j = data.indexpile[i]; j < data.indexpile[i+1]; j++) {
-		    		 boolean superceeds_regularization=true;
-		    			val = data.valuespile[j];
-			            if (this.usescale){
-			            	val=Scaler.transform(val, data.mainelementpile[j]);
-			            } 
-		    		 double gradient=(pred - yi) * val;
-		    		 if (this.RegularizationType.equals("L2")){
-		    			 gradient+=C*betas[data.mainelementpile[j]];
-		    		 } else{
-		    			 //get sign
-		    			 double sign=-1;
-		    			 if (betas[data.mainelementpile[j]]>0){
-		    				 sign=1.0;
-		    				  
-		 		    	}
-		    			 if (sign * betas[data.mainelementpile[j]]  <= C && n[data.mainelementpile[j]]!=0.0){
-		    				// gradient=0.0;
-		    				 superceeds_regularization=false;
-		    			 } else{
-		    				 gradient+=C*sign*betas[data.mainelementpile[j]];
-		    			 }
-		    		 }
-		    		 
-			    		if (superceeds_regularization){
-				    		 n[data.mainelementpile[j]]+=gradient*gradient;
-				    		 double move=(this.learn_rate*gradient)/Math.sqrt(n[data.mainelementpile[j]]+0.00000000000001);
-				    		 betas[data.mainelementpile[j]]-=move;
-				    		 if (Math.abs(move)>iteration_tol){
-								 iteration_tol= Math.abs(move);
-							 }
-				    		} else {
-				    			//n[data.mainelementpile[j]]=((pred - yi)*data.valuespile[j])*((pred - yi)*data.valuespile[j]);
-				    			 //betas[data.mainelementpile[j]]=(pred - yi)*data.valuespile[j];
-				    		}
-		    		
-		    	 }
-		    
-		    }
+			sgd_pass(data, target, n, nc);
              
 		    	
 	           //end of while
@@ -4041,6 +3971,8 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	    				}
 			}
 			
+			squared_gradients=n;
+			constant_squared_gradient=nc;
 			// end of SGD
 		} else if (Type.equals("FTRL")){
 			
@@ -4203,6 +4135,299 @@ public class binarylogistic implements estimator,classifier,Runnable {
 			// end of FTRL
 		} 
 	}
+	/**
+	 * Out-of-core fit with SGD. The data is read in chunks from a file (see {@link chunkreader}) and maxim_Iteration passes
+	 * are made over it (one if not set), hence memory use does not depend on the number of rows. The target in the file needs to have values -1 and 1.
+	 * If usescale is true and the scaler is not fitted, a {@link maxscaler} is fitted with one extra pass over the file.
+	 * @param reader : the reader of the file to train on
+	 */
+	public void fit_stream(chunkreader reader) {
+		if (reader==null){
+			throw new IllegalStateException(" There is no reader to train on" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if ( !Type.equals("SGD")){
+			throw new IllegalStateException(" Only SGD is supported when reading the data in chunks" );
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (this.maxim_Iteration<=0){
+			this.maxim_Iteration=1; // one pass over the file
+		}
+		//initialize column dimension
+		columndimension=reader.GetColumnDimension();
+		// Initialise scaler with a pass over the file
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler=reader.fit_scaler();
+		}
+		// set random number generator 
+		random = new Random();
+		random.setSeed(seed);
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){ // check if a set of betas is already given e.g. threads
+			if (betas.length!=columndimension){
+				throw new IllegalStateException(" The pre-given betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  columndimension);
+			}
+		} else { //Initialise beta if not given
+			betas= new double[columndimension];
+			constant= new double[]{0.0};
+		}
+		double n []= new double[columndimension]; // sum of squared gradients
+		double nc []= new double[]{0.0};
+		// each iteration is a pass over the file , while the next chunk is parsed in the background
+		for (int it=0; it <this.maxim_Iteration; it++){
+			reader.open();
+			while (reader.next()){
+				sgd_pass(reader.GetChunk(), reader.GetTarget(), n, nc);
+			}
+			reader.close();
+			if (verbose){
+				System.out.println("iteration: " + (it+1));
+			}
+		}
+		squared_gradients=n;
+		constant_squared_gradient=nc;
+	}
+	/**
+	 * Incremental fit with SGD. One pass is made over the new rows, continuing from the current coefficients and from the sums of squared
+	 * gradients of the previous (SGD) fit, so that a fitted model can be refreshed with new data without a full refit. The target needs to have values -1 and 1.
+	 * If the model is not fitted yet it starts from zero coefficients. The scaler is only fitted (on the given rows) when it is not fitted already.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(fsmatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		int rows []= new int [data.GetRowDimension()];
+		for (int i=0; i < rows.length; i++){
+			rows[i]=i;
+		}
+		partial_fit(new smatrix(data, rows), target);
+	}
+	/**
+	 * Incremental fit with SGD. One pass is made over the new rows, continuing from the current coefficients and from the sums of squared
+	 * gradients of the previous (SGD) fit, so that a fitted model can be refreshed with new data without a full refit. The target needs to have values -1 and 1.
+	 * If the model is not fitted yet it starts from zero coefficients. The scaler is only fitted (on the given rows) when it is not fitted already.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(smatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (target==null || target.length!=data.GetRowDimension()){
+			throw new IllegalStateException(" target array needs to be provided with the same length as the data" );
+		}
+		if (C<=0){
+			throw new IllegalStateException(" The regularization Value C needs to be higher than zero" );
+		}
+		if ( !Type.equals("SGD")){
+			throw new IllegalStateException(" Only SGD is supported for incremental updates" );
+		}
+		if (this.learn_rate<=0.00000000000001){
+			throw new IllegalStateException(" Learning rate cannot be less than 0.00000000000001");
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		//initialise beta
+		if (betas!=null && betas.length>=1 ){
+			if (betas.length!=data.GetColumnDimension()){
+				throw new IllegalStateException(" The fitted betas do not have the same dimension with the current data. e.g " + betas.length + "<> " +  data.GetColumnDimension());
+			}
+		} else {
+			betas= new double[data.GetColumnDimension()];
+			constant= new double[]{0.0};
+			squared_gradients=null;
+		}
+		columndimension=data.GetColumnDimension();
+		if (usescale && (Scaler==null || Scaler.IsFitted()==false)){
+			Scaler = new maxscaler();
+			Scaler.fit(data);
+		}
+		if (random==null){
+			random = new Random();
+			random.setSeed(seed);
+		}
+		if (squared_gradients==null || squared_gradients.length!=columndimension){
+			squared_gradients= new double[columndimension];
+			constant_squared_gradient= new double[]{0.0};
+		}
+		sgd_pass(data, target, squared_gradients, constant_squared_gradient);
+	}
+	/**
+	 * Runs the dual coordinate descent epochs with all the helpers in parallel until the maximum gradient
+	 * (over all helpers) is below the tolerance or maxim_Iteration epochs are reached. After each epoch the coefficients
+	 * are rebuilt from the changes of the helpers.
+	 * @param helpers : the helpers , one per thread
+	 * @param innereps : initial tolerance of the inner Newton steps
+	 * @param innereps_min : minimum tolerance of the inner Newton steps
+	 * @return the number of epochs
+	 */
+	private int run_dual_helpers(logisticdualhelper helpers [], double innereps, double innereps_min){
+		double betas_start[]=betas.clone();
+		double constant_start=constant[0];
+		int l=target.length;
+		int iter=0;
+		while (iter < maxim_Iteration) {
+			for (int t=0; t < helpers.length; t++){
+				helpers[t].innereps=innereps;
+			}
+			dualhelper.run(helpers);
+			dualhelper.rebuild(helpers, betas_start, constant_start);
+			double Gmax = 0;
+			int newton_iter = 0;
+			for (int t=0; t < helpers.length; t++){
+				Gmax=Math.max(Gmax, helpers[t].Gmax);
+				newton_iter+=helpers[t].newton_iter;
+			}
+			if (this.verbose){
+				System.out.println("Logistic step " + iter);
+			}
+			iter++;
+			if (Gmax < tolerance) break;
+			if (newton_iter <= l / 10) {
+				innereps = Math.max(innereps_min, 0.1 * innereps);
+			}
+		}
+		return iter;
+	}
+	/**
+	 * One SGD pass over the rows of a sparse matrix (sorted by row). The sums of squared gradients are held by the caller
+	 * so that the passes may continue over many parts of the data (e.g. see {@link #fit_stream(chunkreader)})
+	 * @param data : the data (sorted by row)
+	 * @param target : the target of the data with values -1 and 1
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 */
+	private void sgd_pass(smatrix data, double target[], double n[], double nc[]){
+		double row_values []= new double [max_row_length(data)];
+		for (int k=0; k < data.GetRowDimension(); k++){
+			int i=k;
+			if (this.shuffle){
+				i=random.nextInt(data.GetRowDimension());
+			}
+			scale_row(data, i, this.usescale?this.Scaler:null, row_values);
+			sgd_row(data, i, target[i], n, nc, row_values);
+		}
+	}
+	/**
+	 * @param data : the data (sorted by row)
+	 * @return the maximum number of non zero elements in a row
+	 */
+	static int max_row_length(smatrix data){
+		int max_row=0;
+		for (int i=0; i < data.GetRowDimension(); i++){
+			if (data.indexpile[i+1]-data.indexpile[i]>max_row){
+				max_row=data.indexpile[i+1]-data.indexpile[i];
+			}
+		}
+		return max_row;
+	}
+	/**
+	 * places the (scaled) non zero values of a row in a buffer
+	 * @param data : the data (sorted by row)
+	 * @param i : the row
+	 * @param sc : the scaler or null to keep the values as they are
+	 * @param row_values : the buffer to fill
+	 */
+	static void scale_row(smatrix data, int i, scaler sc, double row_values[]){
+		int first=data.indexpile[i];
+		for (int j=first; j < data.indexpile[i+1]; j++) {
+			double val = data.valuespile[j];
+			if (sc!=null){
+				val=sc.transform(val, data.mainelementpile[j]);
+			}
+			row_values[j-first]=val;
+		}
+	}
+	/**
+	 * One SGD update with one row of a sparse matrix (sorted by row). It is used by {@link #sgd_pass(smatrix, double[], double[], double[])}
+	 * and by the one-vs-rest models of {@link LogisticRegression} that update the coefficients of all the classes with each row.
+	 * @param data : the data (sorted by row)
+	 * @param i : the row
+	 * @param target_value : the target of the row (higher than zero for the positive class)
+	 * @param n : sum of squared gradients for the coefficients
+	 * @param nc : 1-element array with the sum of squared gradients for the constant
+	 * @param row_values : the (scaled) non zero values of the row
+	 */
+	void sgd_row(smatrix data, int i, double target_value, double n[], double nc[], double row_values[]){
+		int first=data.indexpile[i];
+		int last=data.indexpile[i+1];
+		double pred=constant[0];
+		double yi=0.0;
+		if (target_value>0){
+			yi=1.0;
+		}
+		if (!this.RegularizationType.equals("L2") && Math.abs(constant[0])<=C){
+			pred=0.0;
+		}
+		// compute score
+		if (this.RegularizationType.equals("L2")){
+			for (int j = first; j < last ; j++) {
+				pred+=row_values[j-first]*betas[data.mainelementpile[j]];
+			}
+		} else {
+			for (int j = first; j < last; j++) {
+				if (Math.abs(betas[data.mainelementpile[j]]) >C){
+					pred+=row_values[j-first]*betas[data.mainelementpile[j]];
+				}
+			}
+		}
+		// pred to probability
+		pred= 1.0/ (1.0 + Math.exp(-Math.max(Math.min(pred, 35.0), -35.0)));
+		if (UseConstant){
+			boolean superceeds_regularization=true;
+			double gradient=(pred - yi) ;
+			if (this.RegularizationType.equals("L2")){
+				gradient+=C*constant[0];
+			} else{
+				//get sign
+				double sign=-1;
+				if (constant[0]>0){
+					sign=1.0;
+				}
+				if (sign * constant[0]  <= C  && nc[0]!=0.0){
+					superceeds_regularization=false;
+				} else{
+					gradient+=C*sign*constant[0];
+				}
+			}
+			if (superceeds_regularization){
+				nc[0]+=gradient*gradient;
+				double move=(this.learn_rate*gradient)/Math.sqrt(nc[0]+0.00000000000001);
+				constant[0]=constant[0]-move;
+			}
+		}
+		for (int j = first; j < last; j++) {
+			int col_index=data.mainelementpile[j];
+			boolean superceeds_regularization=true;
+			double gradient=(pred - yi) * row_values[j-first];
+			if (this.RegularizationType.equals("L2")){
+				gradient+=C*betas[col_index];
+			} else{
+				//get sign
+				double sign=-1;
+				if (betas[col_index]>0){
+					sign=1.0;
+				}
+				if (sign * betas[col_index]  <= C && n[col_index]!=0.0){
+					superceeds_regularization=false;
+				} else{
+					gradient+=C*sign*betas[col_index];
+				}
+			}
+			if (superceeds_regularization){
+				n[col_index]+=gradient*gradient;
+				double move=(this.learn_rate*gradient)/Math.sqrt(n[col_index]+0.00000000000001);
+				betas[col_index]-=move;
+			}
+		}
+	}
 	@Override
 	public String GetType() {
 		return "classifier";
@@ -4268,6 +4493,8 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	public void reset() {
 		constant=new double []{0.0};
 		betas=null;
+		squared_gradients=null;
+		constant_squared_gradient=null;
 		RegularizationType="L2";
 		C=1.0;
 		l1C=1.0;
@@ -4291,8 +4518,12 @@ public class binarylogistic implements estimator,classifier,Runnable {
 	@Override
 	public estimator copy() {
 		binarylogistic br = new binarylogistic();
-		br.constant=this.constant;
+		br.constant=this.constant.clone();
 		br.betas=manipulate.copies.copies.Copy(this.betas.clone());
+		if (this.squared_gradients!=null){
+			br.squared_gradients=this.squared_gradients.clone();
+			br.constant_squared_gradient=this.constant_squared_gradient.clone();
+		}
 		br.RegularizationType=this.RegularizationType;
 		br.C=this.C;
 		br.l1C=this.l1C;
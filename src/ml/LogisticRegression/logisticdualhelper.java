@@ -0,0 +1,207 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml.LogisticRegression;
+
+import java.util.Random;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import ml.dualhelper;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> One epoch of the Liblinear dual coordinate descent for L2-regularized logistic regression over a range of rows.
+ * Each helper owns the dual variables of its rows , while the primal coefficients are shared and updated
+ * without locks by all helpers (asynchronous, PASSCoDe-style).
+ * After the epochs the caller rebuilds the coefficients from the changes of every helper (see {@link dualhelper}).</p>
+ */
+public class logisticdualhelper extends dualhelper {
+
+	/**
+	 * The target variable with values -1 and 1
+	 */
+	private double target[];
+	/**
+	 * the dual variables , alpha and C - alpha for each row (only the ones of this helper's rows are touched)
+	 */
+	private double alpha[];
+	/**
+	 * x'x of each row
+	 */
+	private double xTx[];
+	/**
+	 * upper bound of alpha per class
+	 */
+	private double upper_bound[];
+	/**
+	 * the rows of this helper
+	 */
+	private int index[];
+	/**
+	 * Random number generator to use for the permutation of the rows
+	 */
+	private Random random;
+	/**
+	 * tolerance of the inner Newton steps
+	 */
+	public double innereps = 1e-2;
+	/**
+	 * maximum number of inner Newton steps
+	 */
+	public int max_inner_iter = 100;
+	/**
+	 * maximum absolute gradient of the last epoch
+	 */
+	public double Gmax;
+	/**
+	 * number of inner Newton steps of the last epoch
+	 */
+	public int newton_iter;
+
+	/**
+	 * @param data : the dense data
+	 * @param target : the target variable
+	 * @param alpha : the dual variables (2 per row)
+	 * @param xTx : x'x of each row
+	 * @param upper_bound : upper bound of alpha per class
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param Scaler : scaler object
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 * @param random : random number generator for the permutations
+	 */
+	public logisticdualhelper(fsmatrix data, double target[], double alpha[], double xTx[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		this(target, alpha, xTx, upper_bound, betas, constant, Scaler, st, ed, random);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		this.fdata=data;
+	}
+	/**
+	 * @param data : the sparse data (sorted by row)
+	 * @param target : the target variable
+	 * @param alpha : the dual variables (2 per row)
+	 * @param xTx : x'x of each row
+	 * @param upper_bound : upper bound of alpha per class
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param Scaler : scaler object
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 * @param random : random number generator for the permutations
+	 */
+	public logisticdualhelper(smatrix data, double target[], double alpha[], double xTx[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		this(target, alpha, xTx, upper_bound, betas, constant, Scaler, st, ed, random);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (!data.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse data needs to be sorted by row" );
+		}
+		this.sdata=data;
+	}
+
+	private logisticdualhelper(double target[], double alpha[], double xTx[], double upper_bound[],
+			double betas[], double constant[], scaler Scaler, int st, int ed, Random random){
+		super(betas, constant, Scaler);
+		if (target==null || st<0 || ed>target.length || st>=ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.target=target;
+		this.alpha=alpha;
+		this.xTx=xTx;
+		this.upper_bound=upper_bound;
+		this.random=random;
+		this.index=new int[ed-st];
+		for (int s=0; s <index.length; s++){
+			index[s]=st+s;
+		}
+	}
+
+	@Override
+	public void run() {
+		Gmax=0.0;
+		newton_iter=0;
+		for (int i = 0; i < index.length; i++) {
+			int j = i + random.nextInt(index.length - i);
+			int temp=index[i];
+			index[i]=index[j];
+			index[j]=temp;
+		}
+
+		for (int s = 0; s < index.length; s++) {
+			int i = index[s];
+			double yi = target[i];
+			double C = upper_bound[(int) (yi + 1)];
+			double ywTx = dot(i);
+			if (UseConstant){
+				ywTx +=constant[0];
+			}
+			ywTx *= yi;
+			double a = xTx[i], b = ywTx;
+
+			// Decide to minimize g_1(z) or g_2(z)
+			int ind1 = 2 * i, ind2 = 2 * i + 1, sign = 1;
+			if (0.5 * a * (alpha[ind2] - alpha[ind1]) + b < 0) {
+				ind1 = 2 * i + 1;
+				ind2 = 2 * i;
+				sign = -1;
+			}
+
+			//  g_t(z) = z*log(z) + (C-z)*log(C-z) + 0.5a(z-alpha_old)^2 + sign*b(z-alpha_old)
+			double alpha_old = alpha[ind1];
+			double z = alpha_old;
+			if (C - z < 0.5 * C) z = 0.1 * z;
+			double gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
+			Gmax = Math.max(Gmax, Math.abs(gp));
+
+			// Newton method on the sub-problem
+			final double eta = 0.1; // xi in the paper
+			int inner_iter = 0;
+			while (inner_iter <= max_inner_iter) {
+				if (Math.abs(gp) < innereps) break;
+				double gpp = a + C / (C - z) / z;
+				double tmpz = z - gp / gpp;
+				if (tmpz <= 0)
+					z *= eta;
+				else
+					// tmpz in (0, C)
+					z = tmpz;
+				gp = a * (z - alpha_old) + sign * b + Math.log(z / (C - z));
+				newton_iter++;
+				inner_iter++;
+			}
+
+			if (inner_iter > 0) // update w
+			{
+				alpha[ind1] = z;
+				alpha[ind2] = C - z;
+				double d = sign * (z - alpha_old) * yi;
+				update(i, d);
+			}
+		}
+	}
+
+}
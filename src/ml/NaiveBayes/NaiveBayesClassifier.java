@@ -22,8 +22,7 @@ SOFTWARE.
 package ml.NaiveBayes;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +33,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -68,6 +68,26 @@ public class NaiveBayesClassifier implements estimator,classifier {
 	* The array that will hold the variances for each predictor, for each class
 	*/
 	double variances_per_predictor [][];
+	/**
+	* Per class coefficients of the log density [m/s<sup>2</sup>, -1/(2s<sup>2</sup>)] for each predictor
+	*/
+	private double coefficients [][];
+	/**
+	* Per class and predictor constants of the log density (log normaliser minus m<sup>2</sup>/(2s<sup>2</sup>))
+	*/
+	private double element_constants [][];
+	/**
+	* Per class sum of the element constants
+	*/
+	private double class_constants [];
+	/**
+	* The weighted statistics of all the rows seen so far (used to add new rows with partial_fit)
+	*/
+	private naivebayesstats statistics;
+	/**
+	 * threads to use
+	 */
+	public int threads=1;
 	/**
 	 *whether to use scale or not 
 	 */
@@ -140,6 +160,19 @@ public class NaiveBayesClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	/**
 	 * Default constructor for Libfm with no data
 	 */
@@ -239,6 +272,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 	
@@ -260,45 +294,13 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data[0].length);	
 		}
 		double [][]  probabilities= new double [data.length][n_classes];
-
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.length; i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data[i][j];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
-		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-		for (int i=0; i < data.length; i++) {
-			double sum_of_probabilities=0;
-			for (int g=0; g<n_classes; g++){
-				sum_of_probabilities+=probabilities[i][g];
-			}
-			for (int g=0; g<n_classes; g++){
-				probabilities[i][g]=probabilities[i][g]/sum_of_probabilities;
-			}
+		int loop_list []=loop_list(data.length);
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, probabilities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
 		}
-
+		run_helpers(helpers);
 		// return the probabilities array
 		return probabilities;
 
@@ -317,45 +319,13 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
 		}
 		double [][]  probabilities= new double [data.GetRowDimension()][n_classes];
-
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.GetRowDimension(); i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.GetElement(i, j);
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}						
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, probabilities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
 		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-		for (int i=0; i < data.GetRowDimension(); i++) {
-			double sum_of_probabilities=0;
-			for (int g=0; g<n_classes; g++){
-				sum_of_probabilities+=probabilities[i][g];
-			}
-			for (int g=0; g<n_classes; g++){
-				probabilities[i][g]=probabilities[i][g]/sum_of_probabilities;
-			}
-		}
-
+		run_helpers(helpers);
 		// return the probabilities array
 		return probabilities;
 	}
@@ -378,46 +348,13 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		}
 
 		double [][]  probabilities= new double [data.GetRowDimension()][n_classes];
-
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.GetRowDimension(); i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int h=data.indexpile[i]; h < data.indexpile[i+1];h++) {
-					int j=data.mainelementpile[h];
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.valuespile[h];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}						
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
-		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-		for (int i=0; i < data.GetRowDimension(); i++) {
-			double sum_of_probabilities=0;
-			for (int g=0; g<n_classes; g++){
-				sum_of_probabilities+=probabilities[i][g];
-			}
-			for (int g=0; g<n_classes; g++){
-				probabilities[i][g]=probabilities[i][g]/sum_of_probabilities;
-			}
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, probabilities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
 		}
-
+		run_helpers(helpers);
 		// return the probabilities array
 		return probabilities;
 	}
@@ -438,38 +375,10 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.length);	
 		}
 		
-		double probabilities[]= new double [n_classes];
-
-		for (int g=0; g<n_classes; g++){
-			double product=1;
-			//start loop for all predictors
-			for (int j=0; j < this.columndimension;j++) {
-				if (variances_per_predictor[g][j]!=0){
-					double value=data[j];
-					if (this.usescale){
-						value=Scaler.transform(value, j);
-					}
-				product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-				// end of loop for all predictors
-				}
-			}
-			probabilities[g]=product;
-			if (Double.isNaN(probabilities[g])) {
-				probabilities[g]=0.0;
-			}
-		}
-		// end of loop for all classes
-		
-		double sum_of_probabilities=0;
-		for (int g=0; g<n_classes; g++){
-			sum_of_probabilities+=probabilities[g];
-		}
-		for (int g=0; g<n_classes; g++){
-			probabilities[g]=probabilities[g]/sum_of_probabilities;
-		}	
-		
-			
-		return probabilities;
+		double probabilities[][]= new double [1][n_classes];
+		new naivebayeshelper(new double [][] {data}, probabilities, coefficients, element_constants, class_constants, variances_per_predictor,
+				Scaler, this.usescale, this.Shrinkage, 0, 1).run();
+		return probabilities[0];
 	}
 
 
@@ -485,38 +394,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
 		}
 		
-		double probabilities[]= new double [n_classes];
-
-		for (int g=0; g<n_classes; g++){
-			double product=1;
-			//start loop for all predictors
-			for (int j=0; j < this.columndimension;j++) {
-				if (variances_per_predictor[g][j]!=0){
-					double value=data.GetElement(rows, j);
-					if (this.usescale){
-						value=Scaler.transform(value, j);
-					}
-				product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-				// end of loop for all predictors
-				}
-			}
-			probabilities[g]=product;
-			if (Double.isNaN(probabilities[g])) {
-				probabilities[g]=0.0;
-			}
-		}
-		// end of loop for all classes
-		
-		double sum_of_probabilities=0;
-		for (int g=0; g<n_classes; g++){
-			sum_of_probabilities+=probabilities[g];
-		}
-		for (int g=0; g<n_classes; g++){
-			probabilities[g]=probabilities[g]/sum_of_probabilities;
-		}	
-		
-			
-		return probabilities;
+		return predict_probaRow(row(data, rows));
 	}
 
 	@Override
@@ -532,37 +410,8 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		}
 		
 		double probabilities[]= new double [n_classes];
-
-		for (int g=0; g<n_classes; g++){
-			double product=1;
-			//start loop for all predictors
-			for (int h=start; h < end;h++) {
-				int j=data.mainelementpile[h];
-				
-				if (variances_per_predictor[g][j]!=0){
-					double value=data.valuespile[h];
-					if (this.usescale){
-						value=Scaler.transform(value, j);
-					}
-				product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-				// end of loop for all predictors
-				}
-			}
-			probabilities[g]=product;
-			if (Double.isNaN(probabilities[g])) {
-				probabilities[g]=0.0;
-			}
-		}
-		// end of loop for all classes
-		
-		double sum_of_probabilities=0;
-		for (int g=0; g<n_classes; g++){
-			sum_of_probabilities+=probabilities[g];
-		}
-		for (int g=0; g<n_classes; g++){
-			probabilities[g]=probabilities[g]/sum_of_probabilities;
-		}	
-		
+		new naivebayeshelper(data, new double [1][], coefficients, element_constants, class_constants, variances_per_predictor,
+				Scaler, this.usescale, this.Shrinkage, 0, 0).score_elements(start, end, probabilities);
 		return probabilities;
 			}
 
@@ -581,58 +430,16 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		if (data.GetColumnDimension()!=columndimension){
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
 		}
-		double [][]  probabilities= new double [data.GetRowDimension()][n_classes];
-		double predictions[]= new double [data.GetRowDimension()];
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.GetRowDimension(); i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.GetElement(i, j);
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}						
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
+		double [][]  log_densities= new double [data.GetRowDimension()][n_classes];
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, log_densities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
+			helpers[n].probabilities=false;
 		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[i][0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[i][k]>max){
-		    			 max=probabilities[i][k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
-			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		run_helpers(helpers);
+		return predictions(log_densities);
 			}
 
 	@Override
@@ -651,59 +458,16 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			data.convert_type();
 		}
 
-		double [][]  probabilities= new double [data.GetRowDimension()][n_classes];
-		double predictions[]= new double [data.GetRowDimension()];
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.GetRowDimension(); i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int h=0; h < this.columndimension;h++) {
-					int j=data.mainelementpile[h];
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.valuespile[h];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}						
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
+		double [][]  log_densities= new double [data.GetRowDimension()][n_classes];
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, log_densities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
+			helpers[n].probabilities=false;
 		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[i][0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[i][k]>max){
-		    			 max=probabilities[i][k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
-			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		run_helpers(helpers);
+		return predictions(log_densities);
 			}
 
 	@Override
@@ -718,66 +482,16 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		if (data[0].length!=columndimension){
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data[0].length);	
 		}
-		double [][]  probabilities= new double [data.length][n_classes];
-		double predictions[]= new double [data.length];
-		// loop through all the observations of the given set to populate the probabilities matrix with the density probability of each observation to belong in each class.
-		for (int i=0; i < data.length; i++) {
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data[i][j];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[i][g]=product;
-				if (Double.isNaN(probabilities[i][g])) {
-					probabilities[i][g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-			// end of loop of all observations
-		}
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-		for (int i=0; i < data.length; i++) {
-			double sum_of_probabilities=0;
-			for (int g=0; g<n_classes; g++){
-				sum_of_probabilities+=probabilities[i][g];
-			}
-			for (int g=0; g<n_classes; g++){
-				probabilities[i][g]=probabilities[i][g]/sum_of_probabilities;
-			}
+		double [][]  log_densities= new double [data.length][n_classes];
+		int loop_list []=loop_list(data.length);
+		naivebayeshelper helpers []= new naivebayeshelper[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayeshelper(data, log_densities, coefficients, element_constants, class_constants, variances_per_predictor,
+					Scaler, this.usescale, this.Shrinkage, loop_list[n], loop_list[n+1]);
+			helpers[n].probabilities=false;
 		}
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[i][0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[i][k]>max){
-		    			 max=probabilities[i][k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
-			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		run_helpers(helpers);
+		return predictions(log_densities);
 			}
 	
 
@@ -794,60 +508,19 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.length);	
 		}
 		
-		double []  probabilities= new double [n_classes];
-		double predictions=0.0;
-
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data[j];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[g]=product;
-				if (Double.isNaN(probabilities[g])) {
-					probabilities[g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[k]>max){
-		    			 max=probabilities[k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
-			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		double log_densities[][]= new double [1][n_classes];
+		naivebayeshelper helper= new naivebayeshelper(new double [][] {data}, log_densities, coefficients, element_constants, class_constants, variances_per_predictor,
+				Scaler, this.usescale, this.Shrinkage, 0, 1);
+		helper.probabilities=false;
+		helper.run();
+		return prediction(log_densities[0]);
 			}
 	
 	@Override
 	public double predict_Row(fsmatrix data, int rows) {
+		if (n_classes<2 ){
+			 throw new IllegalStateException("The fit method needs to be run successfully in " +
+										"order to create the logic before attempting scoring a new set");}  
 
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
@@ -856,61 +529,16 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
 		}
 		
-		double []  probabilities= new double [n_classes];
-		double predictions=0.0;
-
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int j=0; j < this.columndimension;j++) {
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.GetElement(rows, j);
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[g]=product;
-				if (Double.isNaN(probabilities[g])) {
-					probabilities[g]=0.0;
-				}
-			// end of loop for all classes
-			}
-			
-
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
-
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[k]>max){
-		    			 max=probabilities[k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
-			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		return predict_Row(row(data, rows));
 			}
 	
 
 	@Override
 	public double predict_Row(smatrix data, int start, int end) {
+		if (n_classes<2 ){
+			 throw new IllegalStateException("The fit method needs to be run successfully in " +
+										"order to create the logic before attempting scoring a new set");}  
+
 		if (data==null || data.GetRowDimension()<=0){
 			throw new IllegalStateException(" There is nothing to score" );
 		}
@@ -918,59 +546,161 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
 		}
 		
-		double []  probabilities= new double [n_classes];
-		double predictions=0.0;
-
-		//loop through all class to find the one with the highest probability
-			for (int g=0; g<n_classes; g++){
-				double product=1;
-				//start loop for all predictors
-				for (int h=start; h < end;h++) {
-					int j=data.mainelementpile[h];
-					if (variances_per_predictor[g][j]!=0){
-						double value=data.valuespile[h];
-						if (this.usescale){
-							value=Scaler.transform(value, j);
-						}
-					product=product*((1/Math.sqrt(2*Math.PI*variances_per_predictor[g][j])) * (Math.exp((-((value-means_per_predictor[g][j])*(value-means_per_predictor[g][j])))/(2*variances_per_predictor[g][j]))) + Shrinkage);
-					// end of loop for all predictors
-					}
-				}
-				probabilities[g]=product;
-				if (Double.isNaN(probabilities[g])) {
-					probabilities[g]=0.0;
-				}
-			// end of loop for all classes
+		double log_densities[]= new double [n_classes];
+		naivebayeshelper helper= new naivebayeshelper(data, new double [1][], coefficients, element_constants, class_constants, variances_per_predictor,
+				Scaler, this.usescale, this.Shrinkage, 0, 0);
+		helper.probabilities=false;
+		helper.score_elements(start, end, log_densities);
+		return prediction(log_densities);
 			}
-			
-
-	
-		// loop again to convert everything to real probabilities and make certain that sum of each observation in probabilities in 1.
-		
 
-			
-			for (int i=0; i < probabilities.length; i++){
-				
-		    	  int maxi=0;
-		    	  double max=probabilities[0];
-		    	  for (int k=1; k<n_classes; k++) {
-		    		 if (probabilities[k]>max){
-		    			 max=probabilities[k];
-		    			 maxi=k;	 
-		    		 }
-		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+	/**
+	 * @param data : the dense data
+	 * @param rows : the row to get
+	 * @return the values of the row
+	 */
+	private double [] row(fsmatrix data, int rows){
+		double values []= new double [data.GetColumnDimension()];
+		for (int j=0; j < values.length; j++){
+			values[j]=data.GetElement(rows, j);
+		}
+		return values;
+	}
+	/**
+	 * @param log_densities : the log densities of a row
+	 * @return the class with the highest log density
+	 */
+	private double prediction(double log_densities[]){
+		int maxi=0;
+		double max=log_densities[0];
+		for (int k=1; k<n_classes; k++) {
+			if (log_densities[k]>max){
+				max=log_densities[k];
+				maxi=k;	 
 			}
-			
-			probabilities=null;
-			System.gc();
-			return predictions;
+		}
+		return encoder.decode(maxi);
+	}
+	/**
+	 * @param log_densities : the log densities of all the rows
+	 * @return the class with the highest log density for every row
+	 */
+	private double [] predictions(double log_densities[][]){
+		double predictions[]= new double [log_densities.length];
+		for (int i=0; i < predictions.length; i++){
+			predictions[i]=prediction(log_densities[i]);
+		}
+		return predictions;
+	}
+	/**
+	 * Splits the rows in contiguous batches , one per thread
+	 * @param rows : number of rows
+	 * @return the start of every batch followed by the end of the last one
+	 */
+	private int [] loop_list(int rows){
+		if (this.threads<=0){
+			this.threads=Runtime.getRuntime().availableProcessors();
+			if (this.threads<1){
+				this.threads=1;
 			}
-
+		}
+		int batches=Math.max(1, Math.min(this.threads, rows));
+		int loop_list []=new int [batches+1];
+		for (int n=0; n <= batches; n++){
+			loop_list[n]=(int) (((long) rows*n)/batches);
+		}
+		return loop_list;
+	}
+	/**
+	 * runs the helpers (one thread each) and waits for all of them to finish
+	 * @param helpers : the helpers to run
+	 */
+	private void run_helpers(Runnable helpers []){
+		if (helpers.length==1){
+			helpers[0].run();
+			return;
+		}
+		Thread[] thread_array= new Thread[helpers.length];
+		for (int n=0; n < helpers.length; n++){
+			thread_array[n]= new Thread(helpers[n]);
+			thread_array[n].start();
+		}
+		for (int n=0; n < helpers.length; n++){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
+	/**
+	 * finds the class (-1 for none) of every row
+	 * @param numeric_target : the target (or null to use the string target)
+	 * @param string_target : the string target
+	 * @param rows : number of rows
+	 * @return the class index of each row
+	 */
+	private int [] row_classes(double numeric_target[], String string_target[], int rows){
+		int row_class []= new int [rows];
+		if (numeric_target!=null){
+			labelencoder class_encoder=encoder;
+			for (int i=0; i < rows; i++){
+				row_class[i]=class_encoder.encode(numeric_target[i]);
+			}
+		} else {
+			HashMap<String, Integer> class_index= new HashMap<String, Integer>();
+			for (int g=classes.length-1; g >=0; g--){
+				class_index.put(classes[g], g);
+			}
+			for (int i=0; i < rows; i++){
+				Integer g=class_index.get(string_target[i]);
+				row_class[i]=(g==null)?-1:g;
+			}
+		}
+		return row_class;
+	}
+	/**
+	 * Merges the statistics of the helpers into the means and variances per predictor and precomputes the scoring constants
+	 * @param helpers : the (already run) statistics' helpers
+	 * @param previous : the statistics of the rows seen before (or null)
+	 */
+	private void set_statistics(naivebayesstats helpers [], naivebayesstats previous){
+		for (int n=1; n < helpers.length; n++){
+			helpers[0].merge(helpers[n]);
+		}
+		if (previous!=null){
+			helpers[0].merge(previous);
+		}
+		statistics=helpers[0];
+		means_per_predictor= new double [n_classes][columndimension];   
+		variances_per_predictor= new double [n_classes][columndimension];
+		helpers[0].getstatistics(means_per_predictor, variances_per_predictor);
+		precompute();
+	}
+	/**
+	 * Precomputes the per class and predictor constants of the log density
+	 * log(N(x;m,s<sup>2</sup>))=-0.5log(2ps<sup>2</sup>) - m<sup>2</sup>/(2s<sup>2</sup>) + x*m/s<sup>2</sup> - x<sup>2</sup>/(2s<sup>2</sup>)
+	 */
+	private void precompute(){
+		coefficients= new double [n_classes][2*columndimension];
+		element_constants= new double [n_classes][columndimension];
+		class_constants= new double [n_classes];
+		for (int g=0; g <n_classes; g++){
+			for (int j=0; j < columndimension; j++){
+				double variance=variances_per_predictor[g][j];
+				if (variance==0){
+					continue;
+				}
+				double mean=means_per_predictor[g][j];
+				double a=-1.0/(2.0*variance);
+				coefficients[g][2*j]=mean/variance;
+				coefficients[g][2*j+1]=a;
+				element_constants[g][j]=-0.5*Math.log(2*Math.PI*variance) + a*mean*mean;
+				class_constants[g]+=element_constants[g][j];
+			}
+		}
+	}
 
 
 	@Override
@@ -987,33 +717,18 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1049,104 +764,15 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		//initialize column dimension
 		columndimension=data[0].length;
 		
-	       means_per_predictor= new double [n_classes][columndimension];   
- 	       variances_per_predictor= new double [n_classes][columndimension];   
- 	       
- 	       for (int g=0; g <n_classes; g++){
- 	    	   
- 	 	    	 
- 	    	  double weighted_count=0.0;
- 	    	  double squared_weighted_count=0.0;
- 	    	  //populate the descriptives' stats array list
- 	    	  if (target!=null){
- 	    	  for (int i=0; i <target.length; i++ ) {
- 	    		  
- 	    		  if (target[i]==Double.parseDouble(classes[g])){ 
- 	    			  for (int j=0; j < data[0].length; j++){
- 	    				  if (this.usescale){
- 	    					 means_per_predictor[g][j]+=Scaler.transform(data[i][j],j)*weights[i];
- 	    				  } else {
- 	    					 means_per_predictor[g][j]+=data[i][j]*weights[i];
- 	    				  }
- 	    			  }
- 	    			weighted_count+=weights[i];
- 	    			squared_weighted_count+=weights[i]*weights[i];
- 	    		  }
- 	    		  //end of the total observations' array
- 	    	  }
- 	    	  //Starget
- 	    	  } else {
- 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	    		  if (Starget[i].equals(classes[g])){ 
- 	 	    			  for (int j=0; j < data[0].length; j++){
- 	 	    				 if (this.usescale){
- 	 	    					means_per_predictor[g][j]+=Scaler.transform(data[i][j],j)*weights[i];
- 	 	    				 }else {
- 	 	    			 means_per_predictor[g][j]+=data[i][j]*weights[i];
- 	 	    				 }
- 	 	    			  }
- 	 	    			weighted_count+=weights[i];
- 	 	    			squared_weighted_count+=weights[i]*weights[i];
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }  
- 	    	  }
- 	    	  
- 	    	  double discounted_counts []= new double [columndimension];
- 	    	  for(int j=0; j < columndimension; j++){
- 	    		 discounted_counts[j]=weighted_count;
- 	    	  }
- 	    	  if (weighted_count==0.0) {
- 	    		  for (int j=0; j < columndimension; j++){
- 	    			 variances_per_predictor[g][j]=0;
- 	    			means_per_predictor[g][j]=0;
- 	    		  }
- 	    		  
- 	    		  
- 	    	  } else {
- 	    		 if (target!=null){
- 	 	     	 for (int i=0; i <data[0].length; i++ ) { 
- 	 	     		if (target[i]==Double.parseDouble(classes[g])){  
- 	 	    			  for (int j=0; j < data[0].length; j++){
- 	 	    				if (this.usescale){
- 	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(data[i][j],j)- means_per_predictor[g][j]/weighted_count) 
- 	 	 	 	 	    		*(Scaler.transform(data[i][j],j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	 	    				}else {
- 	 	    				 variances_per_predictor[g][j]+=((data[i][j]- means_per_predictor[g][j]/weighted_count) 
- 	 	    				*(data[i][j]- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	 	    				}
- 	 	    				}
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }
- 	    		 } else {
- 	 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	 	    		 if (Starget[i].equals(classes[g])){ 
- 	 	 	    			  for (int j=0; j < data[0].length; j++){
- 	  	 	    				if (this.usescale){
- 	  	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(data[i][j],j)- means_per_predictor[g][j]/weighted_count) 
- 	  	 	 	 	 	    		*(Scaler.transform(data[i][j],j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	  	 	    				}else {
- 	  	 	    				 variances_per_predictor[g][j]+=((data[i][j]- means_per_predictor[g][j]/weighted_count) 
- 	  	 	    				*(data[i][j]- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	  	 	    				}
- 	  	 	    				}
- 	 	 	    		  }
- 	 	 	    		  //end of the total observations' array
- 	 	 	    	  }
- 	 	    		 
- 	 	 	    	}
- 	 	    	  // get the mean and variance for each predictor for this given class
- 	 	    	 for (int j=0; j <data[0].length; j++ ){
- 	 	    		means_per_predictor[g][j]/=weighted_count;
- 	 	    		variances_per_predictor[g][j]*=(weighted_count/(weighted_count*weighted_count-squared_weighted_count )  );
- 	 	    	   }
- 	 	    	   // end of all the classes'loop
- 	 	       }
- 	    	  
- 	    	  
- 	       }
- 	       
+	       // one pass over the rows with per thread partial statistics
+	       int row_class []=row_classes(target, Starget, data.length);
+	       int loop_list []=loop_list(data.length);
+	       naivebayesstats helpers []= new naivebayesstats[loop_list.length-1];
+	       for (int n=0; n < helpers.length; n++){
+	    	   helpers[n]= new naivebayesstats(data, row_class, weights, n_classes, Scaler, this.usescale, loop_list[n], loop_list[n+1]);
+	       }
+	       run_helpers(helpers);
+	       set_statistics(helpers, null);
  	       
  	       if (verbose ){
  	    	   System.out.println("Naive Bayes Classifier trained with : " );
@@ -1171,33 +797,18 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1233,104 +844,15 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
 		
-	       means_per_predictor= new double [n_classes][columndimension];   
- 	       variances_per_predictor= new double [n_classes][columndimension];   
- 	       
- 	       for (int g=0; g <n_classes; g++){
- 	    	   
- 	    	 
- 	    	  double weighted_count=0.0;
- 	    	  double squared_weighted_count=0.0;
- 	    	  //populate the descriptives' stats array list
- 	    	  if (target!=null){
- 	    	  for (int i=0; i <target.length; i++ ) {
- 	    		  
- 	    		  if (target[i]==Double.parseDouble(classes[g])){ 
- 	    			  for (int j=0; j < data.GetColumnDimension(); j++){
- 	    				  if (this.usescale){
- 	    					 means_per_predictor[g][j]+=Scaler.transform(data.GetElement(i, j),j)*weights[i];
- 	    				  } else {
- 	    					 means_per_predictor[g][j]+=data.GetElement(i, j)*weights[i];
- 	    				  }
- 	    			  }
- 	    			weighted_count+=weights[i];
- 	    			squared_weighted_count+=weights[i]*weights[i];
- 	    		  }
- 	    		  //end of the total observations' array
- 	    	  }
- 	    	  //Starget
- 	    	  } else {
- 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	    		  if (Starget[i].equals(classes[g])){ 
- 	 	    			  for (int j=0; j < data.GetColumnDimension(); j++){
- 	 	    				 if (this.usescale){
- 	 	    					means_per_predictor[g][j]+=Scaler.transform(data.GetElement(i, j),j)*weights[i];
- 	 	    				 }else {
- 	 	    			 means_per_predictor[g][j]+=data.GetElement(i, j)*weights[i];
- 	 	    				 }
- 	 	    			  }
- 	 	    			weighted_count+=weights[i];
- 	 	    			squared_weighted_count+=weights[i]*weights[i];
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }  
- 	    	  }
- 	    	  
- 	    	  double discounted_counts []= new double [columndimension];
- 	    	  for(int j=0; j < columndimension; j++){
- 	    		 discounted_counts[j]=weighted_count;
- 	    	  }
- 	    	  if (weighted_count==0.0) {
- 	    		  for (int j=0; j < columndimension; j++){
- 	    			 variances_per_predictor[g][j]=0;
- 	    			means_per_predictor[g][j]=0;
- 	    		  }
- 	    		  
- 	    		  
- 	    	  } else {
- 	    		 if (target!=null){
- 	 	     	 for (int i=0; i <data.GetRowDimension(); i++ ) { 
- 	 	     		if (target[i]==Double.parseDouble(classes[g])){  
- 	 	    			  for (int j=0; j < data.GetColumnDimension(); j++){
- 	 	    				if (this.usescale){
- 	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(data.GetElement(i, j),j)- means_per_predictor[g][j]/weighted_count) 
- 	 	 	 	 	    		*(Scaler.transform(data.GetElement(i, j),j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	 	    				}else {
- 	 	    				 variances_per_predictor[g][j]+=((data.GetElement(i, j)- means_per_predictor[g][j]/weighted_count) 
- 	 	    				*(data.GetElement(i, j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	 	    				}
- 	 	    				}
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }
- 	    		 } else {
- 	 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	 	    		 if (Starget[i].equals(classes[g])){ 
- 	 	 	    			  for (int j=0; j < data.GetColumnDimension(); j++){
- 	  	 	    				if (this.usescale){
- 	  	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(data.GetElement(i, j),j)- means_per_predictor[g][j]/weighted_count) 
- 	  	 	 	 	 	    		*(Scaler.transform(data.GetElement(i, j),j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	  	 	    				}else {
- 	  	 	    				 variances_per_predictor[g][j]+=((data.GetElement(i, j)- means_per_predictor[g][j]/weighted_count) 
- 	  	 	    				*(data.GetElement(i, j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	  	 	    				}
- 	  	 	    				}
- 	 	 	    		  }
- 	 	 	    		  //end of the total observations' array
- 	 	 	    	  }
- 	 	    		 
- 	 	 	    	}
- 	 	    	  // get the mean and variance for each predictor for this given class
- 	 	    	 for (int j=0; j <data.GetColumnDimension(); j++ ){
- 	 	    		means_per_predictor[g][j]/=weighted_count;
- 	 	    		variances_per_predictor[g][j]*=(weighted_count/(weighted_count*weighted_count-squared_weighted_count )  );
- 	 	    	   }
- 	 	    	   // end of all the classes'loop
- 	 	       }
- 	    	  
- 	    	  
- 	       }
- 	       
+	       // one pass over the rows with per thread partial statistics
+	       int row_class []=row_classes(target, Starget, data.GetRowDimension());
+	       int loop_list []=loop_list(data.GetRowDimension());
+	       naivebayesstats helpers []= new naivebayesstats[loop_list.length-1];
+	       for (int n=0; n < helpers.length; n++){
+	    	   helpers[n]= new naivebayesstats(data, row_class, weights, n_classes, Scaler, this.usescale, loop_list[n], loop_list[n+1]);
+	       }
+	       run_helpers(helpers);
+	       set_statistics(helpers, null);
  	       
  	       if (verbose ){
  	    	   System.out.println("Naive Bayes Classifier trained with : " );
@@ -1358,33 +880,18 @@ public class NaiveBayesClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1424,112 +931,15 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		//initialize column dimension
 		columndimension=data.GetColumnDimension();
 		
-	       means_per_predictor= new double [n_classes][columndimension];   
- 	       variances_per_predictor= new double [n_classes][columndimension];   
- 	       
- 	       for (int g=0; g <n_classes; g++){
- 	    	   
- 	 	    	 
- 	    	  double weighted_count=0.0;
- 	    	  double squared_weighted_count=0.0;
- 	    	  //populate the descriptives' stats array list
- 	    	  if (target!=null){
- 	    	  for (int i=0; i <target.length; i++ ) {
- 	    		  
- 	    		  if (target[i]==Double.parseDouble(classes[g])){ 
- 	    			  for (int h=data.indexpile[i]; h <data.indexpile[i+1]; h++){
- 	    				  int j=data.mainelementpile[h];
- 	    				  double value=data.valuespile[h];
- 	    				  if (this.usescale){
- 	    					 means_per_predictor[g][j]+=Scaler.transform(value,j)*weights[i];
- 	    				  } else {
- 	    					 means_per_predictor[g][j]+=value*weights[i];
- 	    				  }
- 	    			  }
- 	    			weighted_count+=weights[i];
- 	    			squared_weighted_count+=weights[i]*weights[i];
- 	    		  }
- 	    		  //end of the total observations' array
- 	    	  }
- 	    	  //Starget
- 	    	  } else {
- 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	    		  if (Starget[i].equals(classes[g])){ 
- 	 	    			  for (int h=data.indexpile[i]; h <data.indexpile[i+1]; h++){
- 	 	    				  int j=data.mainelementpile[h];
- 	 	    				  double value=data.valuespile[h];
- 	 	    				 if (this.usescale){
- 	 	    					means_per_predictor[g][j]+=Scaler.transform(value,j)*weights[i];
- 	 	    				 }else {
- 	 	    			 means_per_predictor[g][j]+=value*weights[i];
- 	 	    				 }
- 	 	    			  }
- 	 	    			weighted_count+=weights[i];
- 	 	    			squared_weighted_count+=weights[i]*weights[i];
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }  
- 	    	  }
- 	    	  
- 	    	  double discounted_counts []= new double [columndimension];
- 	    	  for(int j=0; j < columndimension; j++){
- 	    		 discounted_counts[j]=weighted_count;
- 	    	  }
- 	    	  if (weighted_count==0.0) {
- 	    		  for (int j=0; j < columndimension; j++){
- 	    			 variances_per_predictor[g][j]=0;
- 	    			means_per_predictor[g][j]=0;
- 	    		  }
- 	    		  
- 	    		  
- 	    	  } else {
- 	    		 if (target!=null){
- 	 	     	 for (int i=0; i <data.GetRowDimension(); i++ ) { 
- 	 	     		if (target[i]==Double.parseDouble(classes[g])){  
-	 	    			  for (int h=data.indexpile[i]; h <data.indexpile[i+1]; h++){
- 	 	    				  int j=data.mainelementpile[h];
- 	 	    				  double value=data.valuespile[h];
- 	 	    				if (this.usescale){
- 	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(value,j)- means_per_predictor[g][j]/weighted_count) 
- 	 	 	 	 	    		*(Scaler.transform(value,j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	 	    				}else {
- 	 	    				 variances_per_predictor[g][j]+=((value- means_per_predictor[g][j]/weighted_count) 
- 	 	    				*(value- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	 	    				}
- 	 	    				}
- 	 	    		  }
- 	 	    		  //end of the total observations' array
- 	 	    	  }
- 	    		 } else {
- 	 	 	    	  for (int i=0; i <Starget.length; i++ ) {
- 	 	 	    		 if (Starget[i].equals(classes[g])){ 
- 		 	    			  for (int h=data.indexpile[i]; h <data.indexpile[i+1]; h++){
- 	 	 	    				  int j=data.mainelementpile[h];
- 	 	 	    				  double value=data.valuespile[h];
- 	  	 	    				if (this.usescale){
- 	  	 	 	    				 variances_per_predictor[g][j]+=((Scaler.transform(value,j)- means_per_predictor[g][j]/weighted_count) 
- 	  	 	 	 	 	    		*(Scaler.transform(value,j)- means_per_predictor[g][j]/weighted_count))*weights[i] ;	 	    					
- 	  	 	    				}else {
- 	  	 	    				 variances_per_predictor[g][j]+=((value- means_per_predictor[g][j]/weighted_count) 
- 	  	 	    				*(value- means_per_predictor[g][j]/weighted_count))*weights[i] ;
- 	  	 	    				}
- 	  	 	    				}
- 	 	 	    		  }
- 	 	 	    		  //end of the total observations' array
- 	 	 	    	  }
- 	 	    		 
- 	 	 	    	}
- 	 	    	  // get the mean and variance for each predictor for this given class
- 	 	    	 for (int j=0; j <data.GetColumnDimension(); j++ ){
- 	 	    		means_per_predictor[g][j]/=weighted_count;
- 	 	    		variances_per_predictor[g][j]*=(weighted_count/(weighted_count*weighted_count-squared_weighted_count )  );
- 	 	    	   }
- 	 	    	   // end of all the classes'loop
- 	 	       }
- 	    	  
- 	    	  
- 	       }
- 	       
+	       // one pass over the rows with per thread partial statistics
+	       int row_class []=row_classes(target, Starget, data.GetRowDimension());
+	       int loop_list []=loop_list(data.GetRowDimension());
+	       naivebayesstats helpers []= new naivebayesstats[loop_list.length-1];
+	       for (int n=0; n < helpers.length; n++){
+	    	   helpers[n]= new naivebayesstats(data, row_class, weights, n_classes, Scaler, this.usescale, loop_list[n], loop_list[n+1]);
+	       }
+	       run_helpers(helpers);
+	       set_statistics(helpers, null);
  	       
  	       if (verbose ){
  	    	   System.out.println("Naive Bayes Classifier trained with : " );
@@ -1545,6 +955,102 @@ public class NaiveBayesClassifier implements estimator,classifier {
 	
 }
 
+	/**
+	 * Adds new rows to the model without a refit. The means and variances are updated from the weighted statistics
+	 * of the rows seen so far , so the result is the same as fitting all the rows together (each new row gets the
+	 * average weight of the previous rows). If the model is not fitted yet, it is fitted with the given rows.
+	 * The scaler (if any) is not refitted and the new rows may not have classes that were not seen before.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(fsmatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (target==null || target.length!=data.GetRowDimension()){
+			throw new IllegalStateException(" target array needs to be provided with the same length as the data" );
+		}
+		if (statistics==null){
+			this.target=target;
+			this.Starget=null;
+			this.weights=null;
+			fit(data);
+			return;
+		}
+		if (data.GetColumnDimension()!=columndimension){
+			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
+		}
+		int row_class []=new_row_classes(target);
+		double row_weights []=new_row_weights(target.length);
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayesstats helpers []= new naivebayesstats[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayesstats(data, row_class, row_weights, n_classes, Scaler, this.usescale, loop_list[n], loop_list[n+1]);
+		}
+		run_helpers(helpers);
+		set_statistics(helpers, statistics);
+	}
+	/**
+	 * Adds new rows to the model without a refit. The means and variances are updated from the weighted statistics
+	 * of the rows seen so far , so the result is the same as fitting all the rows together (each new row gets the
+	 * average weight of the previous rows). If the model is not fitted yet, it is fitted with the given rows.
+	 * The scaler (if any) is not refitted and the new rows may not have classes that were not seen before.
+	 * @param data : the new rows
+	 * @param target : the target of the new rows
+	 */
+	public void partial_fit(smatrix data, double target[]) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (target==null || target.length!=data.GetRowDimension()){
+			throw new IllegalStateException(" target array needs to be provided with the same length as the data" );
+		}
+		if (statistics==null){
+			this.target=target;
+			this.Starget=null;
+			this.weights=null;
+			fit(data);
+			return;
+		}
+		if (data.GetColumnDimension()!=columndimension){
+			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + data.GetColumnDimension());	
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		int row_class []=new_row_classes(target);
+		double row_weights []=new_row_weights(target.length);
+		int loop_list []=loop_list(data.GetRowDimension());
+		naivebayesstats helpers []= new naivebayesstats[loop_list.length-1];
+		for (int n=0; n < helpers.length; n++){
+			helpers[n]= new naivebayesstats(data, row_class, row_weights, n_classes, Scaler, this.usescale, loop_list[n], loop_list[n+1]);
+		}
+		run_helpers(helpers);
+		set_statistics(helpers, statistics);
+	}
+	/**
+	 * @param target : the target of the new rows
+	 * @return the class index of each new row
+	 */
+	private int [] new_row_classes(double target[]){
+		int row_class []=row_classes(target, null, target.length);
+		for (int i=0; i < row_class.length; i++){
+			if (row_class[i]<0){
+				throw new IllegalStateException(" The class " + target[i] + " was not seen when the model was fitted" );
+			}
+		}
+		return row_class;
+	}
+	/**
+	 * @param rows : number of new rows
+	 * @return the weights of the new rows (the average weight of the rows seen so far)
+	 */
+	private double [] new_row_weights(int rows){
+		double row_weights []= new double [rows];
+		Arrays.fill(row_weights, statistics.average_weight());
+		return row_weights;
+	}
+
 	@Override
 	public String GetType() {
 		return "classifier";
@@ -1569,6 +1075,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		System.out.println("Column dimension: " + columndimension);				
 		System.out.println("Shrinkage: " + this.Shrinkage);		
 		System.out.println("Usescale: " + this.usescale);	
+		System.out.println("Threads: " + this.threads);	
 
 		System.out.println("Seed: "+ seed);		
 		System.out.println("Verbality: "+ verbose);		
@@ -1612,7 +1119,12 @@ public class NaiveBayesClassifier implements estimator,classifier {
 	public void reset() {
 
 	    means_per_predictor=null;
+	    statistics=null;
  	    variances_per_predictor=null;
+ 	    coefficients=null;
+ 	    element_constants=null;
+ 	    class_constants=null;
+ 	    threads=1;
 		n_classes=0;
 		this.usescale=true;
 		columndimension=0;
@@ -1627,6 +1139,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		verbose=true;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		
 	}
 
@@ -1638,6 +1151,11 @@ public class NaiveBayesClassifier implements estimator,classifier {
 
 		br.means_per_predictor=this.means_per_predictor.clone();
 		br.variances_per_predictor=this.variances_per_predictor.clone();		
+		br.coefficients=this.coefficients.clone();
+		br.element_constants=this.element_constants.clone();
+		br.class_constants=this.class_constants.clone();
+		br.threads=this.threads;
+		br.statistics=this.statistics;
 		br.Shrinkage=this.Shrinkage;
 		br.n_classes=this.n_classes;
 		br.columndimension=this.columndimension;
@@ -1647,6 +1165,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 		br.seed=this.seed;
 		br.random=this.random;
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.target=manipulate.copies.copies.Copy(this.target.clone());
 		br.Starget=this.Starget.clone();		
@@ -1668,6 +1187,7 @@ public class NaiveBayesClassifier implements estimator,classifier {
 				
 				if (metric.equals("Shrinkage")) {this.Shrinkage=Double.parseDouble(value);}		
 				else if (metric.equals("seed")) {this.seed=Integer.parseInt(value);}
+				else if (metric.equals("threads")) {this.threads=Integer.parseInt(value);}
 				else if (metric.equals("usescale")) {this.usescale=(value.equals("True")?true:false);}
 				else if (metric.equals("copy")) {this.copy=(value.equals("True")?true:false);}
 				else if (metric.equals("verbose")) {this.verbose=(value.equals("True")?true:false)   ;}
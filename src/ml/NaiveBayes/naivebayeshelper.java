@@ -0,0 +1,328 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.NaiveBayes;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Scores a range of rows with the naive bayes in log space. The Gaussian log density of a class is written as
+ * <pre>K<sub>c</sub> + &Sigma;<sub>i</sub> B<sub>ci</sub>x<sub>i</sub> + A<sub>ci</sub>x<sub>i</sub><sup>2</sup></pre>
+ * with A=-1/(2s<sup>2</sup>) , B=m/s<sup>2</sup> and K holding the normalisers, so that a block of dense rows is scored
+ * as a product of its [x, x<sup>2</sup>] features with the per class coefficients. The probabilities are
+ * found with a softmax over the log densities, so that products of many small densities do not underflow.</p>
+ */
+public class naivebayeshelper implements Runnable {
+
+	/**
+	 * number of dense rows scored together
+	 */
+	private static final int block_size=64;
+	/**
+	 * dense data
+	 */
+	private double dataset[][];
+	/**
+	 * dense data in fsmatrix format
+	 */
+	private fsmatrix fsdataset;
+	/**
+	 * sparse data (sorted by row)
+	 */
+	private smatrix sdataset;
+	/**
+	 * where the scores are written (rows x classes)
+	 */
+	private double scores[][];
+	/**
+	 * per class coefficients [B<sub>0</sub>, A<sub>0</sub>, B<sub>1</sub>, A<sub>1</sub> ...]
+	 */
+	private double coefficients[][];
+	/**
+	 * per class and predictor log normaliser minus m<sup>2</sup>/(2s<sup>2</sup>)
+	 */
+	private double element_constants[][];
+	/**
+	 * per class sum of the element constants
+	 */
+	private double class_constants[];
+	/**
+	 * variances per class and predictor (predictors with zero variance are skipped)
+	 */
+	private double variances[][];
+	/**
+	 * Scaler to use in case of usescale=true
+	 */
+	private scaler Scaler;
+	/**
+	 * scale the data on the fly
+	 */
+	private boolean usescale=false;
+	/**
+	 * value added to every density (as in the product form of the naive bayes)
+	 */
+	private double shrinkage=0.0;
+	/**
+	 * start of the rows' loop
+	 */
+	private int start=0;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end=0;
+	/**
+	 * number of predictors
+	 */
+	private int columndimension=0;
+	/**
+	 * True to convert the log densities to probabilities , false to leave them as they are
+	 */
+	public boolean probabilities=true;
+
+	/**
+	 * @param data : the dense data
+	 * @param scores : where the scores are written
+	 * @param coefficients : per class coefficients [B, A] per predictor
+	 * @param element_constants : per class and predictor constants
+	 * @param class_constants : per class constants
+	 * @param variances : variances per class and predictor
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param shrinkage : value added to every density
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayeshelper(double data [][], double scores[][], double coefficients[][], double element_constants[][], double class_constants[],
+			double variances[][], scaler Scaler, boolean usescale, double shrinkage, int st, int ed){
+		this(scores, coefficients, element_constants, class_constants, variances, Scaler, usescale, shrinkage, st, ed, data==null?0:data.length);
+		this.dataset=data;
+	}
+	/**
+	 * @param data : the dense data
+	 * @param scores : where the scores are written
+	 * @param coefficients : per class coefficients [B, A] per predictor
+	 * @param element_constants : per class and predictor constants
+	 * @param class_constants : per class constants
+	 * @param variances : variances per class and predictor
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param shrinkage : value added to every density
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayeshelper(fsmatrix data, double scores[][], double coefficients[][], double element_constants[][], double class_constants[],
+			double variances[][], scaler Scaler, boolean usescale, double shrinkage, int st, int ed){
+		this(scores, coefficients, element_constants, class_constants, variances, Scaler, usescale, shrinkage, st, ed, data==null?0:data.GetRowDimension());
+		this.fsdataset=data;
+	}
+	/**
+	 * @param data : the sparse data (sorted by row)
+	 * @param scores : where the scores are written
+	 * @param coefficients : per class coefficients [B, A] per predictor
+	 * @param element_constants : per class and predictor constants
+	 * @param class_constants : per class constants
+	 * @param variances : variances per class and predictor
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param shrinkage : value added to every density
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayeshelper(smatrix data, double scores[][], double coefficients[][], double element_constants[][], double class_constants[],
+			double variances[][], scaler Scaler, boolean usescale, double shrinkage, int st, int ed){
+		this(scores, coefficients, element_constants, class_constants, variances, Scaler, usescale, shrinkage, st, ed, data==null?0:data.GetRowDimension());
+		if (!data.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse data needs to be sorted by row" );
+		}
+		this.sdataset=data;
+	}
+
+	private naivebayeshelper(double scores[][], double coefficients[][], double element_constants[][], double class_constants[],
+			double variances[][], scaler Scaler, boolean usescale, double shrinkage, int st, int ed, int rows){
+		if (rows<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		if (st<0 || ed>rows || st>ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		if (scores==null || scores.length<ed){
+			throw new IllegalStateException(" The scores' array needs to have a row for every scored row" );
+		}
+		this.scores=scores;
+		this.coefficients=coefficients;
+		this.element_constants=element_constants;
+		this.class_constants=class_constants;
+		this.variances=variances;
+		this.Scaler=Scaler;
+		this.usescale=usescale;
+		this.shrinkage=shrinkage;
+		this.start=st;
+		this.end=ed;
+		this.columndimension=element_constants[0].length;
+	}
+
+	/**
+	 * scores the non zero elements first to last (of the sparse data) that belong to one row
+	 * @param first : the first element
+	 * @param last : the end of the elements
+	 * @param score : where the score of each class is written
+	 */
+	public void score_elements(int first, int last, double score[]){
+		for (int g=0; g < score.length; g++){
+			double coef[]=coefficients[g];
+			double constants[]=element_constants[g];
+			double variance[]=variances[g];
+			double sum=0.0;
+			for (int h=first; h < last; h++){
+				int j=sdataset.mainelementpile[h];
+				if (variance[j]==0){
+					continue;
+				}
+				double value=sdataset.valuespile[h];
+				if (usescale){
+					value=Scaler.transform(value, j);
+				}
+				double log_density=constants[j] + coef[2*j]*value + coef[2*j+1]*value*value;
+				if (shrinkage!=0.0){
+					log_density=Math.log(Math.exp(log_density)+shrinkage);
+				}
+				sum+=log_density;
+			}
+			score[g]=sum;
+		}
+		finish(score);
+	}
+
+	/**
+	 * replaces NaNs with zero probability and (if probabilities=true) applies the softmax
+	 * @param score : the log densities of a row
+	 */
+	private void finish(double score[]){
+		double max=Double.NEGATIVE_INFINITY;
+		for (int g=0; g < score.length; g++){
+			if (Double.isNaN(score[g])){
+				score[g]=Double.NEGATIVE_INFINITY;
+			}
+			if (score[g]>max){
+				max=score[g];
+			}
+		}
+		if (!probabilities){
+			return;
+		}
+		if (max==Double.NEGATIVE_INFINITY || max==Double.POSITIVE_INFINITY){
+			// nothing to compare (or a degenerate density) , so all the highest classes are equally likely
+			int ties=0;
+			for (int g=0; g < score.length; g++){
+				if (score[g]==max){
+					ties++;
+				}
+			}
+			for (int g=0; g < score.length; g++){
+				score[g]=(score[g]==max)?1.0/ties:0.0;
+			}
+			return;
+		}
+		double sum=0.0;
+		for (int g=0; g < score.length; g++){
+			score[g]=Math.exp(score[g]-max);
+			sum+=score[g];
+		}
+		for (int g=0; g < score.length; g++){
+			score[g]/=sum;
+		}
+	}
+
+	/**
+	 * scores a block of dense rows
+	 * @param first : first row of the block
+	 * @param rows : number of rows in the block
+	 * @param features : buffer for the [x, x<sup>2</sup>] features of the block
+	 */
+	private void score_block(int first, int rows, double features[]){
+		int width=2*columndimension;
+		for (int r=0; r < rows; r++){
+			int i=first+r;
+			int offset=r*width;
+			for (int j=0; j < columndimension; j++){
+				double value=0.0;
+				if (fsdataset!=null){
+					value=fsdataset.GetElement(i, j);
+				} else {
+					value=dataset[i][j];
+				}
+				if (usescale){
+					value=Scaler.transform(value, j);
+				}
+				features[offset+2*j]=value;
+				features[offset+2*j+1]=value*value;
+			}
+		}
+		for (int g=0; g < coefficients.length; g++){
+			double coef[]=coefficients[g];
+			if (shrinkage==0.0){
+				for (int r=0; r < rows; r++){
+					int offset=r*width;
+					double sum=class_constants[g];
+					for (int k=0; k < width; k++){
+						sum+=coef[k]*features[offset+k];
+					}
+					scores[first+r][g]=sum;
+				}
+			} else {
+				double constants[]=element_constants[g];
+				double variance[]=variances[g];
+				for (int r=0; r < rows; r++){
+					int offset=r*width;
+					double sum=0.0;
+					for (int j=0; j < columndimension; j++){
+						if (variance[j]==0){
+							continue;
+						}
+						sum+=Math.log(Math.exp(constants[j] + coef[2*j]*features[offset+2*j] + coef[2*j+1]*features[offset+2*j+1])+shrinkage);
+					}
+					scores[first+r][g]=sum;
+				}
+			}
+		}
+		for (int r=0; r < rows; r++){
+			finish(scores[first+r]);
+		}
+	}
+
+	@Override
+	public void run() {
+		if (sdataset!=null){
+			for (int i=start; i < end; i++){
+				score_elements(sdataset.indexpile[i], sdataset.indexpile[i+1], scores[i]);
+			}
+			return;
+		}
+		double features[]= new double [Math.min(block_size, end-start)*2*columndimension];
+		for (int i=start; i < end; i+=block_size){
+			score_block(i, Math.min(block_size, end-i), features);
+		}
+	}
+
+}
@@ -0,0 +1,310 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.NaiveBayes;
+
+import java.io.Serializable;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Accumulates the weighted sufficient statistics of the naive bayes (weight , mean and sum of squared deviations
+ * per class and predictor) in one pass over a range of rows. Every helper keeps its own partial statistics
+ * (updated with Welford's method) and the partial statistics of many helpers are combined with {@link #merge}.
+ * For sparse data only the non zero elements are visited and the zeros are added in bulk at the end.
+ * The merged statistics are kept by the model, so that new rows may be added later (see partial_fit).</p>
+ */
+public class naivebayesstats implements Runnable, Serializable {
+
+	/**
+	 * default Serial id
+	 */
+	private static final long serialVersionUID = 2374519843706164215L;
+
+	/**
+	 * dense data
+	 */
+	private double dataset[][];
+	/**
+	 * dense data in fsmatrix format
+	 */
+	private fsmatrix fsdataset;
+	/**
+	 * sparse data (sorted by row)
+	 */
+	private smatrix sdataset;
+	/**
+	 * the class index of each row (-1 if the row does not belong to any class)
+	 */
+	private int row_class[];
+	/**
+	 * the weights of the rows
+	 */
+	private double weights[];
+	/**
+	 * Scaler to use in case of usescale=true
+	 */
+	private scaler Scaler;
+	/**
+	 * scale the data on the fly
+	 */
+	private boolean usescale=false;
+	/**
+	 * start of the rows' loop
+	 */
+	private int start=0;
+	/**
+	 * end of the rows' loop
+	 */
+	private int end=0;
+	/**
+	 * number of predictors
+	 */
+	private int columndimension=0;
+	/**
+	 * sum of weights per class
+	 */
+	private double class_weights[];
+	/**
+	 * sum of squared weights per class
+	 */
+	private double class_squared_weights[];
+	/**
+	 * sum of weights of the visited elements per class and predictor
+	 */
+	private double counts[][];
+	/**
+	 * weighted mean of the visited elements per class and predictor
+	 */
+	private double means[][];
+	/**
+	 * weighted sum of squared deviations from the mean of the visited elements per class and predictor
+	 */
+	private double squared_deviations[][];
+	/**
+	 * number of rows that belong to a class
+	 */
+	private long rows=0;
+
+	/**
+	 * @param data : the dense data
+	 * @param row_class : the class index of each row (-1 for none)
+	 * @param weights : the weights of the rows
+	 * @param n_classes : number of classes
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayesstats(double data [][], int row_class[], double weights[], int n_classes, scaler Scaler, boolean usescale, int st, int ed){
+		this(row_class, weights, n_classes, Scaler, usescale, st, ed, data==null?0:data.length, data==null || data.length<=0?0:data[0].length);
+		this.dataset=data;
+	}
+	/**
+	 * @param data : the dense data
+	 * @param row_class : the class index of each row (-1 for none)
+	 * @param weights : the weights of the rows
+	 * @param n_classes : number of classes
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayesstats(fsmatrix data, int row_class[], double weights[], int n_classes, scaler Scaler, boolean usescale, int st, int ed){
+		this(row_class, weights, n_classes, Scaler, usescale, st, ed, data==null?0:data.GetRowDimension(), data==null?0:data.GetColumnDimension());
+		this.fsdataset=data;
+	}
+	/**
+	 * @param data : the sparse data (sorted by row)
+	 * @param row_class : the class index of each row (-1 for none)
+	 * @param weights : the weights of the rows
+	 * @param n_classes : number of classes
+	 * @param Scaler : scaler object
+	 * @param usescale : scale the data on the fly
+	 * @param st : start of the rows' loop
+	 * @param ed : end of the rows' loop
+	 */
+	public naivebayesstats(smatrix data, int row_class[], double weights[], int n_classes, scaler Scaler, boolean usescale, int st, int ed){
+		this(row_class, weights, n_classes, Scaler, usescale, st, ed, data==null?0:data.GetRowDimension(), data==null?0:data.GetColumnDimension());
+		if (!data.IsSortedByRow()){
+			throw new IllegalStateException(" The sparse data needs to be sorted by row" );
+		}
+		this.sdataset=data;
+	}
+
+	private naivebayesstats(int row_class[], double weights[], int n_classes, scaler Scaler, boolean usescale, int st, int ed, int rows, int columns){
+		if (rows<=0 || columns<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (row_class==null || row_class.length!=rows || weights==null || weights.length!=rows){
+			throw new IllegalStateException(" classes and weights need to be provided for every row" );
+		}
+		if (st<0 || ed>rows || st>ed){
+			throw new IllegalStateException(" The start and end of the loop are not valid: " + st + " , " + ed  );
+		}
+		this.row_class=row_class;
+		this.weights=weights;
+		this.Scaler=Scaler;
+		this.usescale=usescale;
+		this.start=st;
+		this.end=ed;
+		this.columndimension=columns;
+		this.class_weights=new double [n_classes];
+		this.class_squared_weights=new double [n_classes];
+		this.counts=new double [n_classes][columns];
+		this.means=new double [n_classes][columns];
+		this.squared_deviations=new double [n_classes][columns];
+	}
+
+	/**
+	 * adds a weighted value to the running statistics of a class and predictor
+	 */
+	private void add(int g, int j, double value, double w){
+		if (this.usescale){
+			value=Scaler.transform(value, j);
+		}
+		double count=counts[g][j]+w;
+		if (count==0.0){
+			return;
+		}
+		double delta=value-means[g][j];
+		means[g][j]+=delta*w/count;
+		squared_deviations[g][j]+=w*delta*(value-means[g][j]);
+		counts[g][j]=count;
+	}
+
+	/**
+	 * combines two partial statistics of the same class and predictor (Chan et al.)
+	 */
+	private void combine(int g, int j, double count, double mean, double squared_deviation){
+		double total=counts[g][j]+count;
+		if (count==0.0 || total==0.0){
+			return;
+		}
+		double delta=mean-means[g][j];
+		means[g][j]+=delta*count/total;
+		squared_deviations[g][j]+=squared_deviation + delta*delta*counts[g][j]*count/total;
+		counts[g][j]=total;
+	}
+
+	/**
+	 * adds the partial statistics of another helper (of the same data) to the ones of this helper
+	 * @param other : the helper to merge
+	 */
+	public void merge(naivebayesstats other){
+		if (other==this){
+			return;
+		}
+		if (other.means.length!=this.means.length || other.columndimension!=this.columndimension){
+			throw new IllegalStateException(" The statistics to merge do not have the same dimensions" );
+		}
+		rows+=other.rows;
+		for (int g=0; g < means.length; g++){
+			class_weights[g]+=other.class_weights[g];
+			class_squared_weights[g]+=other.class_squared_weights[g];
+			for (int j=0; j < columndimension; j++){
+				combine(g, j, other.counts[g][j], other.means[g][j], other.squared_deviations[g][j]);
+			}
+		}
+	}
+
+	/**
+	 * fills the means and the (unbiased, weighted) variances per class and predictor
+	 * @param means_per_predictor : the means to fill
+	 * @param variances_per_predictor : the variances to fill
+	 */
+	public void getstatistics(double means_per_predictor [][], double variances_per_predictor[][]){
+		for (int g=0; g < means.length; g++){
+			double weighted_count=class_weights[g];
+			double squared_weighted_count=class_squared_weights[g];
+			for (int j=0; j < columndimension; j++){
+				if (weighted_count==0.0){
+					means_per_predictor[g][j]=0.0;
+					variances_per_predictor[g][j]=0.0;
+					continue;
+				}
+				// the elements that were not visited are zeros
+				double mean=means[g][j];
+				double squared_deviation=squared_deviations[g][j];
+				double zeros=weighted_count-counts[g][j];
+				if (zeros>0.0){
+					double delta=-mean;
+					mean+=delta*zeros/weighted_count;
+					squared_deviation+=delta*delta*counts[g][j]*zeros/weighted_count;
+				}
+				means_per_predictor[g][j]=mean;
+				variances_per_predictor[g][j]=squared_deviation*(weighted_count/(weighted_count*weighted_count-squared_weighted_count ));
+			}
+		}
+	}
+
+	/**
+	 * @return the average weight of the rows seen so far (1.0 if there are none)
+	 */
+	public double average_weight(){
+		double sum=0.0;
+		for (int g=0; g < class_weights.length; g++){
+			sum+=class_weights[g];
+		}
+		if (rows<=0 || sum<=0.0){
+			return 1.0;
+		}
+		return sum/rows;
+	}
+
+	@Override
+	public void run() {
+		for (int i=start; i < end; i++){
+			int g=row_class[i];
+			if (g<0){
+				continue;
+			}
+			double w=weights[i];
+			rows++;
+			class_weights[g]+=w;
+			class_squared_weights[g]+=w*w;
+			if (sdataset!=null){
+				for (int h=sdataset.indexpile[i]; h < sdataset.indexpile[i+1]; h++){
+					add(g, sdataset.mainelementpile[h], sdataset.valuespile[h], w);
+				}
+			} else if (fsdataset!=null){
+				for (int j=0; j < columndimension; j++){
+					add(g, j, fsdataset.GetElement(i, j), w);
+				}
+			} else {
+				for (int j=0; j < columndimension; j++){
+					add(g, j, dataset[i][j], w);
+				}
+			}
+		}
+		// the statistics are kept after the pass , but not the data
+		dataset=null;
+		fsdataset=null;
+		sdataset=null;
+		row_class=null;
+		weights=null;
+		Scaler=null;
+	}
+
+}
@@ -21,8 +21,6 @@ SOFTWARE.
 
 package ml.Tree;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.scaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
  * /**
@@ -269,6 +268,19 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	/**
 	 * Target variable in String format
 	 */	
@@ -299,6 +311,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -801,11 +814,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -902,11 +911,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -999,11 +1004,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -1051,11 +1052,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	predictions_probas=null;
@@ -1102,11 +1099,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	    	  predictions_probas=null;
@@ -1154,11 +1147,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	    	  predictions_probas=null;
@@ -1226,35 +1215,12 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1263,6 +1229,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -1559,36 +1526,12 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		   
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1597,6 +1540,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -1895,35 +1839,12 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1932,6 +1853,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -2305,6 +2227,7 @@ public class AdaboostRandomForestClassifier implements estimator,classifier {
 		this.weight_thresold=0.1;
 		columndimension=0;
 		this.classes=null;
+		this.encoder=null;
 		copy=true;
 		seed=1;
 		this.rounding=30;
@@ -25,12 +25,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map;
 import java.util.Random;
 
 import preprocess.scaling.scaler;
 import utilis.XorShift128PlusRandom;
+import crossvalidation.splits.sampler;
 import utilis.map.intint.IntIntMapminus4a;
 import utilis.map.intint.StringIntMap4a;
 import exceptions.DimensionMismatchException;
@@ -39,6 +39,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.estimator;
 import ml.classifier;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -290,7 +291,8 @@ public class DecisionTreeClassifier implements estimator,classifier {
 
 	
 	/**
-	 * use samples with replacement
+	 * use samples with replacement. The rows drawn are weighted by how many times they were drawn instead of being repeated , 
+	 * so the models (and the split thresholds) a seed gives differ from the ones of the duplicated rows of older versions
 	 */
 	public boolean bootsrap=false;
 	/**
@@ -423,6 +425,19 @@ public class DecisionTreeClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	/**
 	 * Retrieve the number of uniqye classes
 	 */
@@ -457,6 +472,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	public DecisionTreeClassifier(){
 	
@@ -1514,11 +1530,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
   			 maxi=k;	 
   		 }
   	  }
-  	  try{
-  		return Double.parseDouble(classes[maxi]);
-  	  } catch (Exception e){
-  		return maxi;
-  	  }
+  	  return encoder.decode(maxi);
 
 		
 			}
@@ -1586,11 +1598,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 	  			 maxi=k;	 
 	  		 }
 	  	  }
-	  	  try{
-	  		return Double.parseDouble(classes[maxi]);
-	  	  } catch (Exception e){
-	  		return maxi;
-	  	  }
+	  	  return encoder.decode(maxi);
 
 			}
 			
@@ -1670,11 +1678,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 	  			 maxi=k;	 
 	  		 }
 	  	  }
-	  	  try{
-	  		return Double.parseDouble(classes[maxi]);
-	  	  } catch (Exception e){
-	  		return maxi;
-	  	  }
+	  	  return encoder.decode(maxi);
 
 			}
 
@@ -1733,35 +1737,12 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1770,6 +1751,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -1835,46 +1817,15 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		//check if initial rows are given
 		 
 			if (rows==null){
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.length; i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.length));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
+				rows=sampler.subsample(data.length, this.row_subsample, random);
 			}else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.length, random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
@@ -2055,35 +2006,12 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -2092,6 +2020,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -2155,47 +2084,15 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		 //System.out.println(" subsampleinteger " + subsampleinteger);
 		//check if initial rows are given
 			if (rows==null){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.GetRowDimension(); i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.GetRowDimension()));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-			} else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(data.GetRowDimension(), this.row_subsample, random);
+			}else if (this.row_subsample!=1.0){
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.GetRowDimension(), random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
@@ -2377,35 +2274,12 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -2414,6 +2288,7 @@ public class DecisionTreeClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -2484,46 +2359,15 @@ public class DecisionTreeClassifier implements estimator,classifier {
 		 //System.out.println(" subsampleinteger " + subsampleinteger);
 		//check if initial rows are given
 			if (rows==null){
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.GetRowDimension(); i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.GetRowDimension()));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
+				rows=sampler.subsample(data.GetRowDimension(), this.row_subsample, random);
 			}else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.GetRowDimension(), random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
@@ -29,6 +29,7 @@ import java.util.Random;
 
 import preprocess.scaling.scaler;
 import utilis.XorShift128PlusRandom;
+import crossvalidation.splits.sampler;
 import utilis.map.intint.IntIntMapminus4a;
 import exceptions.DimensionMismatchException;
 import matrix.fsmatrix;
@@ -282,7 +283,8 @@ public class DecisionTreeRegressor implements estimator,regressor {
 
 	
 	/**
-	 * use samples with replacement
+	 * use samples with replacement. The rows drawn are weighted by how many times they were drawn instead of being repeated , 
+	 * so the models (and the split thresholds) a seed gives differ from the ones of the duplicated rows of older versions
 	 */
 	public boolean bootsrap=false;
 	/**
@@ -1737,46 +1739,15 @@ public class DecisionTreeRegressor implements estimator,regressor {
 		//check if initial rows are given
 		 
 			if (rows==null){
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.length; i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.length));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
+				rows=sampler.subsample(data.length, this.row_subsample, random);
 			}else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.length, random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
@@ -2015,47 +1986,15 @@ public class DecisionTreeRegressor implements estimator,regressor {
 		 //System.out.println(" subsampleinteger " + subsampleinteger);
 		//check if initial rows are given
 			if (rows==null){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.GetRowDimension(); i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.GetRowDimension()));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-			} else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(data.GetRowDimension(), this.row_subsample, random);
+			}else if (this.row_subsample!=1.0){
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.GetRowDimension(), random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
@@ -2305,46 +2244,15 @@ public class DecisionTreeRegressor implements estimator,regressor {
 		 //System.out.println(" subsampleinteger " + subsampleinteger);
 		//check if initial rows are given
 			if (rows==null){
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i=0; i <data.GetRowDimension(); i++ ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(random.nextInt(data.GetRowDimension()));	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
+				rows=sampler.subsample(data.GetRowDimension(), this.row_subsample, random);
 			}else if (this.row_subsample!=1.0){
-				
-				ArrayList<Integer> subset_of_rows= new ArrayList<Integer>();
-				
-				for (int i : rows ){
-					if (random.nextInt()<subsampleinteger){
-						subset_of_rows.add(i);
-					}
-				}			
-				if (subset_of_rows.size()<=0){
-					subset_of_rows.add(rows[random.nextInt(rows.length)]);	
-				}
-				rows= new int [subset_of_rows.size()];
-				for (int i=0; i <rows.length; i++ ){
-					rows[i]=subset_of_rows.get(i);
-				}
-				subset_of_rows=null;
-				
+				rows=sampler.subsample(rows, this.row_subsample, random);
 			}
 			if (this.bootsrap){
-				int newrows[]= new int[this.rows.length];
-				for (int i=0; i < newrows.length; i++){
-					newrows[i]=this.rows[random.nextInt(this.rows.length)];
-				}
-				this.rows=newrows;
+				// rows drawn more than once are weighted instead of repeated
+				int counts[]=sampler.bootstrap(this.rows, data.GetRowDimension(), random);
+				this.rows=sampler.rows(counts);
+				this.weights=sampler.weights(this.weights, counts);
 			}		
 			//check if initial cols are given
 			if (columns==null){
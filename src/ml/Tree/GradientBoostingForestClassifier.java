@@ -21,8 +21,6 @@ SOFTWARE.
 
 package ml.Tree;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.scaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
 *<p> This class will run the GradientBoosting algorithms on Regression Random Forests (or trees if forest count=1)  . The idea behind the algorithm is that 
@@ -254,6 +253,19 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 
 	/**
 	 * Target variable in String format
@@ -285,6 +297,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -858,11 +871,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -974,11 +983,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -1086,11 +1091,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -1148,11 +1149,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	predictions_probas=null;
@@ -1208,11 +1205,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	    	  predictions_probas=null;
@@ -1270,11 +1263,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions=maxi;
-	    	  }
+	    	  predictions=encoder.decode(maxi);
 
 		
 	    	  predictions_probas=null;
@@ -1339,35 +1328,12 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1376,6 +1342,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -1718,35 +1685,12 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -1755,6 +1699,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -2098,35 +2043,12 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 		} else if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-		    int index=0;
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    	mapper.put(classes[j], index);
-		    	index++;
-		    }
-		    fstarget=new int[target.length];
-		    for (int i=0; i < fstarget.length; i++){
-		    	fstarget[i]=mapper.get(target[i] + "");
-		    }
+			classes=encoder.getclasses();
+			fstarget=encoder.encode(target);
 		    
 
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
@@ -2135,6 +2057,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);
+			    encoder= new labelencoder(classes);
 			    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
 			    int index=0;
 			    for (int j=0; j < classes.length; j++){
@@ -2561,6 +2484,7 @@ public class GradientBoostingForestClassifier implements estimator,classifier {
 		this.row_subsample=1.0;
 		columndimension=0;
 		this.classes=null;
+		this.encoder=null;
 		this.rounding=30;
 		this.offset=0.0001;
 		this.trees=1;
@@ -1616,6 +1616,9 @@ public class GradientBoostingForestRegressor implements estimator,regressor {
 		if (this.sdataset.indexer==null){
 			this.sdataset.buildmap();
 		}
+		if (data.indexer==null){
+			data.buildmap();
+		}
 		initial_estimates=new double [this.n_classes];
 		double initial_counts[]=new double [this.n_classes];
 		if (this.weights==null){
@@ -1843,6 +1843,9 @@ public class RandomForestRegressor implements estimator,regressor {
 		if (this.sdataset.indexer==null){
 			this.sdataset.buildmap();
 		}
+		if (data.indexer==null){
+			data.buildmap();
+		}
 
 		/**
 		 *  generate rows required by the algorithm
@@ -0,0 +1,191 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+package ml;
+
+import matrix.fsmatrix;
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Base of the helpers of the asynchronous (PASSCoDe-style) dual coordinate descent solvers. Each helper owns the dual variables
+ * of a block of rows , while the primal coefficients are shared and updated without locks by all helpers.
+ * Every step is also added to the helper's own copy of the changes of the coefficients (in the same pass over the row), so that
+ * after the epochs the coefficients can be rebuilt with {@link #rebuild} and the updates lost between the threads do not build up.</p>
+ */
+public abstract class dualhelper implements Runnable {
+
+	/**
+	 * dense data to train on
+	 */
+	protected fsmatrix fdata;
+	/**
+	 * sparse data to train on (sorted by row)
+	 */
+	protected smatrix sdata;
+	/**
+	 * coefficients (shared among the helpers)
+	 */
+	protected double betas[];
+	/**
+	 * The cosntant value (shared among the helpers)
+	 */
+	protected double constant[];
+	/**
+	 * Scaler to use in case of usescale=true
+	 */
+	protected scaler Scaler;
+	/**
+	 * scale the data on the fly
+	 */
+	public boolean usescale=false;
+	/**
+	 * If we want to use constant in the model
+	 */
+	public boolean UseConstant=true;
+	/**
+	 * the change of the coefficients from this helper's rows since it was created
+	 */
+	private double delta[];
+	/**
+	 * the change of the constant from this helper's rows since it was created
+	 */
+	private double constant_delta=0.0;
+
+	/**
+	 * @param betas : coefficients
+	 * @param constant : 1-element array with the constant
+	 * @param Scaler : scaler object
+	 */
+	protected dualhelper(double betas[], double constant[], scaler Scaler){
+		this.betas=betas;
+		this.constant=constant;
+		this.Scaler=Scaler;
+		this.delta=new double[betas.length];
+	}
+
+	/**
+	 * @param i : the row
+	 * @return w'x for the row
+	 */
+	protected double dot(int i){
+		double G=0.0;
+		if (sdata!=null){
+			for (int j=sdata.indexpile[i]; j<sdata.indexpile[i+1]; j++ ) {
+				double val=sdata.valuespile[j];
+				if (usescale){
+					val=Scaler.transform(val, sdata.mainelementpile[j]);
+				}
+				G += betas[sdata.mainelementpile[j]] *val;
+			}
+		} else {
+			for (int j=0; j < betas.length; j++) {
+				double val=fdata.GetElement(i, j);
+				if (val==0.0){
+					continue;
+				}
+				if (usescale){
+					val=Scaler.transform(val, j);
+				}
+				G += betas[j] * val;
+			}
+		}
+		return G;
+	}
+	/**
+	 * adds d*x to the shared coefficients and to the changes of this helper (and d to the constant)
+	 * @param i : the row
+	 * @param d : the step
+	 */
+	protected void update(int i, double d){
+		constant_delta+=d;
+		if (UseConstant){
+			constant[0]+=d;
+		}
+		if (sdata!=null){
+			for (int j=sdata.indexpile[i]; j<sdata.indexpile[i+1]; j++ ) {
+				double val=sdata.valuespile[j];
+				int column=sdata.mainelementpile[j];
+				if (usescale){
+					val=Scaler.transform(val, column);
+				}
+				val*=d;
+				betas[column] += val;
+				delta[column] += val;
+			}
+		} else {
+			for (int j=0; j < betas.length; j++) {
+				double val=fdata.GetElement(i, j);
+				if (val==0.0){
+					continue;
+				}
+				if (usescale){
+					val=Scaler.transform(val, j);
+				}
+				val*=d;
+				betas[j] += val;
+				delta[j] += val;
+			}
+		}
+	}
+
+	/**
+	 * starts the helpers , one thread each , and waits for all of them
+	 * @param helpers : the helpers to run
+	 */
+	public static void run(dualhelper helpers []){
+		Thread[] thread_array= new Thread[helpers.length];
+		for (int t=0; t < helpers.length; t++){
+			thread_array[t]= new Thread(helpers[t]);
+			thread_array[t].start();
+		}
+		for (int t=0; t < helpers.length; t++){
+			try {
+				thread_array[t].join();
+			} catch (InterruptedException e) {
+			   System.out.println(e.getMessage());
+			   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+	}
+	/**
+	 * rebuilds the shared coefficients (and the constant) from their values before the epochs plus the changes of every helper
+	 * @param helpers : the helpers (that share the same coefficients)
+	 * @param betas_start : the coefficients before the first epoch
+	 * @param constant_start : the constant before the first epoch
+	 */
+	public static void rebuild(dualhelper helpers [], double betas_start[], double constant_start){
+		double betas[]=helpers[0].betas;
+		System.arraycopy(betas_start, 0, betas, 0, betas.length);
+		double constant_sum=constant_start;
+		for (int t=0; t < helpers.length; t++){
+			double delta[]=helpers[t].delta;
+			for (int j=0; j < betas.length; j++){
+				betas[j]+=delta[j];
+			}
+			constant_sum+=helpers[t].constant_delta;
+		}
+		if (helpers[0].UseConstant){
+			helpers[0].constant[0]=constant_sum;
+		}
+	}
+
+}
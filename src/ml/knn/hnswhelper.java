@@ -0,0 +1,229 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.knn;
+
+/**
+ * <p> Working memory of one thread that inserts rows in (or searches) an {@link hnswindex}. It holds the visited marks,
+ * the candidates' min-heap, the nearest rows found so far and a dense buffer for the row being inserted, so that
+ * neither building nor searching allocates per row. When run, it inserts the rows st, st+step, st+2*step... of the graph.</p>
+ */
+public class hnswhelper implements Runnable {
+
+	/**
+	 * the graph
+	 */
+	private hnswindex graph;
+	/**
+	 * first row to insert
+	 */
+	private int start;
+	/**
+	 * step between the rows to insert
+	 */
+	private int step;
+	/**
+	 * visit mark of each row
+	 */
+	private int visited[];
+	/**
+	 * the current visit mark
+	 */
+	private int mark=0;
+	/**
+	 * distances of the candidates (min-heap)
+	 */
+	double candidate_distance[];
+	/**
+	 * the candidates (min-heap)
+	 */
+	int candidate[];
+	/**
+	 * number of candidates
+	 */
+	int candidates=0;
+	/**
+	 * the nearest rows found in the last search of a layer
+	 */
+	knnheap results;
+	/**
+	 * holds the links of a row while they are examined
+	 */
+	int links[];
+	/**
+	 * dense buffer for a stored row
+	 */
+	double row[];
+	/**
+	 * second dense buffer for a stored row
+	 */
+	double other_row[];
+	/**
+	 * distance of the row returned by the last greedy search
+	 */
+	double current_distance;
+	/**
+	 * sorted distances of the results
+	 */
+	double sorted_distance[];
+	/**
+	 * sorted results
+	 */
+	int sorted[];
+	
+	/**
+	 * @param graph : the graph
+	 * @param st : first row to insert
+	 * @param step : step between the rows to insert
+	 */
+	public hnswhelper(hnswindex graph, int st, int step){
+		if (graph==null){
+			throw new IllegalStateException(" There is no graph" );
+		}
+		if (st<0 || step<1){
+			throw new IllegalStateException(" The start and step of the loop are not valid: " + st + " , " + step  );
+		}
+		this.graph=graph;
+		this.start=st;
+		this.step=step;
+		this.visited=new int [graph.GetRowDimension()];
+		this.candidate_distance=new double [64];
+		this.candidate=new int [64];
+		this.links=new int [graph.max_links()+1];
+		this.row=new double [graph.GetColumnDimension()];
+		this.other_row=new double [graph.GetColumnDimension()];
+	}
+	
+	/**
+	 * @param ef : the number of nearest rows to keep in a layer's search
+	 * @return the heap of the results , cleared
+	 */
+	knnheap results(int ef){
+		if (results==null || results.row.length!=ef){
+			results=new knnheap(ef);
+			sorted_distance=new double [ef];
+			sorted=new int [ef];
+		}
+		results.clear();
+		return results;
+	}
+	/**
+	 * starts a new search , so that no row is marked as visited
+	 */
+	void new_search(){
+		mark++;
+		if (mark==Integer.MAX_VALUE){
+			java.util.Arrays.fill(visited, 0);
+			mark=1;
+		}
+		candidates=0;
+	}
+	/**
+	 * @param s : a row
+	 * @return true if the row was already visited in this search (it is marked as visited otherwise)
+	 */
+	boolean visit(int s){
+		if (visited[s]==mark){
+			return true;
+		}
+		visited[s]=mark;
+		return false;
+	}
+	/**
+	 * adds a candidate to the min-heap
+	 * @param d : the distance
+	 * @param s : the row
+	 */
+	void push(double d, int s){
+		if (candidates==candidate.length){
+			candidate=java.util.Arrays.copyOf(candidate, 2*candidates);
+			candidate_distance=java.util.Arrays.copyOf(candidate_distance, 2*candidates);
+		}
+		int k=candidates++;
+		while (k>0){
+			int parent=(k-1)>>1;
+			if (candidate_distance[parent]<=d){
+				break;
+			}
+			candidate_distance[k]=candidate_distance[parent];
+			candidate[k]=candidate[parent];
+			k=parent;
+		}
+		candidate_distance[k]=d;
+		candidate[k]=s;
+	}
+	/**
+	 * removes the closest candidate (it needs to be read first from candidate[0] and candidate_distance[0])
+	 */
+	void pop(){
+		candidates--;
+		if (candidates==0){
+			return;
+		}
+		double d=candidate_distance[candidates];
+		int s=candidate[candidates];
+		int k=0;
+		int half=candidates>>1;
+		while (k<half){
+			int child=2*k+1;
+			if (child+1<candidates && candidate_distance[child+1]<candidate_distance[child]){
+				child++;
+			}
+			if (candidate_distance[child]>=d){
+				break;
+			}
+			candidate_distance[k]=candidate_distance[child];
+			candidate[k]=candidate[child];
+			k=child;
+		}
+		candidate_distance[k]=d;
+		candidate[k]=s;
+	}
+	/**
+	 * copies the results in sorted_distance and sorted , closest first
+	 * @return the number of results
+	 */
+	int sort_results(){
+		int size=results.size;
+		for (int i=0; i < size; i++){
+			double d=results.distance[i];
+			int s=results.row[i];
+			int k=i-1;
+			while (k>=0 && sorted_distance[k]>d){
+				sorted_distance[k+1]=sorted_distance[k];
+				sorted[k+1]=sorted[k];
+				k--;
+			}
+			sorted_distance[k+1]=d;
+			sorted[k+1]=s;
+		}
+		return size;
+	}
+	
+	@Override
+	public void run() {
+		for (int s=start; s < graph.GetRowDimension(); s+=step){
+			graph.insert(s, this);
+		}
+	}
+
+}
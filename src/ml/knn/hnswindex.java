@@ -0,0 +1,419 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.knn;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+import utilis.XorShift128PlusRandom;
+
+/**
+ * <p> Approximate nearest neighbours index , a Hierarchical Navigable Small World graph (Malkov and Yashunin).
+ * Every row is placed in layers 0..level (the level is drawn at random with probability decaying by M) and is linked
+ * with up to M of its nearest rows in each layer (2*M in layer 0), picked with the neighbour selection heuristic.
+ * A query walks greedily from the top layer down and searches layer 0 keeping the ef_search nearest rows,
+ * so higher ef_search (and ef_construction , M) gives better recall at the cost of speed.
+ * The rows are inserted by many threads at once , each row's links being locked while they change.
+ * The graph is serialisable , so it is saved with the model.</p>
+ */
+public class hnswindex extends knnindex {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2394012984530671134L;
+	/**
+	 * maximum number of links per row in the layers above 0
+	 */
+	private int M;
+	/**
+	 * maximum number of links per row in layer 0
+	 */
+	private int M0;
+	/**
+	 * number of nearest rows to keep when searching for the links of a new row
+	 */
+	private int ef_construction;
+	/**
+	 * number of nearest rows to keep when searching for the neighbours of a query (at least the number of neighbours is used)
+	 */
+	public int ef_search=50;
+	/**
+	 * top layer of each row
+	 */
+	private int levels[];
+	/**
+	 * links of each row, layer after layer. Each layer starts with the number of links
+	 */
+	private int links[][];
+	/**
+	 * the row the searches start from
+	 */
+	private int entry_point=0;
+	/**
+	 * the top layer of the graph
+	 */
+	private int max_level=0;
+	/**
+	 * true while the rows are being inserted (links are read with locks)
+	 */
+	private transient volatile boolean building=false;
+	/**
+	 * working memory for the searches, reused among the calls
+	 */
+	private transient ArrayList<hnswhelper> pool;
+	
+	/**
+	 * @param data : the data to index
+	 * @param Scaler : scaler to apply to the values (null for no scaling)
+	 * @param distance : one of cityblock, euclidean, cosine
+	 * @param M : maximum number of links per row (2*M in layer 0)
+	 * @param ef_construction : number of nearest rows to keep when searching for the links of a new row
+	 * @param threads : number of threads to build the graph with
+	 * @param seed : seed for the levels of the rows
+	 */
+	public hnswindex(smatrix data, scaler Scaler, String distance, int M, int ef_construction, int threads, int seed){
+		super(data, Scaler, distance, false);
+		if (M<2){
+			throw new IllegalStateException(" M (links per row) needs to be at least 2" );
+		}
+		if (ef_construction<1){
+			throw new IllegalStateException(" ef_construction needs to be at least 1" );
+		}
+		if (threads<=0){
+			threads=Runtime.getRuntime().availableProcessors();
+		}
+		this.M=M;
+		this.M0=2*M;
+		this.ef_construction=ef_construction;
+		int rows=GetRowDimension();
+		levels=new int [rows];
+		links=new int [rows][];
+		Random random = new XorShift128PlusRandom(seed);
+		double ml=1.0/Math.log(M);
+		for (int s=0; s < rows; s++){
+			levels[s]=(int) (-Math.log(1.0-random.nextDouble())*ml);
+			links[s]=new int [(M0+1) + levels[s]*(M+1)];
+		}
+		entry_point=0;
+		max_level=levels[0];
+		build(Math.min(threads, Math.max(1, rows-1)));
+	}
+	
+	/**
+	 * @return the maximum number of links per row
+	 */
+	public int GetM(){
+		return M;
+	}
+	/**
+	 * @return the number of nearest rows kept when searching for the links of a new row
+	 */
+	public int GetEfConstruction(){
+		return ef_construction;
+	}
+	/**
+	 * @return the maximum number of links of a row in any layer
+	 */
+	int max_links(){
+		return M0;
+	}
+	/**
+	 * @return the number of queries to search with one working memory
+	 */
+	@Override
+	public int block_size(){
+		return 32;
+	}
+	
+	/**
+	 * inserts all the rows (after the first one , which is the starting entry point)
+	 */
+	private void build(int threads){
+		building=true;
+		if (threads<=1){
+			new hnswhelper(this, 1, 1).run();
+		} else {
+			Thread[] thread_array= new Thread[threads];
+			for (int t=0; t < threads; t++){
+				thread_array[t]=new Thread(new hnswhelper(this, 1+t, threads));
+				thread_array[t].start();
+			}
+			for (int t=0; t < threads; t++){
+				try {
+					thread_array[t].join();
+				} catch (InterruptedException e) {
+				   System.out.println(e.getMessage());
+				   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+				}
+			}
+		}
+		building=false;
+	}
+	
+	/**
+	 * @param level : a layer
+	 * @return the start of the layer in a row's links
+	 */
+	private int offset(int level){
+		return (level==0)?0:(M0+1)+(level-1)*(M+1);
+	}
+	/**
+	 * @param s : a row
+	 * @param level : a layer
+	 * @param buffer : where the links are copied
+	 * @return the number of links
+	 */
+	private int copy_links(int s, int level, int buffer[]){
+		int row_links[]=links[s];
+		int off=offset(level);
+		if (building){
+			synchronized (row_links){
+				int count=row_links[off];
+				System.arraycopy(row_links, off+1, buffer, 0, count);
+				return count;
+			}
+		}
+		int count=row_links[off];
+		System.arraycopy(row_links, off+1, buffer, 0, count);
+		return count;
+	}
+	
+	/**
+	 * moves to the closest linked row until no linked row is closer
+	 * @return the closest row found (its distance is left in h.current_distance)
+	 */
+	private int greedy(double q[], double q_norm, int ep, double ep_distance, int level, hnswhelper h){
+		boolean changed=true;
+		while (changed){
+			changed=false;
+			int count=copy_links(ep, level, h.links);
+			for (int k=0; k < count; k++){
+				int e=h.links[k];
+				double d=distance(q, q_norm, e);
+				if (d<ep_distance){
+					ep_distance=d;
+					ep=e;
+					changed=true;
+				}
+			}
+		}
+		h.current_distance=ep_distance;
+		return ep;
+	}
+	
+	/**
+	 * best-first search of a layer. The ef nearest rows are left in h.results
+	 */
+	private void search_layer(double q[], double q_norm, int ep, double ep_distance, int ef, int level, hnswhelper h){
+		knnheap results=h.results(ef);
+		h.new_search();
+		h.visit(ep);
+		h.push(ep_distance, ep);
+		results.offer(ep_distance, ep);
+		while (h.candidates>0){
+			double d=h.candidate_distance[0];
+			int c=h.candidate[0];
+			if (d>results.top()){
+				break;
+			}
+			h.pop();
+			int count=copy_links(c, level, h.links);
+			for (int k=0; k < count; k++){
+				int e=h.links[k];
+				if (h.visit(e)){
+					continue;
+				}
+				double de=distance(q, q_norm, e);
+				if (de<results.top()){
+					h.push(de, e);
+					results.offer(de, e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * keeps (in the front of h.sorted) the candidates that are closer to the new row than to any candidate kept before them
+	 * @param size : number of sorted candidates
+	 * @param m : maximum number to keep
+	 * @return the number kept
+	 */
+	private int select(int size, int m, hnswhelper h){
+		int selected=0;
+		for (int i=0; i < size && selected<m; i++){
+			int e=h.sorted[i];
+			double de=h.sorted_distance[i];
+			boolean keep=true;
+			if (selected>0){
+				load_row(e, h.other_row);
+				double e_norm=norm(e);
+				for (int k=0; k < selected; k++){
+					if (distance(h.other_row, e_norm, h.sorted[k])<de){
+						keep=false;
+						break;
+					}
+				}
+				unload_row(e, h.other_row);
+			}
+			if (keep){
+				h.sorted[i]=h.sorted[selected];
+				h.sorted_distance[i]=h.sorted_distance[selected];
+				h.sorted[selected]=e;
+				h.sorted_distance[selected]=de;
+				selected++;
+			}
+		}
+		return selected;
+	}
+	
+	/**
+	 * links row n to the new row s. If n has no room , s replaces n's farthest link when it is closer
+	 */
+	private void connect(int n, int s, double d, int level, int mmax, hnswhelper h){
+		int row_links[]=links[n];
+		int off=offset(level);
+		synchronized (row_links){
+			int count=row_links[off];
+			if (count<mmax){
+				row_links[off+1+count]=s;
+				row_links[off]=count+1;
+				return;
+			}
+			load_row(n, h.other_row);
+			double n_norm=norm(n);
+			int farthest=-1;
+			double farthest_distance=d;
+			for (int k=0; k < count; k++){
+				double dk=distance(h.other_row, n_norm, row_links[off+1+k]);
+				if (dk>farthest_distance){
+					farthest_distance=dk;
+					farthest=k;
+				}
+			}
+			unload_row(n, h.other_row);
+			if (farthest>=0){
+				row_links[off+1+farthest]=s;
+			}
+		}
+	}
+	
+	/**
+	 * inserts a row in the graph
+	 * @param s : the row
+	 * @param h : working memory of the thread
+	 */
+	void insert(int s, hnswhelper h){
+		int ep;
+		int top;
+		synchronized (this){
+			ep=entry_point;
+			top=max_level;
+		}
+		double q[]=h.row;
+		load_row(s, q);
+		double q_norm=norm(s);
+		int level=levels[s];
+		double d=distance(q, q_norm, ep);
+		for (int l=top; l>level; l--){
+			ep=greedy(q, q_norm, ep, d, l, h);
+			d=h.current_distance;
+		}
+		for (int l=Math.min(level, top); l>=0; l--){
+			search_layer(q, q_norm, ep, d, ef_construction, l, h);
+			int size=h.sort_results();
+			ep=h.sorted[0];
+			d=h.sorted_distance[0];
+			int selected=select(size, M, h);
+			int row_links[]=links[s];
+			int off=offset(l);
+			synchronized (row_links){
+				for (int k=0; k < selected; k++){
+					row_links[off+1+k]=h.sorted[k];
+				}
+				row_links[off]=selected;
+			}
+			for (int k=0; k < selected; k++){
+				connect(h.sorted[k], s, h.sorted_distance[k], l, (l==0)?M0:M, h);
+			}
+		}
+		unload_row(s, q);
+		if (level>top){
+			synchronized (this){
+				if (level>max_level){
+					max_level=level;
+					entry_point=s;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return working memory for a search
+	 */
+	private synchronized hnswhelper take(){
+		if (pool==null){
+			pool=new ArrayList<hnswhelper>();
+		}
+		if (pool.size()==0){
+			return new hnswhelper(this, 0, 1);
+		}
+		return pool.remove(pool.size()-1);
+	}
+	/**
+	 * @param h : working memory to reuse
+	 */
+	private synchronized void give(hnswhelper h){
+		pool.add(h);
+	}
+	
+	/**
+	 * finds the (approximately) nearest rows of a block of queries
+	 * @param queries : dense scaled queries (each of length equal to the columns)
+	 * @param count : number of queries to use from the block
+	 * @param heaps : one (cleared) heap per query where the nearest rows are placed
+	 */
+	@Override
+	public void search(double queries[][], int count, knnheap heaps[]){
+		hnswhelper h=take();
+		for (int b=0; b < count; b++){
+			double q[]=queries[b];
+			double q_norm=query_norm(q);
+			int ep=entry_point;
+			double d=distance(q, q_norm, ep);
+			for (int l=max_level; l>0; l--){
+				ep=greedy(q, q_norm, ep, d, l, h);
+				d=h.current_distance;
+			}
+			search_layer(q, q_norm, ep, d, Math.max(ef_search, heaps[b].row.length), 0, h);
+			knnheap results=h.results;
+			for (int i=0; i < results.size; i++){
+				heaps[b].offer(results.distance[i], results.row[i]);
+			}
+		}
+		give(h);
+	}
+
+}
@@ -23,8 +23,6 @@ package ml.knn;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.Random;
 
@@ -36,6 +34,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -65,6 +64,14 @@ public class knnClassifier implements estimator,classifier {
 	 * This will hold the target variable
 	 */
 	private fsmatrix targetset ;
+	/**
+	 * index of the stored rows used to find the neighbours (rebuilt when it does not match the model)
+	 */
+	private transient knnindex index;
+	/**
+	 * HNSW graph of the stored rows when approximate=true
+	 */
+	private hnswindex graph;
 	/**
 	 * The percentage of subsections of each submodel
 	 */	
@@ -97,6 +104,22 @@ public class knnClassifier implements estimator,classifier {
 	 * percentage of training data use when creating distances;
 	 */
 	public double sub_sample_percent=1.0;
+	/**
+	 * True to find the neighbours approximately with a HNSW graph (much faster for many rows and columns)
+	 */
+	public boolean approximate=false;
+	/**
+	 * maximum number of links per row in the HNSW graph (higher improves recall but slows down fitting)
+	 */
+	public int hnsw_m=16;
+	/**
+	 * number of nearest rows kept when building the HNSW graph (higher improves recall but slows down fitting)
+	 */
+	public int ef_construction=100;
+	/**
+	 * number of nearest rows kept when searching the HNSW graph (higher improves recall but slows down scoring)
+	 */
+	public int ef_search=50;
 	/**
 	 * Random number generator to use
 	 */
@@ -148,6 +171,19 @@ public class knnClassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	/**
 	 * Default constructor for Libfm with no data
 	 */
@@ -247,6 +283,7 @@ public class knnClassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 	
@@ -323,6 +360,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				svc.isClassification=true;
 				thread_array[count_of_live_threads]= new Thread(svc);
@@ -422,6 +460,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.isClassification=true;
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
@@ -526,6 +565,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.isClassification=true;
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
@@ -1247,6 +1287,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1282,11 +1323,7 @@ public class knnClassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 			}
 			
 			globalpreds=null;
@@ -1372,6 +1409,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1406,11 +1444,7 @@ public class knnClassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 			}
 			
 			globalpreds=null;
@@ -1491,6 +1525,7 @@ public class knnClassifier implements estimator,classifier {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1525,11 +1560,7 @@ public class knnClassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions[i]=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions[i]=maxi;
-		    	  }
+		    	  predictions[i]=encoder.decode(maxi);
 			}
 			
 			globalpreds=null;
@@ -1729,11 +1760,7 @@ public class knnClassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  pred=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  pred=maxi;
-		    	  }
+		    	  pred=encoder.decode(maxi);
 
 		
 			
@@ -1931,11 +1958,7 @@ public class knnClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  pred=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  pred=maxi;
-	    	  }
+	    	  pred=encoder.decode(maxi);
 
 	
 		
@@ -2167,11 +2190,7 @@ public class knnClassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  pred=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  pred=maxi;
-	    	  }
+	    	  pred=encoder.decode(maxi);
 
 	
 		
@@ -2213,33 +2232,18 @@ public class knnClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2274,13 +2278,14 @@ public class knnClassifier implements estimator,classifier {
 		n_classes=classes.length;
 		if (target!=null){
 			//map the unique classes
-			HashMap<Double, Integer> has_index=new HashMap<Double, Integer>(n_classes);
-			for (int v=0; v<classes.length;v++ ){
-				has_index.put(Double.parseDouble(classes[v]),v);
-				}
+			labelencoder class_encoder=encoder;
 			double newtarget[] = new double [target.length*n_classes];
 			for (int v=0; v<target.length;v++ ){
-				newtarget[v*n_classes + has_index.get(target[v])]=1.0;
+				int class_index=class_encoder.encode(target[v]);
+				if (class_index<0){
+					throw new IllegalStateException(" target value " + target[v] + " is not one of the classes" );
+				}
+				newtarget[v*n_classes + class_index]=1.0;
 			}
 			targetset=new fsmatrix(newtarget,target.length,n_classes);
 		} else if  (Starget!=null){
@@ -2304,6 +2309,8 @@ public class knnClassifier implements estimator,classifier {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}
+		index=null;
+		get_index();
 	System.gc();
 	
 }
@@ -2359,33 +2366,18 @@ public class knnClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2406,13 +2398,14 @@ public class knnClassifier implements estimator,classifier {
 		n_classes=classes.length;
 		if (target!=null){
 			//map the unique classes
-			HashMap<Double, Integer> has_index=new HashMap<Double, Integer>(n_classes);
-			for (int v=0; v<classes.length;v++ ){
-				has_index.put(Double.parseDouble(classes[v]),v);
-				}
+			labelencoder class_encoder=encoder;
 			double newtarget[] = new double [target.length*n_classes];
 			for (int v=0; v<target.length;v++ ){
-				newtarget[v*n_classes + has_index.get(target[v])]=1.0;
+				int class_index=class_encoder.encode(target[v]);
+				if (class_index<0){
+					throw new IllegalStateException(" target value " + target[v] + " is not one of the classes" );
+				}
+				newtarget[v*n_classes + class_index]=1.0;
 			}
 			targetset=new fsmatrix(newtarget,target.length,n_classes);
 		} else if  (Starget!=null){
@@ -2436,6 +2429,8 @@ public class knnClassifier implements estimator,classifier {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}
+		index=null;
+		get_index();
 
 		
 
@@ -2496,33 +2491,18 @@ public class knnClassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2543,13 +2523,14 @@ public class knnClassifier implements estimator,classifier {
 		n_classes=classes.length;
 		if (target!=null){
 			//map the unique classes
-			HashMap<Double, Integer> has_index=new HashMap<Double, Integer>(n_classes);
-			for (int v=0; v<classes.length;v++ ){
-				has_index.put(Double.parseDouble(classes[v]),v);
-				}
+			labelencoder class_encoder=encoder;
 			double newtarget[] = new double [target.length*n_classes];
 			for (int v=0; v<target.length;v++ ){
-				newtarget[v*n_classes + has_index.get(target[v])]=1.0;
+				int class_index=class_encoder.encode(target[v]);
+				if (class_index<0){
+					throw new IllegalStateException(" target value " + target[v] + " is not one of the classes" );
+				}
+				newtarget[v*n_classes + class_index]=1.0;
 			}
 			targetset=new fsmatrix(newtarget,target.length,n_classes);
 		} else if  (Starget!=null){
@@ -2573,10 +2554,36 @@ public class knnClassifier implements estimator,classifier {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}	
+		index=null;
+		get_index();
 	System.gc();
 	
 }
 
+	/**
+	 * @return the index (or the HNSW graph when approximate=true) of the stored rows (built if the data, the scaler or the distance have changed), or null when the brute force search needs to be used (sub_sample_percent lower than 1.0 or a scaler that does not keep zeros to zero)
+	 */
+	private synchronized knnindex get_index(){
+		if (this.vectorset==null || this.sub_sample_percent<1.0){
+			return null;
+		}
+		if (this.usescale && (Scaler==null || !Scaler.IsFitted() || !knnindex.supports(Scaler, columndimension))){
+			return null;
+		}
+		scaler sc=this.usescale?this.Scaler:null;
+		if (this.approximate){
+			if (graph==null || !graph.matches(vectorset, sc, distance) || graph.GetM()!=this.hnsw_m || graph.GetEfConstruction()!=this.ef_construction){
+				graph=new hnswindex(vectorset, sc, distance, this.hnsw_m, this.ef_construction, this.threads, this.seed);
+			}
+			graph.ef_search=this.ef_search;
+			return graph;
+		}
+		if (index==null || !index.matches(vectorset, sc, distance)){
+			index=new knnindex(vectorset, sc, distance);
+		}
+		return index;
+	}
+
 	@Override
 	public String GetType() {
 		return "classifier";
@@ -2603,6 +2610,10 @@ public class knnClassifier implements estimator,classifier {
 		System.out.println("Usescale: " + this.usescale);	
 		System.out.println("percentage(%) of best cases/observations to include in each submodel  "+ this.submodelcutsper);
 		System.out.println("Distance    "+ this.distance);		
+		System.out.println("Approximate (HNSW): "+ this.approximate);	
+		if (this.approximate){
+			System.out.println("HNSW links (M): "+ this.hnsw_m + " ef_construction: " + this.ef_construction + " ef_search: " + this.ef_search);	
+		}
 		
 		System.out.println("Weighting method: "+ this.Type);	
 
@@ -2647,6 +2658,8 @@ public class knnClassifier implements estimator,classifier {
 	@Override
 	public void reset() {
 		targetset=null;
+		index=null;
+		graph=null;
 		vectorset=null;
 		n_classes=0;
 		submodelcutsper=0.01;
@@ -2666,6 +2679,7 @@ public class knnClassifier implements estimator,classifier {
 		verbose=true;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		
 	}
 
@@ -2691,11 +2705,16 @@ public class knnClassifier implements estimator,classifier {
 		br.seed=this.seed;
 		br.random=this.random;
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.target=manipulate.copies.copies.Copy(this.target.clone());
 		br.Starget=this.Starget.clone();		
 		br.weights=manipulate.copies.copies.Copy(this.weights.clone());
 		br.verbose=this.verbose;
+		br.approximate=this.approximate;
+		br.hnsw_m=this.hnsw_m;
+		br.ef_construction=this.ef_construction;
+		br.ef_search=this.ef_search;
 		return br;
 	}
 	
@@ -2715,6 +2734,10 @@ public class knnClassifier implements estimator,classifier {
 				else if (metric.equals("neibours")) {this.neibours=Integer.parseInt(value);}
 				else if (metric.equals("submodelcutsper")) {this.submodelcutsper=Double.parseDouble(value);}			
 				else if (metric.equals("distance")) {this.distance=value;}
+				else if (metric.equals("approximate")) {this.approximate=(value.equals("True")?true:false);}
+				else if (metric.equals("hnsw_m")) {this.hnsw_m=Integer.parseInt(value);}
+				else if (metric.equals("ef_construction")) {this.ef_construction=Integer.parseInt(value);}
+				else if (metric.equals("ef_search")) {this.ef_search=Integer.parseInt(value);}
 				else if (metric.equals("copy")) {this.copy=(value.equals("True")?true:false);}
 				else if (metric.equals("seed")) {this.seed=Integer.parseInt(value);}
 				else if (metric.equals("verbose")) {this.verbose=(value.equals("True")?true:false)   ;}
@@ -61,10 +61,34 @@ public class knnRegressor implements estimator,regressor {
 	 * This will hold the target variable
 	 */
 	private fsmatrix targetset ;
+	/**
+	 * index of the stored rows used to find the neighbours (rebuilt when it does not match the model)
+	 */
+	private transient knnindex index;
+	/**
+	 * HNSW graph of the stored rows when approximate=true
+	 */
+	private hnswindex graph;
 	/**
 	 * percentage of training data use when creating distances;
 	 */
 	public double sub_sample_percent=1.0;
+	/**
+	 * True to find the neighbours approximately with a HNSW graph (much faster for many rows and columns)
+	 */
+	public boolean approximate=false;
+	/**
+	 * maximum number of links per row in the HNSW graph (higher improves recall but slows down fitting)
+	 */
+	public int hnsw_m=16;
+	/**
+	 * number of nearest rows kept when building the HNSW graph (higher improves recall but slows down fitting)
+	 */
+	public int ef_construction=100;
+	/**
+	 * number of nearest rows kept when searching the HNSW graph (higher improves recall but slows down scoring)
+	 */
+	public int ef_search=50;
 	/**
 	 * The percentage of subsections of each submodel
 	 */	
@@ -311,6 +335,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -409,6 +434,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -512,6 +538,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1223,6 +1250,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1337,6 +1365,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -1446,6 +1475,7 @@ public class knnRegressor implements estimator,regressor {
 				//Initialise an svc helper model
 				knnhelper svc = new knnhelper(data , globalpreds,  this.vectorset, this.targetset, 
 						this.weights, loop_list[n], loop_list[n+1], this.neibours, this.Scaler , this.distance,  this.Type,  this.usescale, this.sub_sample_percent);
+				svc.index=get_index();
 				svc.seed=n;
 				thread_array[count_of_live_threads]= new Thread(svc);
 				thread_array[count_of_live_threads].start();
@@ -2163,6 +2193,8 @@ public class knnRegressor implements estimator,regressor {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}
+		index=null;
+		get_index();
 
 
 
@@ -2254,6 +2286,8 @@ public class knnRegressor implements estimator,regressor {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}
+		index=null;
+		get_index();
 
 		
 
@@ -2347,10 +2381,36 @@ public class knnRegressor implements estimator,regressor {
 		if (this.vectorset.indexer==null){
 			this.vectorset.buildmap();
 		}		
+		index=null;
+		get_index();
 	System.gc();
 	
 }
 
+	/**
+	 * @return the index (or the HNSW graph when approximate=true) of the stored rows (built if the data, the scaler or the distance have changed), or null when the brute force search needs to be used (sub_sample_percent lower than 1.0 or a scaler that does not keep zeros to zero)
+	 */
+	private synchronized knnindex get_index(){
+		if (this.vectorset==null || this.sub_sample_percent<1.0){
+			return null;
+		}
+		if (this.usescale && (Scaler==null || !Scaler.IsFitted() || !knnindex.supports(Scaler, columndimension))){
+			return null;
+		}
+		scaler sc=this.usescale?this.Scaler:null;
+		if (this.approximate){
+			if (graph==null || !graph.matches(vectorset, sc, distance) || graph.GetM()!=this.hnsw_m || graph.GetEfConstruction()!=this.ef_construction){
+				graph=new hnswindex(vectorset, sc, distance, this.hnsw_m, this.ef_construction, this.threads, this.seed);
+			}
+			graph.ef_search=this.ef_search;
+			return graph;
+		}
+		if (index==null || !index.matches(vectorset, sc, distance)){
+			index=new knnindex(vectorset, sc, distance);
+		}
+		return index;
+	}
+
 	@Override
 	public String GetType() {
 		return "regressor";
@@ -2377,6 +2437,10 @@ public class knnRegressor implements estimator,regressor {
 		System.out.println("Usescale: " + this.usescale);	
 		System.out.println("percentage(%) of best cases/observations to include in each submodel  "+ this.submodelcutsper);
 		System.out.println("Distance    "+ this.distance);		
+		System.out.println("Approximate (HNSW): "+ this.approximate);	
+		if (this.approximate){
+			System.out.println("HNSW links (M): "+ this.hnsw_m + " ef_construction: " + this.ef_construction + " ef_search: " + this.ef_search);	
+		}
 		
 		System.out.println("Weighting method: "+ this.Type);	
 
@@ -2421,6 +2485,8 @@ public class knnRegressor implements estimator,regressor {
 	@Override
 	public void reset() {
 		targetset=null;
+		index=null;
+		graph=null;
 		vectorset=null;
 		n_classes=0;
 		submodelcutsper=0.01;
@@ -2471,6 +2537,10 @@ public class knnRegressor implements estimator,regressor {
 		br.starget=(smatrix) this.starget.Copy();		
 		br.weights=manipulate.copies.copies.Copy(this.weights.clone());
 		br.verbose=this.verbose;
+		br.approximate=this.approximate;
+		br.hnsw_m=this.hnsw_m;
+		br.ef_construction=this.ef_construction;
+		br.ef_search=this.ef_search;
 		return br;
 	}
 	
@@ -2490,6 +2560,10 @@ public class knnRegressor implements estimator,regressor {
 				else if (metric.equals("neibours")) {this.neibours=Integer.parseInt(value);}
 				else if (metric.equals("submodelcutsper")) {this.submodelcutsper=Double.parseDouble(value);}			
 				else if (metric.equals("distance")) {this.distance=value;}
+				else if (metric.equals("approximate")) {this.approximate=(value.equals("True")?true:false);}
+				else if (metric.equals("hnsw_m")) {this.hnsw_m=Integer.parseInt(value);}
+				else if (metric.equals("ef_construction")) {this.ef_construction=Integer.parseInt(value);}
+				else if (metric.equals("ef_search")) {this.ef_search=Integer.parseInt(value);}
 				else if (metric.equals("copy")) {this.copy=(value.equals("True")?true:false);}
 				else if (metric.equals("seed")) {this.seed=Integer.parseInt(value);}
 				else if (metric.equals("verbose")) {this.verbose=(value.equals("True")?true:false)   ;}
@@ -0,0 +1,120 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.knn;
+
+/**
+ * <p> Bounded max-heap that holds the k nearest rows found so far. The farthest of them is on top,
+ * so a new row is compared with one value and the heap is updated in O(log k). A row replaces the top only if
+ * its distance is strictly smaller (the first rows found are kept in ties, like the brute force search).
+ * It is meant to be created once and cleared for every query, so that searching does not allocate.</p>
+ */
+public class knnheap {
+
+	/**
+	 * distances of the rows in the heap
+	 */
+	public double distance[];
+	/**
+	 * the rows in the heap
+	 */
+	public int row[];
+	/**
+	 * number of rows in the heap
+	 */
+	public int size=0;
+	
+	/**
+	 * @param capacity : number of neighbours to hold
+	 */
+	public knnheap(int capacity){
+		if (capacity<1){
+			throw new IllegalStateException("Neighbours cannot be less than 1" );	
+		}
+		distance=new double [capacity];
+		row=new int [capacity];
+	}
+	/**
+	 * empties the heap
+	 */
+	public void clear(){
+		size=0;
+	}
+	/**
+	 * @return true if the heap holds as many rows as its capacity
+	 */
+	public boolean isfull(){
+		return size==row.length;
+	}
+	/**
+	 * @return the largest distance in the heap (infinity while the heap is not full)
+	 */
+	public double top(){
+		if (size<row.length){
+			return Double.POSITIVE_INFINITY;
+		}
+		return distance[0];
+	}
+	/**
+	 * @param d : distance of the row (NaN is treated as infinity)
+	 * @param r : the row
+	 */
+	public void offer(double d, int r){
+		if (d!=d){
+			d=Double.POSITIVE_INFINITY;
+		}
+		if (size<row.length){
+			// sift up
+			int k=size++;
+			while (k>0){
+				int parent=(k-1)>>1;
+				if (distance[parent]>=d){
+					break;
+				}
+				distance[k]=distance[parent];
+				row[k]=row[parent];
+				k=parent;
+			}
+			distance[k]=d;
+			row[k]=r;
+		} else if (d<distance[0]){
+			// replace the top and sift down
+			int k=0;
+			int half=size>>1;
+			while (k<half){
+				int child=2*k+1;
+				if (child+1<size && distance[child+1]>distance[child]){
+					child++;
+				}
+				if (distance[child]<=d){
+					break;
+				}
+				distance[k]=distance[child];
+				row[k]=row[child];
+				k=child;
+			}
+			distance[k]=d;
+			row[k]=r;
+		}
+	}
+
+}
@@ -110,6 +110,10 @@ public class knnhelper implements Runnable {
 	 * The object that holds the modelling data in smatrix form cases the user chooses this form
 	 */
 	private smatrix sdataset;	
+	/**
+	 * index of the base data. When given (and sub_sample_percent is 1.0) the neighbours are found with it instead of the brute force search
+	 */
+	public knnindex index;
 	
 	/**
 	 * 
@@ -954,6 +958,105 @@ private int find_largest_distance(double distances_holder[][]){
 
 
 
+	/**
+	 * <p> finds nearest neighbours with the index , in blocks of queries. The buffers are allocated once per helper.
+	 */
+	private void search() {
+		if (Scaler==null){
+			Scaler = new maxscaler();
+		}				
+		if ( this.usescale && Scaler.IsFitted()==false){
+			Scaler.fit(helddataset);
+		}
+		int columns=index.GetColumnDimension();
+		int block=index.block_size();
+		double queries[][]=new double [block][columns];
+		knnheap heaps[]=new knnheap [block];
+		for (int b=0; b < block; b++){
+			heaps[b]=new knnheap(this.neighbours);
+		}
+		boolean weighted=this.Type.equals("weights");
+		for (int i=this.start_array; i <this.end_array; i+=block){
+			int count=Math.min(block, this.end_array-i);
+			for (int b=0; b < count; b++){
+				load_query(i+b, queries[b]);
+				heaps[b].clear();
+			}
+			index.search(queries, count, heaps);
+			for (int b=0; b < count; b++){
+				predict(i+b, heaps[b], weighted);
+			}
+		}
+	}
+	/**
+	 * places the scaled row of the data to be scored in a dense array
+	 * @param i : the row
+	 * @param q : the array to fill
+	 */
+	private void load_query(int i, double q[]){
+		if (sdataset!=null){
+			for (int j=0; j < q.length; j++){
+				q[j]=0.0;
+			}
+			for (int v=sdataset.indexpile[i]; v<sdataset.indexpile[i+1]; v++){
+				int j=sdataset.mainelementpile[v];
+				double x1=sdataset.valuespile[v];
+				if (this.usescale){
+					x1=Scaler.transform(x1, j);
+				}
+				q[j]+=x1;
+			}
+			return;
+		}
+		for (int j=0; j < q.length; j++){
+			double x1=(dataset!=null)?dataset[i][j]:fsdataset.GetElement(i, j);
+			if (this.usescale){
+				x1=Scaler.transform(x1, j);
+			}
+			q[j]=x1;
+		}
+	}
+	/**
+	 * computes the predictions of a row from its nearest neighbours , the same way with the brute force search
+	 * @param i : the row
+	 * @param heap : the nearest neighbours
+	 * @param weighted : true for Type=weights
+	 */
+	private void predict(int i, knnheap heap, boolean weighted){
+		int classes=predictions[0].length;
+		double preds[]=predictions[i];
+		for (int c=0; c<classes;c++){
+			preds[c]=0.0;
+		}
+		double sumweight=0.0;
+		for (int kn=0; kn< heap.size; kn++){
+			int s=heap.row[kn];
+			double w=this.weight[s];
+			if (weighted){
+				if (heap.distance[kn]!=0.0){
+					w*=1/heap.distance[kn];
+				} else {
+					w=99999999999.99;
+				}
+			}
+			int offset=s*classes;
+			for (int c=0; c<classes;c++){
+				preds[c]+=this.target.data[offset+c]*w;
+			}
+			sumweight+=w;
+		}
+		double sumforclassification=0.0;
+		for (int c=0; c<classes;c++){
+			preds[c]/=sumweight;
+			sumforclassification+=preds[c];
+		}
+		if (isClassification){
+			for (int c=0; c<classes;c++){
+				preds[c]/=sumforclassification;
+			}
+		}
+	}
+
 //	public boolean isfitted() {
 //		if (betas!=null || betas.length>0){
 //			return true;
@@ -966,7 +1069,9 @@ private int find_largest_distance(double distances_holder[][]){
 	@Override
 	public void run() {
 		// check which object was chosen to train on
-		if (dataset!=null){
+		if (index!=null && this.sub_sample_percent>=1.0){
+			this.search();
+		} else if (dataset!=null){
 			this.fit(dataset);
 		} else if (fsdataset!=null){
 			this.fit(fsdataset);	
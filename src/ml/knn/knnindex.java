@@ -0,0 +1,533 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.knn;
+
+import java.io.Serializable;
+
+import matrix.smatrix;
+import preprocess.scaling.scaler;
+
+/**
+ * <p> Index over the (scaled) rows of a knn model, built once when the model is fitted and shared by all the scoring threads.
+ * For cityblock and euclidean distances and few columns (up to {@link #kd_max_dimension}) the rows are placed in a KD-tree.
+ * Otherwise the rows are kept in a compressed (sparse) row format with their norms cached and the queries
+ * are compared with them in blocks, so that each stored row is read from memory once per block of queries
+ * (euclidean uses |q|^2 + |x|^2 - 2 q'x , cityblock |q| + sum over the non zero x of |q-x|-|q| , cosine the cached L2 norms).
+ * A row (or query) of zeros has a cosine distance of 1.0 from every other row.
+ * The distances are the same with the brute force search of {@link knnhelper} (euclidean is not square-rooted).
+ * The queries are given as dense scaled arrays and the k nearest rows are returned in {@link knnheap} objects.</p>
+ */
+public class knnindex implements Serializable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4719027381945562011L;
+	/**
+	 * maximum number of columns for which a KD-tree is built
+	 */
+	public static final int kd_max_dimension=12;
+	/**
+	 * maximum number of rows in a leaf of the KD-tree
+	 */
+	private static final int leaf_size=16;
+	/**
+	 * the data the index was built from
+	 */
+	private smatrix data;
+	/**
+	 * the scaler that was used (null for no scaling)
+	 */
+	private scaler Scaler;
+	/**
+	 * the distance ,one of cityblock, euclidean, cosine
+	 */
+	private String distance;
+	/**
+	 * 0 for cityblock, 1 for euclidean, 2 for cosine
+	 */
+	private int distance_type;
+	/**
+	 * number of rows
+	 */
+	private int rows;
+	/**
+	 * number of columns
+	 */
+	private int columns;
+	/**
+	 * scaled non zero values per row
+	 */
+	private double values[];
+	/**
+	 * columns of the non zero values
+	 */
+	private int cols[];
+	/**
+	 * start of each row in values (length rows+1)
+	 */
+	private int index[];
+	/**
+	 * cached norm of each row : sum of |x| for cityblock, sum of x^2 for euclidean, sqrt of sum of x^2 for cosine
+	 */
+	private double norms[];
+	/**
+	 * dense scaled rows in the order of the KD-tree's leaves (null if there is no tree)
+	 */
+	private double points[];
+	/**
+	 * the original row of each point of the tree
+	 */
+	private int point_rows[];
+	/**
+	 * the column a node splits on (-1 for leaves)
+	 */
+	private int node_column[];
+	/**
+	 * the value a node splits on
+	 */
+	private double node_value[];
+	/**
+	 * first point of a node
+	 */
+	private int node_start[];
+	/**
+	 * end of the points of a node
+	 */
+	private int node_end[];
+	/**
+	 * left child of a node
+	 */
+	private int node_left[];
+	/**
+	 * right child of a node
+	 */
+	private int node_right[];
+	/**
+	 * number of nodes
+	 */
+	private int nodes=0;
+	
+	/**
+	 * @param data : the data to index
+	 * @param Scaler : scaler to apply to the values (null for no scaling)
+	 * @param distance : one of cityblock, euclidean, cosine
+	 */
+	public knnindex(smatrix data, scaler Scaler, String distance){
+		this(data, Scaler, distance, true);
+	}
+	/**
+	 * @param data : the data to index
+	 * @param Scaler : scaler to apply to the values (null for no scaling)
+	 * @param distance : one of cityblock, euclidean, cosine
+	 * @param tree : false to never build a KD-tree
+	 */
+	protected knnindex(smatrix data, scaler Scaler, String distance, boolean tree){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is no base array" );
+		}
+		if (distance.equals("cityblock")){
+			distance_type=0;
+		} else if (distance.equals("euclidean")){
+			distance_type=1;
+		} else if (distance.equals("cosine")){
+			distance_type=2;
+		} else {
+			throw new IllegalStateException("  distance has to be in {cityblock, euclidean, cosine}" );	
+		}
+		this.data=data;
+		this.Scaler=Scaler;
+		this.distance=distance;
+		this.rows=data.GetRowDimension();
+		this.columns=data.GetColumnDimension();
+		build_rows();
+		if (tree && distance_type!=2 && columns<=kd_max_dimension && rows>leaf_size){
+			build_tree();
+		}
+	}
+	
+	/**
+	 * @param Scaler : a scaler
+	 * @param columns : the number of columns
+	 * @return true if the scaler maps zero to zero for all columns (so that the sparse rows stay sparse when scaled)
+	 */
+	public static boolean supports(scaler Scaler, int columns){
+		if (Scaler==null){
+			return true;
+		}
+		for (int j=0; j < columns; j++){
+			if (Scaler.transform(0.0, j)!=0.0){
+				return false;
+			}
+		}
+		return true;
+	}
+	/**
+	 * @param data : the data of the model
+	 * @param Scaler : the scaler of the model (null for no scaling)
+	 * @param distance : the distance of the model
+	 * @return true if this index was built with the same settings
+	 */
+	public boolean matches(smatrix data, scaler Scaler, String distance){
+		return this.data==data && this.Scaler==Scaler && this.distance.equals(distance) && this.rows==data.GetRowDimension();
+	}
+	/**
+	 * @return the number of columns
+	 */
+	public int GetColumnDimension(){
+		return columns;
+	}
+	/**
+	 * @return the number of rows
+	 */
+	public int GetRowDimension(){
+		return rows;
+	}
+	/**
+	 * @return true if a KD-tree is used
+	 */
+	public boolean hastree(){
+		return points!=null;
+	}
+	/**
+	 * @return the number of queries to compare with the stored rows at once
+	 */
+	public int block_size(){
+		if (points!=null){
+			return 1;
+		}
+		return Math.max(1, Math.min(32, (1<<18)/Math.max(1, columns)));
+	}
+	
+	/**
+	 * scales the data once and caches the norms
+	 */
+	private void build_rows(){
+		smatrix sorted=data;
+		if (!sorted.IsSortedByRow()){
+			sorted=(smatrix) data.Copy();
+			sorted.convert_type();
+		}
+		int elements=sorted.indexpile[rows];
+		values=new double [elements];
+		cols=new int [elements];
+		index=new int [rows+1];
+		norms=new double [rows];
+		int counter=0;
+		for (int i=0; i < rows; i++){
+			double norm=0.0;
+			for (int v=sorted.indexpile[i]; v<sorted.indexpile[i+1]; v++){
+				int j=sorted.mainelementpile[v];
+				double val=sorted.valuespile[v];
+				if (Scaler!=null){
+					val=Scaler.transform(val, j);
+				}
+				if (val==0.0){
+					continue;
+				}
+				values[counter]=val;
+				cols[counter]=j;
+				counter++;
+				if (distance_type==0){
+					norm+=Math.abs(val);
+				} else {
+					norm+=val*val;
+				}
+			}
+			index[i+1]=counter;
+			norms[i]=(distance_type==2)?Math.sqrt(norm):norm;
+		}
+	}
+	
+	/**
+	 * places the rows in a KD-tree. Every node splits its rows at the median of the column with the widest range.
+	 */
+	private void build_tree(){
+		points=new double [rows*columns];
+		point_rows=new int [rows];
+		for (int i=0; i < rows; i++){
+			point_rows[i]=i;
+			for (int v=index[i]; v<index[i+1]; v++){
+				points[i*columns + cols[v]]=values[v];
+			}
+		}
+		int max_nodes=2*((rows+leaf_size-1)/leaf_size)*2+1;
+		node_column=new int [max_nodes];
+		node_value=new double [max_nodes];
+		node_start=new int [max_nodes];
+		node_end=new int [max_nodes];
+		node_left=new int [max_nodes];
+		node_right=new int [max_nodes];
+		build_node(0, rows);
+		// reorder the points so that each leaf is contiguous in memory
+		double ordered []=new double [rows*columns];
+		for (int p=0; p < rows; p++){
+			System.arraycopy(points, point_rows[p]*columns, ordered, p*columns, columns);
+		}
+		points=ordered;
+	}
+	
+	/**
+	 * @param st : first point
+	 * @param ed : end of the points
+	 * @return the node
+	 */
+	private int build_node(int st, int ed){
+		int node=nodes++;
+		node_start[node]=st;
+		node_end[node]=ed;
+		node_column[node]=-1;
+		if (ed-st<=leaf_size){
+			return node;
+		}
+		int best_column=-1;
+		double best_range=0.0;
+		for (int j=0; j < columns; j++){
+			double min=Double.POSITIVE_INFINITY;
+			double max=Double.NEGATIVE_INFINITY;
+			for (int p=st; p < ed; p++){
+				double val=points[point_rows[p]*columns + j];
+				if (val<min){
+					min=val;
+				}
+				if (val>max){
+					max=val;
+				}
+			}
+			if (max-min>best_range){
+				best_range=max-min;
+				best_column=j;
+			}
+		}
+		if (best_column<0){
+			// all the points are the same
+			return node;
+		}
+		int mid=(st+ed)>>>1;
+		select(st, ed-1, mid, best_column);
+		node_column[node]=best_column;
+		node_value[node]=points[point_rows[mid]*columns + best_column];
+		node_left[node]=build_node(st, mid);
+		node_right[node]=build_node(mid, ed);
+		return node;
+	}
+	
+	/**
+	 * quickselect on point_rows so that the k-th point (in [left,right]) has the k-th smallest value of the column
+	 */
+	private void select(int left, int right, int k, int column){
+		while (right>left){
+			double pivot=points[point_rows[(left+right)>>>1]*columns + column];
+			int i=left;
+			int j=right;
+			while (i<=j){
+				while (points[point_rows[i]*columns + column]<pivot){
+					i++;
+				}
+				while (points[point_rows[j]*columns + column]>pivot){
+					j--;
+				}
+				if (i<=j){
+					int temp=point_rows[i];
+					point_rows[i]=point_rows[j];
+					point_rows[j]=temp;
+					i++;
+					j--;
+				}
+			}
+			if (k<=j){
+				right=j;
+			} else if (k>=i){
+				left=i;
+			} else {
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * @param q : a dense scaled query
+	 * @return the norm of the query in the same form with the cached norms of the rows
+	 */
+	double query_norm(double q[]){
+		double norm=0.0;
+		for (int j=0; j < columns; j++){
+			norm+=(distance_type==0)?Math.abs(q[j]):q[j]*q[j];
+		}
+		return (distance_type==2)?Math.sqrt(norm):norm;
+	}
+	/**
+	 * @param s : a row
+	 * @return the cached norm of the row
+	 */
+	double norm(int s){
+		return norms[s];
+	}
+	/**
+	 * places the scaled values of a row in a dense array of zeros
+	 * @param s : the row
+	 * @param q : the array
+	 */
+	void load_row(int s, double q[]){
+		for (int v=index[s]; v<index[s+1]; v++){
+			q[cols[v]]=values[v];
+		}
+	}
+	/**
+	 * sets back to zero the values placed with {@link #load_row(int, double[])}
+	 * @param s : the row
+	 * @param q : the array
+	 */
+	void unload_row(int s, double q[]){
+		for (int v=index[s]; v<index[s+1]; v++){
+			q[cols[v]]=0.0;
+		}
+	}
+	/**
+	 * @param q : a dense scaled query
+	 * @param q_norm : the norm of the query (see {@link #query_norm(double[])})
+	 * @param s : a row
+	 * @return the distance of the row from the query
+	 */
+	double distance(double q[], double q_norm, int s){
+		if (distance_type==0){
+			double sum=0.0;
+			for (int v=index[s]; v<index[s+1]; v++){
+				double x1=q[cols[v]];
+				sum+=Math.abs(x1-values[v])-Math.abs(x1);
+			}
+			return clean(q_norm+sum, q_norm+norms[s]);
+		}
+		double product=0.0;
+		for (int v=index[s]; v<index[s+1]; v++){
+			product+=q[cols[v]]*values[v];
+		}
+		if (distance_type==1){
+			return clean(q_norm+norms[s]-2.0*product, q_norm+norms[s]);
+		}
+		double norm=q_norm*norms[s];
+		return (norm==0.0)?1.0:1- ( product/norm);
+	}
+	
+	/**
+	 * finds the nearest rows of a block of queries
+	 * @param queries : dense scaled queries (each of length equal to the columns)
+	 * @param count : number of queries to use from the block
+	 * @param heaps : one (cleared) heap per query where the nearest rows are placed
+	 */
+	public void search(double queries[][], int count, knnheap heaps[]){
+		if (points!=null){
+			for (int b=0; b < count; b++){
+				search_node(0, queries[b], heaps[b]);
+			}
+			return;
+		}
+		double query_norms[]=new double [count];
+		for (int b=0; b < count; b++){
+			query_norms[b]=query_norm(queries[b]);
+		}
+		if (distance_type==0){
+			for (int s=0; s < rows; s++){
+				for (int b=0; b < count; b++){
+					double q[]=queries[b];
+					double sum=0.0;
+					for (int v=index[s]; v<index[s+1]; v++){
+						double x1=q[cols[v]];
+						sum+=Math.abs(x1-values[v])-Math.abs(x1);
+					}
+					heaps[b].offer(clean(query_norms[b]+sum, query_norms[b]+norms[s]), s);
+				}
+			}
+		} else if (distance_type==1){
+			for (int s=0; s < rows; s++){
+				for (int b=0; b < count; b++){
+					double q[]=queries[b];
+					double product=0.0;
+					for (int v=index[s]; v<index[s+1]; v++){
+						product+=q[cols[v]]*values[v];
+					}
+					heaps[b].offer(clean(query_norms[b]+norms[s]-2.0*product, query_norms[b]+norms[s]), s);
+				}
+			}
+		} else {
+			for (int s=0; s < rows; s++){
+				for (int b=0; b < count; b++){
+					double q[]=queries[b];
+					double product=0.0;
+					for (int v=index[s]; v<index[s+1]; v++){
+						product+=q[cols[v]]*values[v];
+					}
+					double norm=query_norms[b]*norms[s];
+					heaps[b].offer((norm==0.0)?1.0:1- ( product/norm), s);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @param d : a distance computed from cached norms
+	 * @param scale : the sum of the norms
+	 * @return the distance with the rounding noise (and negative values) set to zero
+	 */
+	private static double clean(double d, double scale){
+		if (d<=1.0E-12*scale){
+			return 0.0;
+		}
+		return d;
+	}
+	
+	/**
+	 * searches a node of the KD-tree , visiting the side of the query first and the other side only
+	 * if the splitting plane is closer than the farthest neighbour found so far
+	 */
+	private void search_node(int node, double q[], knnheap heap){
+		int column=node_column[node];
+		if (column<0){
+			for (int p=node_start[node]; p < node_end[node]; p++){
+				int offset=p*columns;
+				double sum=0.0;
+				if (distance_type==0){
+					for (int j=0; j < columns; j++){
+						sum+=Math.abs(q[j]-points[offset+j]);
+					}
+				} else {
+					for (int j=0; j < columns; j++){
+						double diff=q[j]-points[offset+j];
+						sum+=diff*diff;
+					}
+				}
+				heap.offer(sum, point_rows[p]);
+			}
+			return;
+		}
+		double diff=q[column]-node_value[node];
+		int near=(diff<0)?node_left[node]:node_right[node];
+		int far=(diff<0)?node_right[node]:node_left[node];
+		search_node(near, q, heap);
+		double bound=(distance_type==0)?Math.abs(diff):diff*diff;
+		if (bound<heap.top()){
+			search_node(far, q, heap);
+		}
+	}
+
+}
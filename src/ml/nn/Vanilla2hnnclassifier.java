@@ -22,8 +22,6 @@ SOFTWARE.
 package ml.nn;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 /**
  *<p> class to implement binary  2-hidden layer ff neural network for classification with multiple-layer output , where each layer is solved as a binary problem (similar to a multinomial logistic regression model) <p>
  *The implementation is heavily based on the equivalent one in the <a href="https://pypi.python.org/pypi/Kaggler">kaggler</a> package
@@ -169,6 +168,19 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -291,6 +303,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -1137,11 +1150,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1265,11 +1274,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1389,11 +1394,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1511,11 +1512,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1631,11 +1628,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1758,11 +1751,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 	
 		return predictions;
@@ -1810,33 +1799,18 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1881,7 +1855,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -1929,7 +1903,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.length];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2037,31 +2011,18 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2113,7 +2074,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2161,7 +2122,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2269,31 +2230,18 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2347,7 +2295,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[1])){
+					if ( encoder.encode(target[i])==1){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2395,7 +2343,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 			double label []= new double [data.GetRowDimension()];
 			for (int i=0; i < label.length; i++){
 				if (target!=null){
-					if ( (target[i]+"").equals(classes[n])){
+					if ( encoder.encode(target[i])==n){
 						label[i]=1.0;
 					} else {
 						label[i]=-1.0;	
@@ -2541,6 +2489,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		W2s=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		connection_nonlinearity="Relu";
 		h1=20;
 		h2=20;
@@ -2573,6 +2522,7 @@ public class Vanilla2hnnclassifier implements estimator,classifier {
 		br.W1s=manipulate.copies.copies.Copy(this.W1s.clone());
 		br.W2s=manipulate.copies.copies.Copy(this.W2s.clone());
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.connection_nonlinearity=this.connection_nonlinearity;
 		br.h1=this.h1;
@@ -22,8 +22,6 @@ SOFTWARE.
 package ml.nn;
 
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
 import preprocess.scaling.maxscaler;
@@ -34,6 +32,7 @@ import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
+import preprocess.encoding.labelencoder;
 /**
  *<p> class to implement binary  2-hidden layer ff neural network for classification with multiple-layer output (softmax) <p>
  *The implementation is heavily based on the equivalent one in the <a href="https://pypi.python.org/pypi/Kaggler">kaggler</a> package
@@ -176,6 +175,19 @@ public class softmaxnnclassifier implements estimator,classifier {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -298,6 +310,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * 
@@ -1122,11 +1135,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1247,11 +1256,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1365,11 +1370,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictions[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictions[i]=maxi;
-	    	  }
+	    	  predictions[i]=encoder.decode(maxi);
 
 		}
 	
@@ -1484,11 +1485,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1600,11 +1597,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 		
 		return predictions;
@@ -1723,11 +1716,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		    			 maxi=k;	 
 		    		 }
 		    	  }
-		    	  try{
-		    		  predictions=Double.parseDouble(classes[maxi]);
-		    	  } catch (Exception e){
-		    		  predictions=maxi;
-		    	  }
+		    	  predictions=encoder.decode(maxi);
 	
 	
 		return predictions;
@@ -1781,31 +1770,18 @@ public class softmaxnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -1991,7 +1967,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		         for (int g=0; g<n_classes; g++){
 		        	 //pred[g]/=sum;
 		        	 yi=0.0;
-		        	 if ( (target[i]+"").equals(classes[g])){
+		        	 if ( encoder.encode(target[i])==g){
 		        		 yi=1.0;
 						} 
 		        	  e=pred[g]-yi; //error
@@ -2155,31 +2131,18 @@ public class softmaxnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2365,7 +2328,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		         for (int g=0; g<n_classes; g++){
 		        	 //pred[g]/=sum;
 		        	 yi=0.0;
-		        	 if ( (target[i]+"").equals(classes[g])){
+		        	 if ( encoder.encode(target[i])==g){
 		        		 yi=1.0;
 						} 
 		        	  e=pred[g]-yi; //error
@@ -2529,31 +2492,18 @@ public class softmaxnnclassifier implements estimator,classifier {
 			if (target!=null && (classes==null ||  classes.length<=1) ){
 				
 			// check if values only 1 and zero
-			HashSet<Double> has= new HashSet<Double> ();
-			for (int i=0; i < target.length; i++){
-				has.add(target[i]);
-			}
-			if (has.size()<=1){
+			encoder= new labelencoder(target);
+			if (encoder.size()<=1){
 				throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 			}
-			double uniquevalues[]= new double[has.size()];
-			int k=0;
-		    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-		    	uniquevalues[k]= it.next();
-		    	k++;
-		    	}
-		    // sort values
-		    Arrays.sort(uniquevalues);
-		    classes= new String[uniquevalues.length];
-		    for (int j=0; j < uniquevalues.length; j++){
-		    	classes[j]=uniquevalues[j]+"";
-		    }
+			classes=encoder.getclasses();
 			} else 	if (Starget!=null && (classes==null ||  classes.length<=1)){
 				classes=manipulate.distinct.distinct.getstringDistinctset(Starget);
 				if (classes.length<=1){
 					throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 				}
 			    Arrays.sort(classes);				
+			    encoder= new labelencoder(classes);
 				
 			}
 		}
@@ -2743,7 +2693,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		         for (int g=0; g<n_classes; g++){
 		        	 //pred[g]/=sum;
 		        	 yi=0.0;
-		        	 if ( (target[i]+"").equals(classes[g])){
+		        	 if ( encoder.encode(target[i])==g){
 		        		 yi=1.0;
 						} 
 		        	  e=pred[g]-yi; //error
@@ -2941,6 +2891,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		W2s=null;
 		n_classes=0;
 		classes=null;
+		encoder=null;
 		connection_nonlinearity="Relu";
 		h1=20;
 		h2=20;
@@ -2975,6 +2926,7 @@ public class softmaxnnclassifier implements estimator,classifier {
 		br.W1s=manipulate.copies.copies.Copy(this.W1s.clone());
 		br.W2s=manipulate.copies.copies.Copy(this.W2s.clone());
 		br.classes=this.classes.clone();
+		br.encoder=this.encoder;
 		br.n_classes=this.n_classes;
 		br.connection_nonlinearity=this.connection_nonlinearity;
 		br.h1=this.h1;
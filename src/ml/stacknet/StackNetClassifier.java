@@ -22,45 +22,20 @@ SOFTWARE.
 package ml.stacknet;
 import java.io.Serializable;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Random;
 
-import crossvalidation.metrics.auc;
+import crossvalidation.metrics.fusedmetrics;
 import crossvalidation.splits.kfold;
 import matrix.fsmatrix;
 import matrix.smatrix;
 import ml.classifier;
 import ml.estimator;
-import ml.Kernel.copy.KernelmodelClassifier;
-import ml.Kernel.copy.KernelmodelRegressor;
-import ml.LSVC.LSVC;
-import ml.LSVR.LSVR;
-import ml.LibFm.LibFmClassifier;
-import ml.LibFm.LibFmRegressor;
-import ml.LinearRegression.LinearRegression;
-import ml.LogisticRegression.LogisticRegression;
-import ml.NaiveBayes.NaiveBayesClassifier;
-import ml.Tree.AdaboostForestRegressor;
-import ml.Tree.AdaboostRandomForestClassifier;
-import ml.Tree.DecisionTreeClassifier;
-import ml.Tree.DecisionTreeRegressor;
-import ml.Tree.GradientBoostingForestClassifier;
-import ml.Tree.GradientBoostingForestRegressor;
-import ml.Tree.RandomForestClassifier;
-import ml.Tree.RandomForestRegressor;
-import ml.knn.knnClassifier;
-import ml.knn.knnRegressor;
-import ml.nn.Vanilla2hnnclassifier;
-import ml.nn.Vanilla2hnnregressor;
-import ml.nn.multinnregressor;
-import ml.nn.softmaxnnclassifier;
 import preprocess.scaling.scaler;
 import utilis.XorShift128PlusRandom;
-import utilis.map.intint.StringIntMap4a;
 import exceptions.DimensionMismatchException;
 import exceptions.IllegalStateException;
 import exceptions.LessThanMinimum;
+import preprocess.encoding.labelencoder;
 
 /**
  * 
@@ -128,6 +103,11 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	 * threads to use
 	 */
 	public int threads=1;
+	/**
+	 * total threads that the models of a level may use together. If higher than zero , StackNet owns the core budget and every model gets
+	 * its share when it starts (more threads when fewer models run) instead of its own 'threads' parameter. 0 keeps the models' own threads
+	 */
+	public int cores=0;
 	
 	/**
 	 * Print datasets after each level if True
@@ -150,7 +130,91 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	 * number of kfolds to run cv for
 	 */
 	public int folds=5;
+	/**
+	 * directory to keep the checkpoints of the models of each level , so that a new run restores the models whose parameters and input data have not changed. Null for no checkpoints
+	 */
+	public String checkpoint_dir=null;
 
+	/**
+	 * prints the cross validation metric of every trained model and fold from the out-of-fold predictions
+	 * @param level_grid : the parameter lines of the models of a level
+	 * @param kfolder : the folds
+	 * @param trainstacker : the out-of-fold predictions of the level
+	 * @param model_widths : number of columns of every model
+	 * @param model_offsets : first column of every model
+	 * @param checkpoint : checkpoints of the level (restored models are not printed) , may be null
+	 */
+	private void print_fold_metrics(String level_grid[], kfold kfolder, fsmatrix trainstacker, int model_widths[], int model_offsets[], stacknetcheckpoint checkpoint){
+		int folds=kfolder.getfolds();
+		// the rows of all the folds one after the other , so that the metric of every fold comes from one pass
+		int rows=0;
+		for (int f=0; f < folds; f++){
+			rows+=kfolder.test(f).length;
+		}
+		int fold_of_row[]= new int[rows];
+		int row_of_stacker[]= new int[rows];
+		double y_cv[]= new double[rows];
+		int count=0;
+		for (int f=0; f < folds; f++){
+			int test_indices[]=kfolder.test(f);
+			for (int i=0; i <test_indices.length; i++ ){
+				fold_of_row[count]=f;
+				row_of_stacker[count]=test_indices[i];
+				y_cv[count]=this.target[test_indices[i]];
+				count++;
+			}
+		}
+		for (int es=0; es <level_grid.length; es++ ){
+			if (checkpoint!=null && checkpoint.restored(es)){
+				continue;
+			}
+			boolean is_regerssion=stacknetscheduler.is_regressor(level_grid[es]);
+			String name=null;
+			String label="";
+			if(this.n_classes==2 && this.metric.equals("auc")){
+				name="auc";
+				label=" AUC: ";
+			} else if (is_regerssion && (this.metric.equals("logloss") || this.metric.equals("accuracy"))){
+				name="rmse";
+				label=" rmse : ";
+			} else if (this.metric.equals("logloss") || this.metric.equals("accuracy")){
+				name=this.metric;
+				label=" " + this.metric + " : ";
+			}
+			double values[][]=null;
+			if (name!=null){
+				double predictions[][]= new double[rows][model_widths[es]];
+				for (int i=0; i <rows; i++ ){
+					for (int j=0; j <model_widths[es]; j++ ){
+						predictions[i][j]=trainstacker.GetElement(row_of_stacker[i], model_offsets[es]+j);
+					}
+				}
+				fusedmetrics metrics= new fusedmetrics(name);
+				metrics.threads=this.threads;
+				values=metrics.GetValues(predictions, y_cv, fold_of_row, folds);
+			}
+			for (int f=0; f < folds; f++){
+				System.out.print("model: " + (es+1) + " fold: " + (f+1) + "/" + folds);
+				if (values!=null){
+					System.out.println(label + values[f][0]);
+				} else {
+					System.out.println();
+				}
+			}
+		}
+	}
+	/**
+	 * @param level_grid : the parameter lines of the models of a level
+	 * @param islastlevel : True if this is the last level
+	 * @return the number of output columns of every model of the level
+	 */
+	private int [] model_widths(String level_grid[], boolean islastlevel){
+		int widths[]= new int[level_grid.length];
+		for (int es=0; es <level_grid.length; es++ ){
+			widths[es]=estimate_classes(new String[]{level_grid[es]},  this.n_classes, islastlevel);
+		}
+		return widths;
+	}
 	
 	public  estimator[][] Get_tree(){
 		if (this.tree_body==null || this.tree_body.length<=0){
@@ -211,6 +275,19 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	 * Name of the unique classes
 	 */
 	private String classes[];
+	/**
+	 * maps the target to the classes and the predictions back to their values
+	 */
+	private labelencoder encoder;
+	/**
+	 * rebuilds the encoder of the classes for models that were saved without it
+	 */
+	private void readObject(java.io.ObjectInputStream in) throws java.io.IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (encoder==null && classes!=null){
+			encoder= new labelencoder(classes);
+		}
+	}
 	/**
 	 * Target variable in String format
 	 */	
@@ -241,6 +318,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		for (int j=0; j < names.length; j++){
 			classes[j]=names[j];
 		}
+		encoder= new labelencoder(classes);
 	}
 	/**
 	 * The object that holds the modelling data in double form in cases the user chooses this form
@@ -835,11 +913,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictionsclass[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictionsclass[i]=maxi;
-	    	  }
+	    	  predictionsclass[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -956,11 +1030,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictionsclass[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictionsclass[i]=maxi;
-	    	  }
+	    	  predictionsclass[i]=encoder.decode(maxi);
 
 		}		
 		
@@ -1074,11 +1144,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 	    			 maxi=k;	 
 	    		 }
 	    	  }
-	    	  try{
-	    		  predictionsclass[i]=Double.parseDouble(classes[maxi]);
-	    	  } catch (Exception e){
-	    		  predictionsclass[i]=maxi;
-	    	  }
+	    	  predictionsclass[i]=encoder.decode(maxi);
 
 		}		
 			
@@ -1205,35 +1271,12 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		} 	
 		
 		// check if values only 1 and zero
-		HashSet<Double> has= new HashSet<Double> ();
-		for (int i=0; i < target.length; i++){
-			has.add(target[i]);
-		}
-		if (has.size()<=1){
+		encoder= new labelencoder(target);
+		if (encoder.size()<=1){
 			throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 		}
-		double uniquevalues[]= new double[has.size()];
-		
-		int k=0;
-	    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-	    	uniquevalues[k]= it.next();
-	    	k++;
-	    	}
-	    // sort values
-	    Arrays.sort(uniquevalues);
-	    
-	    classes= new String[uniquevalues.length];
-	    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-	    int index=0;
-	    for (int j=0; j < uniquevalues.length; j++){
-	    	classes[j]=uniquevalues[j]+"";
-	    	mapper.put(classes[j], index);
-	    	index++;
-	    }
-	    fstarget=new int[target.length];
-	    for (int i=0; i < fstarget.length; i++){
-	    	fstarget[i]=mapper.get(target[i] + "");
-	    }
+		classes=encoder.getclasses();
+		fstarget=encoder.encode(target);
 		
 		
 		if (weights==null) {
@@ -1340,178 +1383,44 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			}
 			
 			String [] level_grid=parameters[level];
-			estimator[] mini_batch_tree= new estimator[level_grid.length];
-			
-			Thread[] thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimator [] estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			int count_of_live_threads=0;
-
-
 			int temp_class=estimate_classes(level_grid,  this.n_classes, level==(parameters.length-1));
 			column_counts[level]=temp_class;
+			int model_widths[]=model_widths(level_grid, level==(parameters.length-1));
+			int model_offsets[]= new int[level_grid.length];
+			for (int es=1; es <level_grid.length; es++ ){
+				model_offsets[es]=model_offsets[es-1]+model_widths[es-1];
+			}
+			stacknetcheckpoint checkpoint=null;
+			if (this.checkpoint_dir!=null && this.checkpoint_dir.length()>0){
+				checkpoint= new stacknetcheckpoint(this.checkpoint_dir, level_grid, model_widths,
+						stacknetcheckpoint.fingerprint(data, this.target), this.folds, kfold.seed, this.n_classes, level==(parameters.length-1));
+				checkpoint.verbose=this.verbose;
+			}
 			if (this.verbose){
 				System.out.println(" Level: " +  (level+1) + " dimensionality: " + temp_class);
-				System.out.println(" Starting cross validation ");
+				System.out.println(" Starting cross validation and output modelling ");
 			}
+			kfold kfolder=null;
 			if (level<parameters.length -1){
-			trainstacker=new fsmatrix(target.length, temp_class);
-			int kfolder [][][]=kfold.getindices(this.target.length, this.folds);
-			
-			// begin cross validation
-			for (int f=0; f < this.folds; f++){
-				
-					int train_indices[]=kfolder[f][0]; // train indices
-					int test_indices[]=kfolder[f][1]; // test indices	
-					//System.out.println(" start!");
-					double X_train [][]= manipulate.select.rowselect.RowSelect2d(data, train_indices);
-					double X_cv [][] = manipulate.select.rowselect.RowSelect2d(data, test_indices);
-					double [] y_train=manipulate.select.rowselect.RowSelect(this.target, train_indices);
-					double [] y_cv=manipulate.select.rowselect.RowSelect(this.target, test_indices);
-					//double [] y_cv=manipulate.select.rowselect.RowSelect(this.target, test_indices);	
-					int column_counter=0;
-					
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					
-					
-					for (int es=0; es <level_grid.length; es++ ){
-						String splits[]=level_grid[es].split(" " + "+");	
-						String str_estimator=splits[0];
-						
-						if (str_estimator.contains("AdaboostForestRegressor")) {
-							mini_batch_tree[es]= new AdaboostForestRegressor(X_train);
-						} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-							mini_batch_tree[es]= new AdaboostRandomForestClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeClassifier")) {
-							mini_batch_tree[es]= new DecisionTreeClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeRegressor")) {
-							mini_batch_tree[es]= new DecisionTreeRegressor(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-							mini_batch_tree[es]= new GradientBoostingForestClassifier(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-							mini_batch_tree[es]= new GradientBoostingForestRegressor(X_train);
-						}else if (str_estimator.contains("RandomForestClassifier")) {
-							mini_batch_tree[es]= new RandomForestClassifier(X_train);
-						}else if (str_estimator.contains("RandomForestRegressor")) {
-							mini_batch_tree[es]= new RandomForestRegressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-							mini_batch_tree[es]= new Vanilla2hnnregressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-							mini_batch_tree[es]= new Vanilla2hnnclassifier(X_train);
-						}else if (str_estimator.contains("softmaxnnclassifier")) {
-							mini_batch_tree[es]= new softmaxnnclassifier(X_train);
-						}else if (str_estimator.contains("multinnregressor")) {
-							mini_batch_tree[es]= new multinnregressor(X_train);
-						}else if (str_estimator.contains("NaiveBayesClassifier")) {
-							mini_batch_tree[es]= new NaiveBayesClassifier(X_train);
-						}else if (str_estimator.contains("LSVR")) {
-							mini_batch_tree[es]= new LSVR(X_train);
-						}else if (str_estimator.contains("LSVC")) {
-							mini_batch_tree[es]= new LSVC(X_train);
-						}else if (str_estimator.contains("LogisticRegression")) {
-							mini_batch_tree[es]= new LogisticRegression(X_train);
-						}else if (str_estimator.contains("LinearRegression")) {
-							mini_batch_tree[es]= new LinearRegression(X_train);
-						}else if (str_estimator.contains("LibFmRegressor")) {
-							mini_batch_tree[es]= new LibFmRegressor(X_train);
-						}else if (str_estimator.contains("LibFmClassifier")) {
-							mini_batch_tree[es]= new LibFmClassifier(X_train);
-						}else if (str_estimator.contains("knnClassifier")) {
-							mini_batch_tree[es]= new knnClassifier(X_train);
-						}else if (str_estimator.contains("knnRegressor")) {
-							mini_batch_tree[es]= new knnRegressor(X_train);
-						}else if (str_estimator.contains("KernelmodelClassifier")) {
-							mini_batch_tree[es]= new KernelmodelClassifier(X_train);
-						}else if (str_estimator.contains("KernelmodelRegressor")) {
-							mini_batch_tree[es]= new KernelmodelRegressor(X_train);
-						} else {
-							throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-						}
-						mini_batch_tree[es].set_params(level_grid[es]);
-						mini_batch_tree[es].set_target(y_train);
-		
-						estimators[count_of_live_threads]=mini_batch_tree[es];
-						thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-						thread_array[count_of_live_threads].start();
-						count_of_live_threads++;
-						if (this.verbose==true){
-							System.out.println("fitting model : " + (es+1));
-							
-						}
-						
-						if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-							for (int s=0; s <count_of_live_threads;s++ ){
-								try {
-									thread_array[s].join();
-								} catch (InterruptedException e) {
-								   System.out.println(e.getMessage());
-								   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-								}
-							}
-							
-							
-							for (int s=0; s <count_of_live_threads;s++ ){
-								double predictions[][]=estimators[s].predict_proba(X_cv);
-								boolean is_regerssion=estimators[s].IsRegressor();
-								if (predictions[0].length==2){
-									predictions=manipulate.select.columnselect.ColumnSelect(predictions, new int [] {1});
-								}
-								
-								if (this.verbose){
-									if(this.n_classes==2 && this.metric.equals("auc")){
-											double pr [] = manipulate.conversions.dimension.Convert(predictions);
-											crossvalidation.metrics.Metric ms =new auc();
-											double auc=ms.GetValue(pr,y_cv ); // the auc for the current fold	
-											System.out.println(" AUC: " + auc);
-										} else if ( this.metric.equals("logloss")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-											double log=logloss (predictions,y_cv ); // the logloss for the current fold	
-											System.out.println(" logloss : " + log);
-											}
-											
-										} else if (this.metric.equals("accuracy")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-												double acc=accuracy (predictions,y_cv ); // the accuracy for the current fold	
-												System.out.println(" accuracy : " + acc);
-											}
-										}
-							}						
-								
-								
-								for (int j=0; j <predictions[0].length; j++ ){
-									for (int i=0; i <predictions.length; i++ ){
-										trainstacker.SetElement(test_indices[i], column_counter, predictions[i][j]);
-									}
-									column_counter+=1;
-								}
-								
-							
-								
-							}							
-							
-							System.gc();
-							count_of_live_threads=0;
-							thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-							estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-						}
-						
-						
-		
-					}
-					if (this.verbose==true){
-						System.out.println("Done with fold: " + (f+1) + "/" + this.folds);
-						
-					}
-				
+				trainstacker=new fsmatrix(target.length, temp_class);
+				if (checkpoint!=null){
+					checkpoint.fill(trainstacker);
+				}
+				kfolder=new kfold(this.target.length, this.folds, kfold.seed);
 			}
-			
+			// every (model, fold) pair and every final fit is a task , run longest-expected-first on 'threads' workers
+			stacknetscheduler scheduler= new stacknetscheduler(data, this.target, level_grid, kfolder,
+					(level<parameters.length -1)?trainstacker:null, model_offsets, checkpoint);
+			scheduler.threads=this.threads;
+			scheduler.cores=this.cores;
+			scheduler.verbose=this.verbose;
+			scheduler.fit();
+			estimator[] mini_batch_tree=scheduler.models;
+			if (this.verbose && kfolder!=null){
+				print_fold_metrics(level_grid, kfolder, trainstacker, model_widths, model_offsets, checkpoint);
 			}
+			System.gc();
+			
 			// we print file
 			if (this.print){
 				
@@ -1522,98 +1431,6 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 				trainstacker.ToFile(this.output_name +  (level+1)+ ".csv");
 				
 			}
-			if (this.verbose){
-				System.out.println(" Level: " +  (level+1)+ " start output modelling ");
-			}
-			
-			thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			mini_batch_tree= new estimator[level_grid.length];
-			count_of_live_threads=0;
-			/* Final modelling */
-			
-			for (int es=0; es <level_grid.length; es++ ){
-				String splits[]=level_grid[es].split(" " + "+");	
-				String str_estimator=splits[0];
-				
-				if (str_estimator.contains("AdaboostForestRegressor")) {
-					mini_batch_tree[es]= new AdaboostForestRegressor(data);
-				} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-					mini_batch_tree[es]= new AdaboostRandomForestClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeClassifier")) {
-					mini_batch_tree[es]= new DecisionTreeClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeRegressor")) {
-					mini_batch_tree[es]= new DecisionTreeRegressor(data);
-				}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-					mini_batch_tree[es]= new GradientBoostingForestClassifier(data);
-				}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-					mini_batch_tree[es]= new GradientBoostingForestRegressor(data);
-				}else if (str_estimator.contains("RandomForestClassifier")) {
-					mini_batch_tree[es]= new RandomForestClassifier(data);
-				}else if (str_estimator.contains("RandomForestRegressor")) {
-					mini_batch_tree[es]= new RandomForestRegressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-					mini_batch_tree[es]= new Vanilla2hnnregressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-					mini_batch_tree[es]= new Vanilla2hnnclassifier(data);
-				}else if (str_estimator.contains("softmaxnnclassifier")) {
-					mini_batch_tree[es]= new softmaxnnclassifier(data);
-				}else if (str_estimator.contains("multinnregressor")) {
-					mini_batch_tree[es]= new multinnregressor(data);
-				}else if (str_estimator.contains("NaiveBayesClassifier")) {
-					mini_batch_tree[es]= new NaiveBayesClassifier(data);
-				}else if (str_estimator.contains("LSVR")) {
-					mini_batch_tree[es]= new LSVR(data);
-				}else if (str_estimator.contains("LSVC")) {
-					mini_batch_tree[es]= new LSVC(data);
-				}else if (str_estimator.contains("LogisticRegression")) {
-					mini_batch_tree[es]= new LogisticRegression(data);
-				}else if (str_estimator.contains("LinearRegression")) {
-					mini_batch_tree[es]= new LinearRegression(data);
-				}else if (str_estimator.contains("LibFmRegressor")) {
-					mini_batch_tree[es]= new LibFmRegressor(data);
-				}else if (str_estimator.contains("LibFmClassifier")) {
-					mini_batch_tree[es]= new LibFmClassifier(data);
-				}else if (str_estimator.contains("knnClassifier")) {
-					mini_batch_tree[es]= new knnClassifier(data);
-				}else if (str_estimator.contains("knnRegressor")) {
-					mini_batch_tree[es]= new knnRegressor(data);
-				}else if (str_estimator.contains("KernelmodelClassifier")) {
-					mini_batch_tree[es]= new KernelmodelClassifier(data);
-				}else if (str_estimator.contains("KernelmodelRegressor")) {
-					mini_batch_tree[es]= new KernelmodelRegressor(data);
-				} else {
-					throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-				}
-				mini_batch_tree[es].set_params(level_grid[es]);
-				mini_batch_tree[es].set_target(this.target);
-
-				estimators[count_of_live_threads]=mini_batch_tree[es];
-				thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-				thread_array[count_of_live_threads].start();
-				count_of_live_threads++;
-				if (this.verbose==true){
-					System.out.println("Fitting model: " + (es+1));
-					
-				}
-				
-				if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-					for (int s=0; s <count_of_live_threads;s++ ){
-						try {
-							thread_array[s].join();
-						} catch (InterruptedException e) {
-						   System.out.println(e.getMessage());
-						   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-						}
-					}
-
-					System.gc();
-					count_of_live_threads=0;
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-				}
-				
-			}			
 			
 			if (this.verbose==true){
 				System.out.println("Completed level: " + (level+1) + " out of " + parameters.length);
@@ -1663,35 +1480,12 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		} 	
 		
 		// check if values only 1 and zero
-		HashSet<Double> has= new HashSet<Double> ();
-		for (int i=0; i < target.length; i++){
-			has.add(target[i]);
-		}
-		if (has.size()<=1){
+		encoder= new labelencoder(target);
+		if (encoder.size()<=1){
 			throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 		}
-		double uniquevalues[]= new double[has.size()];
-		
-		int k=0;
-	    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-	    	uniquevalues[k]= it.next();
-	    	k++;
-	    	}
-	    // sort values
-	    Arrays.sort(uniquevalues);
-	    
-	    classes= new String[uniquevalues.length];
-	    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-	    int index=0;
-	    for (int j=0; j < uniquevalues.length; j++){
-	    	classes[j]=uniquevalues[j]+"";
-	    	mapper.put(classes[j], index);
-	    	index++;
-	    }
-	    fstarget=new int[target.length];
-	    for (int i=0; i < fstarget.length; i++){
-	    	fstarget[i]=mapper.get(target[i] + "");
-	    }		
+		classes=encoder.getclasses();
+	    fstarget=encoder.encode(target);
 		if (weights==null) {
 			
 			weights=new double [data.GetRowDimension()];
@@ -1794,178 +1588,45 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			}
 			
 			String [] level_grid=parameters[level];
-			estimator[] mini_batch_tree= new estimator[level_grid.length];
-			
-			Thread[] thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimator [] estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			int count_of_live_threads=0;
-
-
 			int temp_class=estimate_classes(level_grid,  this.n_classes, level==(parameters.length-1));
-			column_counts[level] = temp_class;
+			column_counts[level]=temp_class;
+			int model_widths[]=model_widths(level_grid, level==(parameters.length-1));
+			int model_offsets[]= new int[level_grid.length];
+			for (int es=1; es <level_grid.length; es++ ){
+				model_offsets[es]=model_offsets[es-1]+model_widths[es-1];
+			}
+			stacknetcheckpoint checkpoint=null;
+			if (this.checkpoint_dir!=null && this.checkpoint_dir.length()>0){
+				checkpoint= new stacknetcheckpoint(this.checkpoint_dir, level_grid, model_widths,
+						stacknetcheckpoint.fingerprint(data, this.target), this.folds, kfold.seed, this.n_classes, level==(parameters.length-1));
+				checkpoint.verbose=this.verbose;
+			}
 			if (this.verbose){
 				System.out.println(" Level: " +  (level+1) + " dimensionality: " + temp_class);
-				System.out.println(" Starting cross validation ");
+				System.out.println(" Starting cross validation and output modelling ");
 			}
+			kfold kfolder=null;
 			if (level<parameters.length -1){
-			trainstacker=new fsmatrix(target.length, temp_class);
-			int kfolder [][][]=kfold.getindices(this.target.length, this.folds);
-			
-			// begin cross validation
-			for (int f=0; f < this.folds; f++){
-				
-					int train_indices[]=kfolder[f][0]; // train indices
-					int test_indices[]=kfolder[f][1]; // test indices	
-					//System.out.println(" start!");
-					fsmatrix X_train = data.makerowsubset(train_indices);
-					fsmatrix X_cv  =data.makerowsubset(test_indices);
-					double [] y_train=manipulate.select.rowselect.RowSelect(this.target, train_indices);
-					double [] y_cv=manipulate.select.rowselect.RowSelect(this.target, test_indices);	
-					int column_counter=0;
-					
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					
-					
-					for (int es=0; es <level_grid.length; es++ ){
-						String splits[]=level_grid[es].split(" " + "+");	
-						String str_estimator=splits[0];
-						
-						if (str_estimator.contains("AdaboostForestRegressor")) {
-							mini_batch_tree[es]= new AdaboostForestRegressor(X_train);
-						} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-							mini_batch_tree[es]= new AdaboostRandomForestClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeClassifier")) {
-							mini_batch_tree[es]= new DecisionTreeClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeRegressor")) {
-							mini_batch_tree[es]= new DecisionTreeRegressor(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-							mini_batch_tree[es]= new GradientBoostingForestClassifier(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-							mini_batch_tree[es]= new GradientBoostingForestRegressor(X_train);
-						}else if (str_estimator.contains("RandomForestClassifier")) {
-							mini_batch_tree[es]= new RandomForestClassifier(X_train);
-						}else if (str_estimator.contains("RandomForestRegressor")) {
-							mini_batch_tree[es]= new RandomForestRegressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-							mini_batch_tree[es]= new Vanilla2hnnregressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-							mini_batch_tree[es]= new Vanilla2hnnclassifier(X_train);
-						}else if (str_estimator.contains("softmaxnnclassifier")) {
-							mini_batch_tree[es]= new softmaxnnclassifier(X_train);
-						}else if (str_estimator.contains("multinnregressor")) {
-							mini_batch_tree[es]= new multinnregressor(X_train);
-						}else if (str_estimator.contains("NaiveBayesClassifier")) {
-							mini_batch_tree[es]= new NaiveBayesClassifier(X_train);
-						}else if (str_estimator.contains("LSVR")) {
-							mini_batch_tree[es]= new LSVR(X_train);
-						}else if (str_estimator.contains("LSVC")) {
-							mini_batch_tree[es]= new LSVC(X_train);
-						}else if (str_estimator.contains("LogisticRegression")) {
-							mini_batch_tree[es]= new LogisticRegression(X_train);
-						}else if (str_estimator.contains("LinearRegression")) {
-							mini_batch_tree[es]= new LinearRegression(X_train);
-						}else if (str_estimator.contains("LibFmRegressor")) {
-							mini_batch_tree[es]= new LibFmRegressor(X_train);
-						}else if (str_estimator.contains("LibFmClassifier")) {
-							mini_batch_tree[es]= new LibFmClassifier(X_train);
-						}else if (str_estimator.contains("knnClassifier")) {
-							mini_batch_tree[es]= new knnClassifier(X_train);
-						}else if (str_estimator.contains("knnRegressor")) {
-							mini_batch_tree[es]= new knnRegressor(X_train);
-						}else if (str_estimator.contains("KernelmodelClassifier")) {
-							mini_batch_tree[es]= new KernelmodelClassifier(X_train);
-						}else if (str_estimator.contains("KernelmodelRegressor")) {
-							mini_batch_tree[es]= new KernelmodelRegressor(X_train);
-						} else {
-							throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-						}
-						mini_batch_tree[es].set_params(level_grid[es]);
-						mini_batch_tree[es].set_target(y_train);
-		
-						estimators[count_of_live_threads]=mini_batch_tree[es];
-						thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-						thread_array[count_of_live_threads].start();
-						count_of_live_threads++;
-						if (this.verbose==true){
-							System.out.println("Fitting model: " + (es+1));
-							
-						}
-						
-						if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-							for (int s=0; s <count_of_live_threads;s++ ){
-								try {
-									thread_array[s].join();
-								} catch (InterruptedException e) {
-								   System.out.println(e.getMessage());
-								   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-								}
-							}
-							
-							
-							for (int s=0; s <count_of_live_threads;s++ ){
-								double predictions[][]=estimators[s].predict_proba(X_cv);
-								boolean is_regerssion=estimators[s].IsRegressor();
-								if (predictions[0].length==2){
-									predictions=manipulate.select.columnselect.ColumnSelect(predictions, new int [] {1});
-
-								}
-								// metrics' calculation
-								if (this.verbose){
-									if(this.n_classes==2 && this.metric.equals("auc")){
-											double pr [] = manipulate.conversions.dimension.Convert(predictions);
-											crossvalidation.metrics.Metric ms =new auc();
-											double auc=ms.GetValue(pr,y_cv ); // the auc for the current fold	
-											System.out.println(" AUC: " + auc);
-										} else if ( this.metric.equals("logloss")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-											double log=logloss (predictions,y_cv ); // the logloss for the current fold	
-											System.out.println(" logloss : " + log);
-											}
-											
-										} else if (this.metric.equals("accuracy")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-												double acc=accuracy (predictions,y_cv ); // the accuracy for the current fold	
-												System.out.println(" accuracy : " + acc);
-											}
-										}
-							}
-								
-								
-								for (int j=0; j <predictions[0].length; j++ ){
-									for (int i=0; i <predictions.length; i++ ){
-										trainstacker.SetElement(test_indices[i], column_counter, predictions[i][j]);
-									}
-									column_counter+=1;
-								}
-								
-							
-								
-							}							
-							
-							System.gc();
-							count_of_live_threads=0;
-							thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-							estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-						}
-						
-						
-				
-					}
-					if (this.verbose==true){
-						System.out.println("Done with fold: " + (f+1) + "/" + this.folds);
-						
-					}
-				
+				trainstacker=new fsmatrix(target.length, temp_class);
+				if (checkpoint!=null){
+					checkpoint.fill(trainstacker);
+				}
+				kfolder=new kfold(this.target.length, this.folds, kfold.seed);
 			}
-
+			// every (model, fold) pair and every final fit is a task , run longest-expected-first on 'threads' workers
+			stacknetscheduler scheduler= new stacknetscheduler(data, this.target, level_grid, kfolder,
+					(level<parameters.length -1)?trainstacker:null, model_offsets, checkpoint);
+			scheduler.threads=this.threads;
+			scheduler.cores=this.cores;
+			scheduler.verbose=this.verbose;
+			scheduler.fit();
+			estimator[] mini_batch_tree=scheduler.models;
+			if (this.verbose && kfolder!=null){
+				print_fold_metrics(level_grid, kfolder, trainstacker, model_widths, model_offsets, checkpoint);
 			}
+			System.gc();
+			
+			// we print file
 			if (this.print){
 				
 				if (this.verbose){
@@ -1976,99 +1637,6 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 				
 			}
 			
-			if (this.verbose){
-				System.out.println(" Level: " +  (level+1)+ " start output modelling ");
-			}
-			
-			thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			mini_batch_tree= new estimator[level_grid.length];
-			count_of_live_threads=0;
-			/* Final modelling */
-			
-			for (int es=0; es <level_grid.length; es++ ){
-				String splits[]=level_grid[es].split(" " + "+");	
-				String str_estimator=splits[0];
-				
-				if (str_estimator.contains("AdaboostForestRegressor")) {
-					mini_batch_tree[es]= new AdaboostForestRegressor(data);
-				} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-					mini_batch_tree[es]= new AdaboostRandomForestClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeClassifier")) {
-					mini_batch_tree[es]= new DecisionTreeClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeRegressor")) {
-					mini_batch_tree[es]= new DecisionTreeRegressor(data);
-				}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-					mini_batch_tree[es]= new GradientBoostingForestClassifier(data);
-				}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-					mini_batch_tree[es]= new GradientBoostingForestRegressor(data);
-				}else if (str_estimator.contains("RandomForestClassifier")) {
-					mini_batch_tree[es]= new RandomForestClassifier(data);
-				}else if (str_estimator.contains("RandomForestRegressor")) {
-					mini_batch_tree[es]= new RandomForestRegressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-					mini_batch_tree[es]= new Vanilla2hnnregressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-					mini_batch_tree[es]= new Vanilla2hnnclassifier(data);
-				}else if (str_estimator.contains("softmaxnnclassifier")) {
-					mini_batch_tree[es]= new softmaxnnclassifier(data);
-				}else if (str_estimator.contains("multinnregressor")) {
-					mini_batch_tree[es]= new multinnregressor(data);
-				}else if (str_estimator.contains("NaiveBayesClassifier")) {
-					mini_batch_tree[es]= new NaiveBayesClassifier(data);
-				}else if (str_estimator.contains("LSVR")) {
-					mini_batch_tree[es]= new LSVR(data);
-				}else if (str_estimator.contains("LSVC")) {
-					mini_batch_tree[es]= new LSVC(data);
-				}else if (str_estimator.contains("LogisticRegression")) {
-					mini_batch_tree[es]= new LogisticRegression(data);
-				}else if (str_estimator.contains("LinearRegression")) {
-					mini_batch_tree[es]= new LinearRegression(data);
-				}else if (str_estimator.contains("LibFmRegressor")) {
-					mini_batch_tree[es]= new LibFmRegressor(data);
-				}else if (str_estimator.contains("LibFmClassifier")) {
-					mini_batch_tree[es]= new LibFmClassifier(data);
-				}else if (str_estimator.contains("knnClassifier")) {
-					mini_batch_tree[es]= new knnClassifier(data);
-				}else if (str_estimator.contains("knnRegressor")) {
-					mini_batch_tree[es]= new knnRegressor(data);
-				}else if (str_estimator.contains("KernelmodelClassifier")) {
-					mini_batch_tree[es]= new KernelmodelClassifier(data);
-				}else if (str_estimator.contains("KernelmodelRegressor")) {
-					mini_batch_tree[es]= new KernelmodelRegressor(data);
-				} else {
-					throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-				}
-				mini_batch_tree[es].set_params(level_grid[es]);
-				mini_batch_tree[es].set_target(this.target);
-
-				estimators[count_of_live_threads]=mini_batch_tree[es];
-				thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-				thread_array[count_of_live_threads].start();
-				count_of_live_threads++;
-				if (this.verbose==true){
-					System.out.println("Fitting model : " + (es+1));
-					
-				}
-				
-				if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-					for (int s=0; s <count_of_live_threads;s++ ){
-						try {
-							thread_array[s].join();
-						} catch (InterruptedException e) {
-						   System.out.println(e.getMessage());
-						   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-						}
-					}
-
-					System.gc();
-					count_of_live_threads=0;
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-				}
-				
-			}			
-			
 			if (this.verbose==true){
 				System.out.println("Completed level: " + (level+1) + " out of " + parameters.length);
 				
@@ -2118,35 +1686,12 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		} 	
 		
 		// check if values only 1 and zero
-		HashSet<Double> has= new HashSet<Double> ();
-		for (int i=0; i < target.length; i++){
-			has.add(target[i]);
-		}
-		if (has.size()<=1){
+		encoder= new labelencoder(target);
+		if (encoder.size()<=1){
 			throw new IllegalStateException(" target array needs to have more 2 or more classes" );	
 		}
-		double uniquevalues[]= new double[has.size()];
-		
-		int k=0;
-	    for (Iterator<Double> it = has.iterator(); it.hasNext(); ) {
-	    	uniquevalues[k]= it.next();
-	    	k++;
-	    	}
-	    // sort values
-	    Arrays.sort(uniquevalues);
-	    
-	    classes= new String[uniquevalues.length];
-	    StringIntMap4a mapper = new StringIntMap4a(classes.length,0.5F);
-	    int index=0;
-	    for (int j=0; j < uniquevalues.length; j++){
-	    	classes[j]=uniquevalues[j]+"";
-	    	mapper.put(classes[j], index);
-	    	index++;
-	    }
-	    fstarget=new int[target.length];
-	    for (int i=0; i < fstarget.length; i++){
-	    	fstarget[i]=mapper.get(target[i] + "");
-	    }
+		classes=encoder.getclasses();
+		fstarget=encoder.encode(target);
 	    
 		if (weights==null) {
 			
@@ -2245,175 +1790,45 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			}
 			
 			String [] level_grid=parameters[level];
-			estimator[] mini_batch_tree= new estimator[level_grid.length];
-			
-			Thread[] thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimator [] estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			int count_of_live_threads=0;
-			
 			int temp_class=estimate_classes(level_grid,  this.n_classes, level==(parameters.length-1));
-			column_counts[level] = temp_class;
-			
+			column_counts[level]=temp_class;
+			int model_widths[]=model_widths(level_grid, level==(parameters.length-1));
+			int model_offsets[]= new int[level_grid.length];
+			for (int es=1; es <level_grid.length; es++ ){
+				model_offsets[es]=model_offsets[es-1]+model_widths[es-1];
+			}
+			stacknetcheckpoint checkpoint=null;
+			if (this.checkpoint_dir!=null && this.checkpoint_dir.length()>0){
+				checkpoint= new stacknetcheckpoint(this.checkpoint_dir, level_grid, model_widths,
+						stacknetcheckpoint.fingerprint(data, this.target), this.folds, kfold.seed, this.n_classes, level==(parameters.length-1));
+				checkpoint.verbose=this.verbose;
+			}
 			if (this.verbose){
 				System.out.println(" Level: " +  (level+1) + " dimensionality: " + temp_class);
-				System.out.println(" Starting cross validation ");
+				System.out.println(" Starting cross validation and output modelling ");
 			}
+			kfold kfolder=null;
 			if (level<parameters.length -1){
-			trainstacker=new fsmatrix(target.length, temp_class);
-			int kfolder [][][]=kfold.getindices(this.target.length, this.folds);
-			
-			// begin cross validation
-			for (int f=0; f < this.folds; f++){
-				
-					int train_indices[]=kfolder[f][0]; // train indices
-					int test_indices[]=kfolder[f][1]; // test indices	
-					//System.out.println(" start!");
-					smatrix X_train = data.makesubmatrix(train_indices);
-					smatrix X_cv  =data.makesubmatrix(test_indices);
-					double [] y_train=manipulate.select.rowselect.RowSelect(this.target, train_indices);
-					double [] y_cv=manipulate.select.rowselect.RowSelect(this.target, test_indices);	
-					int column_counter=0;
-					
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					
-					
-					for (int es=0; es <level_grid.length; es++ ){
-						String splits[]=level_grid[es].split(" " + "+");	
-						String str_estimator=splits[0];
-						
-						if (str_estimator.contains("AdaboostForestRegressor")) {
-							mini_batch_tree[es]= new AdaboostForestRegressor(X_train);
-						} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-							mini_batch_tree[es]= new AdaboostRandomForestClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeClassifier")) {
-							mini_batch_tree[es]= new DecisionTreeClassifier(X_train);
-						}else if (str_estimator.contains("DecisionTreeRegressor")) {
-							mini_batch_tree[es]= new DecisionTreeRegressor(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-							mini_batch_tree[es]= new GradientBoostingForestClassifier(X_train);
-						}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-							mini_batch_tree[es]= new GradientBoostingForestRegressor(X_train);
-						}else if (str_estimator.contains("RandomForestClassifier")) {
-							mini_batch_tree[es]= new RandomForestClassifier(X_train);
-						}else if (str_estimator.contains("RandomForestRegressor")) {
-							mini_batch_tree[es]= new RandomForestRegressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-							mini_batch_tree[es]= new Vanilla2hnnregressor(X_train);
-						}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-							mini_batch_tree[es]= new Vanilla2hnnclassifier(X_train);
-						}else if (str_estimator.contains("softmaxnnclassifier")) {
-							mini_batch_tree[es]= new softmaxnnclassifier(X_train);
-						}else if (str_estimator.contains("multinnregressor")) {
-							mini_batch_tree[es]= new multinnregressor(X_train);
-						}else if (str_estimator.contains("NaiveBayesClassifier")) {
-							mini_batch_tree[es]= new NaiveBayesClassifier(X_train);
-						}else if (str_estimator.contains("LSVR")) {
-							mini_batch_tree[es]= new LSVR(X_train);
-						}else if (str_estimator.contains("LSVC")) {
-							mini_batch_tree[es]= new LSVC(X_train);
-						}else if (str_estimator.contains("LogisticRegression")) {
-							mini_batch_tree[es]= new LogisticRegression(X_train);
-						}else if (str_estimator.contains("LinearRegression")) {
-							mini_batch_tree[es]= new LinearRegression(X_train);
-						}else if (str_estimator.contains("LibFmRegressor")) {
-							mini_batch_tree[es]= new LibFmRegressor(X_train);
-						}else if (str_estimator.contains("LibFmClassifier")) {
-							mini_batch_tree[es]= new LibFmClassifier(X_train);
-						}else if (str_estimator.contains("knnClassifier")) {
-							mini_batch_tree[es]= new knnClassifier(X_train);
-						}else if (str_estimator.contains("knnRegressor")) {
-							mini_batch_tree[es]= new knnRegressor(X_train);
-						}else if (str_estimator.contains("KernelmodelClassifier")) {
-							mini_batch_tree[es]= new KernelmodelClassifier(X_train);
-						}else if (str_estimator.contains("KernelmodelRegressor")) {
-							mini_batch_tree[es]= new KernelmodelRegressor(X_train);
-						} else {
-							throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-						}
-						mini_batch_tree[es].set_params(level_grid[es]);
-						mini_batch_tree[es].set_target(y_train);
-		
-						estimators[count_of_live_threads]=mini_batch_tree[es];
-						thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-						thread_array[count_of_live_threads].start();
-						count_of_live_threads++;
-						if (this.verbose==true){
-							System.out.println("Fitting model : " + es);
-							
-						}
-						
-						if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-							for (int s=0; s <count_of_live_threads;s++ ){
-								try {
-									thread_array[s].join();
-								} catch (InterruptedException e) {
-								   System.out.println(e.getMessage());
-								   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-								}
-							}
-							
-							
-							for (int s=0; s <count_of_live_threads;s++ ){
-								double predictions[][]=estimators[s].predict_proba(X_cv);
-								boolean is_regerssion=estimators[s].IsRegressor();
-								if (predictions[0].length==2){
-									predictions=manipulate.select.columnselect.ColumnSelect(predictions, new int [] {1});
-								}
-								
-								if (this.verbose){
-									if(this.n_classes==2 && this.metric.equals("auc")){
-											double pr [] = manipulate.conversions.dimension.Convert(predictions);
-											crossvalidation.metrics.Metric ms =new auc();
-											double auc=ms.GetValue(pr,y_cv ); // the auc for the current fold	
-											System.out.println(" AUC: " + auc);
-										} else if ( this.metric.equals("logloss")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-											double log=logloss (predictions,y_cv ); // the logloss for the current fold	
-											System.out.println(" logloss : " + log);
-											}
-											
-										} else if (this.metric.equals("accuracy")){
-											if (is_regerssion){
-												double rms=rmse(predictions,y_cv);
-												System.out.println(" rmse : " + rms);
-											}else {
-												double acc=accuracy (predictions,y_cv ); // the accuracy for the current fold	
-												System.out.println(" accuracy : " + acc);
-											}
-										}
-							}
-								for (int j=0; j <predictions[0].length; j++ ){
-									for (int i=0; i <predictions.length; i++ ){
-										trainstacker.SetElement(test_indices[i], column_counter, predictions[i][j]);
-									}
-									column_counter+=1;
-								}
-								
-							
-								
-							}							
-							
-							System.gc();
-							count_of_live_threads=0;
-							thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-							estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-						}
-						
-						
-
-					}
-					
-					if (this.verbose==true){
-						System.out.println("Done with fold: " + (f+1) + "/" + this.folds);
-						
-					}
-				
+				trainstacker=new fsmatrix(target.length, temp_class);
+				if (checkpoint!=null){
+					checkpoint.fill(trainstacker);
+				}
+				kfolder=new kfold(this.target.length, this.folds, kfold.seed);
 			}
+			// every (model, fold) pair and every final fit is a task , run longest-expected-first on 'threads' workers
+			stacknetscheduler scheduler= new stacknetscheduler(data, this.target, level_grid, kfolder,
+					(level<parameters.length -1)?trainstacker:null, model_offsets, checkpoint);
+			scheduler.threads=this.threads;
+			scheduler.cores=this.cores;
+			scheduler.verbose=this.verbose;
+			scheduler.fit();
+			estimator[] mini_batch_tree=scheduler.models;
+			if (this.verbose && kfolder!=null){
+				print_fold_metrics(level_grid, kfolder, trainstacker, model_widths, model_offsets, checkpoint);
 			}
+			System.gc();
+			
+			// we print file
 			if (this.print){
 				
 				if (this.verbose){
@@ -2424,99 +1839,6 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 				
 			}
 			
-			if (this.verbose){
-				System.out.println(" Level: " +  (level+1)+ " start output modelling ");
-			}
-			
-			thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-			mini_batch_tree= new estimator[level_grid.length];
-			count_of_live_threads=0;
-			/* Final modelling */
-			
-			for (int es=0; es <level_grid.length; es++ ){
-				String splits[]=level_grid[es].split(" " + "+");	
-				String str_estimator=splits[0];
-				
-				if (str_estimator.contains("AdaboostForestRegressor")) {
-					mini_batch_tree[es]= new AdaboostForestRegressor(data);
-				} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
-					mini_batch_tree[es]= new AdaboostRandomForestClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeClassifier")) {
-					mini_batch_tree[es]= new DecisionTreeClassifier(data);
-				}else if (str_estimator.contains("DecisionTreeRegressor")) {
-					mini_batch_tree[es]= new DecisionTreeRegressor(data);
-				}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
-					mini_batch_tree[es]= new GradientBoostingForestClassifier(data);
-				}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
-					mini_batch_tree[es]= new GradientBoostingForestRegressor(data);
-				}else if (str_estimator.contains("RandomForestClassifier")) {
-					mini_batch_tree[es]= new RandomForestClassifier(data);
-				}else if (str_estimator.contains("RandomForestRegressor")) {
-					mini_batch_tree[es]= new RandomForestRegressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnregressor")) {
-					mini_batch_tree[es]= new Vanilla2hnnregressor(data);
-				}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
-					mini_batch_tree[es]= new Vanilla2hnnclassifier(data);
-				}else if (str_estimator.contains("softmaxnnclassifier")) {
-					mini_batch_tree[es]= new softmaxnnclassifier(data);
-				}else if (str_estimator.contains("multinnregressor")) {
-					mini_batch_tree[es]= new multinnregressor(data);
-				}else if (str_estimator.contains("NaiveBayesClassifier")) {
-					mini_batch_tree[es]= new NaiveBayesClassifier(data);
-				}else if (str_estimator.contains("LSVR")) {
-					mini_batch_tree[es]= new LSVR(data);
-				}else if (str_estimator.contains("LSVC")) {
-					mini_batch_tree[es]= new LSVC(data);
-				}else if (str_estimator.contains("LogisticRegression")) {
-					mini_batch_tree[es]= new LogisticRegression(data);
-				}else if (str_estimator.contains("LinearRegression")) {
-					mini_batch_tree[es]= new LinearRegression(data);
-				}else if (str_estimator.contains("LibFmRegressor")) {
-					mini_batch_tree[es]= new LibFmRegressor(data);
-				}else if (str_estimator.contains("LibFmClassifier")) {
-					mini_batch_tree[es]= new LibFmClassifier(data);
-				}else if (str_estimator.contains("knnClassifier")) {
-					mini_batch_tree[es]= new knnClassifier(data);
-				}else if (str_estimator.contains("knnRegressor")) {
-					mini_batch_tree[es]= new knnRegressor(data);
-				}else if (str_estimator.contains("KernelmodelClassifier")) {
-					mini_batch_tree[es]= new KernelmodelClassifier(data);
-				}else if (str_estimator.contains("KernelmodelRegressor")) {
-					mini_batch_tree[es]= new KernelmodelRegressor(data);
-				} else {
-					throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + level_grid[es] + "' is not recognizable!" );
-				}
-				mini_batch_tree[es].set_params(level_grid[es]);
-				mini_batch_tree[es].set_target(this.target);
-
-				estimators[count_of_live_threads]=mini_batch_tree[es];
-				thread_array[count_of_live_threads]= new Thread(mini_batch_tree[es]);
-				thread_array[count_of_live_threads].start();
-				count_of_live_threads++;
-				if (this.verbose==true){
-					System.out.println("Fitting model : " + es);
-					
-				}
-				
-				if (count_of_live_threads==thread_array.length || es==level_grid.length-1){
-					for (int s=0; s <count_of_live_threads;s++ ){
-						try {
-							thread_array[s].join();
-						} catch (InterruptedException e) {
-						   System.out.println(e.getMessage());
-						   throw new IllegalStateException(" algorithm was terminated due to multithreading error");
-						}
-					}
-
-					System.gc();
-					count_of_live_threads=0;
-					thread_array= new Thread[(this.threads>level_grid.length)?level_grid.length: this.threads];
-					estimators= new estimator[(this.threads>level_grid.length)?level_grid.length: this.threads];
-				}
-				
-			}			
-			
 			if (this.verbose==true){
 				System.out.println("Completed level: " + (level+1) + " out of " + parameters.length);
 				
@@ -2591,9 +1913,11 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		System.out.println("Supports Weights:  True");
 		System.out.println("Column dimension: " + columndimension);						
 		System.out.println("threads : "+ this.threads);			
+		System.out.println("cores : "+ this.cores);			
 		System.out.println("Seed: "+ seed);	
 		System.out.println("print at each level: "+ this.print);		
 		System.out.println("output suffix: "+ this.output_name);		
+		System.out.println("checkpoint directory: "+ this.checkpoint_dir);		
 		System.out.println("Verbality: "+ verbose);			
 		if (this.tree_body==null){
 			System.out.println("Trained: False");	
@@ -2636,12 +1960,15 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 		this.tree_body= null;
 		n_classes=0;
 		threads=1;
+		cores=0;
 		this.print=false;
 		this.output_name="stacknet";
+		this.checkpoint_dir=null;
 		this.random=null;
 		this.feature_importances.clone();
 		columndimension=0;
 		this.classes=null;
+		this.encoder=null;
 		seed=1;
 		random=null;
 		target=null;
@@ -2667,10 +1994,12 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
         //br.shrinkage=this.shrinkage;
 		br.n_classes=this.n_classes;
 		br.threads=this.threads;
+		br.cores=this.cores;
 		br.columndimension=this.columndimension;
 		br.seed=this.seed;
 		br.print=this.print;
 		br.output_name=this.output_name;
+		br.checkpoint_dir=this.checkpoint_dir;
 		br.random=this.random;
 		br.target=manipulate.copies.copies.Copy(this.target.clone());
 		br.target2d=manipulate.copies.copies.Copy(this.target2d.clone());	
@@ -2878,18 +2207,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 				}
 				for (int k=0; k <array.length; k++ ){
 					String x=array[k];
-					if (x.contains("AdaboostForestRegressor") ||
-							x.contains("DecisionTreeRegressor")	||
-							x.contains("GradientBoostingForestRegressor")	||
-							x.contains("RandomForestRegressor")	||				
-							x.contains("multinnregressor")	||	
-							x.contains("Vanilla2hnnregressor")	||
-							x.contains("LSVR")	||
-							x.contains("LinearRegression")	||
-							x.contains("LibFmRegressor")	||
-							x.contains("knnRegressor")	||
-							x.contains("KernelmodelRegressor")
-							) {
+					if (stacknetscheduler.is_regressor(x)) {
 						no++;
 					} else {
 						no+=add;
@@ -2906,43 +2224,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			 * @return : the logloss metric
 			 */
 			public double logloss (double preds[][], double target []){
-				double metr=0.0;
-				double errorlog=0;
-				double len=preds.length;
-			    // Throw exception if the size is not 2
-				if (preds[0].length==1){
-					for (int i=0; i <preds.length; i++ ) {
-						double value=preds[i][0];
-						if (value>1.0-(1E-14)){
-							value=1.0-(1E-14);
-						} else if (value<0+(1E-14)){
-							value=0.0+(1E-14);
-						}
-						if (target[i]==0){
-							errorlog-=(1-target[i]) * Math.log(1-value);
-						} else {
-							errorlog-=target[i]*Math.log(value) ;
-						}
-					
-					}
-				} else {
-					
-					for (int i=0; i <preds.length; i++ ) {
-						double value=preds[i][(int) (target[i]) ];
-						if (value>1.0-(1E-14)){
-							value=1.0-(1E-14);
-						} else if (value<0+(1E-14)){
-							value=0.0+(1E-14);
-						}
-							errorlog-=1.0*Math.log(value) ;
-						
-					
-					}				
-					
-				}
-				errorlog=errorlog/len;
-				metr=errorlog;
-				return metr;
+				return new fusedmetrics("logloss").GetValues(preds, target)[0];
 			}
 			
 			/**
@@ -2952,46 +2234,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			 * @return : the accuracy metric
 			 */
 			public  double accuracy (double preds[][], double target []){
-				double metr=0.0;
-				double errorlog=0;
-				double count_of_correct=0.0;
-				double len=preds.length;
-			    // Throw exception if the size is not 2
-				if (preds[0].length==1){
-					for (int i=0; i <preds.length; i++ ) {
-						double value=preds[i][0];
-						if (value>=0.5){
-							value=1.0;
-						} else {
-							value=0.0;
-						}
-						if (target[i]==value){
-							count_of_correct+=1.0;
-						} 
-					
-					}
-				} else {
-					
-					for (int i=0; i <preds.length; i++ ) {
-						double maximum=0.0;
-						double proba=preds[i][0];
-						for (int j=1; j <preds[0].length;j++ ){
-							if (preds[i][j]>proba){
-								proba=preds[i][j];
-								maximum=j;
-							}
-						}
-						if (target[i]==maximum){
-							count_of_correct+=1.0;
-						} 
-						
-					
-					}				
-					
-				}
-				errorlog=count_of_correct/len;
-				metr=errorlog;
-				return metr;
+				return new fusedmetrics("accuracy").GetValues(preds, target)[0];
 			}
 			/**
 			 * 
@@ -3000,20 +2243,7 @@ public class StackNetClassifier implements estimator,classifier, Serializable {
 			 * @return : the rmse metric
 			 */
 			public  double rmse (double preds[][], double target []){
-				double metr=0.0;
-				double errorlog=0;
-				double len=preds.length;
-			    // Throw exception if the size is not 2
-					for (int i=0; i <preds.length; i++ ) {
-						double value=preds[i][0];
-						errorlog=value-target[i];
-						errorlog*=errorlog	;
-						metr+=errorlog;
-					
-					}
-				 
-					metr=Math.sqrt(metr/len);
-				return metr;
+				return new fusedmetrics("rmse").GetValues(preds, target)[0];
 			}
 			
 			
@@ -0,0 +1,775 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.stacknet;
+import java.io.Serializable;
+
+import crossvalidation.metrics.fusedmetrics;
+import crossvalidation.splits.kfold;
+import matrix.fsmatrix;
+import matrix.smatrix;
+import ml.estimator;
+import ml.regressor;
+import preprocess.scaling.scaler;
+import exceptions.IllegalStateException;
+
+/**
+ * <p> Regression counterpart of {@link StackNetClassifier}. Every level is made of regressors , whose out-of-fold predictions (with k-fold
+ * in memory) become the input of the next level (alone or stacked with the previous input if <b>stackdata</b> is true). The prediction is the
+ * average of the predictions of the models in the last level.
+ * <p> The training of each level uses the same {@link stacknetscheduler} as the classifier (tasks run longest-expected-first and share the
+ * <b>cores</b> budget) and the same {@link stacknetcheckpoint} to restore the models that have not changed from <b>checkpoint_dir</b>.
+ * <p> Any of AdaboostForestRegressor, DecisionTreeRegressor, GradientBoostingForestRegressor, RandomForestRegressor, multinnregressor,
+ * Vanilla2hnnregressor, LSVR, LinearRegression, LibFmRegressor, knnRegressor and KernelmodelRegressor may be used.
+ */
+public class StackNetRegressor implements estimator,regressor, Serializable {
+
+	/**
+	 * default Serial id
+	 */
+	private static final long serialVersionUID = 4713907354326722937L;
+	/**
+	 * list of regressors to build for different levels
+	 */
+	private estimator[][]  tree_body ;
+	/**
+	 * list of regressors's parameters to build for different levels
+	 */
+	public  String[] [] parameters ;
+	/**
+	 * threads to use
+	 */
+	public int threads=1;
+	/**
+	 * total threads that the models of a level may use together. If higher than zero , StackNet owns the core budget and every model gets
+	 * its share when it starts (more threads when fewer models run) instead of its own 'threads' parameter. 0 keeps the models' own threads
+	 */
+	public int cores=0;
+	/**
+	 * Print datasets after each level if True
+	 */
+	public boolean print=false;
+	/**
+	 * Suffix for output files
+	 */
+	public String output_name="stacknet";
+	/**
+	 * The metric to validate the results on. can be either rmse or mae
+	 */
+	public String metric="rmse";
+	/**
+	 * stack the previous level data
+	 */
+	public boolean stackdata=false;
+	/**
+	 * number of kfolds to run cv for
+	 */
+	public int folds=5;
+	/**
+	 * directory to keep the checkpoints of the models of each level , so that a new run restores the models whose parameters and input data have not changed. Null for no checkpoints
+	 */
+	public String checkpoint_dir=null;
+	/**
+	 * seed to use
+	 */
+	public int seed=1;
+	/**
+	 * if true, it prints stuff
+	 */
+	public boolean verbose=true;
+	/**
+	 * Target variable in double format
+	 */
+	public double target[];
+	/**
+	 * How many predictors the model has
+	 */
+	private int columndimension=0;
+	/**
+	 * The object that holds the modelling data in double form in cases the user chooses this form
+	 */
+	private double dataset[][];
+	/**
+	 * The object that holds the modelling data in fsmatrix form cases the user chooses this form
+	 */
+	private fsmatrix fsdataset;
+	/**
+	 * The object that holds the modelling data in smatrix form cases the user chooses this form
+	 */
+	private smatrix sdataset;
+
+	/**
+	 * Default constructor for StackNetRegressor with no data
+	 */
+	public StackNetRegressor(){
+
+	}
+	/**
+	 * Default constructor for StackNetRegressor with double data
+	 */
+	public StackNetRegressor(double data [][]){
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		dataset=data;
+	}
+	/**
+	 * Default constructor for StackNetRegressor with fsmatrix data
+	 */
+	public StackNetRegressor(fsmatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		fsdataset=data;
+	}
+	/**
+	 * Default constructor for StackNetRegressor with smatrix data
+	 */
+	public StackNetRegressor(smatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		sdataset=data;
+	}
+
+	public void setdata(double data [][]){
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		dataset=data;
+	}
+	public void setdata(fsmatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		fsdataset=data;
+	}
+	public void setdata(smatrix data){
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		sdataset=data;
+	}
+
+	public  estimator[][] Get_tree(){
+		if (this.tree_body==null || this.tree_body.length<=0){
+			throw new IllegalStateException(" There is NO tree" );
+		}
+		return tree_body;
+	}
+	public int get_predictors(){
+		return columndimension;
+	}
+
+	@Override
+	public void run() {
+		// check which object was chosen to train on
+		if (dataset!=null){
+			this.fit(dataset);
+		} else if (fsdataset!=null){
+			this.fit(fsdataset);
+		} else if (sdataset!=null){
+			this.fit(sdataset);
+		} else {
+			throw new IllegalStateException(" No data structure specifed in the constructor" );
+		}
+	}
+
+	/**
+	 * sensible checks before fitting
+	 * @param rows : number of rows of the data
+	 */
+	private void check_fit(int rows){
+		if (this.parameters==null || this.parameters.length<1 || (this.parameters[0].length<1) ){
+			throw new IllegalStateException(" Parameters need to be provided in string format as model_name parameter_m:value_n ... " );
+		}
+		if (parameters.length<2 && parameters[0].length==1){
+			throw new IllegalStateException("StackNet cannot have only 1 model" );
+		}
+		for (int level=0; level < parameters.length; level++){
+			for (int es=0; es < parameters[level].length; es++){
+				if (!stacknetscheduler.is_regressor(parameters[level][es])){
+					throw new IllegalStateException(" StackNetRegressor may only have regressors , '" + parameters[level][es] + "' is not one" );
+				}
+			}
+		}
+		if (this.threads<=0){
+			this.threads=Runtime.getRuntime().availableProcessors();
+			if (this.threads<1){
+				this.threads=1;
+			}
+		}
+		if ( !metric.equals("rmse")  && !metric.equals("mae")){
+			throw new IllegalStateException(" The metric to validate on needs to be one of rmse or mae" );
+		}
+		if ( (target==null || target.length!=rows)  ){
+			throw new IllegalStateException(" target array needs to be provided with the same length as the data" );
+		}
+		tree_body= new estimator[parameters.length][];
+	}
+	/**
+	 * @param level_grid : the parameter lines of the models of a level
+	 * @return first out-of-fold column of every model (one column per regressor)
+	 */
+	private int [] model_offsets(String level_grid[]){
+		int offsets[]= new int[level_grid.length];
+		for (int es=0; es <level_grid.length; es++ ){
+			offsets[es]=es;
+		}
+		return offsets;
+	}
+	/**
+	 * @param level : the level
+	 * @param fingerprint : fingerprint of the level's input data
+	 * @return the checkpoints of the level or null if there is no checkpoint directory
+	 */
+	private stacknetcheckpoint new_checkpoint(int level, long fingerprint){
+		if (this.checkpoint_dir==null || this.checkpoint_dir.length()<=0){
+			return null;
+		}
+		int widths[]= new int[parameters[level].length];
+		for (int es=0; es <widths.length; es++ ){
+			widths[es]=1;
+		}
+		stacknetcheckpoint checkpoint= new stacknetcheckpoint(this.checkpoint_dir, parameters[level], widths,
+				fingerprint, this.folds, kfold.seed, 1, level==(parameters.length-1));
+		checkpoint.verbose=this.verbose;
+		return checkpoint;
+	}
+	/**
+	 * @param level : the level
+	 * @param checkpoint : checkpoints of the level (may be null)
+	 * @return matrix for the out-of-fold predictions of the level (with the restored ones) , null for the last level
+	 */
+	private fsmatrix new_trainstacker(int level, stacknetcheckpoint checkpoint){
+		if (level==parameters.length -1){
+			return null;
+		}
+		fsmatrix trainstacker=new fsmatrix(target.length, parameters[level].length);
+		if (checkpoint!=null){
+			checkpoint.fill(trainstacker);
+		}
+		return trainstacker;
+	}
+	/**
+	 * runs the tasks of a level and keeps its models
+	 * @param level : the level
+	 * @param scheduler : the scheduler with the level's data
+	 * @param kfolder : the folds (null for the last level)
+	 * @param trainstacker : the out-of-fold predictions of the level (null for the last level)
+	 * @param checkpoint : checkpoints of the level (may be null)
+	 */
+	private void fit_level(int level, stacknetscheduler scheduler, kfold kfolder, fsmatrix trainstacker, stacknetcheckpoint checkpoint){
+		if (this.verbose){
+			System.out.println(" Level: " +  (level+1) + " dimensionality: " + parameters[level].length);
+			System.out.println(" Starting cross validation and output modelling ");
+		}
+		scheduler.threads=this.threads;
+		scheduler.cores=this.cores;
+		scheduler.verbose=this.verbose;
+		scheduler.fit();
+		this.tree_body[level]=scheduler.models;
+		if (this.verbose && kfolder!=null){
+			print_fold_metrics(parameters[level], kfolder, trainstacker, checkpoint);
+		}
+		System.gc();
+		if (this.print && trainstacker!=null){
+			if (this.verbose){
+				System.out.println("Printing reusable train for level: " + (level+1) + " as : " + this.output_name +  (level+1)+ ".csv" );
+			}
+			trainstacker.ToFile(this.output_name +  (level+1)+ ".csv");
+		}
+		if (this.verbose==true){
+			System.out.println("Completed level: " + (level+1) + " out of " + parameters.length);
+		}
+	}
+	/**
+	 * prints the cross validation metric of every trained model and fold from the out-of-fold predictions. The metric of all the folds
+	 * of a model comes from one pass over its predictions
+	 */
+	private void print_fold_metrics(String level_grid[], kfold kfolder, fsmatrix trainstacker, stacknetcheckpoint checkpoint){
+		int folds=kfolder.getfolds();
+		int rows=0;
+		for (int f=0; f < folds; f++){
+			rows+=kfolder.test(f).length;
+		}
+		int fold_of_row[]= new int[rows];
+		int row_of_stacker[]= new int[rows];
+		double y_cv[]= new double[rows];
+		int count=0;
+		for (int f=0; f < folds; f++){
+			int test_indices[]=kfolder.test(f);
+			for (int i=0; i <test_indices.length; i++ ){
+				fold_of_row[count]=f;
+				row_of_stacker[count]=test_indices[i];
+				y_cv[count]=this.target[test_indices[i]];
+				count++;
+			}
+		}
+		fusedmetrics metrics= new fusedmetrics(this.metric);
+		metrics.threads=this.threads;
+		for (int es=0; es <level_grid.length; es++ ){
+			if (checkpoint!=null && checkpoint.restored(es)){
+				continue;
+			}
+			double predictions[][]= new double[rows][1];
+			for (int i=0; i <rows; i++ ){
+				predictions[i][0]=trainstacker.GetElement(row_of_stacker[i], es);
+			}
+			double values[][]=metrics.GetValues(predictions, y_cv, fold_of_row, folds);
+			for (int f=0; f < folds; f++){
+				System.out.println("model: " + (es+1) + " fold: " + (f+1) + "/" + folds + " " + this.metric + " : " + values[f][0]);
+			}
+		}
+	}
+
+	@Override
+	public void fit(double[][] data) {
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" Main data object is null or has too few cases" );
+		}
+		dataset=data;
+		columndimension=data[0].length;
+		check_fit(data.length);
+		fsmatrix trainstacker=null;
+		for(int level=0; level<parameters.length; level++){
+			if (level>0){
+				data=stack(data, trainstacker);
+			}
+			stacknetcheckpoint checkpoint=new_checkpoint(level, stacknetcheckpoint.fingerprint(data, this.target));
+			trainstacker=new_trainstacker(level, checkpoint);
+			kfold kfolder=(trainstacker==null)?null:new kfold(this.target.length, this.folds, kfold.seed);
+			fit_level(level, new stacknetscheduler(data, this.target, parameters[level], kfolder, trainstacker, model_offsets(parameters[level]), checkpoint),
+					kfolder, trainstacker, checkpoint);
+		}
+		System.gc();
+	}
+	@Override
+	public void fit(fsmatrix data) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" Main data object is null or has too few cases" );
+		}
+		fsdataset=data;
+		columndimension=data.GetColumnDimension();
+		check_fit(data.GetRowDimension());
+		fsmatrix trainstacker=null;
+		for(int level=0; level<parameters.length; level++){
+			if (level>0){
+				data=stack(data, trainstacker);
+			}
+			stacknetcheckpoint checkpoint=new_checkpoint(level, stacknetcheckpoint.fingerprint(data, this.target));
+			trainstacker=new_trainstacker(level, checkpoint);
+			kfold kfolder=(trainstacker==null)?null:new kfold(this.target.length, this.folds, kfold.seed);
+			fit_level(level, new stacknetscheduler(data, this.target, parameters[level], kfolder, trainstacker, model_offsets(parameters[level]), checkpoint),
+					kfolder, trainstacker, checkpoint);
+		}
+		System.gc();
+	}
+	@Override
+	public void fit(smatrix data) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" Main data object is null or has too few cases" );
+		}
+		sdataset=data;
+		columndimension=data.GetColumnDimension();
+		check_fit(data.GetRowDimension());
+		fsmatrix trainstacker=null;
+		for(int level=0; level<parameters.length; level++){
+			if (level>0){
+				data=stack(data, trainstacker);
+			}
+			stacknetcheckpoint checkpoint=new_checkpoint(level, stacknetcheckpoint.fingerprint(data, this.target));
+			trainstacker=new_trainstacker(level, checkpoint);
+			kfold kfolder=(trainstacker==null)?null:new kfold(this.target.length, this.folds, kfold.seed);
+			fit_level(level, new stacknetscheduler(data, this.target, parameters[level], kfolder, trainstacker, model_offsets(parameters[level]), checkpoint),
+					kfolder, trainstacker, checkpoint);
+		}
+		System.gc();
+	}
+
+	/**
+	 * @param data : input of the previous level
+	 * @param predictions : predictions of the previous level
+	 * @return input of the next level: the predictions , after the previous input if stackdata is true
+	 */
+	private double [][] stack(double data[][], fsmatrix predictions){
+		int offset=(this.stackdata)?data[0].length:0;
+		double temp[][] = new double [data.length][offset+predictions.GetColumnDimension()];
+		for (int i=0; i <data.length; i++ ){
+			if (this.stackdata){
+				System.arraycopy(data[i], 0, temp[i], 0, offset);
+			}
+			for (int j=0; j <predictions.GetColumnDimension(); j++ ){
+				temp[i][offset+j]=predictions.GetElement(i, j);
+			}
+		}
+		return temp;
+	}
+	/**
+	 * @param data : input of the previous level
+	 * @param predictions : predictions of the previous level
+	 * @return input of the next level: the predictions , after the previous input if stackdata is true
+	 */
+	private fsmatrix stack(fsmatrix data, fsmatrix predictions){
+		if (!this.stackdata){
+			return predictions;
+		}
+		int columns=data.GetColumnDimension();
+		fsmatrix temp=new fsmatrix(data.GetRowDimension(), columns+predictions.GetColumnDimension());
+		for (int i=0; i <data.GetRowDimension(); i++ ){
+			for (int j=0; j <columns; j++ ){
+				temp.SetElement(i, j, data.GetElement(i, j));
+			}
+			for (int j=0; j <predictions.GetColumnDimension(); j++ ){
+				temp.SetElement(i, columns+j, predictions.GetElement(i, j));
+			}
+		}
+		return temp;
+	}
+	/**
+	 * @param data : input of the previous level
+	 * @param predictions : predictions of the previous level
+	 * @return input of the next level (sorted by row): the predictions , after the previous input if stackdata is true
+	 */
+	private smatrix stack(smatrix data, fsmatrix predictions){
+		if (!this.stackdata){
+			return new smatrix(predictions);
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		int rows=data.GetRowDimension();
+		int columns=data.GetColumnDimension();
+		int extra=predictions.GetColumnDimension();
+		int elements=data.GeLength() + rows*extra;
+		double valuespile[]= new double[elements];
+		int mainelementpile[]= new int[elements];
+		int indexpile[]= new int[rows+1];
+		int n=0;
+		for (int i=0; i <rows; i++ ){
+			indexpile[i]=n;
+			for (int j=data.indexpile[i]; j <data.indexpile[i+1]; j++ ){
+				valuespile[n]=data.valuespile[j];
+				mainelementpile[n]=data.mainelementpile[j];
+				n++;
+			}
+			for (int j=0; j <extra; j++ ){
+				double value=predictions.GetElement(i, j);
+				if (value!=0.0){
+					valuespile[n]=value;
+					mainelementpile[n]=columns+j;
+					n++;
+				}
+			}
+		}
+		indexpile[rows]=n;
+		return new smatrix(valuespile, mainelementpile, indexpile, rows, columns+extra, n, true);
+	}
+
+	/**
+	 * @param predictions : the predictions of the models of the last level
+	 * @return the average prediction per row
+	 */
+	private double [] average(fsmatrix predictions){
+		double result[]= new double[predictions.GetRowDimension()];
+		int columns=predictions.GetColumnDimension();
+		for (int i=0; i <result.length; i++ ){
+			double sum=0.0;
+			for (int j=0; j <columns; j++ ){
+				sum+=predictions.GetElement(i, j);
+			}
+			result[i]=sum/columns;
+		}
+		return result;
+	}
+	/**
+	 * scores a level
+	 * @param level : the level
+	 * @param preds : predictions of every model of the level
+	 * @return the predictions as columns
+	 */
+	private fsmatrix level_predictions(int level, double preds[][]){
+		fsmatrix arrays= new fsmatrix(preds[0].length, tree_body[level].length);
+		for (int es=0; es <preds.length; es++ ){
+			for (int i=0; i <preds[es].length; i++ ){
+				arrays.SetElement(i, es, preds[es][i]);
+			}
+		}
+		if (this.print){
+			if (this.verbose){
+				System.out.println("Printing reusable test for level: " + (level+1) + " as : " + this.output_name +"_test" +  (level+1)+ ".csv");
+			}
+			arrays.ToFile(this.output_name +"_test" +  (level+1)+ ".csv");
+		}
+		return arrays;
+	}
+	private void check_predict(int columns){
+		if (this.tree_body==null || this.tree_body.length<=0 ){
+			 throw new IllegalStateException("The fit method needs to be run successfully in " +
+										"order to create the logic before attempting scoring a new set");
+		}
+		if (columns!=columndimension){
+			throw new IllegalStateException(" Number of predictors is not the same as th4 trained one: " +  columndimension + " <> " + columns);
+		}
+	}
+
+	@Override
+	public double[] predict(double[][] data) {
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		check_predict(data[0].length);
+		fsmatrix arrays =null;
+		for(int level=0; level<tree_body.length; level++){
+			if (level>0){
+				data=stack(data, arrays);
+			}
+			double preds[][]= new double[tree_body[level].length][];
+			for (int es=0; es <preds.length; es++ ){
+				preds[es]=tree_body[level][es].predict(data);
+			}
+			arrays=level_predictions(level, preds);
+		}
+		return average(arrays);
+	}
+	@Override
+	public double[] predict(fsmatrix data) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		check_predict(data.GetColumnDimension());
+		fsmatrix arrays =null;
+		for(int level=0; level<tree_body.length; level++){
+			if (level>0){
+				data=stack(data, arrays);
+			}
+			double preds[][]= new double[tree_body[level].length][];
+			for (int es=0; es <preds.length; es++ ){
+				preds[es]=tree_body[level][es].predict(data);
+			}
+			arrays=level_predictions(level, preds);
+		}
+		return average(arrays);
+	}
+	@Override
+	public double[] predict(smatrix data) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" There is nothing to score" );
+		}
+		check_predict(data.GetColumnDimension());
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		if (data.indexer==null){
+			data.buildmap();
+		}
+		fsmatrix arrays =null;
+		for(int level=0; level<tree_body.length; level++){
+			if (level>0){
+				data=stack(data, arrays);
+			}
+			double preds[][]= new double[tree_body[level].length][];
+			for (int es=0; es <preds.length; es++ ){
+				preds[es]=tree_body[level][es].predict(data);
+			}
+			arrays=level_predictions(level, preds);
+		}
+		return average(arrays);
+	}
+	/**
+	 * @param predictions : one dimensional predictions
+	 * @return the predictions as a column
+	 */
+	private double [][] column(double predictions[]){
+		double result[][]= new double[predictions.length][1];
+		for (int i=0; i <predictions.length; i++ ){
+			result[i][0]=predictions[i];
+		}
+		return result;
+	}
+	@Override
+	public double[][] predict2d(double[][] data) {
+		return column(predict(data));
+	}
+	@Override
+	public double[][] predict2d(fsmatrix data) {
+		return column(predict(data));
+	}
+	@Override
+	public double[][] predict2d(smatrix data) {
+		return column(predict(data));
+	}
+	@Override
+	public double [][] predict_proba(double data [][]){
+		return predict2d(data);
+	}
+	@Override
+	public double [][] predict_proba(fsmatrix f){
+		return predict2d(f);
+	}
+	@Override
+	public double [][] predict_proba(smatrix f){
+		return predict2d(f);
+	}
+	@Override
+	public double predict_Row(double[] data) {
+		return predict(new double[][] {data})[0];
+	}
+	@Override
+	public double predict_Row(fsmatrix data, int rows) {
+		return predict_Row(data.GetRow(rows));
+	}
+	@Override
+	public double predict_Row(smatrix data, int start, int end) {
+		double row[]= new double[data.GetColumnDimension()];
+		for (int j=start; j <end; j++ ){
+			row[data.mainelementpile[j]]=data.valuespile[j];
+		}
+		return predict_Row(row);
+	}
+	@Override
+	public double[] predict_Row2d(double[] data) {
+		return new double[] {predict_Row(data)};
+	}
+	@Override
+	public double[] predict_Row2d(fsmatrix data, int rows) {
+		return new double[] {predict_Row(data, rows)};
+	}
+	@Override
+	public double[] predict_Row2d(smatrix data, int start, int end) {
+		return new double[] {predict_Row(data, start, end)};
+	}
+
+	@Override
+	public String GetType() {
+		return "regressor";
+	}
+	@Override
+	public boolean SupportsWeights() {
+		return false;
+	}
+	@Override
+	public String GetName() {
+		return "StackNetRegressor";
+	}
+	@Override
+	public void PrintInformation() {
+		System.out.println("Regressor: StackNetRegressor");
+		System.out.println("Supports Weights:  False");
+		System.out.println("Column dimension: " + columndimension);
+		System.out.println("threads : "+ this.threads);
+		System.out.println("cores : "+ this.cores);
+		System.out.println("Seed: "+ seed);
+		System.out.println("folds: "+ this.folds);
+		System.out.println("metric: "+ this.metric);
+		System.out.println("print at each level: "+ this.print);
+		System.out.println("output suffix: "+ this.output_name);
+		System.out.println("checkpoint directory: "+ this.checkpoint_dir);
+		System.out.println("Verbality: "+ verbose);
+		if (this.tree_body==null){
+			System.out.println("Trained: False");
+		} else {
+			System.out.println("Trained: True");
+		}
+	}
+	@Override
+	public boolean HasTheSametype(estimator a) {
+		return a.GetType().equals(this.GetType());
+	}
+	@Override
+	public boolean isfitted() {
+		return this.tree_body!=null && tree_body.length>0;
+	}
+	@Override
+	public boolean IsRegressor() {
+		return true;
+	}
+	@Override
+	public boolean IsClassifier() {
+		return false;
+	}
+	@Override
+	public void reset() {
+		this.tree_body= null;
+		threads=1;
+		cores=0;
+		this.print=false;
+		this.output_name="stacknet";
+		this.checkpoint_dir=null;
+		this.metric="rmse";
+		this.stackdata=false;
+		this.folds=5;
+		columndimension=0;
+		seed=1;
+		target=null;
+		verbose=true;
+	}
+	@Override
+	public estimator copy() {
+		StackNetRegressor br = new StackNetRegressor();
+		if (this.tree_body!=null){
+			estimator[][] tree_bodys= new estimator[this.tree_body.length][];
+			for (int i=0; i <tree_bodys.length; i++ ){
+				tree_bodys[i]= tree_body[i];
+			}
+			br.tree_body=tree_bodys;
+		}
+		br.parameters=this.parameters;
+		br.threads=this.threads;
+		br.cores=this.cores;
+		br.columndimension=this.columndimension;
+		br.seed=this.seed;
+		br.print=this.print;
+		br.output_name=this.output_name;
+		br.checkpoint_dir=this.checkpoint_dir;
+		br.metric=this.metric;
+		br.stackdata=this.stackdata;
+		br.folds=this.folds;
+		br.target=(this.target==null)?null:this.target.clone();
+		br.verbose=this.verbose;
+		return br;
+	}
+	@Override
+	public void set_params(String params){
+
+	}
+	@Override
+	public scaler ReturnScaler() {
+		return null;
+	}
+	@Override
+	public void setScaler(scaler sc) {
+
+	}
+	@Override
+	public void setSeed(int seed) {
+		this.seed=seed;
+	}
+	@Override
+	public void set_target(double data []){
+		if (data==null || data.length<=0){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		this.target=data;
+	}
+
+}
@@ -0,0 +1,387 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.stacknet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+
+import io.Serialized_Object;
+import matrix.fsmatrix;
+import matrix.smatrix;
+import ml.estimator;
+import exceptions.IllegalStateException;
+
+/**
+ * <p> Checkpoints of one level of StackNet in a work directory. For every model of the level its out-of-fold predictions
+ * (if the level is not the last one) and the model fitted on all the data are saved under a key made of the model's parameter line,
+ * its position in the level , the folds , the kfold seed , the number of classes and a fingerprint of the level's input data (and target).
+ * When the training is run again, every model whose checkpoint exists is restored instead of trained. Since the input data of a level includes the
+ * out-of-fold predictions of the previous level, changing a model retrains only that model and the levels above it.</p>
+ */
+public class stacknetcheckpoint {
+
+	/**
+	 * the work directory
+	 */
+	private File directory;
+	/**
+	 * the key of every model of the level
+	 */
+	private String keys[];
+	/**
+	 * the key of every model's parameter line alone (for the timings , that do not depend on the exact data)
+	 */
+	private String line_keys[];
+	/**
+	 * number of out-of-fold columns of every model
+	 */
+	private int widths[];
+	/**
+	 * first out-of-fold column of every model
+	 */
+	private int offsets[];
+	/**
+	 * True for the models that have a checkpoint
+	 */
+	private boolean restored[];
+	/**
+	 * True if this is the last level (that has no out-of-fold predictions)
+	 */
+	private boolean last_level=false;
+	/**
+	 * if true, it prints stuff
+	 */
+	public boolean verbose=true;
+
+	/**
+	 * @param directory : the work directory (created if it does not exist)
+	 * @param level_grid : the parameter lines of the models of the level
+	 * @param widths : the number of out-of-fold columns of every model
+	 * @param fingerprint : fingerprint of the input data of the level
+	 * @param folds : number of folds
+	 * @param fold_seed : seed of the kfold
+	 * @param n_classes : number of classes (or 1 for regression)
+	 * @param last_level : True if this is the last level
+	 */
+	public stacknetcheckpoint(String directory, String level_grid[], int widths[], long fingerprint, int folds, int fold_seed, int n_classes, boolean last_level){
+		if (directory==null || directory.length()<=0){
+			throw new IllegalStateException(" There is no directory to keep the checkpoints" );
+		}
+		if (level_grid==null || widths==null || level_grid.length!=widths.length){
+			throw new IllegalStateException(" There needs to be one width per model" );
+		}
+		this.directory= new File(directory);
+		if (!this.directory.isDirectory() && !this.directory.mkdirs()){
+			throw new IllegalStateException(" The checkpoint directory " + directory + " could not be created" );
+		}
+		this.last_level=last_level;
+		this.widths=widths;
+		this.keys= new String[level_grid.length];
+		this.line_keys= new String[level_grid.length];
+		this.offsets= new int[level_grid.length];
+		this.restored= new boolean[level_grid.length];
+		int offset=0;
+		for (int es=0; es < level_grid.length; es++){
+			offsets[es]=offset;
+			offset+=widths[es];
+			keys[es]=key(level_grid[es].trim() + "|model:" + es + "|folds:" + folds + "|seed:" + fold_seed + "|classes:" + n_classes
+					+ "|last:" + last_level + "|data:" + Long.toHexString(fingerprint));
+			line_keys[es]=key(level_grid[es].trim());
+			restored[es]=model_file(es).isFile() && (last_level || predictions_file(es).isFile());
+		}
+	}
+
+	/**
+	 * @param text : the text to hash
+	 * @return the hex SHA-256 of the text
+	 */
+	private static String key(String text){
+		try {
+			byte hash[]=MessageDigest.getInstance("SHA-256").digest(text.getBytes("UTF-8"));
+			StringBuilder builder= new StringBuilder();
+			for (int i=0; i < hash.length; i++){
+				builder.append(Integer.toHexString((hash[i] & 0xff) | 0x100).substring(1));
+			}
+			return builder.toString();
+		} catch (Exception e) {
+			throw new IllegalStateException(" The checkpoint key could not be created : " + e.getMessage());
+		}
+	}
+	private File model_file(int es){
+		return new File(directory, keys[es] + ".model");
+	}
+	private File predictions_file(int es){
+		return new File(directory, keys[es] + ".oof");
+	}
+
+	/**
+	 * mixes a value into a 64-bit fingerprint
+	 */
+	private static long mix(long hash, long value){
+		hash^=value;
+		hash*=0x9E3779B97F4A7C15L;
+		return hash ^ (hash>>>29);
+	}
+	/**
+	 * @param target : the target
+	 * @return fingerprint of the target (with its length)
+	 */
+	private static long fingerprint(double target[]){
+		long hash=mix(0x5DEECE66DL, target.length);
+		for (int i=0; i < target.length; i++){
+			hash=mix(hash, Double.doubleToLongBits(target[i]));
+		}
+		return hash;
+	}
+	/**
+	 * @param data : the data
+	 * @param target : the target
+	 * @return fingerprint of the data and the target
+	 */
+	public static long fingerprint(double data[][], double target[]){
+		long hash=mix(fingerprint(target), data.length);
+		hash=mix(hash, data[0].length);
+		for (int i=0; i < data.length; i++){
+			for (int j=0; j < data[i].length; j++){
+				hash=mix(hash, Double.doubleToLongBits(data[i][j]));
+			}
+		}
+		return hash;
+	}
+	/**
+	 * @param data : the data
+	 * @param target : the target
+	 * @return fingerprint of the data and the target
+	 */
+	public static long fingerprint(fsmatrix data, double target[]){
+		long hash=mix(fingerprint(target), data.GetRowDimension());
+		hash=mix(hash, data.GetColumnDimension());
+		for (int i=0; i < data.data.length; i++){
+			hash=mix(hash, Double.doubleToLongBits(data.data[i]));
+		}
+		return hash;
+	}
+	/**
+	 * @param data : the data
+	 * @param target : the target
+	 * @return fingerprint of the data and the target (the same for the row or column sorted form of the matrix)
+	 */
+	public static long fingerprint(smatrix data, double target[]){
+		long hash=mix(fingerprint(target), data.GetRowDimension());
+		hash=mix(hash, data.GetColumnDimension());
+		// the elements are added with a commutative sum, so that the order of the elements does not matter
+		long sum=0L;
+		boolean by_row=data.IsSortedByRow();
+		for (int m=0; m < data.indexpile.length-1; m++){
+			for (int d=data.indexpile[m]; d < data.indexpile[m+1]; d++){
+				int row=by_row?m:data.mainelementpile[d];
+				int column=by_row?data.mainelementpile[d]:m;
+				long element=mix(mix(0x2545F4914F6CDD1DL, row), column);
+				sum+=mix(element, Double.doubleToLongBits(data.valuespile[d]));
+			}
+		}
+		return mix(hash, sum);
+	}
+
+	/**
+	 * @param es : the model
+	 * @return True if the model has a checkpoint
+	 */
+	public boolean restored(int es){
+		return restored[es];
+	}
+	/**
+	 * loads the model fitted on all the data. An unreadable checkpoint (e.g. a partly written file or a model saved by other versions of the classes)
+	 * is marked as not restored , so that the model is trained again
+	 * @param es : the model
+	 * @return the model or null if it could not be loaded
+	 */
+	public estimator load_model(int es){
+		if (!restored[es]){
+			throw new IllegalStateException(" There is no checkpoint for model " + (es+1) );
+		}
+		try {
+			if (verbose){
+				System.out.println("Restoring model: " + (es+1) + " from " + model_file(es).getPath());
+			}
+			return (estimator) Serialized_Object.load(model_file(es).getPath());
+		} catch (Exception e) {
+			// the checkpoint is only a cache , the model is trained again
+			restored[es]=false;
+			if (verbose){
+				System.out.println("Checkpoint of model: " + (es+1) + " could not be loaded and the model will be trained : " + e.getMessage());
+			}
+			return null;
+		}
+	}
+	/**
+	 * fills the out-of-fold predictions of all the models that have a checkpoint
+	 * @param trainstacker : the out-of-fold predictions of the level
+	 */
+	public void fill(fsmatrix trainstacker){
+		for (int es=0; es < restored.length; es++){
+			if (!restored[es] || widths[es]<=0){
+				continue;
+			}
+			try {
+				DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(predictions_file(es))));
+				try {
+					int rows=in.readInt();
+					int columns=in.readInt();
+					if (rows!=trainstacker.GetRowDimension() || columns!=widths[es]){
+						throw new IOException(" dimensions " + rows + "x" + columns + " do not match the level");
+					}
+					for (int i=0; i < rows; i++){
+						for (int j=0; j < columns; j++){
+							trainstacker.SetElement(i, offsets[es] + j, in.readDouble());
+						}
+					}
+				} finally {
+					in.close();
+				}
+			} catch (IOException e) {
+				// an unreadable checkpoint is trained again
+				restored[es]=false;
+				if (verbose){
+					System.out.println("Checkpoint of model: " + (es+1) + " could not be read and the model will be trained : " + e.getMessage());
+				}
+			}
+		}
+	}
+	/**
+	 * saves the checkpoint of a model. The out-of-fold predictions are written first and the model last , so that only complete checkpoints are found
+	 * @param es : the model
+	 * @param model : the model fitted on all the data
+	 * @param trainstacker : the out-of-fold predictions of the level (null for the last level)
+	 */
+	public void save(int es, estimator model, fsmatrix trainstacker){
+		if (restored[es]){
+			return;
+		}
+		// every write goes to its own temporary file that is renamed when complete , what is left of a failed write is deleted
+		File temp=null;
+		try {
+			if (!last_level){
+				temp=temp_file(keys[es]);
+				DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+				try {
+					out.writeInt(trainstacker.GetRowDimension());
+					out.writeInt(widths[es]);
+					for (int i=0; i < trainstacker.GetRowDimension(); i++){
+						for (int j=0; j < widths[es]; j++){
+							out.writeDouble(trainstacker.GetElement(i, offsets[es] + j));
+						}
+					}
+				} finally {
+					out.close();
+				}
+				replace(temp, predictions_file(es));
+			}
+			temp=temp_file(keys[es]);
+			Serialized_Object.save(temp.getPath(), model);
+			replace(temp, model_file(es));
+			if (verbose){
+				System.out.println("Saved checkpoint of model: " + (es+1) + " as " + model_file(es).getPath());
+			}
+		} catch (IOException e) {
+			// the training goes on without the checkpoint
+			System.out.println("Checkpoint of model: " + (es+1) + " could not be saved : " + e.getMessage());
+		} finally {
+			if (temp!=null){
+				temp.delete();
+			}
+		}
+	}
+	/**
+	 * @param es : the model
+	 * @return the seconds of the model's last fit on all the data (in any run) or -1 if not known
+	 */
+	public double expected_seconds(int es){
+		File file= new File(directory, line_keys[es] + ".seconds");
+		if (!file.isFile()){
+			return -1.0;
+		}
+		try {
+			DataInputStream in= new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			try {
+				return in.readDouble();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return -1.0;
+		}
+	}
+	/**
+	 * saves the seconds of the model's fit on all the data , to order the tasks of later runs
+	 * @param es : the model
+	 * @param seconds : the seconds of the fit
+	 */
+	public void save_seconds(int es, double seconds){
+		File temp=null;
+		try {
+			temp=temp_file(line_keys[es]);
+			DataOutputStream out= new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeDouble(seconds);
+			} finally {
+				out.close();
+			}
+			replace(temp, new File(directory, line_keys[es] + ".seconds"));
+		} catch (IOException e) {
+			// the timings only order the tasks
+		} finally {
+			if (temp!=null){
+				temp.delete();
+			}
+		}
+	}
+	/**
+	 * @param key : the key of the file to be written
+	 * @return a new empty file in the work directory with a name that no other writer uses
+	 */
+	private File temp_file(String key) throws IOException{
+		return File.createTempFile(key + ".", ".tmp", directory);
+	}
+	/**
+	 * renames a file , replacing the target if it exists. The target is not deleted first , so it is always either the old or the new file
+	 */
+	private static void replace(File from, File to) throws IOException{
+		try {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+}
@@ -0,0 +1,586 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.stacknet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+
+import crossvalidation.splits.kfold;
+import matrix.fsmatrix;
+import matrix.smatrix;
+import ml.estimator;
+import ml.Kernel.copy.KernelmodelClassifier;
+import ml.Kernel.copy.KernelmodelRegressor;
+import ml.LSVC.LSVC;
+import ml.LSVR.LSVR;
+import ml.LibFm.LibFmClassifier;
+import ml.LibFm.LibFmRegressor;
+import ml.LinearRegression.LinearRegression;
+import ml.LogisticRegression.LogisticRegression;
+import ml.NaiveBayes.NaiveBayesClassifier;
+import ml.Tree.AdaboostForestRegressor;
+import ml.Tree.AdaboostRandomForestClassifier;
+import ml.Tree.DecisionTreeClassifier;
+import ml.Tree.DecisionTreeRegressor;
+import ml.Tree.GradientBoostingForestClassifier;
+import ml.Tree.GradientBoostingForestRegressor;
+import ml.Tree.RandomForestClassifier;
+import ml.Tree.RandomForestRegressor;
+import ml.knn.knnClassifier;
+import ml.knn.knnRegressor;
+import ml.nn.Vanilla2hnnclassifier;
+import ml.nn.Vanilla2hnnregressor;
+import ml.nn.multinnregressor;
+import ml.nn.softmaxnnclassifier;
+import exceptions.IllegalStateException;
+
+/**
+ * <p> Schedules the training of one level of StackNet. Every (model, fold) pair and the final fit of every model on all the data
+ * are independent tasks. The tasks are ordered longest-expected-first and <b>threads</b> workers take the next task as soon as they finish one,
+ * so that a slow model does not hold the other workers and the next fold of a fast model may start while slower models are still running.
+ * The expected duration of a model comes from the timings of previous runs (kept in the checkpoint directory) when available,
+ * otherwise from a heuristic on its parameters and the size of the data.
+ * If <b>cores</b> is set , the scheduler owns the core budget and every task gets its share of the cores (through the model's 'threads' parameter)
+ * when it starts: the cores are split among the tasks that run at the same time and the last tasks take the cores left by the finished ones. </p>
+ */
+public class stacknetscheduler implements Runnable {
+
+	/**
+	 * dense data of the level
+	 */
+	private double data2d[][];
+	/**
+	 * dense data of the level
+	 */
+	private fsmatrix fdata;
+	/**
+	 * sparse data of the level (sorted by row)
+	 */
+	private smatrix sdata;
+	/**
+	 * The target variable
+	 */
+	private double target[];
+	/**
+	 * the parameter lines of the models of the level
+	 */
+	private String level_grid[];
+	/**
+	 * the folds (their train and test indices are made when a task starts) , null if the level has no out-of-fold predictions
+	 */
+	private kfold kfolder;
+	/**
+	 * out-of-fold predictions of the level (every task writes its own rows and columns)
+	 */
+	private fsmatrix trainstacker;
+	/**
+	 * first out-of-fold column of every model
+	 */
+	private int offsets[];
+	/**
+	 * checkpoints of the level (may be null)
+	 */
+	private stacknetcheckpoint checkpoint;
+	/**
+	 * the tasks as {model, fold} , where fold is -1 for the fit on all the data
+	 */
+	private int tasks[][];
+	/**
+	 * the next task to be taken by a worker
+	 */
+	private int next_task=0;
+	/**
+	 * number of tasks still to complete per model
+	 */
+	private int remaining[];
+	/**
+	 * first error thrown by a worker
+	 */
+	private RuntimeException error;
+	/**
+	 * the models fitted on all the data
+	 */
+	public estimator models[];
+	/**
+	 * expected duration of every model's fit on all the data (in seconds if timings are known, otherwise relative)
+	 */
+	public double expected[];
+	/**
+	 * measured seconds of every model's fit on all the data
+	 */
+	public double seconds[];
+	/**
+	 * number of tasks to run in parallel
+	 */
+	public int threads=1;
+	/**
+	 * total threads that the running models may use. If higher than zero it replaces the 'threads' of every model with its share of the cores. 0 keeps the models' own threads
+	 */
+	public int cores=0;
+	/**
+	 * threads given to the tasks that run
+	 */
+	private int threads_in_use=0;
+	/**
+	 * number of tasks that run with a share of the cores
+	 */
+	private int running_tasks=0;
+	/**
+	 * number of workers that take the tasks
+	 */
+	private int workers=1;
+	/**
+	 * if true, it prints stuff
+	 */
+	public boolean verbose=true;
+
+	/**
+	 * @param data : dense data of the level
+	 * @param target : the target variable
+	 * @param level_grid : the parameter lines of the models of the level
+	 * @param kfolder : the folds (null if the level has no out-of-fold predictions)
+	 * @param trainstacker : matrix for the out-of-fold predictions (null if kfolder is null)
+	 * @param offsets : first out-of-fold column of every model
+	 * @param checkpoint : checkpoints of the level (may be null)
+	 */
+	public stacknetscheduler(double data[][], double target[], String level_grid[], kfold kfolder, fsmatrix trainstacker, int offsets[], stacknetcheckpoint checkpoint){
+		this(target, level_grid, kfolder, trainstacker, offsets, checkpoint);
+		if (data==null || data.length!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		this.data2d=data;
+	}
+	/**
+	 * @param data : dense data of the level
+	 * @param target : the target variable
+	 * @param level_grid : the parameter lines of the models of the level
+	 * @param kfolder : the folds (null if the level has no out-of-fold predictions)
+	 * @param trainstacker : matrix for the out-of-fold predictions (null if kfolder is null)
+	 * @param offsets : first out-of-fold column of every model
+	 * @param checkpoint : checkpoints of the level (may be null)
+	 */
+	public stacknetscheduler(fsmatrix data, double target[], String level_grid[], kfold kfolder, fsmatrix trainstacker, int offsets[], stacknetcheckpoint checkpoint){
+		this(target, level_grid, kfolder, trainstacker, offsets, checkpoint);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		this.fdata=data;
+	}
+	/**
+	 * @param data : sparse data of the level. It is sorted by row (if it is not already) before any task starts, so that the tasks only read it
+	 * @param target : the target variable
+	 * @param level_grid : the parameter lines of the models of the level
+	 * @param kfolder : the folds (null if the level has no out-of-fold predictions)
+	 * @param trainstacker : matrix for the out-of-fold predictions (null if kfolder is null)
+	 * @param offsets : first out-of-fold column of every model
+	 * @param checkpoint : checkpoints of the level (may be null)
+	 */
+	public stacknetscheduler(smatrix data, double target[], String level_grid[], kfold kfolder, fsmatrix trainstacker, int offsets[], stacknetcheckpoint checkpoint){
+		this(target, level_grid, kfolder, trainstacker, offsets, checkpoint);
+		if (data==null || data.GetRowDimension()!=target.length){
+			throw new IllegalStateException(" There is nothing to train on" );
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		this.sdata=data;
+	}
+
+	private stacknetscheduler(double target[], String level_grid[], kfold kfolder, fsmatrix trainstacker, int offsets[], stacknetcheckpoint checkpoint){
+		if (target==null || target.length<=0){
+			throw new IllegalStateException(" target array needs to be provided" );
+		}
+		if (level_grid==null || level_grid.length<=0 || offsets==null || offsets.length!=level_grid.length){
+			throw new IllegalStateException(" There needs to be one offset per model" );
+		}
+		if (kfolder!=null && (trainstacker==null || trainstacker.GetRowDimension()!=target.length)){
+			throw new IllegalStateException(" The out-of-fold predictions need a matrix with the same rows as the target" );
+		}
+		this.target=target;
+		this.level_grid=level_grid;
+		this.kfolder=kfolder;
+		this.trainstacker=trainstacker;
+		this.offsets=offsets;
+		this.checkpoint=checkpoint;
+	}
+
+	/**
+	 * @param line : the parameter line of a model
+	 * @return a new (not fitted) model of the type named in the line
+	 */
+	public static estimator new_model(String line){
+		String str_estimator=line.split(" " + "+")[0];
+		if (str_estimator.contains("AdaboostForestRegressor")) {
+			return new AdaboostForestRegressor();
+		} else if (str_estimator.contains("AdaboostRandomForestClassifier")) {
+			return new AdaboostRandomForestClassifier();
+		}else if (str_estimator.contains("DecisionTreeClassifier")) {
+			return new DecisionTreeClassifier();
+		}else if (str_estimator.contains("DecisionTreeRegressor")) {
+			return new DecisionTreeRegressor();
+		}else if (str_estimator.contains("GradientBoostingForestClassifier")) {
+			return new GradientBoostingForestClassifier();
+		}else if (str_estimator.contains("GradientBoostingForestRegressor")) {
+			return new GradientBoostingForestRegressor();
+		}else if (str_estimator.contains("RandomForestClassifier")) {
+			return new RandomForestClassifier();
+		}else if (str_estimator.contains("RandomForestRegressor")) {
+			return new RandomForestRegressor();
+		}else if (str_estimator.contains("Vanilla2hnnregressor")) {
+			return new Vanilla2hnnregressor();
+		}else if (str_estimator.contains("Vanilla2hnnclassifier")) {
+			return new Vanilla2hnnclassifier();
+		}else if (str_estimator.contains("softmaxnnclassifier")) {
+			return new softmaxnnclassifier();
+		}else if (str_estimator.contains("multinnregressor")) {
+			return new multinnregressor();
+		}else if (str_estimator.contains("NaiveBayesClassifier")) {
+			return new NaiveBayesClassifier();
+		}else if (str_estimator.contains("LSVR")) {
+			return new LSVR();
+		}else if (str_estimator.contains("LSVC")) {
+			return new LSVC();
+		}else if (str_estimator.contains("LogisticRegression")) {
+			return new LogisticRegression();
+		}else if (str_estimator.contains("LinearRegression")) {
+			return new LinearRegression();
+		}else if (str_estimator.contains("LibFmRegressor")) {
+			return new LibFmRegressor();
+		}else if (str_estimator.contains("LibFmClassifier")) {
+			return new LibFmClassifier();
+		}else if (str_estimator.contains("knnClassifier")) {
+			return new knnClassifier();
+		}else if (str_estimator.contains("knnRegressor")) {
+			return new knnRegressor();
+		}else if (str_estimator.contains("KernelmodelClassifier")) {
+			return new KernelmodelClassifier();
+		}else if (str_estimator.contains("KernelmodelRegressor")) {
+			return new KernelmodelRegressor();
+		} else {
+			throw new IllegalStateException(" The selected model '" + str_estimator + "' inside the '" + line + "' is not recognizable!" );
+		}
+	}
+	/**
+	 * @param line : the parameter line of a model
+	 * @return True if the model is a regressor
+	 */
+	public static boolean is_regressor(String line){
+		return line.contains("AdaboostForestRegressor") ||
+				line.contains("DecisionTreeRegressor")	||
+				line.contains("GradientBoostingForestRegressor")	||
+				line.contains("RandomForestRegressor")	||
+				line.contains("multinnregressor")	||
+				line.contains("Vanilla2hnnregressor")	||
+				line.contains("LSVR")	||
+				line.contains("LinearRegression")	||
+				line.contains("LibFmRegressor")	||
+				line.contains("knnRegressor")	||
+				line.contains("KernelmodelRegressor");
+	}
+	/**
+	 * @param line : the parameter line of a model
+	 * @param name : name of the parameter
+	 * @param default_value : value to return if the parameter is not in the line
+	 * @return the value of the parameter
+	 */
+	private static double parameter(String line, String name, double default_value){
+		String splits[]=line.split(" " + "+");
+		for (int i=1; i < splits.length; i++){
+			String pair[]=splits[i].split(":");
+			if (pair.length==2 && pair[0].equals(name)){
+				try {
+					return Double.parseDouble(pair[1]);
+				} catch (NumberFormatException e) {
+					return default_value;
+				}
+			}
+		}
+		return default_value;
+	}
+	/**
+	 * A rough (relative) cost of fitting a model , used to order the tasks when there are no timings from previous runs
+	 * @param line : the parameter line of a model
+	 * @param rows : number of rows
+	 * @param columns : number of (non-zero) columns per row
+	 * @return the expected cost
+	 */
+	public static double expected_cost(String line, double rows, double columns){
+		double size=rows*Math.max(columns, 1.0);
+		double threads=Math.max(parameter(line, "threads", 1.0), 1.0);
+		double iterations=Math.max(parameter(line, "maxim_Iteration", 100.0), 1.0);
+		double cost;
+		if (line.contains("Forest")){
+			cost=Math.max(parameter(line, "estimators", 10.0), 1.0) * size * Math.log(rows+2.0) * Math.max(parameter(line, "max_features", 1.0), 0.01);
+		} else if (line.contains("DecisionTree")){
+			cost=size * Math.log(rows+2.0);
+		} else if (line.contains("knn") || line.contains("Kernelmodel")){
+			cost=rows * size;
+		} else if (line.contains("nn")){
+			cost=iterations * size * (parameter(line, "h1", 30.0) + parameter(line, "h2", 20.0));
+		} else if (line.contains("LibFm")){
+			cost=iterations * size * Math.max(parameter(line, "lfeatures", 4.0), 1.0);
+		} else if (line.contains("NaiveBayes")){
+			cost=size;
+		} else {
+			cost=iterations * size;
+		}
+		return cost/threads;
+	}
+
+	/**
+	 * runs all the tasks of the level and returns when they are all complete
+	 */
+	public void fit(){
+		int folds=(kfolder==null)?0:kfolder.getfolds();
+		int rows=target.length;
+		double columns;
+		if (data2d!=null){
+			columns=data2d[0].length;
+		} else if (fdata!=null){
+			columns=fdata.GetColumnDimension();
+		} else {
+			columns=(double) sdata.GeLength()/rows;
+		}
+		models= new estimator[level_grid.length];
+		seconds= new double[level_grid.length];
+		remaining= new int[level_grid.length];
+		expected= new double[level_grid.length];
+		double known_seconds=0.0;
+		double known_cost=0.0;
+		for (int es=0; es < level_grid.length; es++){
+			expected[es]=expected_cost(level_grid[es], rows, columns);
+			double previous=(checkpoint==null)?-1.0:checkpoint.expected_seconds(es);
+			if (previous>0){
+				known_seconds+=previous;
+				known_cost+=expected[es];
+			}
+		}
+		// the heuristic costs are brought to seconds with the models that have timings
+		double ratio=(known_cost>0)?known_seconds/known_cost:1.0;
+		for (int es=0; es < level_grid.length; es++){
+			double previous=(checkpoint==null)?-1.0:checkpoint.expected_seconds(es);
+			expected[es]=(previous>0)?previous:expected[es]*ratio;
+		}
+
+		ArrayList<int []> task_list= new ArrayList<int []>();
+		for (int es=0; es < level_grid.length; es++){
+			if (checkpoint!=null && checkpoint.restored(es)){
+				models[es]=checkpoint.load_model(es);
+				if (models[es]!=null){
+					continue;
+				}
+				// the checkpoint could not be loaded and the model is trained again
+			}
+			for (int f=0; f < folds; f++){
+				task_list.add(new int[]{es,f});
+			}
+			task_list.add(new int[]{es,-1});
+			remaining[es]=folds+1;
+		}
+		final double fold_share=(folds<=1)?1.0:(folds-1.0)/folds;
+		Collections.sort(task_list, new Comparator<int []>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				double cost_a=expected[a[0]]*((a[1]<0)?1.0:fold_share);
+				double cost_b=expected[b[0]]*((b[1]<0)?1.0:fold_share);
+				if (cost_a!=cost_b){
+					return (cost_a>cost_b)?-1:1;
+				}
+				if (a[0]!=b[0]){
+					return a[0]-b[0];
+				}
+				return a[1]-b[1];
+			}
+		});
+		tasks=task_list.toArray(new int[task_list.size()][]);
+		next_task=0;
+		error=null;
+		if (tasks.length==0){
+			return;
+		}
+
+		workers=Math.max(1, Math.min(threads, tasks.length));
+		if (cores>0){
+			workers=Math.min(workers, cores);
+		}
+		threads_in_use=0;
+		running_tasks=0;
+		Thread[] thread_array= new Thread[workers];
+		for (int n=0; n < thread_array.length; n++){
+			thread_array[n]= new Thread(this);
+			thread_array[n].start();
+		}
+		for (int n=0; n < thread_array.length; n++){
+			try {
+				thread_array[n].join();
+			} catch (InterruptedException e) {
+				System.out.println(e.getMessage());
+				throw new IllegalStateException(" algorithm was terminated due to multithreading error");
+			}
+		}
+		if (error!=null){
+			throw error;
+		}
+	}
+
+	/**
+	 * @return the next task or -1 if there are no more tasks (or a worker failed)
+	 */
+	private synchronized int next(){
+		if (error!=null || next_task>=tasks.length){
+			return -1;
+		}
+		return next_task++;
+	}
+	/**
+	 * marks a task of a model as complete
+	 * @return True if all the tasks of the model are complete
+	 */
+	private synchronized boolean complete(int es, double task_seconds, boolean final_fit){
+		if (final_fit){
+			seconds[es]=task_seconds;
+		}
+		remaining[es]--;
+		return remaining[es]==0;
+	}
+	/**
+	 * @return the threads for a task that starts now. The task takes the cores that are not used , apart from an even share kept for every
+	 * other worker that may still start a task. Hence a task gets more threads when fewer tasks run
+	 */
+	private synchronized int take_threads(){
+		int free=cores-threads_in_use;
+		int waiting=Math.min(workers-running_tasks-1, tasks.length-next_task);
+		int share=Math.max(1, free - Math.max(0, waiting)*Math.max(1, cores/workers));
+		threads_in_use+=share;
+		running_tasks++;
+		return share;
+	}
+	private synchronized void release_threads(int share){
+		threads_in_use-=share;
+		running_tasks--;
+	}
+	private synchronized void fail(RuntimeException e){
+		if (error==null){
+			error=e;
+		}
+	}
+
+	/**
+	 * runs a task with its share of the cores (if there is a core budget) and saves the checkpoint of the model when all its tasks are complete
+	 * @param es : the model
+	 * @param f : the fold , -1 for the fit on all the data
+	 */
+	private void run_task(int es, int f){
+		long start=System.currentTimeMillis();
+		estimator model=new_model(level_grid[es]);
+		model.set_params(level_grid[es]);
+		int share=0;
+		if (cores>0){
+			share=take_threads();
+			model.set_params("threads:" + share);
+		}
+		try {
+			fit_task(model, es, f, share);
+		} finally {
+			if (share>0){
+				release_threads(share);
+			}
+		}
+		double task_seconds=(System.currentTimeMillis()-start)/1000.0;
+		if (complete(es, task_seconds, f<0) && checkpoint!=null){
+			checkpoint.save(es, models[es], trainstacker);
+			checkpoint.save_seconds(es, seconds[es]);
+		}
+	}
+	/**
+	 * fits a model on the rows of a task and (for a fold) writes its predictions on the test rows
+	 * @param model : the model with its parameters
+	 * @param es : the model
+	 * @param f : the fold , -1 for the fit on all the data
+	 * @param share : the threads of the task (0 if there is no core budget)
+	 */
+	private void fit_task(estimator model, int es, int f, int share){
+		int test_indices[]=null;
+		double predictions[][]=null;
+		if (f<0){
+			if (verbose){
+				System.out.println("Fitting model: " + (es+1) + ((share>0)?" threads: " + share:""));
+			}
+			if (data2d!=null){
+				model.setdata(data2d);
+			} else if (fdata!=null){
+				model.setdata(fdata);
+			} else {
+				model.setdata(sdata);
+			}
+			model.set_target(target);
+			model.run();
+			models[es]=model;
+		} else {
+			if (verbose){
+				System.out.println("fitting model : " + (es+1) + " fold: " + (f+1) + "/" + kfolder.getfolds() + ((share>0)?" threads: " + share:""));
+			}
+			// the indices are made for this task only (makesubmatrix may sort them)
+			int train_indices[]=kfolder.train(f);
+			test_indices=kfolder.test(f);
+			if (data2d!=null){
+				model.setdata(manipulate.select.rowselect.RowSelect2d(data2d, train_indices));
+			} else if (fdata!=null){
+				model.setdata(fdata.makerowsubset(train_indices));
+			} else {
+				model.setdata(sdata.makesubmatrix(train_indices));
+			}
+			model.set_target(manipulate.select.rowselect.RowSelect(target, train_indices));
+			model.run();
+			if (data2d!=null){
+				predictions=model.predict_proba(manipulate.select.rowselect.RowSelect2d(data2d, test_indices));
+			} else if (fdata!=null){
+				predictions=model.predict_proba(fdata.makerowsubset(test_indices));
+			} else {
+				predictions=model.predict_proba(sdata.makesubmatrix(test_indices));
+			}
+			if (predictions[0].length==2){
+				predictions=manipulate.select.columnselect.ColumnSelect(predictions, new int [] {1});
+			}
+			for (int j=0; j < predictions[0].length; j++){
+				for (int i=0; i < predictions.length; i++){
+					trainstacker.SetElement(test_indices[i], offsets[es] + j, predictions[i][j]);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void run() {
+		int t;
+		while ((t=next())>=0){
+			try {
+				run_task(tasks[t][0], tasks[t][1]);
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package preprocess.encoding;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import utilis.map.intint.DoubleIntMap4a;
+
+/**
+ * @author mariosm
+ *<p> class to map the values of a classification target to the indices 0,1,...,k-1 of its (sorted) classes and back.
+ * The classes are found with a primitive double-keyed map and the names of the classes are made once, so that
+ * encoding a target or decoding a prediction does not create any object per row.
+ */
+public class labelencoder implements Serializable{
+
+	/**
+	 * serial id
+	 */
+	private static final long serialVersionUID = -3178622497218651820L;
+	/**
+	 * Name of the unique classes
+	 */
+	private String classes[];
+	/**
+	 * numeric value of each class (its index if the name is not a number)
+	 */
+	private double values[];
+	/**
+	 * maps the numeric value of a class to its index
+	 */
+	private DoubleIntMap4a mapper;
+	
+	/**
+	 * finds the sorted unique classes of a target
+	 * @param target : the target variable
+	 */
+	public labelencoder(double target[]){
+		if (target==null || target.length<=0){
+			throw new IllegalStateException(" target array needs to be provided" );
+		}
+		DoubleIntMap4a has = new DoubleIntMap4a(16,0.5F);
+		for (int i=0; i < target.length; i++){
+			if (has.get(target[i])==DoubleIntMap4a.NO_VALUE){
+				has.put(target[i], 0);
+			}
+		}
+		values=has.keys();
+		// sort values
+		Arrays.sort(values);
+		classes= new String[values.length];
+		mapper = new DoubleIntMap4a(values.length,0.5F);
+		for (int j=0; j < values.length; j++){
+			classes[j]=values[j]+"";
+			mapper.put(values[j], j);
+		}
+	}
+	/**
+	 * uses given classes. The names that are numbers are mapped to their position , the rest are never matched
+	 * @param names : the names of the classes
+	 */
+	public labelencoder(String names[]){
+		if (names==null || names.length<=0){
+			throw new IllegalStateException(" There are no classes to encode" );
+		}
+		classes=names;
+		values= new double[names.length];
+		mapper = new DoubleIntMap4a(names.length,0.5F);
+		for (int j=0; j < names.length; j++){
+			try{
+				values[j]=Double.parseDouble(names[j]);
+				if (mapper.get(values[j])==DoubleIntMap4a.NO_VALUE){
+					mapper.put(values[j], j);
+				}
+			} catch (Exception e){
+				values[j]=j;
+			}
+		}
+	}
+	/**
+	 * @return the number of classes
+	 */
+	public int size(){
+		return classes.length;
+	}
+	/**
+	 * @return the names of the classes
+	 */
+	public String [] getclasses(){
+		return classes;
+	}
+	/**
+	 * @param value : value of the target
+	 * @return the index of the class or -1 if it is not one of the classes
+	 */
+	public int encode(double value){
+		return mapper.get(value);
+	}
+	/**
+	 * @param target : the target variable
+	 * @return the index of the class of each row (-1 if it is not one of the classes)
+	 */
+	public int [] encode(double target[]){
+		int encoded[]= new int[target.length];
+		for (int i=0; i < encoded.length; i++){
+			encoded[i]=mapper.get(target[i]);
+		}
+		return encoded;
+	}
+	/**
+	 * @param index : the index of the class
+	 * @return the numeric value of the class, or the index itself if its name is not a number
+	 */
+	public double decode(int index){
+		return values[index];
+	}
+
+}
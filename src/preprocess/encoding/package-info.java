@@ -0,0 +1,5 @@
+
+/**
+ *<p> encoders of the values of a variable (such as the classes of the target) </p>
+ */
+package preprocess.encoding;
\ No newline at end of file
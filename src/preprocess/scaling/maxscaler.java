@@ -139,6 +139,30 @@ public class maxscaler implements scaler,Serializable{
 		is_itfitted=true;
 		
 	}
+	/**
+	 * Updates the maximum absolute values with one more (row-sorted) part of the data, so that the scaler can be fitted
+	 * on data that does not fit in memory at once (e.g. see {@link io.chunkreader})
+	 * @param data : one more part of the data
+	 */
+	public void partial_fit(smatrix data) {
+		if (data==null || data.GetRowDimension()<=0){
+			throw new IllegalStateException(" data object appears to be empty");
+		}
+		if (!data.IsSortedByRow()){
+			data.convert_type();
+		}
+		if (max_values==null){
+			max_values= new double[data.GetColumnDimension()] ;
+		} else if (max_values.length!=data.GetColumnDimension()){
+			throw new DimensionMismatchException(max_values.length,data.GetColumnDimension());
+		}
+		for (int i=0; i< data.GeLength(); i++){
+			if (Math.abs(data.valuespile[i])>max_values[data.mainelementpile[i]]){
+				max_values[data.mainelementpile[i]]=Math.abs(data.valuespile[i]);
+			}
+		}
+		is_itfitted=true;
+	}
 
 	@Override
 	public void transformthis(double[][] data) {
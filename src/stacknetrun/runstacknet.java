@@ -7,9 +7,12 @@ import java.io.Serializable;
 import java.util.HashSet;
 
 import crossvalidation.metrics.auc;
+import crossvalidation.metrics.fusedmetrics;
 import matrix.fsmatrix;
 import matrix.smatrix;
+import ml.estimator;
 import ml.stacknet.StackNetClassifier;
+import ml.stacknet.StackNetRegressor;
 
 public class runstacknet {
 
@@ -63,7 +66,15 @@ public class runstacknet {
 	 */
 	private static int threads=1;	
 	/**
-	 * Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) .defaults to 'logloss'
+	 * total threads that the models running in parallel may use together. 0 keeps the threads of every model. defaults to 0
+	 */
+	private static int cores=0;	
+	/**
+	 * True to build a {@link StackNetRegressor} (task=regression) instead of a {@link StackNetClassifier}. defaults to false
+	 */
+	private static boolean is_regression=false;
+	/**
+	 * Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) for classification and rmse or mae for regression .defaults to 'logloss' ('rmse' for regression)
 	 */
 	private static String  metric="logloss";
 	/**
@@ -78,11 +89,19 @@ public class runstacknet {
 	 * number of folds to be used for kfold during training. defaults is 5
 	 */
 	private static int folds=5;	
+	/**
+	 * directory to keep the checkpoints of the models of each level. A new training run restores the models that have not changed. defaults to nothing (no checkpoints)
+	 */
+	private static String checkpoint_dir="";	
 	
 	/**
 	 * stackNet object to be used
 	 */
 	private static StackNetClassifier stacknet;
+	/**
+	 * stackNet object to be used for regression
+	 */
+	private static StackNetRegressor stacknet_regressor;
 	/**
 	 * @param args : arguments to train StackNet model
 	 * <ul>
@@ -98,10 +117,13 @@ public class runstacknet {
 	 * <li> 'params' : parameter file where each line is a model. empty lines correspond to the creation of new levels </li>
 	 * <li> 'verbose' : true if we need StackNet to output its progress .defaults to true. </li>
 	 * <li> 'threads' : number of models to run in parallel. This is independent of any extra threads allocated from the selected algorithms. e.g. it is possible to run 4 models in parallel where one is a randomforest that runs on 10 threads (it selected).   </li>
-	 * <li> 'metric' : Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) .defaults to 'logloss' </li>
+	 * <li> 'cores' : total threads that the models running in parallel may use together. When set, StackNet gives every model its share of the cores when it starts (more when fewer models run) instead of the model's own 'threads'. defaults to 0 (the models' own threads) </li>
+	 * <li> 'task' : classification or regression. regression builds a StackNet of regressors whose last level is averaged. defaults to classification </li>
+	 * <li> 'metric' : Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) for classification and rmse or mae for regression .defaults to 'logloss' ('rmse' for regression) </li>
 	 * <li> 'stackdata' :True for <em>restacking</em>. defaults to true </li>
 	 * <li> 'seed' : integer for randomised procedures.defaults to 1</li>
 	 * <li> 'folds' : number of folds for re-usable kfold . defaults to 5</li>
+	 * <li> 'checkpoint_dir' : directory to keep the checkpoints of the models of each level. A new training run restores the models whose parameters, folds, seed and input data have not changed. defaults to nothing (no checkpoints)</li>
 	 * <li> 'help' : gives a few helpful tips</li>
 	 * </ul>
 	 */
@@ -121,10 +143,13 @@ public class runstacknet {
 	    "'params' : parameter file where each line is a model. empty lines correspond to the creation of new levels \n"+
 	    "'verbose' : true if we need StackNet to output its progress else false \n"+
 	    "'threads' : number of models to run in parallel. This is independent of any extra threads allocated from the selected algorithms. e.g. it is possible to run 4 models in parallel where one is a randomforest that runs on 10 threads (it selected). \n"+
-	    "'metric' : Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) \n"+
+	    "'cores' : total threads that the models running in parallel may use together. When set, StackNet gives every model its share of the cores instead of the model's own 'threads'. defaults to 0 (the models' own threads) \n"+
+	    "'task' : classification or regression. regression builds a StackNet of regressors whose last level is averaged. defaults to classification \n"+
+	    "'metric' : Metric to output in cross validation for each model-neuron. can be logloss, accuracy or auc (for binary only) for classification and rmse or mae for regression \n"+
 	    "'stackdata' :true for restacking else false\n"+
 	    "'seed' : integer for randomised procedures \n"+
-	    "'folds' : number of folds for re-usable kfold\n\n"+
+	    "'folds' : number of folds for re-usable kfold\n"+
+	    "'checkpoint_dir' : directory to keep the checkpoints of the models of each level. A new training run restores the models that have not changed\n\n"+
 	    "example of parameter file :\n\n"+
 	    "LogisticRegression C:1 Type:Liblinear maxim_Iteration:100 scale:true verbose:false\n"+
 	    "RandomForestClassifier bootsrap:false estimators:100 threads:5 logit.offset:0.00001 verbose:false cut_off_subsample:1.0 feature_subselection:1.0 gamma:0.00001 max_depth:8 max_features:0.25 max_tree_size:-1 min_leaf:2.0 min_split:5.0 Objective:ENTROPY row_subsample:0.95 seed:1\n"+
@@ -147,6 +172,7 @@ public class runstacknet {
 		    System.exit(-1); // exiting the system
 	    }
 	    HashSet<String> params_contained = new HashSet<String>();
+	    boolean metric_given=false;
 	    
 	    for (int j=1; j<args.length; j++ ){
 	    	String option=args[j].toLowerCase();
@@ -198,6 +224,8 @@ public class runstacknet {
 	    	test_file=parameter_value;	
 	    }else if (parameter_name.equals("output_name")){
 	    	output_name=parameter_value;	
+	    }else if (parameter_name.equals("checkpoint_dir")){
+	    	checkpoint_dir=parameter_value;	
 	    }else if (parameter_name.equals("test_target")){   
     		if (parameter_value.indexOf("false")!=-1  ){ 
     			test_file_has_target=false; 
@@ -241,12 +269,34 @@ public class runstacknet {
 	    		System.out.println("parameter 'threads' needs to have an integer value higher equal (>=) to 1 . here it received : " + parameter_value);
 			    System.exit(-1); // exiting the system	
 	    	}
+	    }else if (parameter_name.equals("cores")){
+	    	try{
+	    		cores=Integer.parseInt(parameter_value);
+	    	} catch (Exception e){
+	    		System.out.println("parameter 'cores' needs to have an integer value . here it received : " + parameter_value);
+			    System.exit(-1); // exiting the system	
+	    	}
+	    	if (cores<0){
+	    		System.out.println("parameter 'cores' needs to have an integer value higher equal (>=) to 0 . here it received : " + parameter_value);
+			    System.exit(-1); // exiting the system	
+	    	}
+	    }else if (parameter_name.equals("task")){
+	    	if (parameter_value.equals("classification")){
+	    		is_regression=false;
+	    	} else if (parameter_value.equals("regression")){
+	    		is_regression=true;
+	    	} else {
+	    		System.out.println("the 'task' parameter needs to be either 'classification' or 'regression' ");
+			    System.exit(-1); // exiting the system
+	    	}
 	    } else if (parameter_name.equals("metric")){
-	    	if ( !parameter_value.equals("logloss")  && !parameter_value.equals("accuracy") && !parameter_value.equals("auc")){
-	    		System.out.println("metric valid values are : logloss, accuracy, auc (for binary target)" );
+	    	if ( !parameter_value.equals("logloss")  && !parameter_value.equals("accuracy") && !parameter_value.equals("auc")
+	    			&& !parameter_value.equals("rmse") && !parameter_value.equals("mae")){
+	    		System.out.println("metric valid values are : logloss, accuracy, auc (for binary target) , rmse, mae (for regression)" );
 			    System.exit(-1); // exiting the system	    		
 	    	} else {
 	    		metric=parameter_value;
+	    		metric_given=true;
 	    	}
 	    	
 	    }else if (parameter_name.equals("stackdata")){
@@ -299,6 +349,7 @@ public class runstacknet {
 	
 	//do train if "is train" command is activated
 	if (is_train){
+		check_metric(metric_given);
 		
 		// modelling objects
 		fsmatrix X=null;
@@ -336,8 +387,6 @@ public class runstacknet {
 		}
 		// start the training 
 		
-		 stacknet= new StackNetClassifier();
-		 
 			String modellings[][]=io.input.StackNet_Configuration(params_file);
 			/*an example of params
 					new String[][] {
@@ -354,23 +403,54 @@ public class runstacknet {
 					
 			};
 			*/
-			stacknet.parameters=modellings;
-			stacknet.threads=threads;
-			stacknet.metric=metric;
-			stacknet.folds=folds;
-			stacknet.stackdata=restacking;
-			stacknet.seed=seed;
-			if (!output_name.equals("")){
-				stacknet.print=true;
-				stacknet.output_name=output_name;
-			}
-			stacknet.verbose=verbose;
-			stacknet.target=y;	
-			
-			if (is_sparse){
-				stacknet.fit(Xsparse);	
+			if (is_regression){
+				stacknet_regressor= new StackNetRegressor();
+				stacknet_regressor.parameters=modellings;
+				stacknet_regressor.threads=threads;
+				stacknet_regressor.cores=cores;
+				stacknet_regressor.metric=metric;
+				stacknet_regressor.folds=folds;
+				stacknet_regressor.stackdata=restacking;
+				stacknet_regressor.seed=seed;
+				if (!output_name.equals("")){
+					stacknet_regressor.print=true;
+					stacknet_regressor.output_name=output_name;
+				}
+				if (!checkpoint_dir.equals("")){
+					stacknet_regressor.checkpoint_dir=checkpoint_dir;
+				}
+				stacknet_regressor.verbose=verbose;
+				stacknet_regressor.target=y;	
+				
+				if (is_sparse){
+					stacknet_regressor.fit(Xsparse);	
+				} else {
+					stacknet_regressor.fit(X);
+				}
 			} else {
-				stacknet.fit(X);
+				stacknet= new StackNetClassifier();
+				stacknet.parameters=modellings;
+				stacknet.threads=threads;
+				stacknet.cores=cores;
+				stacknet.metric=metric;
+				stacknet.folds=folds;
+				stacknet.stackdata=restacking;
+				stacknet.seed=seed;
+				if (!output_name.equals("")){
+					stacknet.print=true;
+					stacknet.output_name=output_name;
+				}
+				if (!checkpoint_dir.equals("")){
+					stacknet.checkpoint_dir=checkpoint_dir;
+				}
+				stacknet.verbose=verbose;
+				stacknet.target=y;	
+				
+				if (is_sparse){
+					stacknet.fit(Xsparse);	
+				} else {
+					stacknet.fit(X);
+				}
 			}
 			double modelling_time=System.currentTimeMillis()	;
 			
@@ -379,7 +459,7 @@ public class runstacknet {
 			}
 			
 			try {
-				Serialized_Object.save(model_file, (Serializable) stacknet);
+				Serialized_Object.save(model_file, (Serializable) get_model());
 			} catch (IOException e1) {
 				System.out.println("model could not be exported at " + model_file);
 			}
@@ -408,11 +488,11 @@ public class runstacknet {
 					}
 					//check if number of columns of the test data, matches the training data, if test data is more, it gets trimmed, BUT a message is displayed
 					// ... and there is nothing you can do to stop it! It s for your own safety.
-					if (X_test.GetColumnDimension()!=stacknet.get_predictors()){
-						System.out.println("Warning : training column dimension is not the same with test " +X_test.GetColumnDimension()  + " <> " +  stacknet.get_predictors());
-						if (X_test.GetColumnDimension()>stacknet.get_predictors()){
-							System.out.println("Warning : test matrix gets its columns trimmed down to " +  stacknet.get_predictors());
-							int cols[]= new int [stacknet.get_predictors()];
+					if (X_test.GetColumnDimension()!=get_predictors()){
+						System.out.println("Warning : training column dimension is not the same with test " +X_test.GetColumnDimension()  + " <> " +  get_predictors());
+						if (X_test.GetColumnDimension()>get_predictors()){
+							System.out.println("Warning : test matrix gets its columns trimmed down to " +  get_predictors());
+							int cols[]= new int [get_predictors()];
 							for (int j=0; j <cols.length; j++ ){
 								cols[j]=j;
 							}
@@ -434,11 +514,11 @@ public class runstacknet {
 					if (verbose){
 							System.out.println("Loaded sparse test data with " + Xsparse_test.GetRowDimension() + " and columns " + Xsparse_test.GetColumnDimension() );	
 					}
-					if (Xsparse_test.GetColumnDimension()!=stacknet.get_predictors()){
-						System.out.println("Warning : training column dimension is not the same with test " +Xsparse_test.GetColumnDimension()  + " <> " +  stacknet.get_predictors());
-						if (Xsparse_test.GetColumnDimension()>stacknet.get_predictors()){
-							System.out.println("Warning : test matrix gets its columns trimmed down to " +  stacknet.get_predictors());
-							Xsparse_test= Xsparse_test.makesubmatrixcols( stacknet.get_predictors());
+					if (Xsparse_test.GetColumnDimension()!=get_predictors()){
+						System.out.println("Warning : training column dimension is not the same with test " +Xsparse_test.GetColumnDimension()  + " <> " +  get_predictors());
+						if (Xsparse_test.GetColumnDimension()>get_predictors()){
+							System.out.println("Warning : test matrix gets its columns trimmed down to " +  get_predictors());
+							Xsparse_test= Xsparse_test.makesubmatrixcols( get_predictors());
 						
 						}
 						
@@ -454,9 +534,9 @@ public class runstacknet {
 				double [][] predictions=null;
 				try {
 				if (is_sparse==false){	
-					predictions=stacknet.predict_proba(X_test);
+					predictions=get_model().predict_proba(X_test);
 				}else {
-					predictions=stacknet.predict_proba(Xsparse_test);
+					predictions=get_model().predict_proba(Xsparse_test);
 				}
 				}catch (Exception e){
 					System.out.println(" prediction to has failed due to " + e.getMessage());
@@ -484,20 +564,28 @@ public class runstacknet {
 				// metrics' calculation
 				if (verbose && y!=null && predictions!=null){
 					try{
-						if(stacknet.getnumber_of_classes()==2 && metric.equals("auc")){
+						if (is_regression){
+								crossvalidation.metrics.Metric ms =metric.equals("mae")?new crossvalidation.metrics.mae():new crossvalidation.metrics.rmse();
+								double value=ms.GetValue(manipulate.conversions.dimension.Convert(predictions),y ); // the error on the test
+								System.out.println("Test " + metric + " : " + value);
+							} else if(stacknet.getnumber_of_classes()==2 && metric.equals("auc")){
 								double pr [] = manipulate.conversions.dimension.Convert(predictions);
 								crossvalidation.metrics.Metric ms =new auc();
 								double auc=ms.GetValue(pr,y ); // the auc for the current fold	
 								System.out.println("Test AUC: " + auc);
 							} else if (metric.equals("logloss")){
 								
-								double log=stacknet.logloss (predictions,y); // the logloss for the current fold	
+								fusedmetrics metrics= new fusedmetrics("logloss");
+								metrics.threads=threads;
+								double log=metrics.GetValues(predictions,y)[0]; // the logloss on the test
 								System.out.println("Test logloss : " + log);
 								
 								
 							} else if (metric.equals("accuracy")){
 								
-								double acc=stacknet.accuracy (predictions,y); // the accuracy for the current fold	
+								fusedmetrics metrics= new fusedmetrics("accuracy");
+								metrics.threads=threads;
+								double acc=metrics.GetValues(predictions,y)[0]; // the accuracy on the test
 								System.out.println("Test accuracy : " + acc);
 								
 							}
@@ -524,7 +612,14 @@ public class runstacknet {
 		//if it is 'predict'
 		
 		try {
-			stacknet = (StackNetClassifier) Serialized_Object.load(model_file);
+			Object loaded= Serialized_Object.load(model_file);
+			if (loaded instanceof StackNetRegressor){
+				stacknet_regressor = (StackNetRegressor) loaded;
+				is_regression=true;
+			} else {
+				stacknet = (StackNetClassifier) loaded;
+				is_regression=false;
+			}
 		} catch (ClassNotFoundException e1) {
 			// TODO Auto-generated catch block
 			e1.printStackTrace();
@@ -533,6 +628,7 @@ public class runstacknet {
 			System.out.println("Loading  " + model_file + " has failed due to " + e1.getMessage());
 			System.exit(-1);
 		}
+		check_metric(metric_given);
 		
 		fsmatrix X_test=null;
 		smatrix Xsparse_test=null;
@@ -560,11 +656,11 @@ public class runstacknet {
 				}
 				//check if number of columns of the test data, matches the training data, if test data is more, it gets trimmed, BUT a message is displayed
 				// ... and there is nothing you can do to stop it! It s for your own safety.
-				if (X_test.GetColumnDimension()!=stacknet.get_predictors()){
-					System.out.println("Warning : training column dimension is not the same with test " +X_test.GetColumnDimension()  + " <> " +  stacknet.get_predictors());
-					if (X_test.GetColumnDimension()>stacknet.get_predictors()){
-						System.out.println("Warning : test matrix gets its columns trimmed down to " +  stacknet.get_predictors());
-						int cols[]= new int [stacknet.get_predictors()];
+				if (X_test.GetColumnDimension()!=get_predictors()){
+					System.out.println("Warning : training column dimension is not the same with test " +X_test.GetColumnDimension()  + " <> " +  get_predictors());
+					if (X_test.GetColumnDimension()>get_predictors()){
+						System.out.println("Warning : test matrix gets its columns trimmed down to " +  get_predictors());
+						int cols[]= new int [get_predictors()];
 						for (int j=0; j <cols.length; j++ ){
 							cols[j]=j;
 						}
@@ -586,11 +682,11 @@ public class runstacknet {
 				if (verbose){
 						System.out.println("Loaded sparse test data with " + Xsparse_test.GetRowDimension() + " and columns " + Xsparse_test.GetColumnDimension() );	
 				}
-				if (Xsparse_test.GetColumnDimension()!=stacknet.get_predictors()){
-					System.out.println("Warning : training column dimension is not the same with test " +Xsparse_test.GetColumnDimension()  + " <> " +  stacknet.get_predictors());
-					if (Xsparse_test.GetColumnDimension()>stacknet.get_predictors()){
-						System.out.println("Warning : test matrix gets its columns trimmed down to " +  stacknet.get_predictors());
-						Xsparse_test= Xsparse_test.makesubmatrixcols( stacknet.get_predictors());
+				if (Xsparse_test.GetColumnDimension()!=get_predictors()){
+					System.out.println("Warning : training column dimension is not the same with test " +Xsparse_test.GetColumnDimension()  + " <> " +  get_predictors());
+					if (Xsparse_test.GetColumnDimension()>get_predictors()){
+						System.out.println("Warning : test matrix gets its columns trimmed down to " +  get_predictors());
+						Xsparse_test= Xsparse_test.makesubmatrixcols( get_predictors());
 					
 					}
 					
@@ -606,9 +702,9 @@ public class runstacknet {
 			double [][] predictions=null;
 			try {
 			if (is_sparse==false){	
-				predictions=stacknet.predict_proba(X_test);
+				predictions=get_model().predict_proba(X_test);
 			}else {
-				predictions=stacknet.predict_proba(Xsparse_test);
+				predictions=get_model().predict_proba(Xsparse_test);
 			}
 			}catch (Exception e){
 				System.out.println(" prediction to has failed due to " + e.getMessage());
@@ -636,20 +732,28 @@ public class runstacknet {
 			// metrics' calculation
 			if (verbose && y!=null && predictions!=null){
 				try{
-					if(stacknet.getnumber_of_classes()==2 && metric.equals("auc")){
+					if (is_regression){
+							crossvalidation.metrics.Metric ms =metric.equals("mae")?new crossvalidation.metrics.mae():new crossvalidation.metrics.rmse();
+							double value=ms.GetValue(manipulate.conversions.dimension.Convert(predictions),y ); // the error on the test
+							System.out.println("Test " + metric + " : " + value);
+						} else if(stacknet.getnumber_of_classes()==2 && metric.equals("auc")){
 							double pr [] = manipulate.conversions.dimension.Convert(predictions);
 							crossvalidation.metrics.Metric ms =new auc();
 							double auc=ms.GetValue(pr,y ); // the auc for the current fold	
 							System.out.println("Test AUC: " + auc);
 						} else if (metric.equals("logloss")){
 							
-							double log=stacknet.logloss (predictions,y); // the logloss for the current fold	
+							fusedmetrics metrics= new fusedmetrics("logloss");
+							metrics.threads=threads;
+							double log=metrics.GetValues(predictions,y)[0]; // the logloss on the test
 							System.out.println("Test logloss : " + log);
 							
 							
 						} else if (metric.equals("accuracy")){
 							
-							double acc=stacknet.accuracy (predictions,y); // the accuracy for the current fold	
+							fusedmetrics metrics= new fusedmetrics("accuracy");
+							metrics.threads=threads;
+							double acc=metrics.GetValues(predictions,y)[0]; // the accuracy on the test
 							System.out.println("Test accuracy : " + acc);
 							
 						}
@@ -677,5 +781,41 @@ public class runstacknet {
 	
 
 }
+	
+	/**
+	 * Makes sure the metric fits the task. The default 'logloss' becomes 'rmse' for regression
+	 * @param metric_given : True if the metric was set by the user
+	 */
+	private static void check_metric(boolean metric_given){
+		boolean regression_metric=metric.equals("rmse") || metric.equals("mae");
+		if (is_regression && !regression_metric){
+			if (metric_given){
+				System.out.println("metric valid values for regression are : rmse, mae" );
+			    System.exit(-1); // exiting the system	
+			}
+			metric="rmse";
+		} else if (!is_regression && regression_metric){
+			System.out.println("metric valid values for classification are : logloss, accuracy, auc (for binary target)" );
+		    System.exit(-1); // exiting the system	
+		}
+	}
+	/**
+	 * @return the trained (or loaded) StackNet model
+	 */
+	private static estimator get_model(){
+		if (is_regression){
+			return stacknet_regressor;
+		}
+		return stacknet;
+	}
+	/**
+	 * @return the number of predictors the trained (or loaded) StackNet model was built with
+	 */
+	private static int get_predictors(){
+		if (is_regression){
+			return stacknet_regressor.get_predictors();
+		}
+		return stacknet.get_predictors();
+	}
 }	
 	
@@ -0,0 +1,151 @@
+package utilis.map.intint;
+
+/**
+ * Same logic as IntIntMapminus4a, but with double keys (held as their long bits) .
+ * Two keys are the same when Double.equals would say so (all NaNs are one key, 0.0 and -0.0 are different keys).
+ */
+public class DoubleIntMap4a implements java.io.Serializable
+{
+    private static final long serialVersionUID = -4128437614127624907L;
+
+    /** the bits of 0.0 */
+    private static final long FREE_KEY = 0L;
+
+    public static final int NO_VALUE = -1;
+
+    /** Keys (as long bits) */
+    private long[] m_keys;
+    /** Values */
+    private int[] m_values;
+
+    /** Do we have 'free' key in the map? */
+    private boolean m_hasFreeKey;
+    /** Value of 'free' key */
+    private int m_freeValue;
+
+    /** Fill factor, must be between (0 and 1) */
+    private final float m_fillFactor;
+    /** We will resize a map once it reaches this size */
+    private int m_threshold;
+    /** Current map size */
+    private int m_size;
+
+    /** Mask to calculate the original position */
+    private int m_mask;
+
+    public DoubleIntMap4a( final int size, final float fillFactor )
+    {
+        if ( fillFactor <= 0 || fillFactor >= 1 )
+            throw new IllegalArgumentException( "FillFactor must be in (0, 1)" );
+        if ( size <= 0 )
+            throw new IllegalArgumentException( "Size must be positive!" );
+        final int capacity = Tools.arraySize(size, fillFactor);
+        m_mask = capacity - 1;
+        m_fillFactor = fillFactor;
+
+        m_keys = new long[capacity];
+        m_values = new int[capacity];
+        m_threshold = (int) (capacity * fillFactor);
+    }
+
+    public int get( final double dkey )
+    {
+        final long key = Double.doubleToLongBits( dkey );
+        if ( key == FREE_KEY )
+            return m_hasFreeKey ? m_freeValue : NO_VALUE;
+
+        int ptr = Tools.phiMix( key ) & m_mask;
+        long k = m_keys[ ptr ];
+
+        if ( k == FREE_KEY )
+            return NO_VALUE;  //end of chain already
+        if ( k == key ) //we check FREE prior to this call
+            return m_values[ ptr ];
+
+        while ( true )
+        {
+            ptr = (ptr + 1) & m_mask; //that's next index
+            k = m_keys[ ptr ];
+            if ( k == FREE_KEY )
+                return NO_VALUE;
+            if ( k == key )
+                return m_values[ ptr ];
+        }
+    }
+
+    public int put( final double dkey, final int value )
+    {
+        final long key = Double.doubleToLongBits( dkey );
+        if ( key == FREE_KEY )
+        {
+            final int ret = m_hasFreeKey ? m_freeValue : NO_VALUE;
+            if ( !m_hasFreeKey )
+                ++m_size;
+            m_hasFreeKey = true;
+            m_freeValue = value;
+            return ret;
+        }
+
+        int ptr = Tools.phiMix( key ) & m_mask;
+        long k = m_keys[ ptr ];
+        while ( k != FREE_KEY )
+        {
+            if ( k == key )
+            {
+                final int ret = m_values[ ptr ];
+                m_values[ ptr ] = value;
+                return ret;
+            }
+            ptr = ( ptr + 1 ) & m_mask; //that's next index calculation
+            k = m_keys[ ptr ];
+        }
+        m_keys[ ptr ] = key;
+        m_values[ ptr ] = value;
+        if ( m_size >= m_threshold )
+            rehash( m_keys.length * 2 ); //size is set inside
+        else
+            ++m_size;
+        return NO_VALUE;
+    }
+
+    public int size()
+    {
+        return m_size;
+    }
+
+    /**
+     * @return the keys of the map (in no particular order)
+     */
+    public double[] keys()
+    {
+        final double[] keys = new double[ m_size ];
+        int k = 0;
+        if ( m_hasFreeKey )
+            keys[ k++ ] = 0.0;
+        for ( int i = 0; i < m_keys.length; i++ )
+        {
+            if ( m_keys[ i ] != FREE_KEY )
+                keys[ k++ ] = Double.longBitsToDouble( m_keys[ i ] );
+        }
+        return keys;
+    }
+
+    private void rehash( final int newCapacity )
+    {
+        m_threshold = (int) (newCapacity * m_fillFactor);
+        m_mask = newCapacity - 1;
+
+        final long[] oldKeys = m_keys;
+        final int[] oldValues = m_values;
+
+        m_keys = new long[ newCapacity ];
+        m_values = new int[ newCapacity ];
+        m_size = m_hasFreeKey ? 1 : 0;
+
+        for ( int i = 0; i < oldKeys.length; i++ ) {
+            final long oldKey = oldKeys[ i ];
+            if( oldKey != FREE_KEY )
+                put( Double.longBitsToDouble( oldKey ), oldValues[ i ] );
+        }
+    }
+}
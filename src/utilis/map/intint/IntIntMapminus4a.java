@@ -3,8 +3,10 @@ package utilis.map.intint;
 /**
  * Same as IntIntMap4, but using interleaving int[] instead of long[]
  */
-public class IntIntMapminus4a  implements IntIntMap
+public class IntIntMapminus4a  implements IntIntMap, java.io.Serializable
 {
+    private static final long serialVersionUID = 6127954403818635347L;
+
     private static final int FREE_KEY = 0;
 
     public static final int NO_VALUE = -1;
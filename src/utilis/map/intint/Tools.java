@@ -46,5 +46,14 @@ public class Tools {
    		return h ^ (h >> 16);
    	}
 
+    //taken from FastUtil
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    public static int phiMix( final long x ) {
+   		long h = x * LONG_PHI;
+   		h ^= (h >>> 32);
+   		return (int) ( h ^ (h >>> 16) );
+   	}
+
 
 }
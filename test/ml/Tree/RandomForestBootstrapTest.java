@@ -0,0 +1,129 @@
+/*Copyright (c) 2017 Marios Michailidis
+
+Permission is hereby granted, free of charge, to any person obtaining a copy
+of this software and associated documentation files (the "Software"), to deal
+in the Software without restriction, including without limitation the rights
+to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+copies of the Software, and to permit persons to whom the Software is
+furnished to do so, subject to the following conditions:
+
+The above copyright notice and this permission notice shall be included in all
+copies or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+SOFTWARE.
+*/
+
+
+package ml.Tree;
+
+import java.util.Random;
+
+import exceptions.IllegalStateException;
+import matrix.fsmatrix;
+
+/**
+ * 
+ * @author marios
+ *<p> Pins the predictions of the forests and trees fitted with bootsrap at a fixed seed , so that a change in the sampling of the rows 
+ * (which changes the models the seeds give) does not go unnoticed. Rows drawn more than once are weighted by the number of draws. </p>
+ *<p> Run it with the compiled sources in the classpath : java -cp classes:test_classes ml.Tree.RandomForestBootstrapTest . 
+ * It throws an {@link IllegalStateException} when a prediction differs from the pinned one. </p>
+ */
+public class RandomForestBootstrapTest {
+	
+	/**
+	 * rows of the data
+	 */
+	private static final int ROWS=500;
+	/**
+	 * columns of the data
+	 */
+	private static final int COLUMNS=6;
+	/**
+	 * tolerance for the pinned values
+	 */
+	private static final double TOLERANCE=1E-8;
+
+	public static void main(String[] args) {
+		double data[][]= new double [ROWS][COLUMNS];
+		double target[]= new double [ROWS];
+		double label[]= new double [ROWS];
+		Random random = new Random(1);
+		for (int i=0; i <ROWS; i++){
+			double sum=0.0;
+			for (int j=0; j <COLUMNS; j++){
+				data[i][j]=random.nextGaussian();
+				sum+=(j+1)*data[i][j];
+			}
+			target[i]=sum + random.nextGaussian();
+			label[i]=(target[i]>0)?1.0:0.0;
+		}
+		
+		RandomForestRegressor forest = new RandomForestRegressor(new fsmatrix(data));
+		forest.target=target;
+		forest.estimators=10;
+		forest.max_depth=6;
+		forest.bootsrap=true;
+		forest.threads=1;
+		forest.seed=1;
+		forest.verbose=false;
+		forest.fit(new fsmatrix(data));
+		check("RandomForestRegressor", sum(forest.predict(new fsmatrix(data))), 251.28650975664797);
+		
+		DecisionTreeRegressor tree = new DecisionTreeRegressor(data);
+		tree.target=target;
+		tree.max_depth=3;
+		tree.bootsrap=true;
+		tree.seed=1;
+		tree.verbose=false;
+		tree.fit(data);
+		check("DecisionTreeRegressor", sum(tree.predict(data)), 16.969934849027176);
+		
+		RandomForestClassifier classifier = new RandomForestClassifier(new fsmatrix(data));
+		classifier.target=label;
+		classifier.estimators=10;
+		classifier.max_depth=6;
+		classifier.bootsrap=true;
+		classifier.threads=1;
+		classifier.seed=1;
+		classifier.verbose=false;
+		classifier.fit(new fsmatrix(data));
+		double probabilities[][]=classifier.predict_proba(new fsmatrix(data));
+		double positive[]= new double [ROWS];
+		for (int i=0; i <ROWS; i++){
+			positive[i]=probabilities[i][1];
+		}
+		check("RandomForestClassifier", sum(positive), 260.13801293856403);
+		
+		System.out.println(" The bootsrap predictions match the pinned ones");
+	}
+	/**
+	 * @param values : the values to add
+	 * @return the sum of the values
+	 */
+	private static double sum(double values[]){
+		double sum=0.0;
+		for (double value : values){
+			sum+=value;
+		}
+		return sum;
+	}
+	/**
+	 * @param model : name of the model
+	 * @param value : the sum of its predictions
+	 * @param pinned : the expected sum
+	 */
+	private static void check(String model, double value, double pinned){
+		System.out.println(model + " " + value);
+		if (Math.abs(value-pinned)>TOLERANCE){
+			throw new IllegalStateException(" The predictions of " + model + " sum to " + value + " instead of " + pinned );
+		}
+	}
+
+}